@@ -3,11 +3,13 @@ package com.hqc.hophuddles;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
 //@EnableJpaAuditing
 @EnableTransactionManagement
+@EnableScheduling
 public class HopHuddlesApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,156 @@
+package com.hqc.hophuddles.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded executors behind the {@code @Async} qualifiers used by the services. Each pool has a fixed queue.
+ * Spring Boot publishes the executor metrics (active, queued, completed, pool size) tagged with the bean name;
+ * {@code executor.rejected} is added here with the same tag.
+ * <p>
+ * {@code @Async} must always name one of these executors; an unqualified one would fall back to Spring's
+ * unbounded thread-per-task executor.
+ */
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfig implements AsyncConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    public AsyncConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs claimed delivery schedules. Rejects when full; the caller gives the lease back so the sweep retries.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor schedulerTaskExecutor(
+            @Value("${app.async.scheduler.core-size:4}") int coreSize,
+            @Value("${app.async.scheduler.max-size:8}") int maxSize,
+            @Value("${app.async.scheduler.queue-capacity:100}") int queueCapacity) {
+        return executor("schedulerTaskExecutor", "schedule-exec-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Sends notifications. Runs on the caller's thread when full so that no notification is dropped.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor notificationTaskExecutor(
+            @Value("${app.async.notification.core-size:4}") int coreSize,
+            @Value("${app.async.notification.max-size:8}") int maxSize,
+            @Value("${app.async.notification.queue-capacity:500}") int queueCapacity) {
+        return executor("notificationTaskExecutor", "notify-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Sends chunks of a bulk email fan-out; its size is the number of SMTP connections open at once. Kept apart
+     * from the notification executor, whose tasks wait on these.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mailDeliveryExecutor(
+            @Value("${app.async.mail-delivery.core-size:4}") int coreSize,
+            @Value("${app.async.mail-delivery.max-size:4}") int maxSize,
+            @Value("${app.async.mail-delivery.queue-capacity:1000}") int queueCapacity) {
+        return executor("mailDeliveryExecutor", "mail-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor aiTaskExecutor(
+            @Value("${app.async.ai.core-size:2}") int coreSize,
+            @Value("${app.async.ai.max-size:4}") int maxSize,
+            @Value("${app.async.ai.queue-capacity:50}") int queueCapacity) {
+        return executor("aiTaskExecutor", "ai-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor fileGenerationExecutor(
+            @Value("${app.async.file-generation.core-size:2}") int coreSize,
+            @Value("${app.async.file-generation.max-size:4}") int maxSize,
+            @Value("${app.async.file-generation.queue-capacity:100}") int queueCapacity) {
+        return executor("fileGenerationExecutor", "file-gen-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Stores the files of a multi-file upload side by side. Runs on the request thread when full, which throttles
+     * the uploads instead of failing them.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor fileUploadExecutor(
+            @Value("${app.async.file-upload.core-size:4}") int coreSize,
+            @Value("${app.async.file-upload.max-size:4}") int maxSize,
+            @Value("${app.async.file-upload.queue-capacity:50}") int queueCapacity) {
+        return executor("fileUploadExecutor", "file-upload-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Copies blobs to the remote store in tiered storage mode. Rejects when full; the blobs it drops are copied by
+     * the scheduled catch-up run instead.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor blobReplicationExecutor(
+            @Value("${app.async.blob-replication.core-size:2}") int coreSize,
+            @Value("${app.async.blob-replication.max-size:2}") int maxSize,
+            @Value("${app.async.blob-replication.queue-capacity:1000}") int queueCapacity) {
+        return executor("blobReplicationExecutor", "blob-repl-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Writes streaming MVC responses such as NDJSON exports; see {@link WebMvcConfig}. Each running export holds
+     * a thread and a database connection, so the pool is small and rejects when full.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor webStreamingExecutor(
+            @Value("${app.async.web-streaming.core-size:4}") int coreSize,
+            @Value("${app.async.web-streaming.max-size:4}") int maxSize,
+            @Value("${app.async.web-streaming.queue-capacity:20}") int queueCapacity) {
+        return executor("webStreamingExecutor", "web-stream-", coreSize, maxSize, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) ->
+                log.error("Async method {} failed: {}", method.getName(), ex.getMessage(), ex);
+    }
+
+    private ThreadPoolTaskExecutor executor(String name, String threadPrefix, int coreSize, int maxSize,
+                                            int queueCapacity, RejectedExecutionHandler policy) {
+        Counter rejected = Counter.builder("executor.rejected")
+                .tag("name", name)
+                .description("Tasks refused because the pool and its queue were full")
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadPrefix);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            policy.rejectedExecution(task, pool);
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
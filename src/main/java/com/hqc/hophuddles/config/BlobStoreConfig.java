@@ -0,0 +1,66 @@
+package com.hqc.hophuddles.config;
+
+import com.hqc.hophuddles.service.storage.BlobStore;
+import com.hqc.hophuddles.service.storage.LocalBlobStore;
+import com.hqc.hophuddles.service.storage.S3BlobStore;
+import com.hqc.hophuddles.service.storage.TieredBlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Chooses where file blobs are kept, from {@code app.file.storage.type}:
+ * <ul>
+ *   <li>{@code local}: below {@code app.file.upload-dir} on this node (the default)</li>
+ *   <li>{@code s3}: in an S3-compatible bucket shared by all nodes</li>
+ *   <li>{@code tiered}: on local disk first, copied to the bucket in the background</li>
+ * </ul>
+ */
+@Configuration
+@Slf4j
+public class BlobStoreConfig {
+
+    @Bean
+    public BlobStore blobStore(@Value("${app.file.storage.type:local}") String type,
+                               @Value("${app.file.upload-dir}") String uploadDir,
+                               @Value("${app.file.storage.tiered.replicated-cache-entries:100000}") int cacheEntries,
+                               @Qualifier("blobReplicationExecutor") ThreadPoolTaskExecutor replicationExecutor,
+                               Environment environment) throws IOException {
+        Path localRoot = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(LocalBlobStore.DIRECTORY);
+        BlobStore store = switch (type) {
+            case "local" -> new LocalBlobStore(localRoot);
+            case "s3" -> s3(environment);
+            case "tiered" -> new TieredBlobStore(new LocalBlobStore(localRoot), s3(environment), replicationExecutor,
+                    cacheEntries);
+            default -> throw new IllegalStateException("Unknown app.file.storage.type: " + type);
+        };
+        log.info("Blob store: {}", type);
+        return store;
+    }
+
+    private static S3BlobStore s3(Environment environment) {
+        String prefix = "app.file.storage.s3.";
+        return new S3BlobStore(
+                URI.create(environment.getRequiredProperty(prefix + "endpoint")),
+                environment.getProperty(prefix + "region", "us-east-1"),
+                environment.getRequiredProperty(prefix + "bucket"),
+                environment.getRequiredProperty(prefix + "access-key"),
+                environment.getRequiredProperty(prefix + "secret-key"),
+                environment.getProperty(prefix + "path-style", Boolean.class, true),
+                environment.getProperty(prefix + "prefix", ""),
+                environment.getProperty(prefix + "multipart-threshold", Long.class, 16L * 1024 * 1024),
+                environment.getProperty(prefix + "part-size", Long.class, 8L * 1024 * 1024),
+                environment.getProperty(prefix + "upload-concurrency", Integer.class, 4),
+                Duration.ofMillis(environment.getProperty(prefix + "request-timeout-ms", Long.class, 300_000L)));
+    }
+}
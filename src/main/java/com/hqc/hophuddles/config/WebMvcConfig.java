@@ -0,0 +1,57 @@
+package com.hqc.hophuddles.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs asynchronous MVC responses (e.g. {@code StreamingResponseBody}) on a bounded executor. Without this,
+ * Spring MVC falls back to a new thread per request because the application defines its own executors.
+ * <p>
+ * Also replaces Boot's multipart resolver with one that leaves streaming uploads alone, so their bodies reach the
+ * controller unread instead of being spooled by the container first.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    // Parsed by FileController itself, part by part
+    private static final String STREAMING_UPLOAD_PATH = "/files/stream/";
+
+    private final ThreadPoolTaskExecutor webStreamingExecutor;
+
+    @Value("${app.web.async-timeout-ms:600000}")
+    private long asyncTimeoutMs;
+
+    public WebMvcConfig(@Qualifier("webStreamingExecutor") ThreadPoolTaskExecutor webStreamingExecutor) {
+        this.webStreamingExecutor = webStreamingExecutor;
+    }
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public StandardServletMultipartResolver multipartResolver(MultipartProperties properties) {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return super.isMultipart(request)
+                        && !request.getRequestURI().startsWith(request.getContextPath() + STREAMING_UPLOAD_PATH);
+            }
+        };
+        resolver.setResolveLazily(properties.isResolveLazily());
+        resolver.setStrictServletCompliance(properties.isStrictServletCompliance());
+        return resolver;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(webStreamingExecutor);
+        // Long enough for a large export to finish streaming
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+}
@@ -1,13 +1,18 @@
 package com.hqc.hophuddles.controller;
 
 import com.hqc.hophuddles.dto.response.AnalyticsResponse;
+import com.hqc.hophuddles.enums.Permission;
+import com.hqc.hophuddles.security.RequirePermission;
 import com.hqc.hophuddles.service.AnalyticsService;
+import com.hqc.hophuddles.service.EngagementRollupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/analytics")
@@ -16,6 +21,7 @@ import java.time.LocalDateTime;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final EngagementRollupService rollupService;
 
     @GetMapping("/agency/{agencyId}")
     public ResponseEntity<AnalyticsResponse> getAgencyAnalytics(@PathVariable Long agencyId) {
@@ -48,4 +54,19 @@ public class AnalyticsController {
         AnalyticsResponse analytics = analyticsService.getHuddleAnalytics(huddleId);
         return ResponseEntity.ok(analytics);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/rollups/backfill")
+    @RequirePermission(Permission.MANAGE_INTEGRATIONS)
+    public ResponseEntity<Map<String, Object>> startRollupBackfill() {
+        boolean started = rollupService.startBackfill();
+        Map<String, Object> status = rollupService.getBackfillStatus();
+        status.put("started", started);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(status);
+    }
+
+    @GetMapping("/rollups/backfill")
+    @RequirePermission(Permission.MANAGE_INTEGRATIONS)
+    public ResponseEntity<Map<String, Object>> getRollupBackfillStatus() {
+        return ResponseEntity.ok(rollupService.getBackfillStatus());
+    }
+}
@@ -1,14 +1,18 @@
 package com.hqc.hophuddles.controller;
 
-import com.hqc.hophuddles.entity.EngagementEvent;
+import com.hqc.hophuddles.dto.response.CursorPage;
+import com.hqc.hophuddles.dto.response.EngagementEventResponse;
 import com.hqc.hophuddles.enums.EventType;
 import com.hqc.hophuddles.service.EngagementService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/engagement")
@@ -16,6 +20,9 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class EngagementController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final EngagementService engagementService;
 
     @PostMapping("/huddle")
@@ -25,8 +32,8 @@ public class EngagementController {
             @RequestParam EventType eventType,
             @RequestParam String sessionId,
             @RequestBody(required = false) String eventData) {
-        engagementService.recordHuddleEvent(userId, huddleId, eventType, sessionId, eventData);
-        return ResponseEntity.ok().build();
+        boolean accepted = engagementService.recordHuddleEvent(userId, huddleId, eventType, sessionId, eventData);
+        return accepted ? ResponseEntity.accepted().build() : bufferFull();
     }
 
     @PostMapping("/sequence")
@@ -36,31 +43,71 @@ public class EngagementController {
             @RequestParam EventType eventType,
             @RequestParam String sessionId,
             @RequestBody(required = false) String eventData) {
-        engagementService.recordSequenceEvent(userId, sequenceId, eventType, sessionId, eventData);
-        return ResponseEntity.ok().build();
+        boolean accepted = engagementService.recordSequenceEvent(userId, sequenceId, eventType, sessionId, eventData);
+        return accepted ? ResponseEntity.accepted().build() : bufferFull();
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<EngagementEvent>> getUserEngagement(@PathVariable Long userId) {
-        List<EngagementEvent> events = engagementService.getUserEngagementHistory(userId);
-        return ResponseEntity.ok(events);
+    public ResponseEntity<CursorPage<EngagementEventResponse>> getUserEngagement(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(engagementService.getUserEngagementHistory(userId, cursor, pageSize(limit)));
     }
 
     @GetMapping("/huddle/{huddleId}")
-    public ResponseEntity<List<EngagementEvent>> getHuddleEngagement(@PathVariable Long huddleId) {
-        List<EngagementEvent> events = engagementService.getHuddleEngagementHistory(huddleId);
-        return ResponseEntity.ok(events);
+    public ResponseEntity<CursorPage<EngagementEventResponse>> getHuddleEngagement(
+            @PathVariable Long huddleId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(engagementService.getHuddleEngagementHistory(huddleId, cursor, pageSize(limit)));
     }
 
     @GetMapping("/sequence/{sequenceId}")
-    public ResponseEntity<List<EngagementEvent>> getSequenceEngagement(@PathVariable Long sequenceId) {
-        List<EngagementEvent> events = engagementService.getSequenceEngagementHistory(sequenceId);
-        return ResponseEntity.ok(events);
+    public ResponseEntity<CursorPage<EngagementEventResponse>> getSequenceEngagement(
+            @PathVariable Long sequenceId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(engagementService.getSequenceEngagementHistory(sequenceId, cursor, pageSize(limit)));
     }
 
     @GetMapping("/session/{sessionId}")
-    public ResponseEntity<List<EngagementEvent>> getSessionEvents(@PathVariable String sessionId) {
-        List<EngagementEvent> events = engagementService.getSessionEvents(sessionId);
+    public ResponseEntity<List<EngagementEventResponse>> getSessionEvents(@PathVariable String sessionId) {
+        List<EngagementEventResponse> events = engagementService.getSessionEvents(sessionId);
         return ResponseEntity.ok(events);
     }
-}
\ No newline at end of file
+
+    // Full history as newline-delimited JSON, streamed without holding it in memory
+    @GetMapping("/user/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportUserEngagement(@PathVariable Long userId) {
+        return ndjson("user-" + userId, out -> engagementService.exportUserEngagementHistory(userId, out));
+    }
+
+    @GetMapping("/huddle/{huddleId}/export")
+    public ResponseEntity<StreamingResponseBody> exportHuddleEngagement(@PathVariable Long huddleId) {
+        return ndjson("huddle-" + huddleId, out -> engagementService.exportHuddleEngagementHistory(huddleId, out));
+    }
+
+    @GetMapping("/sequence/{sequenceId}/export")
+    public ResponseEntity<StreamingResponseBody> exportSequenceEngagement(@PathVariable Long sequenceId) {
+        return ndjson("sequence-" + sequenceId,
+                out -> engagementService.exportSequenceEngagementHistory(sequenceId, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(String name, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"engagement-" + name + ".ndjson\"")
+                .body(body);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    }
+
+    private ResponseEntity<Void> bufferFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+}
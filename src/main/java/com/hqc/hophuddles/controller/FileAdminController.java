@@ -0,0 +1,42 @@
+package com.hqc.hophuddles.controller;
+
+import com.hqc.hophuddles.enums.Permission;
+import com.hqc.hophuddles.security.RequirePermission;
+import com.hqc.hophuddles.service.FileBlobCollector;
+import com.hqc.hophuddles.service.storage.BlobStore;
+import com.hqc.hophuddles.service.storage.TieredBlobStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * On-demand runs of the storage maintenance jobs, which otherwise run on their schedules. Restricted to system
+ * administrators, since they delete or copy stored data.
+ */
+@RestController
+@RequestMapping("/files/admin")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class FileAdminController {
+
+    private final FileBlobCollector fileBlobCollector;
+    private final BlobStore blobStore;
+
+    @PostMapping("/gc")
+    @RequirePermission(Permission.MANAGE_INTEGRATIONS)
+    public ResponseEntity<Map<String, Object>> collectBlobs() {
+        return ResponseEntity.ok(fileBlobCollector.collect());
+    }
+
+    // Copies blobs the background replication missed; only applies to tiered storage
+    @PostMapping("/replication")
+    @RequirePermission(Permission.MANAGE_INTEGRATIONS)
+    public ResponseEntity<Map<String, Object>> replicateBlobs() {
+        if (blobStore instanceof TieredBlobStore tiered) {
+            return ResponseEntity.ok(tiered.replicateMissing());
+        }
+        return ResponseEntity.ok(Map.of("skipped", "Blob store is not tiered"));
+    }
+}
@@ -1,30 +1,78 @@
 package com.hqc.hophuddles.controller;
 
+import com.hqc.hophuddles.exception.FileStorageException;
 import com.hqc.hophuddles.service.FileStorageService;
+import com.hqc.hophuddles.service.FileStorageService.StoredFile;
 import com.hqc.hophuddles.service.PDFGenerationService;
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.UploadContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/files")
 @CrossOrigin(origins = "*")
-@RequiredArgsConstructor
 @Slf4j
 public class FileController {
 
+    // Tomcat's sendfile request attributes, and the smallest body worth handing to it
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
     private final FileStorageService fileStorageService;
     private final PDFGenerationService pdfGenerationService;
+    private final Environment environment;
+    private final ThreadPoolTaskExecutor fileUploadExecutor;
+    private final Map<String, String> cacheControlByCategory = new ConcurrentHashMap<>();
+
+    @Value("${app.file.stream.max-files:20}")
+    private int maxStreamedFiles;
+
+    public FileController(FileStorageService fileStorageService,
+                          PDFGenerationService pdfGenerationService,
+                          Environment environment,
+                          @Qualifier("fileUploadExecutor") ThreadPoolTaskExecutor fileUploadExecutor) {
+        this.fileStorageService = fileStorageService;
+        this.pdfGenerationService = pdfGenerationService;
+        this.environment = environment;
+        this.fileUploadExecutor = fileUploadExecutor;
+    }
 
     @PostMapping("/upload")
     public ResponseEntity<Map<String, Object>> uploadFile(
@@ -63,67 +111,174 @@ public class FileController {
 
         Map<String, Object> response = new HashMap<>();
         try {
+            // The container has already spooled every part, so the files can be stored side by side
+            List<CompletableFuture<Map<String, Object>>> stored = new ArrayList<>();
+            for (MultipartFile file : files) {
+                stored.add(CompletableFuture.supplyAsync(() -> fileInfo(fileStorageService.storeFile(file, category),
+                        file.getOriginalFilename(), file.getSize()), fileUploadExecutor));
+            }
+            CompletableFuture.allOf(stored.toArray(new CompletableFuture[0])).join();
+
             Map<String, Object> uploadedFiles = new HashMap<>();
+            for (int i = 0; i < files.length; i++) {
+                uploadedFiles.put(files[i].getOriginalFilename(), stored.get(i).join());
+            }
 
-            for (MultipartFile file : files) {
-                String fileName = fileStorageService.storeFile(file, category);
-                String fileUrl = fileStorageService.getFileUrl(fileName);
+            response.put("success", true);
+            response.put("message", "Files uploaded successfully");
+            response.put("files", uploadedFiles);
+            response.put("count", files.length);
 
-                Map<String, Object> fileInfo = new HashMap<>();
-                fileInfo.put("fileName", fileName);
-                fileInfo.put("fileUrl", fileUrl);
-                fileInfo.put("originalName", file.getOriginalFilename());
-                fileInfo.put("size", file.getSize());
+            return ResponseEntity.ok(response);
 
-                uploadedFiles.put(file.getOriginalFilename(), fileInfo);
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Multiple file upload failed", cause);
+            response.put("success", false);
+            response.put("error", cause.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Uploads one or more files from a {@code multipart/form-data} body without the container spooling it first.
+     * Each file part is hashed, size-checked and sniffed as it is read from the connection and written once, to its
+     * final blob. Parts arrive one after another on the connection, so they are stored in the order sent; form
+     * fields are ignored.
+     */
+    @PostMapping("/stream/{category}")
+    public ResponseEntity<Map<String, Object>> streamUpload(@PathVariable String category,
+                                                            HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            FileUpload upload = new FileUpload();
+            upload.setHeaderEncoding(StandardCharsets.UTF_8.name());
+            FileItemIterator parts = upload.getItemIterator(new ServletUploadContext(request));
+
+            Map<String, Object> uploadedFiles = new HashMap<>();
+            int count = 0;
+            while (parts.hasNext()) {
+                FileItemStream part = parts.next();
+                if (part.isFormField()) {
+                    continue;
+                }
+                if (++count > maxStreamedFiles) {
+                    throw new FileStorageException("At most " + maxStreamedFiles + " files can be uploaded at once");
+                }
+                try (InputStream in = part.openStream()) {
+                    String fileName = fileStorageService.storeFile(in, part.getName(), category);
+                    uploadedFiles.put(part.getName(),
+                            fileInfo(fileName, part.getName(), fileStorageService.describe(fileName).getSize()));
+                }
+            }
+            if (count == 0) {
+                throw new FileStorageException("No files in request");
             }
 
             response.put("success", true);
             response.put("message", "Files uploaded successfully");
             response.put("files", uploadedFiles);
-            response.put("count", files.length);
+            response.put("count", count);
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            log.error("Multiple file upload failed", e);
+            log.error("Streaming file upload failed", e);
             response.put("success", false);
             response.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(response);
         }
     }
 
-    @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName, HttpServletRequest request) {
+    /**
+     * Serves a stored file. When the blob store can presign, the client is redirected to the store instead and no
+     * bytes pass through this node. Otherwise supports conditional requests against the file's strong ETag and
+     * modification time, and single byte ranges (206). Local bodies go out through the container's sendfile support
+     * where available, and otherwise through {@link FileChannel#transferTo}, so they are never copied into heap
+     * buffers; blobs held only remotely are streamed through.
+     */
+    @GetMapping({"/{fileName:.+}", "/{category}/{fileName:.+}"})
+    public void downloadFile(@PathVariable(required = false) String category,
+                             @PathVariable String fileName,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        String path = category != null ? category + "/" + fileName : fileName;
+        StoredFile file;
         try {
-            Resource resource = fileStorageService.loadFileAsResource(fileName);
+            file = fileStorageService.describe(path);
+        } catch (FileStorageException e) {
+            log.debug("File not found: {}", path);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String contentType = request.getServletContext().getMimeType(file.getName());
+        if (contentType == null) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        String disposition = "attachment; filename=\"" + file.getName().substring(file.getName().lastIndexOf('/') + 1)
+                + "\"";
+        String cacheControl = cacheControlFor(file.getCategory());
+
+        URI presigned = fileStorageService.presignDownload(file, Map.of(
+                HttpHeaders.CONTENT_TYPE, contentType,
+                HttpHeaders.CONTENT_DISPOSITION, disposition,
+                HttpHeaders.CACHE_CONTROL, cacheControl));
+        if (presigned != null) {
+            // The URL expires, so the redirect itself is never cached or revalidated
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            response.sendRedirect(presigned.toString());
+            return;
+        }
 
-            // Try to determine file's content type
-            String contentType = null;
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(file.getEtag(), file.getLastModified())) {
+            return;
+        }
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition);
+
+        long start = 0;
+        long length = file.getSize();
+        HttpRange range = requestedRange(request, file);
+        if (range != null) {
             try {
-                contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-            } catch (IOException ex) {
-                log.info("Could not determine file type.");
+                start = range.getRangeStart(file.getSize());
+                length = range.getRangeEnd(file.getSize()) - start + 1;
+            } catch (IllegalArgumentException e) {
+                length = 0; // starts past the end of the file
             }
-
-            // Fallback to the default content type if type could not be determined
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+            if (length <= 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getSize());
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
             }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + start + "-" + (start + length - 1) + "/" + file.getSize());
+        }
+        response.setContentLengthLong(length);
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
-
-        } catch (Exception e) {
-            log.error("File download failed for: " + fileName, e);
-            return ResponseEntity.notFound().build();
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (file.getPath() != null) {
+            transfer(file.getPath(), start, length, request, response);
+        } else {
+            try (InputStream in = fileStorageService.openRemote(file, start, length)) {
+                in.transferTo(response.getOutputStream());
+            }
         }
     }
 
-    @DeleteMapping("/{fileName:.+}")
-    public ResponseEntity<Map<String, Object>> deleteFile(@PathVariable String fileName) {
+    @DeleteMapping({"/{fileName:.+}", "/{category}/{fileName:.+}"})
+    public ResponseEntity<Map<String, Object>> deleteFile(@PathVariable(required = false) String category,
+                                                          @PathVariable String fileName) {
+        if (category != null) {
+            fileName = category + "/" + fileName;
+        }
         try {
             boolean deleted = fileStorageService.deleteFile(fileName);
 
@@ -175,16 +330,20 @@ public class FileController {
         }
     }
 
-    @GetMapping("/info/{fileName:.+}")
-    public ResponseEntity<Map<String, Object>> getFileInfo(@PathVariable String fileName) {
+    @GetMapping({"/info/{fileName:.+}", "/info/{category}/{fileName:.+}"})
+    public ResponseEntity<Map<String, Object>> getFileInfo(@PathVariable(required = false) String category,
+                                                           @PathVariable String fileName) {
+        if (category != null) {
+            fileName = category + "/" + fileName;
+        }
         try {
-            Resource resource = fileStorageService.loadFileAsResource(fileName);
+            StoredFile file = fileStorageService.describe(fileName);
 
             Map<String, Object> response = new HashMap<>();
             response.put("fileName", fileName);
-            response.put("exists", resource.exists());
-            response.put("readable", resource.isReadable());
-            response.put("size", resource.contentLength());
+            response.put("exists", true);
+            response.put("readable", true);
+            response.put("size", file.getSize());
             response.put("fileUrl", fileStorageService.getFileUrl(fileName));
 
             // File type detection
@@ -199,4 +358,104 @@ public class FileController {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+
+    // The single range to serve, or null to serve the whole file. Several ranges, unparsable ranges and ranges
+    // whose If-Range validator no longer matches are answered with the whole file, which RFC 9110 allows.
+    private static HttpRange requestedRange(HttpServletRequest request, StoredFile file) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(file.getEtag())) {
+            long since;
+            try {
+                since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            } catch (IllegalArgumentException e) {
+                return null; // an entity tag other than the current one
+            }
+            if (since == -1 || file.getLastModified() / 1000 > since / 1000) {
+                return null;
+            }
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void transfer(Path path, long start, long length,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (length >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat writes the region straight from the file once the request returns
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private Map<String, Object> fileInfo(String fileName, String originalName, long size) {
+        Map<String, Object> fileInfo = new HashMap<>();
+        fileInfo.put("fileName", fileName);
+        fileInfo.put("fileUrl", fileStorageService.getFileUrl(fileName));
+        fileInfo.put("originalName", originalName);
+        fileInfo.put("size", size);
+        return fileInfo;
+    }
+
+    private String cacheControlFor(String category) {
+        return cacheControlByCategory.computeIfAbsent(category, key -> environment.getProperty(
+                "app.file.cache-control.categories." + key,
+                environment.getProperty("app.file.cache-control.default", "no-cache")));
+    }
+
+    // Lets commons-fileupload read a Jakarta servlet request; its own servlet support is written against javax
+    private static class ServletUploadContext implements UploadContext {
+        private final HttpServletRequest request;
+
+        ServletUploadContext(HttpServletRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return request.getCharacterEncoding();
+        }
+
+        @Override
+        public String getContentType() {
+            return request.getContentType();
+        }
+
+        @Override
+        @Deprecated
+        public int getContentLength() {
+            return request.getContentLength();
+        }
+
+        @Override
+        public long contentLength() {
+            return request.getContentLengthLong();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return request.getInputStream();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.hqc.hophuddles.controller;
 
 import com.hqc.hophuddles.dto.request.HuddleCreateRequest;
+import com.hqc.hophuddles.dto.response.HuddleContentResponse;
 import com.hqc.hophuddles.dto.response.HuddleResponse;
 import com.hqc.hophuddles.enums.HuddleType;
 import com.hqc.hophuddles.service.HuddleService;
@@ -33,17 +34,26 @@ public class HuddleController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/{huddleId}/content")
+    public ResponseEntity<HuddleContentResponse> getHuddleContent(@PathVariable Long huddleId) {
+        HuddleContentResponse response = huddleService.getHuddleContent(huddleId);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/sequence/{sequenceId}")
-    public ResponseEntity<List<HuddleResponse>> getHuddlesBySequence(@PathVariable Long sequenceId) {
-        List<HuddleResponse> huddles = huddleService.getHuddlesBySequence(sequenceId);
+    public ResponseEntity<List<HuddleResponse>> getHuddlesBySequence(
+            @PathVariable Long sequenceId,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        List<HuddleResponse> huddles = huddleService.getHuddlesBySequence(sequenceId, summary);
         return ResponseEntity.ok(huddles);
     }
 
     @GetMapping("/sequence/{sequenceId}/type/{huddleType}")
     public ResponseEntity<List<HuddleResponse>> getHuddlesBySequenceAndType(
             @PathVariable Long sequenceId,
-            @PathVariable HuddleType huddleType) {
-        List<HuddleResponse> huddles = huddleService.getHuddlesBySequenceAndType(sequenceId, huddleType);
+            @PathVariable HuddleType huddleType,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        List<HuddleResponse> huddles = huddleService.getHuddlesBySequenceAndType(sequenceId, huddleType, summary);
         return ResponseEntity.ok(huddles);
     }
 
@@ -91,7 +101,7 @@ public class HuddleController {
 
     @GetMapping("/sequence/{sequenceId}/stats")
     public ResponseEntity<Map<String, Object>> getSequenceStats(@PathVariable Long sequenceId) {
-        List<HuddleResponse> huddles = huddleService.getHuddlesBySequence(sequenceId);
+        List<HuddleResponse> huddles = huddleService.getHuddlesBySequence(sequenceId, true);
         long completeCount = huddleService.getCompleteHuddleCount(sequenceId);
 
         Map<String, Object> stats = Map.of(
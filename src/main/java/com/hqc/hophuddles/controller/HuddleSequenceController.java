@@ -38,22 +38,27 @@ public class HuddleSequenceController {
     }
 
     @GetMapping("/agency/{agencyId}")
-    public ResponseEntity<List<HuddleSequenceResponse>> getSequencesByAgency(@PathVariable Long agencyId) {
-        List<HuddleSequenceResponse> sequences = sequenceService.getSequencesByAgency(agencyId);
+    public ResponseEntity<List<HuddleSequenceResponse>> getSequencesByAgency(
+            @PathVariable Long agencyId,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        List<HuddleSequenceResponse> sequences = sequenceService.getSequencesByAgency(agencyId, summary);
         return ResponseEntity.ok(sequences);
     }
 
     @GetMapping("/agency/{agencyId}/status/{status}")
     public ResponseEntity<List<HuddleSequenceResponse>> getSequencesByAgencyAndStatus(
             @PathVariable Long agencyId,
-            @PathVariable SequenceStatus status) {
-        List<HuddleSequenceResponse> sequences = sequenceService.getSequencesByAgencyAndStatus(agencyId, status);
+            @PathVariable SequenceStatus status,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        List<HuddleSequenceResponse> sequences = sequenceService.getSequencesByAgencyAndStatus(agencyId, status, summary);
         return ResponseEntity.ok(sequences);
     }
 
     @GetMapping("/creator/{userId}")
-    public ResponseEntity<List<HuddleSequenceResponse>> getSequencesByCreator(@PathVariable Long userId) {
-        List<HuddleSequenceResponse> sequences = sequenceService.getSequencesByCreator(userId);
+    public ResponseEntity<List<HuddleSequenceResponse>> getSequencesByCreator(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        List<HuddleSequenceResponse> sequences = sequenceService.getSequencesByCreator(userId, summary);
         return ResponseEntity.ok(sequences);
     }
 
@@ -62,8 +67,9 @@ public class HuddleSequenceController {
             @PathVariable Long agencyId,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) SequenceStatus status,
+            @RequestParam(defaultValue = "false") boolean summary,
             Pageable pageable) {
-        Page<HuddleSequenceResponse> sequences = sequenceService.searchSequences(agencyId, title, status, pageable);
+        Page<HuddleSequenceResponse> sequences = sequenceService.searchSequences(agencyId, title, status, pageable, summary);
         return ResponseEntity.ok(sequences);
     }
 
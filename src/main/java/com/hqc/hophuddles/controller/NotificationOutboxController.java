@@ -0,0 +1,42 @@
+package com.hqc.hophuddles.controller;
+
+import com.hqc.hophuddles.entity.NotificationOutbox;
+import com.hqc.hophuddles.enums.OutboxStatus;
+import com.hqc.hophuddles.enums.Permission;
+import com.hqc.hophuddles.security.RequirePermission;
+import com.hqc.hophuddles.service.NotificationOutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/notifications/outbox")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class NotificationOutboxController {
+
+    private final NotificationOutboxService outboxService;
+
+    @GetMapping("/stats")
+    @RequirePermission(Permission.CONFIGURE_NOTIFICATIONS)
+    public ResponseEntity<Map<OutboxStatus, Long>> getStats() {
+        return ResponseEntity.ok(outboxService.getStatusCounts());
+    }
+
+    @GetMapping("/dead-letters")
+    @RequirePermission(Permission.CONFIGURE_NOTIFICATIONS)
+    public ResponseEntity<List<NotificationOutbox>> getDeadLetters(
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(outboxService.getDeadLetters(Math.min(Math.max(limit, 1), 500)));
+    }
+
+    @PostMapping("/{outboxId}/requeue")
+    @RequirePermission(Permission.CONFIGURE_NOTIFICATIONS)
+    public ResponseEntity<Void> requeue(@PathVariable Long outboxId) {
+        outboxService.requeue(outboxId);
+        return ResponseEntity.ok().build();
+    }
+}
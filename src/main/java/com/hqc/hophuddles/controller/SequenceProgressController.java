@@ -1,12 +1,17 @@
 package com.hqc.hophuddles.controller;
 
 import com.hqc.hophuddles.dto.response.SequenceProgressResponse;
+import com.hqc.hophuddles.enums.Permission;
+import com.hqc.hophuddles.security.RequirePermission;
+import com.hqc.hophuddles.service.ProgressReconciliationJob;
 import com.hqc.hophuddles.service.SequenceProgressService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/sequence-progress")
@@ -15,6 +20,7 @@ import java.util.List;
 public class SequenceProgressController {
 
     private final SequenceProgressService sequenceProgressService;
+    private final ProgressReconciliationJob reconciliationJob;
 
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<SequenceProgressResponse>> getUserSequenceProgress(@PathVariable Long userId) {
@@ -41,4 +47,19 @@ public class SequenceProgressController {
         SequenceProgressResponse progress = sequenceProgressService.getSequenceProgressByUserAndSequence(userId, sequenceId);
         return ResponseEntity.ok(progress);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/reconcile")
+    @RequirePermission(Permission.MANAGE_INTEGRATIONS)
+    public ResponseEntity<Map<String, Object>> reconcile() {
+        boolean started = reconciliationJob.startReconciliation();
+        Map<String, Object> status = reconciliationJob.getStatus();
+        status.put("started", started);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(status);
+    }
+
+    @GetMapping("/reconcile")
+    @RequirePermission(Permission.MANAGE_INTEGRATIONS)
+    public ResponseEntity<Map<String, Object>> getReconciliationStatus() {
+        return ResponseEntity.ok(reconciliationJob.getStatus());
+    }
+}
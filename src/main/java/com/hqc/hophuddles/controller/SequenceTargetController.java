@@ -1,6 +1,7 @@
 package com.hqc.hophuddles.controller;
 
 import com.hqc.hophuddles.dto.response.SequenceTargetResponse;
+import com.hqc.hophuddles.enums.TargetOperation;
 import com.hqc.hophuddles.enums.TargetType;
 import com.hqc.hophuddles.service.SequenceTargetService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,8 +24,9 @@ public class SequenceTargetController {
     public ResponseEntity<SequenceTargetResponse> addTarget(
             @RequestParam Long sequenceId,
             @RequestParam TargetType targetType,
-            @RequestParam String targetValue) {
-        SequenceTargetResponse response = targetService.addTarget(sequenceId, targetType, targetValue);
+            @RequestParam String targetValue,
+            @RequestParam(defaultValue = "INCLUDE") TargetOperation targetOperation) {
+        SequenceTargetResponse response = targetService.addTarget(sequenceId, targetType, targetValue, targetOperation);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -42,6 +44,12 @@ public class SequenceTargetController {
         return ResponseEntity.ok(targets);
     }
 
+    @GetMapping("/sequence/{sequenceId}/audience")
+    public ResponseEntity<List<Long>> getAudience(@PathVariable Long sequenceId) {
+        List<Long> userIds = targetService.getTargetUserIds(sequenceId);
+        return ResponseEntity.ok(userIds);
+    }
+
     @GetMapping("/find-sequences")
     public ResponseEntity<List<Long>> findSequencesForTarget(
             @RequestParam TargetType targetType,
@@ -3,23 +3,47 @@ package com.hqc.hophuddles.controller;
 import com.hqc.hophuddles.entity.*;
 import com.hqc.hophuddles.enums.*;
 import com.hqc.hophuddles.repository.*;
+import com.hqc.hophuddles.repository.EngagementEventJdbcRepository.EventRow;
+import com.hqc.hophuddles.service.AnalyticsService;
+import com.hqc.hophuddles.service.EngagementRollupService;
+import com.hqc.hophuddles.service.EngagementService;
+import com.hqc.hophuddles.service.FileBlobCollector;
 import com.hqc.hophuddles.service.FileStorageService;
+import com.hqc.hophuddles.service.HuddleSequenceService;
+import com.hqc.hophuddles.service.HuddleService;
+import com.hqc.hophuddles.service.NotificationTemplateService;
+import com.hqc.hophuddles.service.NotificationTemplateService.PreparedNotification;
+import com.hqc.hophuddles.service.AccessProfile;
 import com.hqc.hophuddles.service.PDFGenerationService;
+import com.hqc.hophuddles.service.PermissionService;
+import com.hqc.hophuddles.service.SequenceTargetService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 @RestController
 @RequestMapping("/test")
 public class TestController {
 
+    // Upper bound for /seed-user-events, which is reachable without authentication
+    private static final int MAX_SEEDED_EVENTS = 200_000;
+
+    // Upper bounds for /seed-sequences, which is reachable without authentication
+    private static final int MAX_SEEDED_SEQUENCES = 500;
+    private static final int MAX_SEEDED_HUDDLES = 10;
+    private static final int MAX_SEEDED_CONTENT_CHARS = 20_000;
+
+    // Upper bound for the iterations of every /benchmark endpoint; each iteration runs on the request thread
+    private static final int MAX_BENCHMARK_ITERATIONS = 100;
+    private static final int MAX_BENCHMARK_RECIPIENTS = 10_000;
+
     @Autowired
     private AgencyRepository agencyRepository;
 
@@ -53,9 +77,39 @@ public class TestController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private FileBlobCollector fileBlobCollector;
+
     @Autowired
     private PDFGenerationService pdfGenerationService;
 
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private EngagementService engagementService;
+
+    @Autowired
+    private EngagementRollupService engagementRollupService;
+
+    @Autowired
+    private SequenceTargetService sequenceTargetService;
+
+    @Autowired
+    private HuddleSequenceService huddleSequenceService;
+
+    @Autowired
+    private HuddleService huddleService;
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Autowired
+    private NotificationTemplateService notificationTemplateService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @PostMapping("/create-sample-data")
     public ResponseEntity<Map<String, Object>> createSampleData() {
         try {
@@ -340,18 +394,14 @@ public class TestController {
 
             sequenceProgressRepository.save(sequenceProgress);
 
-            // Create some engagement events
+            // Create some engagement events (through the buffered write path so rollups stay in sync)
             for (int i = 0; i < 5; i++) {
-                EngagementEvent event = EngagementEvent.builder()
-                        .user(learner)
-                        .huddle(huddles.get(0))
-                        .sequence(sequence)
-                        .agency(sequence.getAgency())
-                        .eventType(i % 2 == 0 ? EventType.VIEW : EventType.PLAY_AUDIO)
-                        .sessionId("session_" + System.currentTimeMillis())
-                        .build();
-
-                engagementEventRepository.save(event);
+                engagementService.recordHuddleEvent(
+                        learner.getUserId(),
+                        huddles.get(0).getHuddleId(),
+                        i % 2 == 0 ? EventType.VIEW : EventType.PLAY_AUDIO,
+                        "session_" + System.currentTimeMillis() + "_" + i,
+                        null);
             }
 
             Map<String, Object> response = new HashMap<>();
@@ -479,4 +529,293 @@ public class TestController {
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/benchmark/sequence-analytics/{sequenceId}")
+    public ResponseEntity<Map<String, Object>> benchmarkSequenceAnalytics(
+            @PathVariable Long sequenceId,
+            @RequestParam(defaultValue = "50") int iterations) {
+        if (iterations < 1 || iterations > MAX_BENCHMARK_ITERATIONS) {
+            return countOutOfRange("iterations", MAX_BENCHMARK_ITERATIONS);
+        }
+        Map<String, Object> response = new HashMap<>();
+
+        // Previous implementation: one query per status count, average and distribution
+        response.put("perQuery", measure(iterations, () -> {
+            userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.NOT_STARTED);
+            userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.IN_PROGRESS);
+            userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.COMPLETED);
+            userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.COMPLETED);
+            userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.IN_PROGRESS);
+            userProgressRepository.getAverageCompletionBySequence(sequenceId);
+            userProgressRepository.getAverageTimeSpentBySequence(sequenceId);
+            userProgressRepository.getAverageAssessmentScoreBySequence(sequenceId);
+            engagementEventRepository.countEventsByTypeForSequence(sequenceId);
+            sequenceProgressRepository.countByStatusInSequence(sequenceId);
+        }));
+        response.put("singlePass", measure(iterations, () -> analyticsService.getSequenceAnalytics(sequenceId)));
+        response.put("iterations", iterations);
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Spreads events evenly over the last N days, through the rollup path so user-day counts stay in step
+    @PostMapping("/seed-user-events")
+    public ResponseEntity<Map<String, Object>> seedUserEvents(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "100000") int events,
+            @RequestParam(defaultValue = "400") int days) {
+        if (events < 1 || events > MAX_SEEDED_EVENTS || days < 1 || days > 3650) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "events must be between 1 and " + MAX_SEEDED_EVENTS + ", days between 1 and 3650"));
+        }
+        UserAssignment assignment = userAssignmentRepository.findByUserUserIdAndIsActiveTrueOrderByIsPrimaryDescAssignedAtDesc(userId).stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("User has no active assignment: " + userId));
+        Huddle huddle = huddleRepository.findAll().stream().findFirst()
+                .orElseThrow(() -> new IllegalStateException("Create huddle sample data first"));
+        Long agencyId = assignment.getAgency().getAgencyId();
+        Long sequenceId = huddle.getSequence().getSequenceId();
+
+        EventType[] types = {EventType.VIEW, EventType.PLAY_AUDIO, EventType.PAUSE_AUDIO, EventType.DOWNLOAD};
+        LocalDateTime now = LocalDateTime.now();
+        long spanSeconds = days * 86_400L;
+        long started = System.nanoTime();
+        int written = 0;
+        List<EventRow> chunk = new ArrayList<>(5000);
+        for (int i = 0; i < events; i++) {
+            chunk.add(EventRow.builder()
+                    .userId(userId)
+                    .huddleId(huddle.getHuddleId())
+                    .sequenceId(sequenceId)
+                    .agencyId(agencyId)
+                    .eventType(types[i % types.length].name())
+                    .createdAt(now.minusSeconds(spanSeconds - spanSeconds * i / events))
+                    .build());
+            if (chunk.size() == 5000 || i == events - 1) {
+                written += engagementRollupService.persistBatch(chunk, 500);
+                chunk.clear();
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("written", written);
+        response.put("millis", (System.nanoTime() - started) / 1_000_000);
+        return ResponseEntity.ok(response);
+    }
+
+    // Sequences with a few huddles each, carrying content and scripts of realistic size, plus two targets
+    @PostMapping("/seed-sequences")
+    public ResponseEntity<Map<String, Object>> seedSequences(
+            @RequestParam Long agencyId,
+            @RequestParam(defaultValue = "300") int sequences,
+            @RequestParam(defaultValue = "5") int huddles,
+            @RequestParam(defaultValue = "20000") int contentChars) {
+        if (sequences < 1 || sequences > MAX_SEEDED_SEQUENCES) {
+            return countOutOfRange("sequences", MAX_SEEDED_SEQUENCES);
+        }
+        if (huddles < 1 || huddles > MAX_SEEDED_HUDDLES) {
+            return countOutOfRange("huddles", MAX_SEEDED_HUDDLES);
+        }
+        if (contentChars < 1 || contentChars > MAX_SEEDED_CONTENT_CHARS) {
+            return countOutOfRange("contentChars", MAX_SEEDED_CONTENT_CHARS);
+        }
+        Agency agency = agencyRepository.findById(agencyId)
+                .orElseThrow(() -> new IllegalArgumentException("Agency not found: " + agencyId));
+        User creator = userRepository.findAll().stream().findFirst()
+                .orElseThrow(() -> new IllegalStateException("Create sample data first"));
+        String content = "{\"sections\":[{\"content\":\"" + "x".repeat(contentChars) + "\"}]}";
+        String script = "y".repeat(contentChars);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < sequences; i++) {
+            HuddleSequence sequence = new HuddleSequence(agency, "Seeded sequence " + i, creator);
+            sequence.setTotalHuddles(huddles);
+            sequence = sequenceRepository.save(sequence);
+
+            List<Huddle> batch = new ArrayList<>(huddles);
+            for (int h = 1; h <= huddles; h++) {
+                Huddle huddle = new Huddle(sequence, "Seeded huddle " + h, h);
+                huddle.setHuddleType(HuddleType.STANDARD);
+                huddle.setDurationMinutes(10);
+                huddle.setContentJson(content);
+                huddle.setVoiceScript(script);
+                batch.add(huddle);
+            }
+            huddleRepository.saveAll(batch);
+            sequenceTargetRepository.saveAll(List.of(
+                    new SequenceTarget(sequence, TargetType.DISCIPLINE, "RN"),
+                    new SequenceTarget(sequence, TargetType.ROLE, "FIELD_CLINICIAN")));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("sequences", sequences);
+        response.put("millis", (System.nanoTime() - started) / 1_000_000);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/benchmark/sequence-list/{agencyId}")
+    public ResponseEntity<Map<String, Object>> benchmarkSequenceList(
+            @PathVariable Long agencyId,
+            @RequestParam(defaultValue = "5") int iterations) {
+        if (iterations < 1 || iterations > MAX_BENCHMARK_ITERATIONS) {
+            return countOutOfRange("iterations", MAX_BENCHMARK_ITERATIONS);
+        }
+        Map<String, Object> response = new HashMap<>();
+
+        // Previous implementation: huddles and targets queried once per sequence
+        response.put("perSequence", measure(iterations, () -> sequenceRepository
+                .findByAgencyAgencyIdAndIsActiveTrueOrderByCreatedAtDesc(agencyId)
+                .forEach(sequence -> {
+                    huddleService.getHuddlesBySequence(sequence.getSequenceId(), false);
+                    sequenceTargetService.getTargetsBySequence(sequence.getSequenceId());
+                })));
+        response.put("batched", measure(iterations, () -> huddleSequenceService.getSequencesByAgency(agencyId, false)));
+        response.put("batchedSummary", measure(iterations, () -> huddleSequenceService.getSequencesByAgency(agencyId, true)));
+        response.put("sequences", huddleSequenceService.getSequencesByAgency(agencyId, true).size());
+        response.put("iterations", iterations);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/file-storage-stats")
+    public ResponseEntity<Map<String, Object>> fileStorageStats() {
+        return ResponseEntity.ok(fileBlobCollector.getStorageStats());
+    }
+
+    @GetMapping("/benchmark/user-analytics/{userId}")
+    public ResponseEntity<Map<String, Object>> benchmarkUserAnalytics(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "20") int iterations,
+            @RequestParam(defaultValue = "false") boolean includeLegacy) {
+        if (iterations < 1 || iterations > MAX_BENCHMARK_ITERATIONS) {
+            return countOutOfRange("iterations", MAX_BENCHMARK_ITERATIONS);
+        }
+        Map<String, Object> response = new HashMap<>();
+
+        // Previous implementation: the user's whole event history, trimmed to ten in memory
+        if (includeLegacy) {
+            response.put("fullHistory", measure(iterations, () -> engagementEventRepository
+                    .findByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId).stream().limit(10).toList()));
+        }
+        response.put("bounded", measure(iterations, () -> analyticsService.getUserAnalytics(userId)));
+        response.put("iterations", iterations);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/benchmark/permissions/{userId}")
+    public ResponseEntity<Map<String, Object>> benchmarkPermissions(
+            @PathVariable Long userId,
+            @RequestParam Long agencyId,
+            @RequestParam(defaultValue = "100") int iterations) {
+        if (iterations < 1 || iterations > MAX_BENCHMARK_ITERATIONS) {
+            return countOutOfRange("iterations", MAX_BENCHMARK_ITERATIONS);
+        }
+        Map<String, Object> response = new HashMap<>();
+
+        // Previous implementation: assignments loaded once for the permission set and again for resource access
+        response.put("uncached", measure(iterations, () -> {
+            AccessProfile.of(userAssignmentRepository.findByUserUserIdAndIsActiveTrueOrderByIsPrimaryDescAssignedAtDesc(userId));
+            AccessProfile.of(userAssignmentRepository.findByUserUserIdAndIsActiveTrueOrderByIsPrimaryDescAssignedAtDesc(userId))
+                    .canAccess(agencyId, "AGENCY");
+        }));
+        response.put("cached", measure(iterations,
+                () -> permissionService.hasAgencyPermission(userId, Permission.ACCESS_HUDDLES, agencyId)));
+        response.put("allowed", permissionService.hasAgencyPermission(userId, Permission.ACCESS_HUDDLES, agencyId));
+        response.put("iterations", iterations);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Release email rendering for one fan-out: per-user String.format (the previous implementation, text only),
+     * the compiled template with every value substituted per recipient, and the compiled template with the
+     * sequence values bound once. The template variants render subject, text and HTML.
+     */
+    @GetMapping("/benchmark/notification-render")
+    public ResponseEntity<Map<String, Object>> benchmarkNotificationRender(
+            @RequestParam(defaultValue = "10000") int recipients,
+            @RequestParam(defaultValue = "20") int iterations) {
+        if (recipients < 1 || recipients > MAX_BENCHMARK_RECIPIENTS) {
+            return countOutOfRange("recipients", MAX_BENCHMARK_RECIPIENTS);
+        }
+        if (iterations < 1 || iterations > MAX_BENCHMARK_ITERATIONS) {
+            return countOutOfRange("iterations", MAX_BENCHMARK_ITERATIONS);
+        }
+        String title = "Wound Care Essentials & Documentation";
+        String description = "Five short huddles on assessment, dressing selection and <charting> requirements.";
+        List<String> names = new ArrayList<>(recipients);
+        for (int i = 1; i <= recipients; i++) {
+            names.add("Learner " + i);
+        }
+        Map<String, String> shared = Map.of("sequenceTitle", title, "sequenceDescription", description);
+        Locale locale = notificationTemplateService.getDefaultLocale();
+
+        // Rendered lengths are summed so the JIT cannot drop the work
+        long[] sink = new long[1];
+        Map<String, Object> response = new HashMap<>();
+        response.put("stringFormat", perRecipient(recipients, measure(iterations, () -> {
+            for (String name : names) {
+                String subject = "New Training Available: " + title;
+                String text = String.format(
+                        "Hi %s,\n\nA new training huddle is now available: %s\n\nDescription: %s\n\nPlease log in to complete your training.",
+                        name, title, description);
+                sink[0] += subject.length() + text.length();
+            }
+        })));
+        response.put("templatePerRecipient", perRecipient(recipients, measure(iterations, () -> {
+            PreparedNotification prepared = notificationTemplateService.prepare("huddle-release", locale, Map.of());
+            Map<String, String> values = new HashMap<>(shared);
+            for (String name : names) {
+                values.put("userName", name);
+                sink[0] += prepared.render(values).getText().length();
+            }
+        })));
+        response.put("templatePrepared", perRecipient(recipients, measure(iterations, () -> {
+            PreparedNotification prepared = notificationTemplateService.prepare("huddle-release", locale, shared);
+            Map<String, String> values = new HashMap<>(2);
+            for (String name : names) {
+                values.put("userName", name);
+                sink[0] += prepared.render(values).getText().length();
+            }
+        })));
+        response.put("renderedChars", sink[0]);
+        response.put("recipients", recipients);
+        response.put("iterations", iterations);
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> countOutOfRange(String name, int max) {
+        return ResponseEntity.badRequest().body(Map.of("error", name + " must be between 1 and " + max));
+    }
+
+    private static Map<String, Object> perRecipient(int recipients, Map<String, Object> measured) {
+        double avgMillis = (Double) measured.get("avgMillis");
+        measured.put("millisPer10k", avgMillis * 10_000 / recipients);
+        measured.put("nanosPerRecipient", avgMillis * 1_000_000 / recipients);
+        measured.remove("statementsPerCall");
+        return measured;
+    }
+
+    // Average latency per call, plus JDBC statements per call when Hibernate statistics are already enabled
+    // (hibernate.generate_statistics). Statistics are global to the session factory, so they are only read here.
+    private Map<String, Object> measure(int iterations, Runnable work) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        boolean counting = statistics.isStatisticsEnabled();
+        work.run(); // warm-up
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        long elapsed = System.nanoTime() - started;
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("avgMillis", elapsed / 1_000_000.0 / iterations);
+        if (counting) {
+            result.put("statementsPerCall", (double) statements / iterations);
+        }
+        return result;
+    }
+}
@@ -1,7 +1,9 @@
 package com.hqc.hophuddles.controller;
 
+import com.hqc.hophuddles.dto.request.ProgressHeartbeatRequest;
 import com.hqc.hophuddles.dto.request.ProgressUpdateRequest;
 import com.hqc.hophuddles.dto.response.UserProgressResponse;
+import com.hqc.hophuddles.service.ProgressHeartbeatService;
 import com.hqc.hophuddles.service.UserProgressService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -9,7 +11,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -19,6 +23,7 @@ import java.util.Optional;
 public class UserProgressController {
 
     private final UserProgressService progressService;
+    private final ProgressHeartbeatService heartbeatService;
 
     @PostMapping("/start")
     public ResponseEntity<UserProgressResponse> startHuddle(
@@ -38,10 +43,27 @@ public class UserProgressController {
         return ResponseEntity.ok(response);
     }
 
+    // High-frequency player updates; buffered and persisted on transitions or every flush interval
+    @PostMapping("/heartbeat")
+    public ResponseEntity<Map<String, Object>> heartbeat(@Valid @RequestBody ProgressHeartbeatRequest request) {
+        boolean persisted = heartbeatService.record(
+                request.getUserId(),
+                request.getHuddleId(),
+                request.getCompletionPercentage(),
+                request.getElapsedMinutes()
+        );
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("persisted", persisted);
+        response.put("flushIntervalMs", heartbeatService.getFlushIntervalMs());
+        return ResponseEntity.accepted().body(response);
+    }
+
     @PostMapping("/complete")
     public ResponseEntity<UserProgressResponse> completeHuddle(
             @RequestParam Long userId,
             @RequestParam Long huddleId) {
+        heartbeatService.flush(userId, huddleId);
         UserProgressResponse response = progressService.completeHuddle(userId, huddleId);
         return ResponseEntity.ok(response);
     }
@@ -60,6 +82,7 @@ public class UserProgressController {
             @RequestParam Long userId,
             @RequestParam Long huddleId,
             @RequestParam BigDecimal score) {
+        heartbeatService.flush(userId, huddleId);
         UserProgressResponse response = progressService.recordAssessmentAttempt(userId, huddleId, score);
         return ResponseEntity.ok(response);
     }
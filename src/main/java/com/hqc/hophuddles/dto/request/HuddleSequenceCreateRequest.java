@@ -1,6 +1,7 @@
 // HuddleSequenceCreateRequest.java
 package com.hqc.hophuddles.dto.request;
 
+import com.hqc.hophuddles.enums.TargetOperation;
 import com.hqc.hophuddles.enums.TargetType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -59,6 +60,7 @@ public class HuddleSequenceCreateRequest {
     public static class TargetRequest {
         private TargetType targetType;
         private String targetValue;
+        private TargetOperation targetOperation; // Defaults to INCLUDE
 
         public TargetRequest() {}
 
@@ -72,5 +74,8 @@ public class HuddleSequenceCreateRequest {
 
         public String getTargetValue() { return targetValue; }
         public void setTargetValue(String targetValue) { this.targetValue = targetValue; }
+
+        public TargetOperation getTargetOperation() { return targetOperation; }
+        public void setTargetOperation(TargetOperation targetOperation) { this.targetOperation = targetOperation; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.hqc.hophuddles.dto.request;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProgressHeartbeatRequest {
+
+    @NotNull(message = "User ID is required")
+    private Long userId;
+
+    @NotNull(message = "Huddle ID is required")
+    private Long huddleId;
+
+    @DecimalMin(value = "0.00", message = "Completion percentage must be at least 0")
+    @DecimalMax(value = "100.00", message = "Completion percentage must not exceed 100")
+    private BigDecimal completionPercentage;
+
+    // Minutes elapsed since the previous heartbeat
+    @DecimalMin(value = "0.00", message = "Elapsed minutes must be non-negative")
+    @DecimalMax(value = "60.00", message = "Elapsed minutes must not exceed 60 per heartbeat")
+    private BigDecimal elapsedMinutes;
+}
@@ -1,3 +1,5 @@
+package com.hqc.hophuddles.dto.response;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
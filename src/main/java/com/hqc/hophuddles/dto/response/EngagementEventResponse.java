@@ -0,0 +1,29 @@
+package com.hqc.hophuddles.dto.response;
+
+import com.hqc.hophuddles.enums.EventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Engagement event as returned by the history endpoints. Built directly by JPQL constructor expressions, so
+ * related users, huddles and sequences are referenced by ID and never loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EngagementEventResponse {
+    private Long eventId;
+    private Long userId;
+    private Long huddleId;
+    private Long sequenceId;
+    private Long agencyId;
+    private EventType eventType;
+    private String eventData;
+    private String sessionId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.hqc.hophuddles.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A huddle's content, voice script and generation metadata, served on their own so that huddle lists can leave
+ * them out. Built directly by a JPQL constructor expression.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HuddleContentResponse {
+    private Long huddleId;
+    private String contentJson;
+    private String voiceScript;
+    private String generationMetadata;
+}
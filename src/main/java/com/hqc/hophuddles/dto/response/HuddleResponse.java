@@ -23,6 +23,23 @@ public class HuddleResponse {
     // Constructors
     public HuddleResponse() {}
 
+    // Summary rows: everything but the content and voice script
+    public HuddleResponse(Long huddleId, Long sequenceId, String sequenceTitle, String title, Integer orderIndex,
+                          String pdfUrl, String audioUrl, Integer durationMinutes, HuddleType huddleType,
+                          boolean isComplete, LocalDateTime createdAt) {
+        this.huddleId = huddleId;
+        this.sequenceId = sequenceId;
+        this.sequenceTitle = sequenceTitle;
+        this.title = title;
+        this.orderIndex = orderIndex;
+        this.pdfUrl = pdfUrl;
+        this.audioUrl = audioUrl;
+        this.durationMinutes = durationMinutes;
+        this.huddleType = huddleType;
+        this.isComplete = isComplete;
+        this.createdAt = createdAt;
+    }
+
     // Getters and Setters
     public Long getHuddleId() { return huddleId; }
     public void setHuddleId(Long huddleId) { this.huddleId = huddleId; }
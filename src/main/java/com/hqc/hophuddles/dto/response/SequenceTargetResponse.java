@@ -1,12 +1,14 @@
 // SequenceTargetResponse.java
 package com.hqc.hophuddles.dto.response;
 
+import com.hqc.hophuddles.enums.TargetOperation;
 import com.hqc.hophuddles.enums.TargetType;
 
 public class SequenceTargetResponse {
     private Long targetId;
     private TargetType targetType;
     private String targetValue;
+    private TargetOperation targetOperation;
     private String targetDisplayName; // Human-readable name
 
     // Constructors
@@ -27,6 +29,9 @@ public class SequenceTargetResponse {
     public String getTargetValue() { return targetValue; }
     public void setTargetValue(String targetValue) { this.targetValue = targetValue; }
 
+    public TargetOperation getTargetOperation() { return targetOperation; }
+    public void setTargetOperation(TargetOperation targetOperation) { this.targetOperation = targetOperation; }
+
     public String getTargetDisplayName() { return targetDisplayName; }
     public void setTargetDisplayName(String targetDisplayName) { this.targetDisplayName = targetDisplayName; }
 }
\ No newline at end of file
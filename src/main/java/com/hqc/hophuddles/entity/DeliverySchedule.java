@@ -16,7 +16,8 @@ import java.util.Set;
 @Table(name = "delivery_schedules", indexes = {
         @Index(name = "idx_schedule_next_execution", columnList = "next_execution_time, is_active"),
         @Index(name = "idx_schedule_sequence", columnList = "sequence_id, is_active"),
-        @Index(name = "idx_schedule_status", columnList = "schedule_status, next_execution_time")
+        @Index(name = "idx_schedule_status", columnList = "schedule_status, next_execution_time"),
+        @Index(name = "idx_schedule_lease", columnList = "schedule_status, next_execution_time, lease_expires_at")
 })
 @Data
 @NoArgsConstructor
@@ -112,6 +113,17 @@ public class DeliverySchedule extends BaseEntity {
     @Builder.Default
     private Integer consecutiveFailures = 0;
 
+    // Cluster lease: the node executing this schedule and when its claim lapses
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    // Execution time the last reminder was sent for, so each execution is reminded once
+    @Column(name = "reminder_sent_for")
+    private LocalDateTime reminderSentFor;
+
     // Business methods
     public ZoneId getTimeZoneId() {
         return ZoneId.of(timeZone);
@@ -146,6 +158,15 @@ public class DeliverySchedule extends BaseEntity {
         }
     }
 
+    public boolean isLeasedBy(String owner) {
+        return owner.equals(leaseOwner);
+    }
+
+    public void releaseLease() {
+        this.leaseOwner = null;
+        this.leaseExpiresAt = null;
+    }
+
     public void calculateNextExecution() {
         if (frequencyType == FrequencyType.IMMEDIATE) {
             this.nextExecutionTime = null; // Execute once
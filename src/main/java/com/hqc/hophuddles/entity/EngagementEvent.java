@@ -11,7 +11,9 @@ import lombok.*;
         indexes = {
                 @Index(name = "idx_events_user_date", columnList = "user_id, created_at"),
                 @Index(name = "idx_events_huddle_type", columnList = "huddle_id, event_type"),
+                @Index(name = "idx_events_huddle_date", columnList = "huddle_id, created_at, event_id"),
                 @Index(name = "idx_events_sequence_type", columnList = "sequence_id, event_type"),
+                @Index(name = "idx_events_sequence_date", columnList = "sequence_id, created_at, event_id"),
                 @Index(name = "idx_events_session", columnList = "session_id"),
                 @Index(name = "idx_events_type_date", columnList = "event_type, created_at"),
                 @Index(name = "idx_events_agency_date", columnList = "agency_id, created_at")
@@ -0,0 +1,60 @@
+package com.hqc.hophuddles.entity;
+
+import com.hqc.hophuddles.enums.EventType;
+import com.hqc.hophuddles.enums.RollupGranularity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated event counts per (agency, sequence, huddle, event type, bucket). Maintained
+ * incrementally by the engagement write path; sequence-level events use huddle_id = 0.
+ */
+@Entity
+@Table(name = "engagement_rollups",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_rollup_key", columnNames = {
+                        "granularity", "agency_id", "bucket_start", "sequence_id", "huddle_id", "event_type"})
+        },
+        indexes = {
+                @Index(name = "idx_rollup_sequence", columnList = "sequence_id, granularity"),
+                @Index(name = "idx_rollup_huddle", columnList = "huddle_id, granularity")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EngagementRollup {
+
+    public static final long NO_HUDDLE = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long rollupId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "agency_id", nullable = false)
+    private Long agencyId;
+
+    @Column(name = "sequence_id", nullable = false)
+    private Long sequenceId;
+
+    @Column(name = "huddle_id", nullable = false)
+    private Long huddleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 50)
+    private EventType eventType;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
@@ -0,0 +1,32 @@
+package com.hqc.hophuddles.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Backfill bookkeeping. Events with id &lt;= highWaterEventId predate incremental maintenance and are
+ * folded in by the backfill job, which advances cursorEventId in the same transaction as its writes.
+ */
+@Entity
+@Table(name = "engagement_rollup_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EngagementRollupState {
+
+    @Id
+    @Column(name = "state_key", length = 50)
+    private String stateKey;
+
+    @Column(name = "high_water_event_id", nullable = false)
+    private Long highWaterEventId;
+
+    @Column(name = "cursor_event_id", nullable = false)
+    private Long cursorEventId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
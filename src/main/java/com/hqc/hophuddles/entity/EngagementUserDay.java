@@ -0,0 +1,42 @@
+package com.hqc.hophuddles.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * One row per user per active day, so distinct-active-user counts never touch the raw event table.
+ */
+@Entity
+@Table(name = "engagement_user_days",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_user_day", columnNames = {"agency_id", "activity_date", "user_id"})
+        },
+        indexes = {
+                @Index(name = "idx_user_days_user_date", columnList = "user_id, activity_date")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EngagementUserDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "user_day_id")
+    private Long userDayId;
+
+    @Column(name = "agency_id", nullable = false)
+    private Long agencyId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
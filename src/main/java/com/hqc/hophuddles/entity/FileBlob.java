@@ -0,0 +1,40 @@
+package com.hqc.hophuddles.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored file body, identified by the SHA-256 of its content. refCount is the number of
+ * {@link FileReference}s naming it; once it drops to zero the blob is left for the collector, which deletes it
+ * after a grace period unless it is referenced again first.
+ */
+@Entity
+@Table(name = "file_blobs", indexes = {
+        @Index(name = "idx_file_blob_released", columnList = "ref_count, released_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileBlob {
+
+    // Lowercase hex
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // When refCount last dropped to zero
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+}
@@ -0,0 +1,44 @@
+package com.hqc.hophuddles.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored file as clients see it: the name handed out by the upload endpoints, mapped to the blob holding its
+ * content. Any number of names may share one blob.
+ */
+@Entity
+@Table(name = "file_references", indexes = {
+        @Index(name = "idx_file_reference_blob", columnList = "sha256")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileReference {
+
+    // category/unique name, as returned by FileStorageService.storeFile
+    @Id
+    @Column(name = "file_name", length = 500)
+    private String fileName;
+
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "category", nullable = false, length = 100)
+    private String category;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "original_name", length = 255)
+    private String originalName;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
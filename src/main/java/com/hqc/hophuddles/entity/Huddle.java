@@ -46,7 +46,6 @@ public class Huddle extends BaseEntity {
     @Column(name = "order_index", nullable = false)
     private Integer orderIndex;
 
-    @Setter
     @Column(name = "content_json", columnDefinition = "TEXT")
     private String contentJson; // Structured content as JSON
 
@@ -80,6 +79,19 @@ public class Huddle extends BaseEntity {
         this.orderIndex = orderIndex;
     }
 
+    // Blank text is stored as null, so "IS NOT NULL" in queries agrees with hasContent() and hasVoiceScript()
+    public void setContentJson(String contentJson) {
+        this.contentJson = blankToNull(contentJson);
+    }
+
+    public void setVoiceScript(String voiceScript) {
+        this.voiceScript = blankToNull(voiceScript);
+    }
+
+    private static String blankToNull(String text) {
+        return text == null || text.trim().isEmpty() ? null : text;
+    }
+
     // Business logic methods
     public boolean hasContent() {
         return contentJson != null && !contentJson.trim().isEmpty();
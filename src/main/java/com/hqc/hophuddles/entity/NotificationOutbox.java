@@ -0,0 +1,90 @@
+package com.hqc.hophuddles.entity;
+
+import com.hqc.hophuddles.enums.NotificationType;
+import com.hqc.hophuddles.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One rendered notification waiting for delivery, written in the same transaction as the change that caused it.
+ * The idempotency key identifies the notification (e.g. one schedule execution for one user), so re-running the
+ * same execution never enqueues it twice; it is also sent as a message header for downstream de-duplication.
+ */
+@Entity
+@Table(name = "notification_outbox",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_outbox_idempotency_key", columnNames = {"idempotency_key"})
+        },
+        indexes = {
+                @Index(name = "idx_outbox_due", columnList = "status, next_attempt_at"),
+                @Index(name = "idx_outbox_claim", columnList = "claimed_by")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id")
+    private Long outboxId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 200)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "notification_type", nullable = false, length = 30)
+    private NotificationType notificationType;
+
+    @Column(name = "recipient_user_id")
+    private Long recipientUserId;
+
+    @Column(name = "recipient_email", nullable = false, length = 255)
+    private String recipientEmail;
+
+    @Column(name = "subject", nullable = false, length = 500)
+    private String subject;
+
+    @Column(name = "body_text", columnDefinition = "TEXT", nullable = false)
+    private String bodyText;
+
+    // Null for plain-text notifications
+    @Column(name = "body_html", columnDefinition = "TEXT")
+    private String bodyHtml;
+
+    @Column(name = "sequence_id")
+    private Long sequenceId;
+
+    @Column(name = "schedule_id")
+    private Long scheduleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private OutboxStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Relay batch currently delivering this row, and when that claim lapses
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy;
+
+    @Column(name = "claim_expires_at")
+    private LocalDateTime claimExpiresAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
@@ -74,6 +74,20 @@ public class SequenceProgress extends BaseEntity {
     @Column(name = "average_score", precision = 5, scale = 2)
     private BigDecimal averageScore;
 
+    // Running score totals so the average can be maintained from deltas
+    @Column(name = "score_sum", precision = 12, scale = 2, nullable = false)
+    @Builder.Default
+    private BigDecimal scoreSum = BigDecimal.ZERO;
+
+    @Column(name = "score_count", nullable = false)
+    @Builder.Default
+    private Integer scoreCount = 0;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    @Builder.Default
+    private Long version = 0L;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "sequence_status", nullable = false, length = 50)
     @Builder.Default
@@ -97,6 +111,9 @@ public class SequenceProgress extends BaseEntity {
         this.completedHuddles = 0;
         this.completionPercentage = BigDecimal.ZERO;
         this.totalTimeSpentMinutes = BigDecimal.ZERO;
+        this.scoreSum = BigDecimal.ZERO;
+        this.scoreCount = 0;
+        this.version = 0L;
         this.sequenceStatus = ProgressStatus.NOT_STARTED;
     }
 
@@ -113,24 +130,76 @@ public class SequenceProgress extends BaseEntity {
         this.completedHuddles = completedCount;
         this.totalTimeSpentMinutes = totalTimeSpent;
         this.averageScore = avgScore;
+        refreshDerivedState();
+        this.lastAccessed = LocalDateTime.now();
+    }
+
+    /**
+     * Applies the change caused by a single huddle transition. Counters move by the given deltas and the
+     * percentage, average and status are derived from the new totals.
+     */
+    public void applyDelta(int completedDelta, BigDecimal timeDelta, BigDecimal scoreSumDelta, int scoreCountDelta) {
+        this.completedHuddles = Math.max(0, this.completedHuddles + completedDelta);
+        this.totalTimeSpentMinutes = this.totalTimeSpentMinutes.add(timeDelta).max(BigDecimal.ZERO);
+        this.scoreSum = this.scoreSum.add(scoreSumDelta);
+        this.scoreCount = Math.max(0, this.scoreCount + scoreCountDelta);
+        this.averageScore = calculateAverageScore();
+        refreshDerivedState();
+        this.lastAccessed = LocalDateTime.now();
+    }
 
+    /**
+     * Overwrites the counters with authoritative totals.
+     *
+     * @return true if any counter had drifted
+     */
+    public boolean reconcile(int completedCount, BigDecimal totalTimeSpent, BigDecimal totalScore,
+                             int scoredCount, Integer currentTotalHuddles) {
+        boolean drifted = this.completedHuddles != completedCount
+                || this.totalTimeSpentMinutes.compareTo(totalTimeSpent) != 0
+                || this.scoreSum.compareTo(totalScore) != 0
+                || this.scoreCount != scoredCount
+                || (currentTotalHuddles != null && !currentTotalHuddles.equals(this.totalHuddles));
+        if (!drifted) {
+            return false;
+        }
+
+        if (currentTotalHuddles != null) {
+            this.totalHuddles = currentTotalHuddles;
+        }
+        this.completedHuddles = completedCount;
+        this.totalTimeSpentMinutes = totalTimeSpent;
+        this.scoreSum = totalScore;
+        this.scoreCount = scoredCount;
+        this.averageScore = calculateAverageScore();
+        refreshDerivedState();
+        return true;
+    }
+
+    private BigDecimal calculateAverageScore() {
+        if (this.scoreCount == 0) {
+            return null;
+        }
+        return this.scoreSum.divide(new BigDecimal(this.scoreCount), 2, java.math.RoundingMode.HALF_UP);
+    }
+
+    private void refreshDerivedState() {
         // Calculate completion percentage
         if (this.totalHuddles > 0) {
-            this.completionPercentage = new BigDecimal(completedCount)
+            this.completionPercentage = new BigDecimal(completedHuddles)
                     .divide(new BigDecimal(totalHuddles), 2, java.math.RoundingMode.HALF_UP)
-                    .multiply(new BigDecimal("100"));
+                    .multiply(new BigDecimal("100"))
+                    .min(new BigDecimal("100.00"));
         }
 
         // Update status
-        if (completedCount > 0 && this.sequenceStatus == ProgressStatus.NOT_STARTED) {
+        if (completedHuddles > 0 && this.sequenceStatus == ProgressStatus.NOT_STARTED) {
             startSequence();
         }
 
-        if (completedCount.equals(totalHuddles) && this.sequenceStatus != ProgressStatus.COMPLETED) {
+        if (completedHuddles.equals(totalHuddles) && this.sequenceStatus != ProgressStatus.COMPLETED) {
             completeSequence();
         }
-
-        this.lastAccessed = LocalDateTime.now();
     }
 
     public void completeSequence() {
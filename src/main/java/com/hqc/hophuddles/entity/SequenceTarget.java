@@ -1,5 +1,6 @@
 package com.hqc.hophuddles.entity;
 
+import com.hqc.hophuddles.enums.TargetOperation;
 import com.hqc.hophuddles.enums.TargetType;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -33,6 +34,11 @@ public class SequenceTarget extends BaseEntity {
     @Column(name = "target_value", nullable = false, length = 255)
     private String targetValue; // ID or enum value
 
+    @NotNull(message = "Target operation is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_operation", nullable = false, length = 20)
+    private TargetOperation targetOperation = TargetOperation.INCLUDE;
+
     // Constructors
     public SequenceTarget() {}
 
@@ -55,12 +61,16 @@ public class SequenceTarget extends BaseEntity {
     public String getTargetValue() { return targetValue; }
     public void setTargetValue(String targetValue) { this.targetValue = targetValue; }
 
+    public TargetOperation getTargetOperation() { return targetOperation; }
+    public void setTargetOperation(TargetOperation targetOperation) { this.targetOperation = targetOperation; }
+
     @Override
     public String toString() {
         return "SequenceTarget{" +
                 "targetId=" + targetId +
                 ", targetType=" + targetType +
                 ", targetValue='" + targetValue + '\'' +
+                ", targetOperation=" + targetOperation +
                 '}';
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ import java.time.LocalDateTime;
                 @Index(name = "idx_progress_user_huddle", columnList = "user_id, huddle_id", unique = true),
                 @Index(name = "idx_progress_user_sequence", columnList = "user_id, sequence_id"),
                 @Index(name = "idx_progress_huddle_status", columnList = "huddle_id, progress_status"),
+                @Index(name = "idx_progress_sequence_status", columnList = "sequence_id, progress_status"),
                 @Index(name = "idx_progress_completion", columnList = "completed_at"),
                 @Index(name = "idx_progress_user_status", columnList = "user_id, progress_status")
         }
@@ -76,6 +77,11 @@ public class UserProgress extends BaseEntity {
     @Builder.Default
     private Integer assessmentAttempts = 0;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    @Builder.Default
+    private Long version = 0L;
+
     @Column(name = "started_at")
     private LocalDateTime startedAt;
 
@@ -100,6 +106,7 @@ public class UserProgress extends BaseEntity {
         this.completionPercentage = BigDecimal.ZERO;
         this.timeSpentMinutes = BigDecimal.ZERO;
         this.assessmentAttempts = 0;
+        this.version = 0L;
     }
 
     // Business methods
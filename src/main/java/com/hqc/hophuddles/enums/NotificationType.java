@@ -0,0 +1,19 @@
+package com.hqc.hophuddles.enums;
+
+public enum NotificationType {
+    HUDDLE_RELEASE("Huddle Release"),
+    HUDDLE_REMINDER("Huddle Reminder"),
+    GENERATION_COMPLETE("Generation Complete"),
+    GENERATION_FAILED("Generation Failed"),
+    SCHEDULE_FAILURE("Schedule Failure");
+
+    private final String displayName;
+
+    NotificationType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hqc.hophuddles.enums;
+
+public enum OutboxStatus {
+    PENDING("Pending"),
+    SENT("Sent"),
+    DEAD("Dead Letter");
+
+    private final String displayName;
+
+    OutboxStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
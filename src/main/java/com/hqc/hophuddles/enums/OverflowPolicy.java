@@ -0,0 +1,17 @@
+package com.hqc.hophuddles.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum OverflowPolicy {
+    BLOCK("Block caller until space frees up or the offer timeout expires"),
+    DROP_NEWEST("Discard the incoming item"),
+    DROP_OLDEST("Evict the oldest queued item to make room"),
+    CALLER_RUNS("Write the item synchronously on the calling thread");
+
+    private final String displayName;
+
+    OverflowPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+}
@@ -0,0 +1,24 @@
+package com.hqc.hophuddles.enums;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+public enum RollupGranularity {
+    HOUR("Hourly", ChronoUnit.HOURS),
+    DAY("Daily", ChronoUnit.DAYS);
+
+    private final String displayName;
+    private final ChronoUnit unit;
+
+    RollupGranularity(String displayName, ChronoUnit unit) {
+        this.displayName = displayName;
+        this.unit = unit;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+}
@@ -0,0 +1,21 @@
+package com.hqc.hophuddles.enums;
+
+/**
+ * How a {@link com.hqc.hophuddles.entity.SequenceTarget} combines with the other targets of its sequence:
+ * the audience is (union of INCLUDE targets) AND (each INTERSECT target type) minus (union of EXCLUDE targets).
+ */
+public enum TargetOperation {
+    INCLUDE("Include"),
+    INTERSECT("Only if also in"),
+    EXCLUDE("Exclude");
+
+    private final String displayName;
+
+    TargetOperation(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,15 @@
+package com.hqc.hophuddles.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when one of a user's assignments is created, updated or removed. Listeners that cache per-user access
+ * should drop it.
+ */
+@Getter
+@AllArgsConstructor
+public class UserAssignmentChangedEvent {
+    private final Long userId;
+    private final Long agencyId;
+}
@@ -0,0 +1,14 @@
+package com.hqc.hophuddles.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a user's profile is updated or the user is deactivated. Listeners that cache the user's
+ * identity should drop it.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+    private final Long userId;
+}
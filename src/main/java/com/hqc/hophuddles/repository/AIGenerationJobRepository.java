@@ -2,6 +2,7 @@ package com.hqc.hophuddles.repository;
 
 import com.hqc.hophuddles.entity.AIGenerationJob;
 import com.hqc.hophuddles.enums.GenerationStatus;
+import com.hqc.hophuddles.repository.projection.GenerationJobRef;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -24,18 +25,20 @@ public interface AIGenerationJobRepository extends JpaRepository<AIGenerationJob
             "ORDER BY job.createdAt ASC")
     List<AIGenerationJob> findByStatus(@Param("status") GenerationStatus status);
 
-    @Query("SELECT job FROM AIGenerationJob job " +
+    // Scheduled scans select IDs only; the TEXT payloads are loaded per job when needed
+    @Query("SELECT job.generationJobId AS generationJobId, job.externalJobId AS externalJobId " +
+            "FROM AIGenerationJob job " +
             "WHERE job.jobStatus IN ('PENDING', 'IN_PROGRESS') " +
             "AND job.createdAt < :cutoff " +
             "AND job.isActive = true")
-    List<AIGenerationJob> findStaleJobs(@Param("cutoff") LocalDateTime cutoff);
+    List<GenerationJobRef> findStaleJobs(@Param("cutoff") LocalDateTime cutoff);
 
-    @Query("SELECT job FROM AIGenerationJob job " +
+    @Query("SELECT job.generationJobId FROM AIGenerationJob job " +
             "WHERE job.jobStatus = 'FAILED' " +
             "AND job.retryCount < job.maxRetries " +
             "AND job.isActive = true " +
             "ORDER BY job.createdAt ASC")
-    List<AIGenerationJob> findRetryableJobs();
+    List<Long> findRetryableJobIds();
 
     @Query("SELECT COUNT(job) FROM AIGenerationJob job " +
             "WHERE job.sequence.agency.agencyId = :agencyId " +
@@ -0,0 +1,48 @@
+package com.hqc.hophuddles.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookups for audience resolution that only need IDs and raw target columns.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AudienceJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Loads the agency of an active sequence together with its active targets. Returns an empty list if the
+     * sequence does not exist; a sequence without targets yields one row with null target columns.
+     */
+    public List<TargetRow> findTargets(Long sequenceId) {
+        return jdbcTemplate.query(
+                "SELECT s.agency_id, t.target_type, t.target_value, t.target_operation FROM huddle_sequences s " +
+                        "LEFT JOIN sequence_targets t ON t.sequence_id = s.sequence_id AND t.is_active = TRUE " +
+                        "WHERE s.sequence_id = :sequenceId AND s.is_active = TRUE",
+                Map.of("sequenceId", sequenceId),
+                (rs, rowNum) -> new TargetRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+    }
+
+    public List<Long> findAgencyIdsByUser(Long userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT agency_id FROM user_assignments WHERE user_id = :userId",
+                Map.of("userId", userId), Long.class);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class TargetRow {
+        private final Long agencyId;
+        private final String targetType;
+        private final String targetValue;
+        private final String targetOperation;
+    }
+}
@@ -2,13 +2,19 @@ package com.hqc.hophuddles.repository;
 
 import com.hqc.hophuddles.entity.DeliverySchedule;
 import com.hqc.hophuddles.enums.ScheduleStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DeliveryScheduleRepository extends JpaRepository<DeliverySchedule, Long> {
@@ -20,6 +26,59 @@ public interface DeliveryScheduleRepository extends JpaRepository<DeliverySchedu
             "ORDER BY ds.nextExecutionTime ASC")
     List<DeliverySchedule> findSchedulesReadyForExecution(@Param("currentTime") LocalDateTime currentTime);
 
+    // Cluster leases: [scheduleId, leaseOwner] of due schedules that are unclaimed or whose lease has lapsed
+    @Query("SELECT ds.scheduleId, ds.leaseOwner FROM DeliverySchedule ds " +
+            "WHERE ds.scheduleStatus = 'ACTIVE' " +
+            "AND ds.isActive = true " +
+            "AND ds.nextExecutionTime <= :now " +
+            "AND (ds.leaseOwner IS NULL OR ds.leaseExpiresAt < :now) " +
+            "ORDER BY ds.nextExecutionTime ASC")
+    List<Object[]> findClaimableSchedules(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // [scheduleId, nextExecutionTime] of active schedules due before the horizon and not held by a live lease
+    @Query("SELECT ds.scheduleId, ds.nextExecutionTime FROM DeliverySchedule ds " +
+            "WHERE ds.scheduleStatus = 'ACTIVE' " +
+            "AND ds.isActive = true " +
+            "AND ds.nextExecutionTime <= :horizon " +
+            "AND (ds.leaseOwner IS NULL OR ds.leaseExpiresAt < :now)")
+    List<Object[]> findUpcomingSchedules(@Param("now") LocalDateTime now, @Param("horizon") LocalDateTime horizon);
+
+    // Compare-and-set claim; exactly one node gets an update count of 1
+    @Modifying
+    @Query("UPDATE DeliverySchedule ds " +
+            "SET ds.leaseOwner = :owner, ds.leaseExpiresAt = :expiresAt " +
+            "WHERE ds.scheduleId = :scheduleId " +
+            "AND ds.scheduleStatus = 'ACTIVE' " +
+            "AND ds.isActive = true " +
+            "AND ds.nextExecutionTime <= :now " +
+            "AND (ds.leaseOwner IS NULL OR ds.leaseExpiresAt < :now)")
+    int claim(@Param("scheduleId") Long scheduleId,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE DeliverySchedule ds SET ds.leaseOwner = NULL, ds.leaseExpiresAt = NULL " +
+            "WHERE ds.scheduleId = :scheduleId AND ds.leaseOwner = :owner")
+    int releaseLease(@Param("scheduleId") Long scheduleId, @Param("owner") String owner);
+
+    // [scheduleId, agencyId] pairs
+    @Query("SELECT ds.scheduleId, ds.sequence.agency.agencyId FROM DeliverySchedule ds " +
+            "WHERE ds.scheduleId IN :scheduleIds")
+    List<Object[]> findAgencyIdsBySchedule(@Param("scheduleIds") Collection<Long> scheduleIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ds FROM DeliverySchedule ds WHERE ds.scheduleId = :scheduleId")
+    Optional<DeliverySchedule> findByIdForUpdate(@Param("scheduleId") Long scheduleId);
+
+    // Marks the reminder for one execution as sent; exactly one node gets an update count of 1
+    @Modifying
+    @Query("UPDATE DeliverySchedule ds " +
+            "SET ds.reminderSentFor = :executionTime " +
+            "WHERE ds.scheduleId = :scheduleId " +
+            "AND (ds.reminderSentFor IS NULL OR ds.reminderSentFor <> :executionTime)")
+    int claimReminder(@Param("scheduleId") Long scheduleId, @Param("executionTime") LocalDateTime executionTime);
+
     @Query("SELECT ds FROM DeliverySchedule ds " +
             "WHERE ds.sequence.sequenceId = :sequenceId " +
             "AND ds.isActive = true")
@@ -0,0 +1,124 @@
+package com.hqc.hophuddles.repository;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Plain JDBC access for the engagement write path. Engagement events use IDENTITY keys,
+ * which disables Hibernate insert batching, so bulk writes go through JdbcTemplate instead.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EngagementEventJdbcRepository {
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO engagement_events (user_id, huddle_id, sequence_id, agency_id, event_type, " +
+                    "event_data, session_id, ip_address, user_agent, is_active, created_at, updated_at, " +
+                    "created_by, updated_by) " +
+                    "VALUES (:userId, :huddleId, :sequenceId, :agencyId, :eventType, :eventData, :sessionId, " +
+                    ":ipAddress, :userAgent, TRUE, :createdAt, :createdAt, 'system', 'system')";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Reference resolution (one query per batch instead of one per event)
+    public Set<Long> findActiveUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE user_id IN (:ids) AND is_active = TRUE",
+                Map.of("ids", userIds), Long.class));
+    }
+
+    /**
+     * Resolves active huddles to their owning sequence and agency: {@code huddleId -> [sequenceId, agencyId]}.
+     */
+    public Map<Long, long[]> findHuddleScopes(Collection<Long> huddleIds) {
+        Map<Long, long[]> scopes = new HashMap<>();
+        if (huddleIds.isEmpty()) {
+            return scopes;
+        }
+        jdbcTemplate.query(
+                "SELECT h.huddle_id, s.sequence_id, s.agency_id FROM huddles h " +
+                        "JOIN huddle_sequences s ON s.sequence_id = h.sequence_id " +
+                        "WHERE h.huddle_id IN (:ids) AND h.is_active = TRUE",
+                Map.of("ids", huddleIds),
+                rs -> {
+                    scopes.put(rs.getLong(1), new long[]{rs.getLong(2), rs.getLong(3)});
+                });
+        return scopes;
+    }
+
+    /**
+     * Resolves active sequences to their agency: {@code sequenceId -> agencyId}.
+     */
+    public Map<Long, Long> findSequenceAgencies(Collection<Long> sequenceIds) {
+        Map<Long, Long> agencies = new HashMap<>();
+        if (sequenceIds.isEmpty()) {
+            return agencies;
+        }
+        jdbcTemplate.query(
+                "SELECT sequence_id, agency_id FROM huddle_sequences " +
+                        "WHERE sequence_id IN (:ids) AND is_active = TRUE",
+                Map.of("ids", sequenceIds),
+                rs -> {
+                    agencies.put(rs.getLong(1), rs.getLong(2));
+                });
+        return agencies;
+    }
+
+    // Bulk insert
+    @Transactional
+    public int insertBatch(List<EventRow> rows, int jdbcBatchSize) {
+        int written = 0;
+        for (int from = 0; from < rows.size(); from += jdbcBatchSize) {
+            List<EventRow> chunk = rows.subList(from, Math.min(from + jdbcBatchSize, rows.size()));
+            MapSqlParameterSource[] params = new MapSqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                params[i] = toParams(chunk.get(i));
+            }
+            jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, params);
+            written += chunk.size();
+        }
+        return written;
+    }
+
+    private MapSqlParameterSource toParams(EventRow row) {
+        return new MapSqlParameterSource()
+                .addValue("userId", row.getUserId(), Types.BIGINT)
+                .addValue("huddleId", row.getHuddleId(), Types.BIGINT)
+                .addValue("sequenceId", row.getSequenceId(), Types.BIGINT)
+                .addValue("agencyId", row.getAgencyId(), Types.BIGINT)
+                .addValue("eventType", row.getEventType(), Types.VARCHAR)
+                .addValue("eventData", row.getEventData(), Types.VARCHAR)
+                .addValue("sessionId", row.getSessionId(), Types.VARCHAR)
+                .addValue("ipAddress", row.getIpAddress(), Types.VARCHAR)
+                .addValue("userAgent", row.getUserAgent(), Types.VARCHAR)
+                .addValue("createdAt", Timestamp.valueOf(row.getCreatedAt()), Types.TIMESTAMP);
+    }
+
+    @Getter
+    @Builder
+    public static class EventRow {
+        private final Long userId;
+        private final Long huddleId;
+        private final Long sequenceId;
+        private final Long agencyId;
+        private final String eventType;
+        private final String eventData;
+        private final String sessionId;
+        private final String ipAddress;
+        private final String userAgent;
+        private final LocalDateTime createdAt;
+    }
+}
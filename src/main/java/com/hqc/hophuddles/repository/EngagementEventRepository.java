@@ -1,29 +1,87 @@
 package com.hqc.hophuddles.repository;
 
+import com.hqc.hophuddles.dto.response.EngagementEventResponse;
 import com.hqc.hophuddles.entity.EngagementEvent;
 import com.hqc.hophuddles.enums.EventType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface EngagementEventRepository extends JpaRepository<EngagementEvent, Long> {
 
+    String EVENT_RESPONSE = "SELECT new com.hqc.hophuddles.dto.response.EngagementEventResponse(" +
+            "ee.eventId, ee.user.userId, ee.huddle.huddleId, ee.sequence.sequenceId, ee.agency.agencyId, " +
+            "ee.eventType, ee.eventData, ee.sessionId, ee.createdAt) " +
+            "FROM EngagementEvent ee ";
+
+    // Keyset pages, newest first: rows strictly after the cursor in (created_at, event_id) order
+    String AFTER_CURSOR = "AND ee.isActive = true " +
+            "AND (ee.createdAt < :createdAt OR (ee.createdAt = :createdAt AND ee.eventId < :eventId)) " +
+            "ORDER BY ee.createdAt DESC, ee.eventId DESC";
+
+    String NEWEST_FIRST = "AND ee.isActive = true " +
+            "ORDER BY ee.createdAt DESC, ee.eventId DESC";
+
+    // Rows buffered by the JDBC driver per round trip while streaming an export
+    String EXPORT_FETCH_SIZE = "500";
+
     // Find events by user
     List<EngagementEvent> findByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(Long userId);
 
-    // Find events by huddle
-    List<EngagementEvent> findByHuddleHuddleIdAndIsActiveTrueOrderByCreatedAtDesc(Long huddleId);
+    // History pages
+    @Query(EVENT_RESPONSE + "WHERE ee.user.userId = :userId " + AFTER_CURSOR)
+    List<EngagementEventResponse> findUserHistoryPage(@Param("userId") Long userId,
+                                                      @Param("createdAt") LocalDateTime createdAt,
+                                                      @Param("eventId") Long eventId,
+                                                      Pageable pageable);
+
+    @Query(EVENT_RESPONSE + "WHERE ee.huddle.huddleId = :huddleId " + AFTER_CURSOR)
+    List<EngagementEventResponse> findHuddleHistoryPage(@Param("huddleId") Long huddleId,
+                                                        @Param("createdAt") LocalDateTime createdAt,
+                                                        @Param("eventId") Long eventId,
+                                                        Pageable pageable);
+
+    @Query(EVENT_RESPONSE + "WHERE ee.sequence.sequenceId = :sequenceId " + AFTER_CURSOR)
+    List<EngagementEventResponse> findSequenceHistoryPage(@Param("sequenceId") Long sequenceId,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("eventId") Long eventId,
+                                                          Pageable pageable);
+
+    @Query(EVENT_RESPONSE + "WHERE ee.sessionId = :sessionId AND ee.isActive = true " +
+            "ORDER BY ee.createdAt ASC, ee.eventId ASC")
+    List<EngagementEventResponse> findSessionHistory(@Param("sessionId") String sessionId);
+
+    // History exports; callers must close the stream inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EVENT_RESPONSE + "WHERE ee.user.userId = :userId " + NEWEST_FIRST)
+    Stream<EngagementEventResponse> streamUserHistory(@Param("userId") Long userId);
 
-    // Find events by sequence
-    List<EngagementEvent> findBySequenceSequenceIdAndIsActiveTrueOrderByCreatedAtDesc(Long sequenceId);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EVENT_RESPONSE + "WHERE ee.huddle.huddleId = :huddleId " + NEWEST_FIRST)
+    Stream<EngagementEventResponse> streamHuddleHistory(@Param("huddleId") Long huddleId);
 
-    // Find events by session
-    List<EngagementEvent> findBySessionIdAndIsActiveTrueOrderByCreatedAtAsc(String sessionId);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(EVENT_RESPONSE + "WHERE ee.sequence.sequenceId = :sequenceId " + NEWEST_FIRST)
+    Stream<EngagementEventResponse> streamSequenceHistory(@Param("sequenceId") Long sequenceId);
 
     // Analytics queries
     @Query("SELECT ee.eventType, COUNT(ee) FROM EngagementEvent ee " +
@@ -0,0 +1,170 @@
+package com.hqc.hophuddles.repository;
+
+import com.hqc.hophuddles.entity.EngagementRollupState;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Additive upserts for the engagement rollup tables. Each delta is applied as an UPDATE first; keys that
+ * did not exist yet are then inserted one by one, and a key another writer (thread or node) inserted in the
+ * meantime is caught by its unique constraint and updated instead. Writers need no coordination.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EngagementRollupJdbcRepository {
+
+    private static final String UPDATE_ROLLUP_SQL =
+            "UPDATE engagement_rollups SET event_count = event_count + :delta " +
+                    "WHERE granularity = :granularity AND agency_id = :agencyId AND bucket_start = :bucketStart " +
+                    "AND sequence_id = :sequenceId AND huddle_id = :huddleId AND event_type = :eventType";
+
+    private static final String INSERT_ROLLUP_SQL =
+            "INSERT INTO engagement_rollups (granularity, agency_id, bucket_start, sequence_id, huddle_id, " +
+                    "event_type, event_count) " +
+                    "VALUES (:granularity, :agencyId, :bucketStart, :sequenceId, :huddleId, :eventType, :delta)";
+
+    private static final String UPDATE_USER_DAY_SQL =
+            "UPDATE engagement_user_days SET event_count = event_count + :delta " +
+                    "WHERE agency_id = :agencyId AND activity_date = :activityDate AND user_id = :userId";
+
+    private static final String INSERT_USER_DAY_SQL =
+            "INSERT INTO engagement_user_days (agency_id, activity_date, user_id, event_count) " +
+                    "VALUES (:agencyId, :activityDate, :userId, :delta)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Rollup upserts
+    public void upsertRollups(Map<RollupKey, Long> deltas) {
+        List<MapSqlParameterSource> params = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> params.add(new MapSqlParameterSource()
+                .addValue("granularity", key.getGranularity())
+                .addValue("agencyId", key.getAgencyId())
+                .addValue("bucketStart", Timestamp.valueOf(key.getBucketStart()))
+                .addValue("sequenceId", key.getSequenceId())
+                .addValue("huddleId", key.getHuddleId())
+                .addValue("eventType", key.getEventType())
+                .addValue("delta", delta)));
+        upsert(UPDATE_ROLLUP_SQL, INSERT_ROLLUP_SQL, params);
+    }
+
+    public void upsertUserDays(Map<UserDayKey, Long> deltas) {
+        List<MapSqlParameterSource> params = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> params.add(new MapSqlParameterSource()
+                .addValue("agencyId", key.getAgencyId())
+                .addValue("activityDate", Date.valueOf(key.getActivityDate()))
+                .addValue("userId", key.getUserId())
+                .addValue("delta", delta)));
+        upsert(UPDATE_USER_DAY_SQL, INSERT_USER_DAY_SQL, params);
+    }
+
+    private void upsert(String updateSql, String insertSql, List<MapSqlParameterSource> params) {
+        if (params.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(updateSql, params.toArray(new MapSqlParameterSource[0]));
+        List<MapSqlParameterSource> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(params.get(i));
+            }
+        }
+        // Not batched: after a failed batch it is unknown which rows went in, and retrying those would count twice.
+        // A duplicate key only fails its own statement, so the surrounding transaction carries on.
+        for (MapSqlParameterSource key : missing) {
+            try {
+                jdbcTemplate.update(insertSql, key);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(updateSql, key);
+            }
+        }
+    }
+
+    // Backfill
+    public long findMaxEventId() {
+        Long max = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COALESCE(MAX(event_id), 0) FROM engagement_events", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    public Optional<EngagementRollupState> findState(String stateKey) {
+        List<EngagementRollupState> states = jdbcTemplate.query(
+                "SELECT state_key, high_water_event_id, cursor_event_id, completed_at " +
+                        "FROM engagement_rollup_state WHERE state_key = :stateKey",
+                Map.of("stateKey", stateKey),
+                (rs, rowNum) -> EngagementRollupState.builder()
+                        .stateKey(rs.getString(1))
+                        .highWaterEventId(rs.getLong(2))
+                        .cursorEventId(rs.getLong(3))
+                        .completedAt(rs.getTimestamp(4) != null ? rs.getTimestamp(4).toLocalDateTime() : null)
+                        .build());
+        return states.stream().findFirst();
+    }
+
+    public void insertState(String stateKey, long highWaterEventId) {
+        jdbcTemplate.update(
+                "INSERT INTO engagement_rollup_state (state_key, high_water_event_id, cursor_event_id) " +
+                        "VALUES (:stateKey, :highWater, 0)",
+                new MapSqlParameterSource()
+                        .addValue("stateKey", stateKey)
+                        .addValue("highWater", highWaterEventId));
+    }
+
+    public void advanceCursor(String stateKey, long cursorEventId, LocalDateTime completedAt) {
+        jdbcTemplate.update(
+                "UPDATE engagement_rollup_state SET cursor_event_id = :cursor, completed_at = :completedAt " +
+                        "WHERE state_key = :stateKey",
+                new MapSqlParameterSource()
+                        .addValue("stateKey", stateKey)
+                        .addValue("cursor", cursorEventId)
+                        .addValue("completedAt", completedAt != null ? Timestamp.valueOf(completedAt) : null));
+    }
+
+    /**
+     * Streams events with {@code fromExclusive < event_id <= toInclusive}. Ranging over the primary key keeps
+     * each chunk an index range scan regardless of table size.
+     */
+    public void streamEvents(long fromExclusive, long toInclusive, RowCallbackHandler handler) {
+        jdbcTemplate.query(
+                "SELECT user_id, agency_id, sequence_id, huddle_id, event_type, created_at " +
+                        "FROM engagement_events " +
+                        "WHERE event_id > :fromId AND event_id <= :toId AND is_active = TRUE",
+                new MapSqlParameterSource()
+                        .addValue("fromId", fromExclusive)
+                        .addValue("toId", toInclusive),
+                handler);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class RollupKey {
+        private final String granularity;
+        private final Long agencyId;
+        private final LocalDateTime bucketStart;
+        private final Long sequenceId;
+        private final Long huddleId;
+        private final String eventType;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class UserDayKey {
+        private final Long agencyId;
+        private final LocalDate activityDate;
+        private final Long userId;
+    }
+}
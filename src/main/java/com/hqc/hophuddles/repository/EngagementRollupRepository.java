@@ -0,0 +1,51 @@
+package com.hqc.hophuddles.repository;
+
+import com.hqc.hophuddles.entity.EngagementRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EngagementRollupRepository extends JpaRepository<EngagementRollup, Long> {
+
+    // Agency window: hourly buckets for the partial first day, daily buckets from the first full day on
+    @Query("SELECT r.granularity, r.bucketStart, r.eventType, SUM(r.eventCount) FROM EngagementRollup r " +
+            "WHERE r.agencyId = :agencyId " +
+            "AND ((r.granularity = 'HOUR' AND r.bucketStart >= :from AND r.bucketStart < :fullDaysFrom) " +
+            "OR (r.granularity = 'DAY' AND r.bucketStart >= :fullDaysFrom)) " +
+            "GROUP BY r.granularity, r.bucketStart, r.eventType")
+    List<Object[]> sumAgencyBucketsSince(@Param("agencyId") Long agencyId,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("fullDaysFrom") LocalDateTime fullDaysFrom);
+
+    @Query("SELECT r.eventType, SUM(r.eventCount) FROM EngagementRollup r " +
+            "WHERE r.sequenceId = :sequenceId " +
+            "AND r.granularity = 'DAY' " +
+            "GROUP BY r.eventType")
+    List<Object[]> sumEventsByTypeForSequence(@Param("sequenceId") Long sequenceId);
+
+    @Query("SELECT r.eventType, SUM(r.eventCount) FROM EngagementRollup r " +
+            "WHERE r.huddleId = :huddleId " +
+            "AND r.granularity = 'DAY' " +
+            "GROUP BY r.eventType")
+    List<Object[]> sumEventsByTypeForHuddle(@Param("huddleId") Long huddleId);
+
+    // Active users (day precision)
+    @Query("SELECT COUNT(DISTINCT d.userId) FROM EngagementUserDay d " +
+            "WHERE d.agencyId = :agencyId " +
+            "AND d.activityDate >= :sinceDate")
+    long countActiveUsersByAgencySince(@Param("agencyId") Long agencyId, @Param("sinceDate") LocalDate sinceDate);
+
+    // One user's active days, newest first; at most one row per day in the range
+    @Query("SELECT d.activityDate, SUM(d.eventCount) FROM EngagementUserDay d " +
+            "WHERE d.userId = :userId " +
+            "AND d.activityDate >= :sinceDate " +
+            "GROUP BY d.activityDate " +
+            "ORDER BY d.activityDate DESC")
+    List<Object[]> sumUserDaysSince(@Param("userId") Long userId, @Param("sinceDate") LocalDate sinceDate);
+}
@@ -0,0 +1,48 @@
+package com.hqc.hophuddles.repository;
+
+import com.hqc.hophuddles.entity.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    // Adds a reference to an existing blob; 0 if there is no row yet. Holds the row lock until commit.
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + 1, b.releasedAt = NULL WHERE b.sha256 = :sha256")
+    int acquire(@Param("sha256") String sha256);
+
+    @Modifying
+    @Query("UPDATE FileBlob b " +
+            "SET b.refCount = b.refCount - 1, " +
+            "b.releasedAt = CASE WHEN b.refCount = 1 THEN :now ELSE b.releasedAt END " +
+            "WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int release(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    // Collection candidates
+    @Query("SELECT b.sha256 FROM FileBlob b " +
+            "WHERE b.refCount = 0 AND b.releasedAt < :cutoff " +
+            "ORDER BY b.releasedAt")
+    List<String> findReleasedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM FileBlob b WHERE b.sha256 = :sha256")
+    Optional<FileBlob> findByIdForUpdate(@Param("sha256") String sha256);
+
+    @Query("SELECT b.sha256 FROM FileBlob b WHERE b.sha256 IN :hashes")
+    List<String> findExisting(@Param("hashes") Collection<String> hashes);
+
+    @Query("SELECT COALESCE(SUM(b.sizeBytes), 0) FROM FileBlob b")
+    long sumSizeBytes();
+}
@@ -0,0 +1,13 @@
+package com.hqc.hophuddles.repository;
+
+import com.hqc.hophuddles.entity.FileReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FileReferenceRepository extends JpaRepository<FileReference, String> {
+
+    @Query("SELECT COALESCE(SUM(r.sizeBytes), 0) FROM FileReference r")
+    long sumSizeBytes();
+}
@@ -1,18 +1,32 @@
 package com.hqc.hophuddles.repository;
 
+import com.hqc.hophuddles.dto.response.HuddleContentResponse;
+import com.hqc.hophuddles.dto.response.HuddleResponse;
 import com.hqc.hophuddles.entity.Huddle;
 import com.hqc.hophuddles.enums.HuddleType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface HuddleRepository extends JpaRepository<Huddle, Long> {
 
+    // Everything but the TEXT columns. The completeness check mirrors Huddle.isComplete() through null checks
+    // alone, since Huddle stores blank text as null; the TEXT values themselves are never read
+    String HUDDLE_SUMMARY = "SELECT new com.hqc.hophuddles.dto.response.HuddleResponse(" +
+            "h.huddleId, h.sequence.sequenceId, h.sequence.title, h.title, h.orderIndex, h.pdfUrl, h.audioUrl, " +
+            "h.durationMinutes, h.huddleType, " +
+            "CASE WHEN h.contentJson IS NOT NULL AND h.voiceScript IS NOT NULL THEN true ELSE false END, " +
+            "h.createdAt) " +
+            "FROM Huddle h ";
+
     // Huddles by sequence
     List<Huddle> findBySequenceSequenceIdAndIsActiveTrueOrderByOrderIndexAsc(Long sequenceId);
 
@@ -20,6 +34,33 @@ public interface HuddleRepository extends JpaRepository<Huddle, Long> {
             Long sequenceId, HuddleType huddleType
     );
 
+    // Batch loads for sequence lists
+    List<Huddle> findBySequenceSequenceIdInAndIsActiveTrueOrderBySequenceSequenceIdAscOrderIndexAsc(
+            Collection<Long> sequenceIds
+    );
+
+    @Query(HUDDLE_SUMMARY + "WHERE h.sequence.sequenceId IN :sequenceIds AND h.isActive = true " +
+            "ORDER BY h.sequence.sequenceId, h.orderIndex")
+    List<HuddleResponse> findSummariesBySequenceIds(@Param("sequenceIds") Collection<Long> sequenceIds);
+
+    // Summaries for single-sequence lists
+    @Query(HUDDLE_SUMMARY + "WHERE h.sequence.sequenceId = :sequenceId AND h.isActive = true " +
+            "ORDER BY h.orderIndex")
+    List<HuddleResponse> findSummariesBySequenceId(@Param("sequenceId") Long sequenceId);
+
+    @Query(HUDDLE_SUMMARY + "WHERE h.sequence.sequenceId = :sequenceId AND h.huddleType = :huddleType " +
+            "AND h.isActive = true " +
+            "ORDER BY h.orderIndex")
+    List<HuddleResponse> findSummariesBySequenceIdAndType(@Param("sequenceId") Long sequenceId,
+                                                          @Param("huddleType") HuddleType huddleType);
+
+    // Content on demand: only the TEXT columns
+    @Query("SELECT new com.hqc.hophuddles.dto.response.HuddleContentResponse(" +
+            "h.huddleId, h.contentJson, h.voiceScript, h.generationMetadata) " +
+            "FROM Huddle h " +
+            "WHERE h.huddleId = :huddleId AND h.isActive = true")
+    Optional<HuddleContentResponse> findContentById(@Param("huddleId") Long huddleId);
+
     // Find by order index
     Optional<Huddle> findBySequenceSequenceIdAndOrderIndexAndIsActiveTrue(Long sequenceId, Integer orderIndex);
 
@@ -28,6 +69,12 @@ public interface HuddleRepository extends JpaRepository<Huddle, Long> {
             "WHERE h.sequence.sequenceId = :sequenceId AND h.isActive = true")
     Integer getNextOrderIndex(@Param("sequenceId") Long sequenceId);
 
+    // Links a rendered PDF without loading the huddle
+    @Modifying
+    @Query("UPDATE Huddle h SET h.pdfUrl = :pdfUrl, h.updatedAt = :now WHERE h.huddleId = :huddleId")
+    int updatePdfUrl(@Param("huddleId") Long huddleId, @Param("pdfUrl") String pdfUrl,
+                     @Param("now") LocalDateTime now);
+
     // Analytics
     @Query("SELECT h.huddleType, COUNT(h) FROM Huddle h " +
             "WHERE h.sequence.sequenceId = :sequenceId AND h.isActive = true " +
@@ -4,6 +4,7 @@ import com.hqc.hophuddles.entity.HuddleSequence;
 import com.hqc.hophuddles.enums.SequenceStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,14 +16,17 @@ import java.util.List;
 @Repository
 public interface HuddleSequenceRepository extends JpaRepository<HuddleSequence, Long> {
 
-    // Multi-tenant queries
+    // Multi-tenant queries; list views fetch the agency and users with the sequences
+    @EntityGraph(attributePaths = {"agency", "createdByUser", "publishedBy"})
     List<HuddleSequence> findByAgencyAgencyIdAndIsActiveTrueOrderByCreatedAtDesc(Long agencyId);
 
+    @EntityGraph(attributePaths = {"agency", "createdByUser", "publishedBy"})
     List<HuddleSequence> findByAgencyAgencyIdAndSequenceStatusAndIsActiveTrueOrderByCreatedAtDesc(
             Long agencyId, SequenceStatus status
     );
 
     // Search with filters
+    @EntityGraph(attributePaths = {"agency", "createdByUser", "publishedBy"})
     @Query("SELECT hs FROM HuddleSequence hs WHERE hs.agency.agencyId = :agencyId " +
             "AND hs.isActive = true " +
             "AND (:title IS NULL OR LOWER(hs.title) LIKE LOWER(CONCAT('%', :title, '%'))) " +
@@ -36,6 +40,7 @@ public interface HuddleSequenceRepository extends JpaRepository<HuddleSequence,
     );
 
     // Created by user
+    @EntityGraph(attributePaths = {"agency", "createdByUser", "publishedBy"})
     List<HuddleSequence> findByCreatedByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(Long userId);
 
     // Published sequences
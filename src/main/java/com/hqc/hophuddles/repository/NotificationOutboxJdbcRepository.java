@@ -0,0 +1,83 @@
+package com.hqc.hophuddles.repository;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk enqueue for the notification outbox. Outbox rows use IDENTITY keys, which disables Hibernate insert
+ * batching, so a fan-out's recipients are written with a JDBC batch instead.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationOutboxJdbcRepository {
+
+    // Skips rows whose idempotency key is already present, so re-running the same execution enqueues nothing new
+    private static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO notification_outbox (idempotency_key, notification_type, recipient_user_id, " +
+                    "recipient_email, subject, body_text, body_html, sequence_id, schedule_id, status, attempts, " +
+                    "next_attempt_at, created_at) " +
+                    "SELECT :idempotencyKey, :notificationType, :recipientUserId, :recipientEmail, :subject, " +
+                    ":bodyText, :bodyHtml, :sequenceId, :scheduleId, 'PENDING', 0, :createdAt, :createdAt " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM notification_outbox WHERE idempotency_key = :idempotencyKey)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the rows that are not already queued. Must run in the caller's transaction.
+     *
+     * @return number of rows inserted
+     */
+    public int insertIfAbsent(List<OutboxRow> rows, int jdbcBatchSize) {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += jdbcBatchSize) {
+            List<OutboxRow> chunk = rows.subList(from, Math.min(from + jdbcBatchSize, rows.size()));
+            MapSqlParameterSource[] params = new MapSqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                params[i] = toParams(chunk.get(i));
+            }
+            for (int count : jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, params)) {
+                // Drivers that cannot report per-statement counts return SUCCESS_NO_INFO (-2)
+                inserted += count > 0 ? count : count == -2 ? 1 : 0;
+            }
+        }
+        return inserted;
+    }
+
+    private MapSqlParameterSource toParams(OutboxRow row) {
+        return new MapSqlParameterSource()
+                .addValue("idempotencyKey", row.getIdempotencyKey(), Types.VARCHAR)
+                .addValue("notificationType", row.getNotificationType(), Types.VARCHAR)
+                .addValue("recipientUserId", row.getRecipientUserId(), Types.BIGINT)
+                .addValue("recipientEmail", row.getRecipientEmail(), Types.VARCHAR)
+                .addValue("subject", row.getSubject(), Types.VARCHAR)
+                .addValue("bodyText", row.getBodyText(), Types.VARCHAR)
+                .addValue("bodyHtml", row.getBodyHtml(), Types.VARCHAR)
+                .addValue("sequenceId", row.getSequenceId(), Types.BIGINT)
+                .addValue("scheduleId", row.getScheduleId(), Types.BIGINT)
+                .addValue("createdAt", Timestamp.valueOf(row.getCreatedAt()), Types.TIMESTAMP);
+    }
+
+    @Getter
+    @Builder
+    public static class OutboxRow {
+        private final String idempotencyKey;
+        private final String notificationType;
+        private final Long recipientUserId;
+        private final String recipientEmail;
+        private final String subject;
+        private final String bodyText;
+        private final String bodyHtml;
+        private final Long sequenceId;
+        private final Long scheduleId;
+        private final LocalDateTime createdAt;
+    }
+}
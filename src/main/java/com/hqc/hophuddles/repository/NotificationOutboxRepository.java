@@ -0,0 +1,84 @@
+package com.hqc.hophuddles.repository;
+
+import com.hqc.hophuddles.entity.NotificationOutbox;
+import com.hqc.hophuddles.enums.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // Relay claims
+    @Query("SELECT o.outboxId FROM NotificationOutbox o " +
+            "WHERE o.status = 'PENDING' " +
+            "AND o.nextAttemptAt <= :now " +
+            "AND (o.claimedBy IS NULL OR o.claimExpiresAt < :now) " +
+            "ORDER BY o.nextAttemptAt ASC")
+    List<Long> findDeliverableIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Compare-and-set claim; rows another relay claimed in the meantime are left alone
+    @Modifying
+    @Query("UPDATE NotificationOutbox o " +
+            "SET o.claimedBy = :claimToken, o.claimExpiresAt = :expiresAt " +
+            "WHERE o.outboxId IN :ids " +
+            "AND o.status = 'PENDING' " +
+            "AND o.nextAttemptAt <= :now " +
+            "AND (o.claimedBy IS NULL OR o.claimExpiresAt < :now)")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("claimToken") String claimToken,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    List<NotificationOutbox> findByClaimedBy(String claimToken);
+
+    // Delivery outcomes
+    @Modifying
+    @Query("UPDATE NotificationOutbox o " +
+            "SET o.status = 'SENT', o.sentAt = :sentAt, o.attempts = o.attempts + 1, " +
+            "o.claimedBy = NULL, o.claimExpiresAt = NULL, o.lastError = NULL " +
+            "WHERE o.outboxId IN :ids AND o.claimedBy = :claimToken")
+    int markSent(@Param("ids") Collection<Long> ids,
+                 @Param("claimToken") String claimToken,
+                 @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o " +
+            "SET o.attempts = o.attempts + 1, o.nextAttemptAt = :nextAttemptAt, o.lastError = :error, " +
+            "o.claimedBy = NULL, o.claimExpiresAt = NULL " +
+            "WHERE o.outboxId = :id AND o.claimedBy = :claimToken")
+    int markRetry(@Param("id") Long id,
+                  @Param("claimToken") String claimToken,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                  @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o " +
+            "SET o.status = 'DEAD', o.attempts = o.attempts + 1, o.lastError = :error, " +
+            "o.claimedBy = NULL, o.claimExpiresAt = NULL " +
+            "WHERE o.outboxId = :id AND o.claimedBy = :claimToken")
+    int markDead(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("error") String error);
+
+    // Dead letters
+    List<NotificationOutbox> findByStatusOrderByCreatedAtDesc(OutboxStatus status, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o " +
+            "SET o.status = 'PENDING', o.attempts = 0, o.nextAttemptAt = :now, o.lastError = NULL " +
+            "WHERE o.outboxId = :id AND o.status = 'DEAD'")
+    int requeue(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Monitoring and retention
+    long countByStatus(OutboxStatus status);
+
+    @Modifying
+    @Query("DELETE FROM NotificationOutbox o WHERE o.status = 'SENT' AND o.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,6 +2,8 @@ package com.hqc.hophuddles.repository;
 
 import com.hqc.hophuddles.entity.SequenceProgress;
 import com.hqc.hophuddles.enums.ProgressStatus;
+import com.hqc.hophuddles.repository.projection.StatusDistribution;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,6 +29,20 @@ public interface SequenceProgressRepository extends JpaRepository<SequenceProgre
     // Find progress by agency
     List<SequenceProgress> findByAgencyAgencyIdAndIsActiveTrueOrderByLastAccessedDesc(Long agencyId);
 
+    // Keyset page for reconciliation
+    @Query("SELECT sp FROM SequenceProgress sp JOIN FETCH sp.sequence " +
+            "WHERE sp.sequenceProgressId > :afterId " +
+            "AND sp.isActive = true " +
+            "ORDER BY sp.sequenceProgressId ASC")
+    List<SequenceProgress> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // The same page's IDs only, to step over a page that cannot be reconciled
+    @Query("SELECT sp.sequenceProgressId FROM SequenceProgress sp " +
+            "WHERE sp.sequenceProgressId > :afterId " +
+            "AND sp.isActive = true " +
+            "ORDER BY sp.sequenceProgressId ASC")
+    List<Long> findPageIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
     // Analytics queries
     @Query("SELECT sp.sequenceStatus, COUNT(sp) FROM SequenceProgress sp " +
             "WHERE sp.sequence.sequenceId = :sequenceId " +
@@ -34,6 +50,16 @@ public interface SequenceProgressRepository extends JpaRepository<SequenceProgre
             "GROUP BY sp.sequenceStatus")
     List<Object[]> countByStatusInSequence(@Param("sequenceId") Long sequenceId);
 
+    @Query("SELECT " +
+            "COALESCE(SUM(CASE WHEN sp.sequenceStatus = 'NOT_STARTED' THEN 1 ELSE 0 END), 0) AS notStartedCount, " +
+            "COALESCE(SUM(CASE WHEN sp.sequenceStatus = 'IN_PROGRESS' THEN 1 ELSE 0 END), 0) AS inProgressCount, " +
+            "COALESCE(SUM(CASE WHEN sp.sequenceStatus = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completedCount, " +
+            "COALESCE(SUM(CASE WHEN sp.sequenceStatus = 'SKIPPED' THEN 1 ELSE 0 END), 0) AS skippedCount " +
+            "FROM SequenceProgress sp " +
+            "WHERE sp.sequence.sequenceId = :sequenceId " +
+            "AND sp.isActive = true")
+    StatusDistribution getStatusDistributionBySequence(@Param("sequenceId") Long sequenceId);
+
     @Query("SELECT AVG(sp.completionPercentage) FROM SequenceProgress sp " +
             "WHERE sp.sequence.sequenceId = :sequenceId " +
             "AND sp.isActive = true")
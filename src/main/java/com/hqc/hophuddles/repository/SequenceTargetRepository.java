@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +16,8 @@ public interface SequenceTargetRepository extends JpaRepository<SequenceTarget,
     // Targets by sequence
     List<SequenceTarget> findBySequenceSequenceIdAndIsActiveTrueOrderByTargetTypeAsc(Long sequenceId);
 
+    List<SequenceTarget> findBySequenceSequenceIdInAndIsActiveTrueOrderByTargetTypeAsc(Collection<Long> sequenceIds);
+
     List<SequenceTarget> findBySequenceSequenceIdAndTargetTypeAndIsActiveTrueOrderByTargetValueAsc(
             Long sequenceId, TargetType targetType
     );
@@ -3,6 +3,7 @@ package com.hqc.hophuddles.repository;
 import com.hqc.hophuddles.entity.UserAssignment;
 import com.hqc.hophuddles.enums.UserRole;
 import com.hqc.hophuddles.enums.Discipline;
+import com.hqc.hophuddles.repository.projection.AssignmentMembership;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -30,6 +31,14 @@ public interface UserAssignmentRepository extends JpaRepository<UserAssignment,
             Long agencyId, Discipline discipline
     );
 
+    // Audience bitmaps: every active assignment of active users in the agency
+    @Query("SELECT u.userId AS userId, ua.role AS role, ua.discipline AS discipline, " +
+            "b.branchId AS branchId, t.teamId AS teamId " +
+            "FROM UserAssignment ua JOIN ua.user u LEFT JOIN ua.branch b LEFT JOIN ua.team t " +
+            "WHERE ua.agency.agencyId = :agencyId " +
+            "AND ua.isActive = true AND u.isActive = true")
+    List<AssignmentMembership> findAudienceMemberships(@Param("agencyId") Long agencyId);
+
     // Multi-tenant security queries
     @Query("SELECT ua.agency.agencyId FROM UserAssignment ua " +
             "WHERE ua.user.userId = :userId AND ua.isActive = true")
@@ -2,6 +2,9 @@ package com.hqc.hophuddles.repository;
 
 import com.hqc.hophuddles.entity.UserProgress;
 import com.hqc.hophuddles.enums.ProgressStatus;
+import com.hqc.hophuddles.repository.projection.ProgressAggregate;
+import com.hqc.hophuddles.repository.projection.ProgressTotals;
+import com.hqc.hophuddles.repository.projection.SequenceTimeSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,6 +57,47 @@ public interface UserProgressRepository extends JpaRepository<UserProgress, Long
             "AND up.isActive = true")
     BigDecimal getAverageAssessmentScoreBySequence(@Param("sequenceId") Long sequenceId);
 
+    // Single-pass aggregates
+    @Query("SELECT COUNT(up) AS totalCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'NOT_STARTED' THEN 1 ELSE 0 END), 0) AS notStartedCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'IN_PROGRESS' THEN 1 ELSE 0 END), 0) AS inProgressCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completedCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'SKIPPED' THEN 1 ELSE 0 END), 0) AS skippedCount, " +
+            "AVG(up.completionPercentage) AS averageCompletion, " +
+            "AVG(CASE WHEN up.progressStatus = 'COMPLETED' THEN up.timeSpentMinutes END) AS averageTimeSpent, " +
+            "AVG(up.assessmentScore) AS averageAssessmentScore " +
+            "FROM UserProgress up " +
+            "WHERE up.sequence.sequenceId = :sequenceId " +
+            "AND up.isActive = true")
+    ProgressAggregate aggregateBySequence(@Param("sequenceId") Long sequenceId);
+
+    @Query("SELECT COUNT(up) AS totalCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'NOT_STARTED' THEN 1 ELSE 0 END), 0) AS notStartedCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'IN_PROGRESS' THEN 1 ELSE 0 END), 0) AS inProgressCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completedCount, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'SKIPPED' THEN 1 ELSE 0 END), 0) AS skippedCount, " +
+            "AVG(up.completionPercentage) AS averageCompletion, " +
+            "AVG(CASE WHEN up.progressStatus = 'COMPLETED' THEN up.timeSpentMinutes END) AS averageTimeSpent, " +
+            "AVG(up.assessmentScore) AS averageAssessmentScore " +
+            "FROM UserProgress up " +
+            "WHERE up.huddle.huddleId = :huddleId " +
+            "AND up.isActive = true")
+    ProgressAggregate aggregateByHuddle(@Param("huddleId") Long huddleId);
+
+    // Sequence progress totals (used on creation and by reconciliation)
+    @Query("SELECT up.user.userId AS userId, up.sequence.sequenceId AS sequenceId, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completedCount, " +
+            "COALESCE(SUM(up.timeSpentMinutes), 0) AS timeSpent, " +
+            "COALESCE(SUM(up.assessmentScore), 0) AS scoreSum, " +
+            "COUNT(up.assessmentScore) AS scoreCount " +
+            "FROM UserProgress up " +
+            "WHERE up.user.userId IN :userIds " +
+            "AND up.sequence.sequenceId IN :sequenceIds " +
+            "AND up.isActive = true " +
+            "GROUP BY up.user.userId, up.sequence.sequenceId")
+    List<ProgressTotals> sumTotalsByUsersAndSequences(@Param("userIds") Collection<Long> userIds,
+                                                      @Param("sequenceIds") Collection<Long> sequenceIds);
+
     // User analytics
     @Query("SELECT COUNT(up) FROM UserProgress up " +
             "WHERE up.user.userId = :userId " +
@@ -65,6 +110,18 @@ public interface UserProgressRepository extends JpaRepository<UserProgress, Long
             "AND up.isActive = true")
     BigDecimal getTotalTimeSpentByUser(@Param("userId") Long userId);
 
+    // One row per sequence the user has progress in; served by idx_progress_user_sequence
+    @Query("SELECT up.sequence.sequenceId AS sequenceId, up.sequence.title AS sequenceTitle, " +
+            "COALESCE(SUM(up.timeSpentMinutes), 0) AS timeSpentMinutes, " +
+            "COALESCE(SUM(CASE WHEN up.progressStatus = 'COMPLETED' THEN 1 ELSE 0 END), 0) AS completedHuddles, " +
+            "COUNT(up) AS trackedHuddles " +
+            "FROM UserProgress up " +
+            "WHERE up.user.userId = :userId " +
+            "AND up.isActive = true " +
+            "GROUP BY up.sequence.sequenceId, up.sequence.title " +
+            "ORDER BY COALESCE(SUM(up.timeSpentMinutes), 0) DESC")
+    List<SequenceTimeSummary> summarizeTimeBySequenceForUser(@Param("userId") Long userId);
+
     // Agency analytics
     @Query("SELECT COUNT(up) FROM UserProgress up " +
             "WHERE up.sequence.agency.agencyId = :agencyId " +
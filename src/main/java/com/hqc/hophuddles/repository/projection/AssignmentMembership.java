@@ -0,0 +1,20 @@
+package com.hqc.hophuddles.repository.projection;
+
+import com.hqc.hophuddles.enums.Discipline;
+import com.hqc.hophuddles.enums.UserRole;
+
+/**
+ * The targeting-relevant columns of one active assignment, used to build audience bitmaps.
+ */
+public interface AssignmentMembership {
+
+    Long getUserId();
+
+    UserRole getRole();
+
+    Discipline getDiscipline();
+
+    Long getBranchId();
+
+    Long getTeamId();
+}
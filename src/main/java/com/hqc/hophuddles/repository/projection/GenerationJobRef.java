@@ -0,0 +1,11 @@
+package com.hqc.hophuddles.repository.projection;
+
+/**
+ * Identifies a generation job without loading its request, response and content payloads.
+ */
+public interface GenerationJobRef {
+
+    Long getGenerationJobId();
+
+    String getExternalJobId();
+}
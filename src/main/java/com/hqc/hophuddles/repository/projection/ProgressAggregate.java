@@ -0,0 +1,26 @@
+package com.hqc.hophuddles.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Status counts and averages over a set of user_progress rows, computed in a single aggregate scan.
+ */
+public interface ProgressAggregate {
+
+    Long getTotalCount();
+
+    Long getNotStartedCount();
+
+    Long getInProgressCount();
+
+    Long getCompletedCount();
+
+    Long getSkippedCount();
+
+    BigDecimal getAverageCompletion();
+
+    // Average time spent across completed rows only
+    BigDecimal getAverageTimeSpent();
+
+    BigDecimal getAverageAssessmentScore();
+}
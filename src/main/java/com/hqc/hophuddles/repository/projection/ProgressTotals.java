@@ -0,0 +1,21 @@
+package com.hqc.hophuddles.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Authoritative per-(user, sequence) totals recomputed from user_progress rows.
+ */
+public interface ProgressTotals {
+
+    Long getUserId();
+
+    Long getSequenceId();
+
+    Long getCompletedCount();
+
+    BigDecimal getTimeSpent();
+
+    BigDecimal getScoreSum();
+
+    Long getScoreCount();
+}
@@ -0,0 +1,20 @@
+package com.hqc.hophuddles.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * One user's time and completions within one sequence, aggregated over their user_progress rows.
+ */
+public interface SequenceTimeSummary {
+
+    Long getSequenceId();
+
+    String getSequenceTitle();
+
+    BigDecimal getTimeSpentMinutes();
+
+    Long getCompletedHuddles();
+
+    // Huddles the user has a progress row for
+    Long getTrackedHuddles();
+}
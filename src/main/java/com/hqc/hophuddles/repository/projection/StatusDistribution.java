@@ -0,0 +1,15 @@
+package com.hqc.hophuddles.repository.projection;
+
+/**
+ * Row counts per {@link com.hqc.hophuddles.enums.ProgressStatus}, computed with conditional aggregation.
+ */
+public interface StatusDistribution {
+
+    Long getNotStartedCount();
+
+    Long getInProgressCount();
+
+    Long getCompletedCount();
+
+    Long getSkippedCount();
+}
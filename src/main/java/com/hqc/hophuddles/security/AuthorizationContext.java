@@ -0,0 +1,54 @@
+package com.hqc.hophuddles.security;
+
+import com.hqc.hophuddles.service.AccessProfile;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Function;
+
+/**
+ * The authenticated user for one request, bound by {@link JwtAuthenticationFilter}. The user's
+ * {@link AccessProfile} is resolved on the first permission check and reused by any later check in the same
+ * request. Used only by the request's own thread.
+ */
+public final class AuthorizationContext {
+
+    private static final String ATTRIBUTE = AuthorizationContext.class.getName();
+
+    private final UserPrincipal principal;
+    private AccessProfile profile;
+
+    private AuthorizationContext(UserPrincipal principal) {
+        this.principal = principal;
+    }
+
+    static void bind(HttpServletRequest request, UserPrincipal principal) {
+        request.setAttribute(ATTRIBUTE, new AuthorizationContext(principal));
+    }
+
+    /**
+     * The current request's context, or null outside a request or when the request is not authenticated.
+     */
+    public static AuthorizationContext current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                ? (AuthorizationContext) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                : null;
+    }
+
+    public UserPrincipal getPrincipal() {
+        return principal;
+    }
+
+    public Long getUserId() {
+        return principal.getId();
+    }
+
+    public AccessProfile getProfile(Function<Long, AccessProfile> loader) {
+        if (profile == null) {
+            profile = loader.apply(principal.getId());
+        }
+        return profile;
+    }
+}
@@ -1,21 +1,63 @@
 package com.hqc.hophuddles.security;
 
 import com.hqc.hophuddles.entity.User;
+import com.hqc.hophuddles.event.UserAssignmentChangedEvent;
+import com.hqc.hophuddles.event.UserChangedEvent;
 import com.hqc.hophuddles.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.hqc.hophuddles.util.BoundedTtlCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads {@link UserPrincipal}s. Principals looked up by ID, which is what every authenticated request does, are
+ * cached; a cached principal is dropped when the user or one of their assignments changes.
+ * <p>
+ * Invalidation is local to this instance; {@code app.security.principal-cache.ttl-ms} bounds how stale another
+ * instance's copy can get.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final BoundedTtlCache<Long, UserPrincipal> principals;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.security.principal-cache.max-entries:10000}") int maxEntries,
+                                    @Value("${app.security.principal-cache.ttl-ms:300000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.principals = new BoundedTtlCache<>(maxEntries, ttlMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("security.principal.cache.lookups", principals, BoundedTtlCache::hitCount)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("security.principal.cache.lookups", principals, BoundedTtlCache::missCount)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("security.principal.cache.size", principals, BoundedTtlCache::size).register(meterRegistry);
+    }
 
     @Override
     @Transactional
@@ -26,12 +68,31 @@ public class CustomUserDetailsService implements UserDetailsService {
         return UserPrincipal.create(user);
     }
 
-    @Transactional
-    public UserDetails loadUserById(Long id) {
-        User user = userRepository.findById(id)
-                .filter(User::getIsActive)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
+    /**
+     * Returns the active user's principal, without touching the database when it is cached.
+     */
+    public UserPrincipal loadUserById(Long id) {
+        return principals.get(id, this::loadActivePrincipal);
+    }
 
-        return UserPrincipal.create(user);
+    // Runs after the change commits, so the next request reloads what was committed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        principals.invalidate(event.getUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentChanged(UserAssignmentChangedEvent event) {
+        principals.invalidate(event.getUserId());
+    }
+
+    // Throws for inactive and unknown users, so they are never cached
+    private UserPrincipal loadActivePrincipal(Long id) {
+        return readOnlyTransaction.execute(status -> {
+            User user = userRepository.findById(id)
+                    .filter(User::getIsActive)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
+            return UserPrincipal.create(user);
+        });
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,32 @@
 package com.hqc.hophuddles.security;
 
+import com.hqc.hophuddles.util.BoundedTtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies the API's own JWTs. The signing key and parser are built once; verified tokens are cached
+ * by SHA-256 digest for {@code app.auth.jwt.verified-cache.ttl-ms} or until they expire, whichever is sooner, so a
+ * client reusing its token is verified once rather than on every request.
+ */
 @Component
 @Slf4j
 public class JwtUtil {
@@ -22,8 +37,33 @@ public class JwtUtil {
     @Value("${app.auth.jwt.expiration}")
     private int jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${app.auth.jwt.verified-cache.max-entries:10000}")
+    private int verifiedCacheMaxEntries;
+
+    @Value("${app.auth.jwt.verified-cache.ttl-ms:300000}")
+    private long verifiedCacheTtlMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private BoundedTtlCache<String, VerifiedToken> verifiedTokens;
+
+    public JwtUtil(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = new BoundedTtlCache<>(verifiedCacheMaxEntries, verifiedCacheTtlMs, TimeUnit.MILLISECONDS);
+
+        FunctionCounter.builder("security.jwt.verified.cache.lookups", verifiedTokens, BoundedTtlCache::hitCount)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("security.jwt.verified.cache.lookups", verifiedTokens, BoundedTtlCache::missCount)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("security.jwt.verified.cache.size", verifiedTokens, BoundedTtlCache::size).register(meterRegistry);
     }
 
     public String generateToken(Authentication authentication) {
@@ -36,28 +76,55 @@ public class JwtUtil {
                 .setSubject(Long.toString(userPrincipal.getId()))
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(expiryDate))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public Long getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token and returns its claims, or null if it is invalid or expired. The token is parsed and
+     * its signature checked at most once while it stays in the verified-token cache.
+     */
+    public Claims validateAndGetClaims(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            log.error("JWT claims string is empty.");
+            return null;
+        }
+        String digest = digest(authToken);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            if (cached.expiresAtMillis > System.currentTimeMillis()) {
+                return cached.claims;
+            }
+            verifiedTokens.invalidate(digest);
+            log.error("Expired JWT token");
+            return null;
+        }
 
+        Claims claims = parse(authToken);
+        if (claims != null) {
+            Date expiration = claims.getExpiration();
+            verifiedTokens.put(digest, new VerifiedToken(claims,
+                    expiration != null ? expiration.getTime() : Long.MAX_VALUE));
+        }
+        return claims;
+    }
+
+    public Long getUserIdFromJWT(String token) {
+        Claims claims = validateAndGetClaims(token);
+        if (claims == null) {
+            throw new MalformedJwtException("Invalid JWT token");
+        }
         return Long.parseLong(claims.getSubject());
     }
 
     public boolean validateToken(String authToken) {
+        return validateAndGetClaims(authToken) != null;
+    }
+
+    private Claims parse(String authToken) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
-        } catch (SecurityException ex) {
+            return parser.parseClaimsJws(authToken).getBody();
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
             log.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
             log.error("Invalid JWT token");
@@ -68,6 +135,26 @@ public class JwtUtil {
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty.");
         }
-        return false;
+        return null;
+    }
+
+    // Keys the cache without holding on to the bearer tokens themselves
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAtMillis;
+
+        private VerifiedToken(Claims claims, long expiresAtMillis) {
+            this.claims = claims;
+            this.expiresAtMillis = expiresAtMillis;
+        }
     }
-}
\ No newline at end of file
+}
@@ -9,57 +9,93 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Aspect
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class PermissionAspect {
+public class PermissionAspect implements SmartInitializingSingleton {
+
+    // No resource ID parameter
+    private static final int NONE = -1;
 
     private final PermissionService permissionService;
+    private final ListableBeanFactory beanFactory;
+
+    // Position of each annotated method's resourceIdParam, resolved once instead of by reflection per call
+    private final Map<Method, Integer> resourceIdIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves the resource ID parameter of every {@link RequirePermission} method once the beans are created,
+     * so a misnamed {@code resourceIdParam} is reported at startup.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if (beanType == null) {
+                continue;
+            }
+            for (Method method : ReflectionUtils.getUniqueDeclaredMethods(ClassUtils.getUserClass(beanType))) {
+                RequirePermission requirePermission = method.getAnnotation(RequirePermission.class);
+                if (requirePermission != null) {
+                    resourceIdIndexes.computeIfAbsent(method, m -> resolveIndex(m, requirePermission));
+                }
+            }
+        }
+        log.info("Resolved resource parameters for {} permission-checked methods", resourceIdIndexes.size());
+    }
 
     @Around("@annotation(requirePermission)")
     public Object enforcePermission(ProceedingJoinPoint joinPoint, RequirePermission requirePermission) throws Throwable {
         Permission permission = requirePermission.value();
-        String resourceIdParam = requirePermission.resourceIdParam();
         String resourceType = requirePermission.resourceType();
-        String message = requirePermission.message();
 
-        // Get resource ID from method parameters
-        Long resourceId = extractResourceId(joinPoint, resourceIdParam);
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        int index = resourceIdIndexes.computeIfAbsent(method, m -> resolveIndex(m, requirePermission));
+        Long resourceId = index != NONE ? toResourceId(joinPoint.getArgs()[index]) : null;
 
         if (!permissionService.hasPermission(permission, resourceId, resourceType)) {
             log.warn("Access denied: User lacks permission {} for resource {} of type {}",
                     permission, resourceId, resourceType);
-            throw new UnauthorizedException(message);
+            throw new UnauthorizedException(requirePermission.message());
         }
 
         return joinPoint.proceed();
     }
 
-    private Long extractResourceId(ProceedingJoinPoint joinPoint, String paramName) {
+    private static int resolveIndex(Method method, RequirePermission requirePermission) {
+        String paramName = requirePermission.resourceIdParam();
         if (paramName.isEmpty()) {
-            return null;
+            return NONE;
         }
-
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        Parameter[] parameters = signature.getMethod().getParameters();
-        Object[] args = joinPoint.getArgs();
-
+        Parameter[] parameters = method.getParameters();
         for (int i = 0; i < parameters.length; i++) {
             if (parameters[i].getName().equals(paramName)) {
-                Object arg = args[i];
-                if (arg instanceof Long) {
-                    return (Long) arg;
-                } else if (arg instanceof Number) {
-                    return ((Number) arg).longValue();
-                }
+                return i;
             }
         }
+        log.warn("@RequirePermission on {}.{} names resource parameter '{}', which the method does not have",
+                method.getDeclaringClass().getSimpleName(), method.getName(), paramName);
+        return NONE;
+    }
 
+    private static Long toResourceId(Object arg) {
+        if (arg instanceof Long) {
+            return (Long) arg;
+        } else if (arg instanceof Number) {
+            return ((Number) arg).longValue();
+        }
         return null;
     }
-}
\ No newline at end of file
+}
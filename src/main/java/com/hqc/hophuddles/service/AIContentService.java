@@ -12,23 +12,30 @@ import com.hqc.hophuddles.exception.ResourceNotFoundException;
 import com.hqc.hophuddles.repository.AIGenerationJobRepository;
 import com.hqc.hophuddles.repository.HuddleRepository;
 import com.hqc.hophuddles.repository.HuddleSequenceRepository;
-import lombok.RequiredArgsConstructor;
+import com.hqc.hophuddles.repository.projection.GenerationJobRef;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class AIContentService {
@@ -37,6 +44,9 @@ public class AIContentService {
     private final HuddleSequenceRepository sequenceRepository;
     private final HuddleRepository huddleRepository;
     private final PDFGenerationService pdfGenerationService;
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolTaskExecutor fileGenerationExecutor;
+    private final TransactionTemplate transactionTemplate;
     private final NotificationService notificationService;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
@@ -50,6 +60,28 @@ public class AIContentService {
     @Value("${ai.service.timeout:300000}")
     private long aiServiceTimeout;
 
+    public AIContentService(AIGenerationJobRepository generationJobRepository,
+                            HuddleSequenceRepository sequenceRepository,
+                            HuddleRepository huddleRepository,
+                            PDFGenerationService pdfGenerationService,
+                            FileStorageService fileStorageService,
+                            @Qualifier("fileGenerationExecutor") ThreadPoolTaskExecutor fileGenerationExecutor,
+                            TransactionTemplate transactionTemplate,
+                            NotificationService notificationService,
+                            RestTemplate restTemplate,
+                            ObjectMapper objectMapper) {
+        this.generationJobRepository = generationJobRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.huddleRepository = huddleRepository;
+        this.pdfGenerationService = pdfGenerationService;
+        this.fileStorageService = fileStorageService;
+        this.fileGenerationExecutor = fileGenerationExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationService = notificationService;
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+    }
+
     /**
      * Initiate AI content generation for a huddle sequence
      */
@@ -180,10 +212,11 @@ public class AIContentService {
             generationJobRepository.save(job);
 
             // Create individual huddles from generated content
-            createHuddlesFromGeneration(job.getSequence(), response.getGeneratedHuddles());
+            Map<Long, GeneratedHuddle> created = createHuddlesFromGeneration(job.getSequence(),
+                    response.getGeneratedHuddles());
 
-            // Generate PDF and audio files if needed
-            generateFiles(job, response.getGeneratedHuddles());
+            // Generate PDF and audio files once the huddles they are linked to are committed
+            afterCommit(() -> generateFiles(job, created));
 
             // Send completion notification
             notificationService.sendGenerationCompleteNotification(job);
@@ -220,10 +253,12 @@ public class AIContentService {
     }
 
     /**
-     * Create huddles from AI-generated content
+     * Create huddles from AI-generated content, returning the generated content by new huddle ID
      */
-    private void createHuddlesFromGeneration(HuddleSequence sequence, List<GeneratedHuddle> generatedHuddles) {
+    private Map<Long, GeneratedHuddle> createHuddlesFromGeneration(HuddleSequence sequence,
+                                                                   List<GeneratedHuddle> generatedHuddles) {
         try {
+            Map<Long, GeneratedHuddle> created = new LinkedHashMap<>();
             for (GeneratedHuddle generated : generatedHuddles) {
                 Huddle huddle = new Huddle();
                 huddle.setSequence(sequence);
@@ -243,7 +278,8 @@ public class AIContentService {
                 String metadataJson = objectMapper.writeValueAsString(generated.getMetadata());
                 huddle.setGenerationMetadata(metadataJson);
 
-                huddleRepository.save(huddle);
+                huddle = huddleRepository.save(huddle);
+                created.put(huddle.getHuddleId(), generated);
 
                 // Create assessments if present
                 if (generated.getAssessmentQuestions() != null && !generated.getAssessmentQuestions().isEmpty()) {
@@ -254,6 +290,7 @@ public class AIContentService {
             // Update sequence total huddles
             sequence.setTotalHuddles(generatedHuddles.size());
             sequenceRepository.save(sequence);
+            return created;
 
         } catch (Exception e) {
             log.error("Failed to create huddles from generation: {}", e.getMessage(), e);
@@ -292,7 +329,7 @@ public class AIContentService {
     /**
      * Create assessment from generated questions
      */
-    private void createAssessment(Huddle huddle, List<com.hqc.hophuddles.dto.request.AssessmentQuestion> questions) {
+    private void createAssessment(Huddle huddle, List<com.hqc.hophuddles.dto.response.AssessmentQuestion> questions) {
         try {
             Assessment assessment = Assessment.builder()
                     .huddle(huddle)
@@ -310,31 +347,49 @@ public class AIContentService {
     }
 
     /**
-     * Generate PDF and audio files
+     * Generate PDF and audio files. The PDFs are rendered in parallel on the file generation pool, each stored and
+     * linked to its huddle as soon as it is done; the returned future completes when the whole batch has.
      */
-    @Async("fileGenerationExecutor")
-    public CompletableFuture<Void> generateFiles(AIGenerationJob job, List<GeneratedHuddle> huddles) {
-        try {
-            for (GeneratedHuddle huddle : huddles) {
-                // Generate PDF
-                String pdfContent = createPDFContent(huddle);
-                String pdfPath = pdfGenerationService.generateSimplePdf(
-                        pdfContent,
-                        huddle.getTitle(),
-                        "ai_generated"
-                );
-
-                // TODO: Generate audio file using TTS service
-                // String audioPath = ttsService.generateAudio(huddle.getVoiceScript(), huddle.getTitle());
-
-                log.info("Generated files for huddle: {}", huddle.getTitle());
-            }
-
-        } catch (Exception e) {
-            log.error("Failed to generate files for job {}: {}", job.getGenerationJobId(), e.getMessage(), e);
-        }
+    public CompletableFuture<Void> generateFiles(AIGenerationJob job, Map<Long, GeneratedHuddle> huddles) {
+        long started = System.currentTimeMillis();
+        AtomicInteger failed = new AtomicInteger();
+
+        CompletableFuture<?>[] renders = huddles.entrySet().stream()
+                .map(entry -> {
+                    GeneratedHuddle huddle = entry.getValue();
+                    return CompletableFuture
+                            .supplyAsync(() -> pdfGenerationService.generateSimplePdf(
+                                    createPDFContent(huddle),
+                                    huddle.getTitle(),
+                                    "ai_generated"
+                            ), fileGenerationExecutor)
+                            .thenAccept(pdfPath -> {
+                                linkPdf(entry.getKey(), pdfPath);
+
+                                // TODO: Generate audio file using TTS service
+                                // String audioPath = ttsService.generateAudio(huddle.getVoiceScript(), huddle.getTitle());
+                            })
+                            .exceptionally(e -> {
+                                failed.incrementAndGet();
+                                log.error("Failed to generate PDF for huddle {} of job {}: {}",
+                                        entry.getKey(), job.getGenerationJobId(), e.getMessage(), e);
+                                return null;
+                            });
+                })
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(renders).thenRun(() -> {
+            long elapsed = System.currentTimeMillis() - started;
+            log.info("Generated files for job {}: {} PDFs ({} failed) in {} ms", job.getGenerationJobId(),
+                    huddles.size() - failed.get(), failed.get(), elapsed);
+        });
+    }
 
-        return CompletableFuture.completedFuture(null);
+    private void linkPdf(Long huddleId, String pdfPath) {
+        String pdfUrl = fileStorageService.getFileUrl(pdfPath);
+        transactionTemplate.executeWithoutResult(status ->
+                huddleRepository.updatePdfUrl(huddleId, pdfUrl, LocalDateTime.now()));
+        log.debug("Linked {} to huddle {}", pdfUrl, huddleId);
     }
 
     /**
@@ -414,20 +469,20 @@ public class AIContentService {
     @Transactional
     public void monitorStaleJobs() {
         LocalDateTime cutoff = LocalDateTime.now().minusMinutes(30);
-        List<AIGenerationJob> staleJobs = generationJobRepository.findStaleJobs(cutoff);
+        List<GenerationJobRef> staleJobs = generationJobRepository.findStaleJobs(cutoff);
 
-        for (AIGenerationJob job : staleJobs) {
+        for (GenerationJobRef job : staleJobs) {
             log.warn("Found stale AI generation job: {}", job.getGenerationJobId());
 
             // Check status with AI service
-            checkJobStatusWithAIService(job);
+            checkJobStatusWithAIService(job.getExternalJobId());
         }
     }
 
     /**
      * Check job status with AI service
      */
-    private void checkJobStatusWithAIService(AIGenerationJob job) {
+    private void checkJobStatusWithAIService(String externalJobId) {
         try {
             HttpHeaders headers = new HttpHeaders();
             headers.setBearerAuth(aiServiceApiKey);
@@ -435,7 +490,7 @@ public class AIContentService {
             HttpEntity<Void> entity = new HttpEntity<>(headers);
 
             ResponseEntity<AIGenerationResponse> response = restTemplate.exchange(
-                    aiServiceBaseUrl + "/api/job-status/" + job.getExternalJobId(),
+                    aiServiceBaseUrl + "/api/job-status/" + externalJobId,
                     HttpMethod.GET,
                     entity,
                     AIGenerationResponse.class
@@ -450,7 +505,7 @@ public class AIContentService {
             }
 
         } catch (Exception e) {
-            log.error("Failed to check job status for {}: {}", job.getExternalJobId(), e.getMessage(), e);
+            log.error("Failed to check job status for {}: {}", externalJobId, e.getMessage(), e);
         }
     }
 
@@ -460,15 +515,28 @@ public class AIContentService {
     @Scheduled(fixedRate = 3600000)
     @Transactional
     public void autoRetryFailedJobs() {
-        List<AIGenerationJob> retryableJobs = generationJobRepository.findRetryableJobs();
+        List<Long> retryableJobIds = generationJobRepository.findRetryableJobIds();
 
-        for (AIGenerationJob job : retryableJobs) {
+        for (Long jobId : retryableJobIds) {
             try {
-                retryGeneration(job.getGenerationJobId());
-                log.info("Auto-retried failed generation job: {}", job.getGenerationJobId());
+                retryGeneration(jobId);
+                log.info("Auto-retried failed generation job: {}", jobId);
             } catch (Exception e) {
-                log.error("Failed to auto-retry job {}: {}", job.getGenerationJobId(), e.getMessage(), e);
+                log.error("Failed to auto-retry job {}: {}", jobId, e.getMessage(), e);
             }
         }
     }
-}
\ No newline at end of file
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
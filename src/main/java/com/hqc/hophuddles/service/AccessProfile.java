@@ -0,0 +1,92 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.UserAssignment;
+import com.hqc.hophuddles.enums.Permission;
+import com.hqc.hophuddles.enums.UserRole;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A user's active assignments compiled into what permission checks need: the union of their roles' permissions
+ * and the agencies, branches and teams they are assigned to. Immutable once built.
+ */
+public final class AccessProfile {
+
+    private final Set<Permission> permissions;
+    private final Set<Long> agencyIds;
+    private final Set<Long> branchIds;
+    private final Set<Long> teamIds;
+    // Agency-wide admins reach every branch; branch-wide managers reach every team
+    private final boolean allBranches;
+    private final boolean allTeams;
+    private final boolean assigned;
+
+    private AccessProfile(Set<Permission> permissions, Set<Long> agencyIds, Set<Long> branchIds, Set<Long> teamIds,
+                          boolean allBranches, boolean allTeams, boolean assigned) {
+        this.permissions = permissions;
+        this.agencyIds = agencyIds;
+        this.branchIds = branchIds;
+        this.teamIds = teamIds;
+        this.allBranches = allBranches;
+        this.allTeams = allTeams;
+        this.assigned = assigned;
+    }
+
+    public static AccessProfile of(List<UserAssignment> assignments) {
+        Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+        Set<Long> agencyIds = new HashSet<>();
+        Set<Long> branchIds = new HashSet<>();
+        Set<Long> teamIds = new HashSet<>();
+        boolean allBranches = false;
+        boolean allTeams = false;
+        for (UserAssignment assignment : assignments) {
+            permissions.addAll(assignment.getRole().getPermissions());
+            agencyIds.add(assignment.getAgency().getAgencyId());
+            if (assignment.getBranch() != null) {
+                branchIds.add(assignment.getBranch().getBranchId());
+            } else if (assignment.getRole() == UserRole.ADMIN) {
+                allBranches = true;
+            }
+            if (assignment.getTeam() != null) {
+                teamIds.add(assignment.getTeam().getTeamId());
+            } else if (assignment.getRole() == UserRole.BRANCH_MANAGER) {
+                allTeams = true;
+            }
+        }
+        return new AccessProfile(Collections.unmodifiableSet(permissions), Set.copyOf(agencyIds),
+                Set.copyOf(branchIds), Set.copyOf(teamIds), allBranches, allTeams, !assignments.isEmpty());
+    }
+
+    public boolean hasPermission(Permission permission) {
+        return permissions.contains(permission);
+    }
+
+    public boolean canAccess(Long resourceId, String resourceType) {
+        switch (resourceType.toUpperCase()) {
+            case "AGENCY":
+                return resourceId != null && agencyIds.contains(resourceId);
+            case "BRANCH":
+                return allBranches || resourceId != null && branchIds.contains(resourceId);
+            case "TEAM":
+                return allTeams || resourceId != null && teamIds.contains(resourceId);
+            case "HUDDLE":
+            case "SEQUENCE":
+                // Any assignment for now; this should check the huddle's or sequence's agency
+                return assigned;
+            default:
+                return true; // Default allow for unknown resource types
+        }
+    }
+
+    public Set<Permission> getPermissions() {
+        return permissions;
+    }
+
+    public Set<Long> getAgencyIds() {
+        return agencyIds;
+    }
+}
@@ -1,20 +1,26 @@
 package com.hqc.hophuddles.service;
 
 import com.hqc.hophuddles.dto.response.AnalyticsResponse;
-import com.hqc.hophuddles.entity.EngagementEvent;
+import com.hqc.hophuddles.dto.response.EngagementEventResponse;
 import com.hqc.hophuddles.enums.EventType;
 import com.hqc.hophuddles.enums.ProgressStatus;
+import com.hqc.hophuddles.enums.RollupGranularity;
 import com.hqc.hophuddles.repository.*;
+import com.hqc.hophuddles.repository.projection.ProgressAggregate;
+import com.hqc.hophuddles.repository.projection.SequenceTimeSummary;
+import com.hqc.hophuddles.repository.projection.StatusDistribution;
+import com.hqc.hophuddles.util.EventCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Service
 @Transactional(readOnly = true)
@@ -25,9 +31,19 @@ public class AnalyticsService {
     private final UserProgressRepository userProgressRepository;
     private final SequenceProgressRepository sequenceProgressRepository;
     private final EngagementEventRepository engagementEventRepository;
+    private final EngagementRollupRepository engagementRollupRepository;
     private final HuddleSequenceRepository sequenceRepository;
     private final UserRepository userRepository;
 
+    @Value("${app.analytics.user.recent-events:10}")
+    private int userRecentEvents;
+
+    @Value("${app.analytics.user.activity-window-days:30}")
+    private int userActivityWindowDays;
+
+    @Value("${app.analytics.user.streak-lookback-days:365}")
+    private int userStreakLookbackDays;
+
     public AnalyticsResponse getAgencyAnalytics(Long agencyId) {
         return getAgencyAnalyticsSince(agencyId, LocalDateTime.now().minusDays(30));
     }
@@ -38,19 +54,34 @@ public class AnalyticsService {
         // Basic counts - using correct method names
         long totalSequences = sequenceRepository.countByAgencyAndStatus(agencyId, com.hqc.hophuddles.enums.SequenceStatus.PUBLISHED);
         long totalUsers = userRepository.countActiveUsersByAgency(agencyId);
-        long activeUsers = engagementEventRepository.countActiveUsersByAgencySince(agencyId, since);
+        long activeUsers = engagementRollupRepository.countActiveUsersByAgencySince(agencyId, since.toLocalDate());
 
         // Progress metrics
         long completedSequences = sequenceProgressRepository.countCompletedByAgencySince(agencyId, since);
         long inProgressSequences = sequenceProgressRepository.countByAgencyAndStatus(agencyId, ProgressStatus.IN_PROGRESS);
 
-        // Engagement metrics
-        long totalViews = engagementEventRepository.countEventsByAgencyAndTypeSince(agencyId, EventType.VIEW, since);
-        long totalDownloads = engagementEventRepository.countEventsByAgencyAndTypeSince(agencyId, EventType.DOWNLOAD, since);
-        long totalAssessments = engagementEventRepository.countEventsByAgencyAndTypeSince(agencyId, EventType.ASSESSMENT_SUBMIT, since);
+        // Engagement metrics and daily series come from one read over the rollups
+        Map<EventType, Long> eventTotals = new EnumMap<>(EventType.class);
+        Map<LocalDate, Long> dailyTotals = new TreeMap<>();
+        LocalDateTime from = RollupGranularity.HOUR.bucketStart(since);
+        LocalDateTime fullDaysFrom = RollupGranularity.DAY.bucketStart(since);
+        if (fullDaysFrom.isBefore(from)) {
+            fullDaysFrom = fullDaysFrom.plusDays(1);
+        }
+        for (Object[] row : engagementRollupRepository.sumAgencyBucketsSince(agencyId, from, fullDaysFrom)) {
+            LocalDateTime bucketStart = (LocalDateTime) row[1];
+            long count = ((Number) row[3]).longValue();
+            eventTotals.merge((EventType) row[2], count, Long::sum);
+            dailyTotals.merge(bucketStart.toLocalDate(), count, Long::sum);
+        }
+
+        long totalViews = eventTotals.getOrDefault(EventType.VIEW, 0L);
+        long totalDownloads = eventTotals.getOrDefault(EventType.DOWNLOAD, 0L);
+        long totalAssessments = eventTotals.getOrDefault(EventType.ASSESSMENT_SUBMIT, 0L);
 
         // Daily engagement data
-        List<Object[]> dailyEngagement = engagementEventRepository.getDailyEngagementByAgency(agencyId, since);
+        List<Object[]> dailyEngagement = new ArrayList<>(dailyTotals.size());
+        dailyTotals.forEach((day, count) -> dailyEngagement.add(new Object[]{day, count}));
 
         metrics.put("totalSequences", totalSequences);
         metrics.put("totalUsers", totalUsers);
@@ -82,39 +113,28 @@ public class AnalyticsService {
     public AnalyticsResponse getSequenceAnalytics(Long sequenceId) {
         Map<String, Object> metrics = new HashMap<>();
 
-        // Progress metrics
-        long totalUsers = userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.NOT_STARTED) +
-                userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.IN_PROGRESS) +
-                userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.COMPLETED);
-
-        long completedUsers = userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.COMPLETED);
-        long inProgressUsers = userProgressRepository.countBySequenceAndStatus(sequenceId, ProgressStatus.IN_PROGRESS);
-
-        // Average metrics
-        BigDecimal avgCompletion = userProgressRepository.getAverageCompletionBySequence(sequenceId);
-        BigDecimal avgTimeSpent = userProgressRepository.getAverageTimeSpentBySequence(sequenceId);
-        BigDecimal avgAssessmentScore = userProgressRepository.getAverageAssessmentScoreBySequence(sequenceId);
+        // Progress metrics and averages in one aggregate scan
+        ProgressAggregate progress = userProgressRepository.aggregateBySequence(sequenceId);
+        long completedUsers = progress.getCompletedCount();
+        long inProgressUsers = progress.getInProgressCount();
+        long totalUsers = progress.getNotStartedCount() + inProgressUsers + completedUsers;
 
         // Engagement metrics
-        List<Object[]> eventCounts = engagementEventRepository.countEventsByTypeForSequence(sequenceId);
+        List<Object[]> eventCounts = engagementRollupRepository.sumEventsByTypeForSequence(sequenceId);
         Map<String, Long> eventMetrics = new HashMap<>();
         for (Object[] row : eventCounts) {
-            eventMetrics.put(row[0].toString(), (Long) row[1]);
+            eventMetrics.put(row[0].toString(), ((Number) row[1]).longValue());
         }
 
         // Sequence progress distribution
-        List<Object[]> progressDistribution = sequenceProgressRepository.countByStatusInSequence(sequenceId);
-        Map<String, Long> progressMetrics = new HashMap<>();
-        for (Object[] row : progressDistribution) {
-            progressMetrics.put(row[0].toString(), (Long) row[1]);
-        }
+        Map<String, Long> progressMetrics = toStatusMap(sequenceProgressRepository.getStatusDistributionBySequence(sequenceId));
 
         metrics.put("totalUsers", totalUsers);
         metrics.put("completedUsers", completedUsers);
         metrics.put("inProgressUsers", inProgressUsers);
-        metrics.put("averageCompletion", avgCompletion);
-        metrics.put("averageTimeSpent", avgTimeSpent);
-        metrics.put("averageAssessmentScore", avgAssessmentScore);
+        metrics.put("averageCompletion", progress.getAverageCompletion());
+        metrics.put("averageTimeSpent", progress.getAverageTimeSpent());
+        metrics.put("averageAssessmentScore", progress.getAverageAssessmentScore());
         metrics.put("eventCounts", eventMetrics);
         metrics.put("progressDistribution", progressMetrics);
 
@@ -130,23 +150,73 @@ public class AnalyticsService {
                 .build();
     }
 
+    /**
+     * Per-user analytics from bounded queries: the last few events by keyset, daily counts and streaks from the
+     * per-user-day rollup, and per-sequence totals from user_progress. Cost depends on the window sizes and the
+     * user's sequence count, not on how many events the user has.
+     */
     public AnalyticsResponse getUserAnalytics(Long userId) {
         Map<String, Object> metrics = new HashMap<>();
 
-        // Basic counts
-        long completedHuddles = userProgressRepository.countCompletedByUser(userId);
-        BigDecimal totalTimeSpent = userProgressRepository.getTotalTimeSpentByUser(userId);
+        // Per-sequence time and completions; the overall totals are their sums
+        List<SequenceTimeSummary> sequences = userProgressRepository.summarizeTimeBySequenceForUser(userId);
+        long completedHuddles = 0;
+        BigDecimal totalTimeSpent = BigDecimal.ZERO;
+        List<Map<String, Object>> sequenceTime = new ArrayList<>(sequences.size());
+        for (SequenceTimeSummary sequence : sequences) {
+            completedHuddles += sequence.getCompletedHuddles();
+            totalTimeSpent = totalTimeSpent.add(sequence.getTimeSpentMinutes());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sequenceId", sequence.getSequenceId());
+            row.put("sequenceTitle", sequence.getSequenceTitle());
+            row.put("timeSpentMinutes", sequence.getTimeSpentMinutes());
+            row.put("completedHuddles", sequence.getCompletedHuddles());
+            row.put("trackedHuddles", sequence.getTrackedHuddles());
+            sequenceTime.add(row);
+        }
+
+        // Recent activity: the newest events only, straight off idx_events_user_date
+        List<EngagementEventResponse> recentEvents = engagementEventRepository.findUserHistoryPage(userId,
+                EventCursor.START.getCreatedAt(), EventCursor.START.getEventId(), PageRequest.of(0, userRecentEvents));
 
-        // Recent activity
-        List<EngagementEvent> recentEvents = engagementEventRepository
-                .findByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId)
-                .stream()
-                .limit(10)
-                .toList();
+        // Active days, newest first, covering both the activity window and the streak lookback
+        LocalDate today = LocalDate.now();
+        List<Object[]> activeDays = engagementRollupRepository.sumUserDaysSince(userId,
+                today.minusDays(Math.max(userActivityWindowDays, userStreakLookbackDays) - 1L));
+
+        LocalDate windowStart = today.minusDays(userActivityWindowDays - 1L);
+        Map<String, Long> dailyActivity = new LinkedHashMap<>();
+        for (LocalDate day = windowStart; !day.isAfter(today); day = day.plusDays(1)) {
+            dailyActivity.put(day.toString(), 0L);
+        }
+        long eventsInWindow = 0;
+        int activeDaysInWindow = 0;
+        List<LocalDate> streakDays = new ArrayList<>(activeDays.size());
+        for (Object[] row : activeDays) {
+            LocalDate day = (LocalDate) row[0];
+            long count = ((Number) row[1]).longValue();
+            if (!day.isBefore(windowStart) && !day.isAfter(today)) {
+                dailyActivity.put(day.toString(), count);
+                eventsInWindow += count;
+                activeDaysInWindow++;
+            }
+            if (!day.isBefore(today.minusDays(userStreakLookbackDays - 1L))) {
+                streakDays.add(day);
+            }
+        }
 
         metrics.put("completedHuddles", completedHuddles);
         metrics.put("totalTimeSpent", totalTimeSpent);
+        metrics.put("sequenceTime", sequenceTime);
         metrics.put("recentActivityCount", recentEvents.size());
+        metrics.put("recentActivity", recentEvents);
+        metrics.put("activityWindowDays", userActivityWindowDays);
+        metrics.put("dailyActivity", dailyActivity);
+        metrics.put("eventsInWindow", eventsInWindow);
+        metrics.put("activeDaysInWindow", activeDaysInWindow);
+        metrics.put("currentStreakDays", currentStreak(streakDays, today));
+        metrics.put("longestStreakDays", longestStreak(streakDays));
+        metrics.put("streakLookbackDays", userStreakLookbackDays);
 
         return AnalyticsResponse.builder()
                 .userId(userId)
@@ -159,21 +229,30 @@ public class AnalyticsService {
     public AnalyticsResponse getHuddleAnalytics(Long huddleId) {
         Map<String, Object> metrics = new HashMap<>();
 
-        // Progress metrics
-        long totalUsers = userProgressRepository.countBySequenceAndStatus(huddleId, ProgressStatus.NOT_STARTED) +
-                userProgressRepository.countBySequenceAndStatus(huddleId, ProgressStatus.IN_PROGRESS) +
-                userProgressRepository.countBySequenceAndStatus(huddleId, ProgressStatus.COMPLETED);
+        // Progress metrics scoped to this huddle
+        ProgressAggregate progress = userProgressRepository.aggregateByHuddle(huddleId);
+        long completedUsers = progress.getCompletedCount();
+        long totalUsers = progress.getNotStartedCount() + progress.getInProgressCount() + completedUsers;
 
         // Event metrics
-        List<Object[]> eventCounts = engagementEventRepository.countEventsByTypeForHuddle(huddleId);
+        List<Object[]> eventCounts = engagementRollupRepository.sumEventsByTypeForHuddle(huddleId);
         Map<String, Long> eventMetrics = new HashMap<>();
         for (Object[] row : eventCounts) {
-            eventMetrics.put(row[0].toString(), (Long) row[1]);
+            eventMetrics.put(row[0].toString(), ((Number) row[1]).longValue());
         }
 
         metrics.put("totalUsers", totalUsers);
+        metrics.put("completedUsers", completedUsers);
+        metrics.put("inProgressUsers", progress.getInProgressCount());
+        metrics.put("averageCompletion", progress.getAverageCompletion());
+        metrics.put("averageTimeSpent", progress.getAverageTimeSpent());
+        metrics.put("averageAssessmentScore", progress.getAverageAssessmentScore());
         metrics.put("eventCounts", eventMetrics);
 
+        if (totalUsers > 0) {
+            metrics.put("completionRate", (double) completedUsers / totalUsers * 100);
+        }
+
         return AnalyticsResponse.builder()
                 .huddleId(huddleId)
                 .period("All time")
@@ -181,4 +260,42 @@ public class AnalyticsService {
                 .metrics(metrics)
                 .build();
     }
-}
\ No newline at end of file
+
+    // Consecutive active days ending today, or yesterday if there is no activity yet today; days are newest first
+    private static int currentStreak(List<LocalDate> days, LocalDate today) {
+        if (days.isEmpty() || days.get(0).isBefore(today.minusDays(1))) {
+            return 0;
+        }
+        int streak = 1;
+        for (int i = 1; i < days.size() && days.get(i).equals(days.get(i - 1).minusDays(1)); i++) {
+            streak++;
+        }
+        return streak;
+    }
+
+    private static int longestStreak(List<LocalDate> days) {
+        int longest = days.isEmpty() ? 0 : 1;
+        int run = 1;
+        for (int i = 1; i < days.size(); i++) {
+            run = days.get(i).equals(days.get(i - 1).minusDays(1)) ? run + 1 : 1;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+
+    // Only statuses that actually occur are reported, matching the previous GROUP BY output
+    private Map<String, Long> toStatusMap(StatusDistribution distribution) {
+        Map<String, Long> statuses = new HashMap<>();
+        putIfPositive(statuses, ProgressStatus.NOT_STARTED, distribution.getNotStartedCount());
+        putIfPositive(statuses, ProgressStatus.IN_PROGRESS, distribution.getInProgressCount());
+        putIfPositive(statuses, ProgressStatus.COMPLETED, distribution.getCompletedCount());
+        putIfPositive(statuses, ProgressStatus.SKIPPED, distribution.getSkippedCount());
+        return statuses;
+    }
+
+    private void putIfPositive(Map<String, Long> statuses, ProgressStatus status, Long count) {
+        if (count != null && count > 0) {
+            statuses.put(status.name(), count);
+        }
+    }
+}
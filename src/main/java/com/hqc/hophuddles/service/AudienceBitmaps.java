@@ -0,0 +1,124 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.enums.Discipline;
+import com.hqc.hophuddles.enums.TargetOperation;
+import com.hqc.hophuddles.enums.TargetType;
+import com.hqc.hophuddles.enums.UserRole;
+import com.hqc.hophuddles.repository.projection.AssignmentMembership;
+import com.hqc.hophuddles.util.CompressedIntSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Per-agency membership bitmaps: all active users, and users by role, discipline, branch and team. Immutable once
+ * built, so one instance can serve concurrent evaluations.
+ */
+public class AudienceBitmaps {
+
+    private static final CompressedIntSet EMPTY = new CompressedIntSet();
+
+    private final CompressedIntSet all = new CompressedIntSet();
+    private final Map<UserRole, CompressedIntSet> byRole = new EnumMap<>(UserRole.class);
+    private final Map<Discipline, CompressedIntSet> byDiscipline = new EnumMap<>(Discipline.class);
+    private final Map<Long, CompressedIntSet> byBranch = new HashMap<>();
+    private final Map<Long, CompressedIntSet> byTeam = new HashMap<>();
+
+    @Getter
+    private final Long agencyId;
+
+    @Getter
+    private final long builtAt = System.currentTimeMillis();
+
+    private AudienceBitmaps(Long agencyId) {
+        this.agencyId = agencyId;
+    }
+
+    public static AudienceBitmaps build(Long agencyId, List<AssignmentMembership> memberships) {
+        AudienceBitmaps bitmaps = new AudienceBitmaps(agencyId);
+        for (AssignmentMembership membership : memberships) {
+            int userId = Math.toIntExact(membership.getUserId());
+            bitmaps.all.add(userId);
+            bitmaps.byRole.computeIfAbsent(membership.getRole(), k -> new CompressedIntSet()).add(userId);
+            if (membership.getDiscipline() != null) {
+                bitmaps.byDiscipline.computeIfAbsent(membership.getDiscipline(), k -> new CompressedIntSet()).add(userId);
+            }
+            if (membership.getBranchId() != null) {
+                bitmaps.byBranch.computeIfAbsent(membership.getBranchId(), k -> new CompressedIntSet()).add(userId);
+            }
+            if (membership.getTeamId() != null) {
+                bitmaps.byTeam.computeIfAbsent(membership.getTeamId(), k -> new CompressedIntSet()).add(userId);
+            }
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Evaluates targets as (OR of INCLUDE) AND (per target type, OR of INTERSECT) ANDNOT (OR of EXCLUDE).
+     * Without INCLUDE targets the intersections start from the whole agency; excludes alone select nobody.
+     * Invalid target values select nobody.
+     */
+    public CompressedIntSet evaluate(List<Target> targets) {
+        CompressedIntSet included = null;
+        Map<TargetType, CompressedIntSet> intersections = new EnumMap<>(TargetType.class);
+        CompressedIntSet excluded = EMPTY;
+
+        for (Target target : targets) {
+            CompressedIntSet members = select(target.getType(), target.getValue());
+            switch (target.getOperation()) {
+                case INCLUDE -> included = included == null ? members : CompressedIntSet.or(included, members);
+                case INTERSECT -> intersections.merge(target.getType(), members, CompressedIntSet::or);
+                case EXCLUDE -> excluded = CompressedIntSet.or(excluded, members);
+            }
+        }
+
+        if (included == null) {
+            included = intersections.isEmpty() ? EMPTY : all;
+        }
+        for (CompressedIntSet intersection : intersections.values()) {
+            included = CompressedIntSet.and(included, intersection);
+        }
+        return excluded.isEmpty() ? included : CompressedIntSet.andNot(included, excluded);
+    }
+
+    public int getUserCount() {
+        return all.cardinality();
+    }
+
+    public long estimatedBytes() {
+        long total = all.estimatedBytes();
+        for (Map<?, CompressedIntSet> index : List.of(byRole, byDiscipline, byBranch, byTeam)) {
+            for (CompressedIntSet set : index.values()) {
+                total += set.estimatedBytes();
+            }
+        }
+        return total;
+    }
+
+    private CompressedIntSet select(TargetType type, String value) {
+        try {
+            return switch (type) {
+                case AGENCY -> agencyId.equals(Long.parseLong(value)) ? all : EMPTY;
+                case ROLE -> byRole.getOrDefault(UserRole.valueOf(value), EMPTY);
+                case DISCIPLINE -> byDiscipline.getOrDefault(Discipline.valueOf(value), EMPTY);
+                case BRANCH -> byBranch.getOrDefault(Long.parseLong(value), EMPTY);
+                case TEAM -> byTeam.getOrDefault(Long.parseLong(value), EMPTY);
+                case USER -> {
+                    int userId = Math.toIntExact(Long.parseLong(value));
+                    yield all.contains(userId) ? CompressedIntSet.of(userId) : EMPTY;
+                }
+            };
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return EMPTY;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Target {
+        private final TargetType type;
+        private final String value;
+        private final TargetOperation operation;
+    }
+}
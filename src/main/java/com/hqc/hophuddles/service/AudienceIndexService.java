@@ -0,0 +1,199 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.enums.TargetOperation;
+import com.hqc.hophuddles.enums.TargetType;
+import com.hqc.hophuddles.repository.AudienceJdbcRepository;
+import com.hqc.hophuddles.repository.AudienceJdbcRepository.TargetRow;
+import com.hqc.hophuddles.repository.UserAssignmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Materialized audience membership: sequence ID to the sorted IDs of the active users its targets select.
+ * Each agency's assignments are loaded once into {@link AudienceBitmaps}; sequence audiences are evaluated from
+ * them with bitmap AND/OR/ANDNOT. Entries are dropped when the sequence's targets, or any assignment in its
+ * agency, change. Invalidation runs after the mutating transaction commits.
+ * <p>
+ * Invalidation is local to this instance; {@code app.audience.index.max-age-ms} bounds how stale another
+ * instance's copy can get.
+ */
+@Service
+@Slf4j
+public class AudienceIndexService {
+
+    private final AudienceJdbcRepository audienceRepository;
+    private final UserAssignmentRepository userAssignmentRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Audience> audiences = new ConcurrentHashMap<>();
+    private final Map<Long, AudienceBitmaps> agencyBitmaps = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> sequencesByAgency = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; a build that overlapped one is returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${app.audience.index.max-age-ms:900000}")
+    private long maxAgeMs;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    public AudienceIndexService(AudienceJdbcRepository audienceRepository,
+                                UserAssignmentRepository userAssignmentRepository,
+                                MeterRegistry meterRegistry) {
+        this.audienceRepository = audienceRepository;
+        this.userAssignmentRepository = userAssignmentRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("audience.index.sequences", audiences, Map::size).register(meterRegistry);
+        Gauge.builder("audience.index.agencies", agencyBitmaps, Map::size).register(meterRegistry);
+        Gauge.builder("audience.index.bitmap.bytes", agencyBitmaps,
+                        bitmaps -> bitmaps.values().stream().mapToLong(AudienceBitmaps::estimatedBytes).sum())
+                .description("Approximate memory held by agency membership bitmaps")
+                .register(meterRegistry);
+        hitCounter = Counter.builder("audience.index.lookups").tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("audience.index.lookups").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Returns the sorted user IDs targeted by a sequence. The array is shared and must not be modified.
+     */
+    public long[] getAudience(Long sequenceId) {
+        Audience cached = audiences.get(sequenceId);
+        if (cached != null && System.currentTimeMillis() - cached.getBuiltAt() < maxAgeMs) {
+            hitCounter.increment();
+            return cached.getUserIds();
+        }
+        missCounter.increment();
+
+        long observed = generation.get();
+        Audience built = build(sequenceId);
+        if (built.getAgencyId() != null && generation.get() == observed) {
+            audiences.put(sequenceId, built);
+            sequencesByAgency.computeIfAbsent(built.getAgencyId(), k -> ConcurrentHashMap.newKeySet()).add(sequenceId);
+        }
+        return built.getUserIds();
+    }
+
+    public List<Long> getAudienceUserIds(Long sequenceId) {
+        long[] userIds = getAudience(sequenceId);
+        List<Long> result = new ArrayList<>(userIds.length);
+        for (long userId : userIds) {
+            result.add(userId);
+        }
+        return result;
+    }
+
+    // Invalidation
+    public void invalidateSequence(Long sequenceId) {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            audiences.remove(sequenceId);
+        });
+    }
+
+    public void invalidateAgency(Long agencyId) {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            agencyBitmaps.remove(agencyId);
+            Set<Long> sequenceIds = sequencesByAgency.remove(agencyId);
+            if (sequenceIds != null) {
+                sequenceIds.forEach(audiences::remove);
+                log.debug("Invalidated {} audiences for agency {}", sequenceIds.size(), agencyId);
+            }
+        });
+    }
+
+    public void invalidateUser(Long userId) {
+        audienceRepository.findAgencyIdsByUser(userId).forEach(this::invalidateAgency);
+    }
+
+    public void invalidateAll() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            audiences.clear();
+            agencyBitmaps.clear();
+            sequencesByAgency.clear();
+        });
+    }
+
+    private Audience build(Long sequenceId) {
+        List<TargetRow> rows = audienceRepository.findTargets(sequenceId);
+        if (rows.isEmpty()) {
+            return new Audience(null, new long[0], System.currentTimeMillis());
+        }
+
+        Long agencyId = rows.get(0).getAgencyId();
+        List<AudienceBitmaps.Target> targets = new ArrayList<>(rows.size());
+        for (TargetRow row : rows) {
+            if (row.getTargetType() != null) {
+                targets.add(new AudienceBitmaps.Target(
+                        TargetType.valueOf(row.getTargetType()),
+                        row.getTargetValue(),
+                        row.getTargetOperation() != null
+                                ? TargetOperation.valueOf(row.getTargetOperation())
+                                : TargetOperation.INCLUDE));
+            }
+        }
+
+        long[] userIds = getAgencyBitmaps(agencyId).evaluate(targets).toLongArray();
+        log.debug("Built audience for sequence {}: {} users from {} targets", sequenceId, userIds.length, targets.size());
+        return new Audience(agencyId, userIds, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the membership bitmaps of an agency, loading them with one query on first use.
+     */
+    public AudienceBitmaps getAgencyBitmaps(Long agencyId) {
+        AudienceBitmaps cached = agencyBitmaps.get(agencyId);
+        if (cached != null && System.currentTimeMillis() - cached.getBuiltAt() < maxAgeMs) {
+            return cached;
+        }
+
+        long observed = generation.get();
+        AudienceBitmaps built = AudienceBitmaps.build(agencyId,
+                userAssignmentRepository.findAudienceMemberships(agencyId));
+        if (generation.get() == observed) {
+            agencyBitmaps.put(agencyId, built);
+        }
+        log.debug("Loaded audience bitmaps for agency {}: {} users, ~{} bytes",
+                agencyId, built.getUserCount(), built.estimatedBytes());
+        return built;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Audience {
+        private final Long agencyId;
+        private final long[] userIds;
+        private final long builtAt;
+    }
+}
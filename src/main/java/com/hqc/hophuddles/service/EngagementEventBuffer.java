@@ -0,0 +1,354 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.enums.EventType;
+import com.hqc.hophuddles.enums.OverflowPolicy;
+import com.hqc.hophuddles.repository.EngagementEventJdbcRepository;
+import com.hqc.hophuddles.repository.EngagementEventJdbcRepository.EventRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for engagement events. Producers enqueue into a bounded queue and a single
+ * flusher thread drains it, resolves references for the whole batch at once and writes the rows
+ * with JDBC batch inserts when either the batch size or the flush interval is reached. The hourly and
+ * daily rollups are updated in the same transaction as the insert.
+ * <p>
+ * A batch whose write fails is retried with exponential backoff, up to {@code max-write-attempts} times, before
+ * its events are counted as failed; meanwhile new events wait in the queue.
+ */
+@Service
+@Slf4j
+public class EngagementEventBuffer {
+
+    private final EngagementEventJdbcRepository jdbcRepository;
+    private final EngagementRollupService rollupService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.engagement.buffer.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.engagement.buffer.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${app.engagement.buffer.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${app.engagement.buffer.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.engagement.buffer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.engagement.buffer.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${app.engagement.buffer.coalesce:true}")
+    private boolean coalesce;
+
+    @Value("${app.engagement.buffer.max-write-attempts:5}")
+    private int maxWriteAttempts;
+
+    @Value("${app.engagement.buffer.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}")
+    private int jdbcBatchSize;
+
+    private BlockingQueue<PendingEvent> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter acceptedCounter;
+    private Counter droppedCounter;
+    private Counter coalescedCounter;
+    private Counter rejectedCounter;
+    private Counter persistedCounter;
+    private Counter failedCounter;
+    private Counter retriedCounter;
+
+    public EngagementEventBuffer(EngagementEventJdbcRepository jdbcRepository,
+                                 EngagementRollupService rollupService,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcRepository = jdbcRepository;
+        this.rollupService = rollupService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("engagement.buffer.depth", queue, Collection::size)
+                .description("Engagement events waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("engagement.buffer.remaining.capacity", queue, BlockingQueue::remainingCapacity)
+                .register(meterRegistry);
+        flushTimer = Timer.builder("engagement.buffer.flush")
+                .description("Time spent resolving and writing one engagement batch")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        acceptedCounter = outcomeCounter("accepted");
+        droppedCounter = outcomeCounter("dropped");
+        coalescedCounter = outcomeCounter("coalesced");
+        rejectedCounter = outcomeCounter("rejected");
+        persistedCounter = outcomeCounter("persisted");
+        failedCounter = outcomeCounter("failed");
+        retriedCounter = outcomeCounter("retried");
+
+        running = true;
+        flusher = new Thread(this::runFlushLoop, "engagement-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        log.info("Engagement buffer started (capacity={}, maxBatch={}, interval={}ms, policy={})",
+                capacity, maxBatchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * Enqueues an event according to the configured overflow policy.
+     *
+     * @return false if the event was not accepted (buffer full under BLOCK/DROP_NEWEST)
+     */
+    public boolean offer(PendingEvent event) {
+        if (!running) {
+            writeNow(List.of(event));
+            return true;
+        }
+        if (queue.offer(event)) {
+            acceptedCounter.increment();
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        acceptedCounter.increment();
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                rejectedCounter.increment();
+                return false;
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(event)) {
+                    if (queue.poll() != null) {
+                        droppedCounter.increment();
+                    }
+                }
+                acceptedCounter.increment();
+                return true;
+            }
+            case CALLER_RUNS -> {
+                acceptedCounter.increment();
+                writeNow(List.of(event));
+                return true;
+            }
+            default -> {
+                droppedCounter.increment();
+                return false;
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything the flusher could not get to within the timeout is written on this thread
+        List<PendingEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.info("Draining {} buffered engagement events on shutdown", remaining.size());
+            for (int from = 0; from < remaining.size(); from += maxBatchSize) {
+                writeNow(remaining.subList(from, Math.min(from + maxBatchSize, remaining.size())));
+            }
+        }
+    }
+
+    private void runFlushLoop() {
+        List<PendingEvent> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested; flush whatever has been collected and leave the rest to shutdown()
+            }
+            if (!batch.isEmpty()) {
+                writeNow(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<PendingEvent> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingEvent head = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (head == null) {
+                return;
+            }
+            batch.add(head);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void writeNow(List<PendingEvent> batch) {
+        List<EventRow> rows = null;
+        for (int attempt = 1; ; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                if (rows == null) {
+                    rows = resolve(coalesce ? coalesce(batch) : batch);
+                }
+                if (!rows.isEmpty()) {
+                    persistedCounter.increment(rollupService.persistBatch(rows, jdbcBatchSize));
+                }
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxWriteAttempts) {
+                    failedCounter.increment(batch.size());
+                    log.error("Giving up on {} engagement events after {} attempts", batch.size(), attempt, e);
+                    return;
+                }
+                retriedCounter.increment(batch.size());
+                log.warn("Failed to flush {} engagement events (attempt {} of {}), retrying: {}",
+                        batch.size(), attempt, maxWriteAttempts, e.getMessage());
+            } finally {
+                sample.stop(flushTimer);
+            }
+            backoff(attempt);
+        }
+    }
+
+    // Exponential; an interrupt (shutdown) cuts the wait short but not the remaining attempts
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs << Math.min(attempt - 1, 10));
+        } catch (InterruptedException e) {
+            log.debug("Engagement flush backoff interrupted");
+        }
+    }
+
+    // Repeated engagement pings (same user, target, type, session and payload) collapse to the first one
+    private List<PendingEvent> coalesce(List<PendingEvent> batch) {
+        Set<PendingEvent> seen = new HashSet<>();
+        List<PendingEvent> result = new ArrayList<>(batch.size());
+        for (PendingEvent event : batch) {
+            if (event.getEventType().isEngagementEvent() && event.getSessionId() != null && !seen.add(event)) {
+                coalescedCounter.increment();
+                continue;
+            }
+            result.add(event);
+        }
+        return result;
+    }
+
+    private List<EventRow> resolve(List<PendingEvent> batch) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> huddleIds = new HashSet<>();
+        Set<Long> sequenceIds = new HashSet<>();
+        for (PendingEvent event : batch) {
+            userIds.add(event.getUserId());
+            if (event.getHuddleId() != null) {
+                huddleIds.add(event.getHuddleId());
+            } else {
+                sequenceIds.add(event.getSequenceId());
+            }
+        }
+
+        Set<Long> activeUsers = jdbcRepository.findActiveUserIds(userIds);
+        Map<Long, long[]> huddleScopes = jdbcRepository.findHuddleScopes(huddleIds);
+        Map<Long, Long> sequenceAgencies = jdbcRepository.findSequenceAgencies(sequenceIds);
+
+        List<EventRow> rows = new ArrayList<>(batch.size());
+        for (PendingEvent event : batch) {
+            Long sequenceId;
+            Long agencyId;
+            if (event.getHuddleId() != null) {
+                long[] scope = huddleScopes.get(event.getHuddleId());
+                sequenceId = scope != null ? scope[0] : null;
+                agencyId = scope != null ? scope[1] : null;
+            } else {
+                sequenceId = event.getSequenceId();
+                agencyId = sequenceAgencies.get(sequenceId);
+            }
+
+            if (agencyId == null || !activeUsers.contains(event.getUserId())) {
+                droppedCounter.increment();
+                log.warn("Dropping {} event for unknown user {} / huddle {} / sequence {}",
+                        event.getEventType(), event.getUserId(), event.getHuddleId(), event.getSequenceId());
+                continue;
+            }
+
+            rows.add(EventRow.builder()
+                    .userId(event.getUserId())
+                    .huddleId(event.getHuddleId())
+                    .sequenceId(sequenceId)
+                    .agencyId(agencyId)
+                    .eventType(event.getEventType().name())
+                    .eventData(event.getEventData())
+                    .sessionId(event.getSessionId())
+                    .ipAddress(event.getIpAddress())
+                    .userAgent(event.getUserAgent())
+                    .createdAt(event.getOccurredAt())
+                    .build());
+        }
+        return rows;
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("engagement.buffer.events")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class PendingEvent {
+        private final Long userId;
+        private final Long huddleId;
+        private final Long sequenceId;
+        private final EventType eventType;
+        private final String sessionId;
+        private final String eventData;
+        private final String ipAddress;
+        private final String userAgent;
+        @EqualsAndHashCode.Exclude
+        private final LocalDateTime occurredAt;
+    }
+}
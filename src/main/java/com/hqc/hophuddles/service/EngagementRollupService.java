@@ -0,0 +1,182 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.EngagementRollup;
+import com.hqc.hophuddles.entity.EngagementRollupState;
+import com.hqc.hophuddles.enums.RollupGranularity;
+import com.hqc.hophuddles.repository.EngagementEventJdbcRepository;
+import com.hqc.hophuddles.repository.EngagementEventJdbcRepository.EventRow;
+import com.hqc.hophuddles.repository.EngagementRollupJdbcRepository;
+import com.hqc.hophuddles.repository.EngagementRollupJdbcRepository.RollupKey;
+import com.hqc.hophuddles.repository.EngagementRollupJdbcRepository.UserDayKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EngagementRollupService {
+
+    private static final String BACKFILL_STATE_KEY = "engagement_rollups";
+
+    private final EngagementEventJdbcRepository eventJdbcRepository;
+    private final EngagementRollupJdbcRepository rollupJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private volatile boolean stateInitialized;
+
+    @Value("${app.engagement.rollup.backfill-chunk-size:5000}")
+    private long backfillChunkSize;
+
+    /**
+     * Inserts a batch of raw events and folds it into the hourly/daily rollups in one transaction.
+     */
+    public int persistBatch(List<EventRow> rows, int jdbcBatchSize) {
+        Integer persisted = transactionTemplate.execute(status -> {
+            if (!stateInitialized) {
+                ensureBackfillState();
+            }
+            int written = eventJdbcRepository.insertBatch(rows, jdbcBatchSize);
+
+            Map<RollupKey, Long> rollups = new HashMap<>();
+            Map<UserDayKey, Long> userDays = new HashMap<>();
+            for (EventRow row : rows) {
+                accumulate(rollups, userDays, row.getUserId(), row.getAgencyId(), row.getSequenceId(),
+                        row.getHuddleId(), row.getEventType(), row.getCreatedAt());
+            }
+            rollupJdbcRepository.upsertRollups(rollups);
+            rollupJdbcRepository.upsertUserDays(userDays);
+            return written;
+        });
+        stateInitialized = true;
+        return persisted != null ? persisted : 0;
+    }
+
+    /**
+     * Starts folding pre-existing event history into the rollups on a background thread.
+     *
+     * @return false if a backfill is already running
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                runBackfill();
+            } catch (Exception e) {
+                log.error("Engagement rollup backfill failed", e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        }, "engagement-rollup-backfill");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public Map<String, Object> getBackfillStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", backfillRunning.get());
+        rollupJdbcRepository.findState(BACKFILL_STATE_KEY).ifPresent(state -> {
+            status.put("highWaterEventId", state.getHighWaterEventId());
+            status.put("cursorEventId", state.getCursorEventId());
+            status.put("completedAt", state.getCompletedAt());
+        });
+        return status;
+    }
+
+    private void runBackfill() {
+        long started = System.currentTimeMillis();
+        long processed = 0;
+        while (true) {
+            Long chunkEvents = transactionTemplate.execute(status -> backfillChunk());
+            if (chunkEvents == null || chunkEvents < 0) {
+                break;
+            }
+            processed += chunkEvents;
+        }
+        log.info("Engagement rollup backfill finished: {} events in {} ms",
+                processed, System.currentTimeMillis() - started);
+    }
+
+    // Returns the number of events folded in, or -1 once the cursor has reached the high-water mark
+    private long backfillChunk() {
+        EngagementRollupState state = ensureBackfillState();
+        long cursor = state.getCursorEventId();
+        long highWater = state.getHighWaterEventId();
+        if (cursor >= highWater) {
+            if (state.getCompletedAt() == null) {
+                rollupJdbcRepository.advanceCursor(BACKFILL_STATE_KEY, cursor, LocalDateTime.now());
+            }
+            return -1;
+        }
+
+        long upTo = Math.min(cursor + backfillChunkSize, highWater);
+        Map<RollupKey, Long> rollups = new HashMap<>();
+        Map<UserDayKey, Long> userDays = new HashMap<>();
+        long[] count = {0};
+        rollupJdbcRepository.streamEvents(cursor, upTo, rs -> {
+            long huddleId = rs.getLong("huddle_id");
+            boolean sequenceEvent = rs.wasNull();
+            accumulate(rollups, userDays,
+                    rs.getLong("user_id"),
+                    rs.getLong("agency_id"),
+                    rs.getLong("sequence_id"),
+                    sequenceEvent ? null : huddleId,
+                    rs.getString("event_type"),
+                    rs.getTimestamp("created_at").toLocalDateTime());
+            count[0]++;
+        });
+
+        rollupJdbcRepository.upsertRollups(rollups);
+        rollupJdbcRepository.upsertUserDays(userDays);
+        rollupJdbcRepository.advanceCursor(BACKFILL_STATE_KEY, upTo, upTo >= highWater ? LocalDateTime.now() : null);
+        log.debug("Backfilled engagement rollups for events ({}, {}]: {} events", cursor, upTo, count[0]);
+        return count[0];
+    }
+
+    /**
+     * Pins the backfill high-water mark to the newest event that existed before incremental maintenance
+     * started, so history and live ingestion never count the same event twice.
+     */
+    private EngagementRollupState ensureBackfillState() {
+        return rollupJdbcRepository.findState(BACKFILL_STATE_KEY).orElseGet(() -> {
+            long highWater = rollupJdbcRepository.findMaxEventId();
+            try {
+                rollupJdbcRepository.insertState(BACKFILL_STATE_KEY, highWater);
+            } catch (DuplicateKeyException e) {
+                // Another node pinned it first; its mark is the one that counts
+                return rollupJdbcRepository.findState(BACKFILL_STATE_KEY).orElseThrow(() -> e);
+            }
+            log.info("Engagement rollups enabled; events up to id {} require backfill", highWater);
+            return EngagementRollupState.builder()
+                    .stateKey(BACKFILL_STATE_KEY)
+                    .highWaterEventId(highWater)
+                    .cursorEventId(0L)
+                    .build();
+        });
+    }
+
+    private void accumulate(Map<RollupKey, Long> rollups, Map<UserDayKey, Long> userDays,
+                            Long userId, Long agencyId, Long sequenceId, Long huddleId,
+                            String eventType, LocalDateTime occurredAt) {
+        long huddleKey = huddleId != null ? huddleId : EngagementRollup.NO_HUDDLE;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            RollupKey key = new RollupKey(granularity.name(), agencyId, granularity.bucketStart(occurredAt),
+                    sequenceId, huddleKey, eventType);
+            rollups.merge(key, 1L, Long::sum);
+        }
+        userDays.merge(new UserDayKey(agencyId, occurredAt.toLocalDate(), userId), 1L, Long::sum);
+    }
+}
@@ -1,15 +1,32 @@
 package com.hqc.hophuddles.service;
 
-import com.hqc.hophuddles.entity.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hqc.hophuddles.dto.response.CursorPage;
+import com.hqc.hophuddles.dto.response.EngagementEventResponse;
 import com.hqc.hophuddles.enums.EventType;
 import com.hqc.hophuddles.exception.ResourceNotFoundException;
-import com.hqc.hophuddles.repository.*;
+import com.hqc.hophuddles.repository.EngagementEventJdbcRepository;
+import com.hqc.hophuddles.repository.EngagementEventRepository;
+import com.hqc.hophuddles.util.BoundedTtlCache;
+import com.hqc.hophuddles.util.EventCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -17,84 +34,138 @@ import java.util.List;
 @Slf4j
 public class EngagementService {
 
+    private static final int REFERENCE_CACHE_ENTRIES = 10_000;
+    private static final long REFERENCE_CACHE_TTL_MINUTES = 5;
+
     private final EngagementEventRepository eventRepository;
-    private final UserRepository userRepository;
-    private final HuddleRepository huddleRepository;
-    private final HuddleSequenceRepository sequenceRepository;
-
-    public void recordHuddleEvent(Long userId, Long huddleId, EventType eventType, String sessionId, String eventData) {
-        User user = findUserById(userId);
-        Huddle huddle = findHuddleById(huddleId);
-
-        EngagementEvent event = EngagementEvent.builder()
-                .user(user)
-                .huddle(huddle)
-                .sequence(huddle.getSequence())
-                .agency(huddle.getSequence().getAgency())
-                .eventType(eventType)
-                .sessionId(sessionId)
-                .eventData(eventData)
-                .build();
-
-        eventRepository.save(event);
-
-        log.debug("Recorded {} event for user {} on huddle {}", eventType, userId, huddleId);
+    private final EngagementEventJdbcRepository eventJdbcRepository;
+    private final EngagementEventBuffer eventBuffer;
+    private final ObjectMapper objectMapper;
+
+    // Known active references, so that unknown IDs are still rejected with a 404 before an event is buffered.
+    // A reference deactivated within the TTL is caught when the batch is flushed.
+    private final BoundedTtlCache<Long, Boolean> activeUsers =
+            new BoundedTtlCache<>(REFERENCE_CACHE_ENTRIES, REFERENCE_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+    private final BoundedTtlCache<Long, Boolean> activeHuddles =
+            new BoundedTtlCache<>(REFERENCE_CACHE_ENTRIES, REFERENCE_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+    private final BoundedTtlCache<Long, Boolean> activeSequences =
+            new BoundedTtlCache<>(REFERENCE_CACHE_ENTRIES, REFERENCE_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+
+    // Events are buffered and written in batches; references are checked here and again when the batch is flushed
+    public boolean recordHuddleEvent(Long userId, Long huddleId, EventType eventType, String sessionId, String eventData) {
+        requireUser(userId);
+        activeHuddles.get(huddleId, id -> {
+            if (eventJdbcRepository.findHuddleScopes(Set.of(id)).isEmpty()) {
+                throw new ResourceNotFoundException("Huddle", id);
+            }
+            return Boolean.TRUE;
+        });
+        boolean accepted = eventBuffer.offer(new EngagementEventBuffer.PendingEvent(
+                userId, huddleId, null, eventType, sessionId, eventData, null, null, LocalDateTime.now()));
+
+        log.debug("Buffered {} event for user {} on huddle {} (accepted={})", eventType, userId, huddleId, accepted);
+        return accepted;
     }
 
-    public void recordSequenceEvent(Long userId, Long sequenceId, EventType eventType, String sessionId, String eventData) {
-        User user = findUserById(userId);
-        HuddleSequence sequence = findSequenceById(sequenceId);
+    public boolean recordSequenceEvent(Long userId, Long sequenceId, EventType eventType, String sessionId, String eventData) {
+        requireUser(userId);
+        activeSequences.get(sequenceId, id -> {
+            if (eventJdbcRepository.findSequenceAgencies(Set.of(id)).isEmpty()) {
+                throw new ResourceNotFoundException("HuddleSequence", id);
+            }
+            return Boolean.TRUE;
+        });
+        boolean accepted = eventBuffer.offer(new EngagementEventBuffer.PendingEvent(
+                userId, null, sequenceId, eventType, sessionId, eventData, null, null, LocalDateTime.now()));
+
+        log.debug("Buffered {} event for user {} on sequence {} (accepted={})", eventType, userId, sequenceId, accepted);
+        return accepted;
+    }
 
-        EngagementEvent event = EngagementEvent.builder()
-                .user(user)
-                .sequence(sequence)
-                .agency(sequence.getAgency())
-                .eventType(eventType)
-                .sessionId(sessionId)
-                .eventData(eventData)
-                .build();
+    private void requireUser(Long userId) {
+        activeUsers.get(userId, id -> {
+            if (eventJdbcRepository.findActiveUserIds(Set.of(id)).isEmpty()) {
+                throw new ResourceNotFoundException("User", id);
+            }
+            return Boolean.TRUE;
+        });
+    }
 
-        eventRepository.save(event);
+    // History pages, newest first
+    @Transactional(readOnly = true)
+    public CursorPage<EngagementEventResponse> getUserEngagementHistory(Long userId, String cursor, int limit) {
+        EventCursor after = EventCursor.decode(cursor);
+        return toPage(eventRepository.findUserHistoryPage(userId, after.getCreatedAt(), after.getEventId(),
+                PageRequest.of(0, limit + 1)), limit);
+    }
 
-        log.debug("Recorded {} event for user {} on sequence {}", eventType, userId, sequenceId);
+    @Transactional(readOnly = true)
+    public CursorPage<EngagementEventResponse> getHuddleEngagementHistory(Long huddleId, String cursor, int limit) {
+        EventCursor after = EventCursor.decode(cursor);
+        return toPage(eventRepository.findHuddleHistoryPage(huddleId, after.getCreatedAt(), after.getEventId(),
+                PageRequest.of(0, limit + 1)), limit);
     }
 
     @Transactional(readOnly = true)
-    public List<EngagementEvent> getUserEngagementHistory(Long userId) {
-        return eventRepository.findByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId);
+    public CursorPage<EngagementEventResponse> getSequenceEngagementHistory(Long sequenceId, String cursor, int limit) {
+        EventCursor after = EventCursor.decode(cursor);
+        return toPage(eventRepository.findSequenceHistoryPage(sequenceId, after.getCreatedAt(), after.getEventId(),
+                PageRequest.of(0, limit + 1)), limit);
     }
 
     @Transactional(readOnly = true)
-    public List<EngagementEvent> getHuddleEngagementHistory(Long huddleId) {
-        return eventRepository.findByHuddleHuddleIdAndIsActiveTrueOrderByCreatedAtDesc(huddleId);
+    public List<EngagementEventResponse> getSessionEvents(String sessionId) {
+        return eventRepository.findSessionHistory(sessionId);
     }
 
+    // NDJSON exports, one event per line, streamed straight from the result set
     @Transactional(readOnly = true)
-    public List<EngagementEvent> getSequenceEngagementHistory(Long sequenceId) {
-        return eventRepository.findBySequenceSequenceIdAndIsActiveTrueOrderByCreatedAtDesc(sequenceId);
+    public long exportUserEngagementHistory(Long userId, OutputStream out) throws IOException {
+        try (Stream<EngagementEventResponse> events = eventRepository.streamUserHistory(userId)) {
+            return writeNdjson(events, out);
+        }
     }
 
     @Transactional(readOnly = true)
-    public List<EngagementEvent> getSessionEvents(String sessionId) {
-        return eventRepository.findBySessionIdAndIsActiveTrueOrderByCreatedAtAsc(sessionId);
+    public long exportHuddleEngagementHistory(Long huddleId, OutputStream out) throws IOException {
+        try (Stream<EngagementEventResponse> events = eventRepository.streamHuddleHistory(huddleId)) {
+            return writeNdjson(events, out);
+        }
     }
 
-    // Helper methods
-    private User findUserById(Long userId) {
-        return userRepository.findById(userId)
-                .filter(User::getIsActive)
-                .orElseThrow(() -> new ResourceNotFoundException("User", userId));
+    @Transactional(readOnly = true)
+    public long exportSequenceEngagementHistory(Long sequenceId, OutputStream out) throws IOException {
+        try (Stream<EngagementEventResponse> events = eventRepository.streamSequenceHistory(sequenceId)) {
+            return writeNdjson(events, out);
+        }
     }
 
-    private Huddle findHuddleById(Long huddleId) {
-        return huddleRepository.findById(huddleId)
-                .filter(Huddle::getIsActive)
-                .orElseThrow(() -> new ResourceNotFoundException("Huddle", huddleId));
+    // Pages are fetched with one extra row to tell whether another page follows
+    private static CursorPage<EngagementEventResponse> toPage(List<EngagementEventResponse> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<EngagementEventResponse> items = rows.subList(0, limit);
+        EngagementEventResponse last = items.get(limit - 1);
+        return new CursorPage<>(new ArrayList<>(items),
+                new EventCursor(last.getCreatedAt(), last.getEventId()).encode(), true);
     }
 
-    private HuddleSequence findSequenceById(Long sequenceId) {
-        return sequenceRepository.findById(sequenceId)
-                .filter(HuddleSequence::getIsActive)
-                .orElseThrow(() -> new ResourceNotFoundException("HuddleSequence", sequenceId));
+    private long writeNdjson(Stream<EngagementEventResponse> events, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(EngagementEventResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long written = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The servlet container owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<EngagementEventResponse> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                written++;
+            }
+        }
+        return written;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,243 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.repository.FileBlobRepository;
+import com.hqc.hophuddles.repository.FileReferenceRepository;
+import com.hqc.hophuddles.service.storage.BlobStore;
+import com.hqc.hophuddles.service.storage.BlobStore.StoredBlob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Removes blobs nobody references any more, outside the request path. A blob is collected once its reference
+ * count has been zero for {@code app.file.gc.grace-ms}; each one is deleted under its row lock, so an upload that
+ * references it again in the meantime keeps it.
+ * <p>
+ * A second pass sweeps the blob store and the temporary directory for blobs and files with no blob row, left behind
+ * by uploads that failed part way. Only those older than the grace period are touched. An upload writes its bytes
+ * before it inserts the blob row, which refreshes their modification time, so each orphan's time is read again
+ * from the store just before it is deleted and a blob an upload has just rewritten is kept.
+ */
+@Service
+@Slf4j
+public class FileBlobCollector {
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final FileStorageService fileStorageService;
+    private final BlobStore blobStore;
+    private final FileBlobRepository blobRepository;
+    private final FileReferenceRepository referenceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.file.gc.grace-ms:86400000}")
+    private long graceMs;
+
+    @Value("${app.file.gc.batch-size:500}")
+    private int batchSize;
+
+    public FileBlobCollector(FileStorageService fileStorageService,
+                             BlobStore blobStore,
+                             FileBlobRepository blobRepository,
+                             FileReferenceRepository referenceRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.fileStorageService = fileStorageService;
+        this.blobStore = blobStore;
+        this.blobRepository = blobRepository;
+        this.referenceRepository = referenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${app.file.gc.cron:0 30 3 * * *}")
+    public void scheduledCollection() {
+        collect();
+    }
+
+    public Map<String, Object> collect() {
+        Map<String, Object> result = new HashMap<>();
+        if (!running.compareAndSet(false, true)) {
+            result.put("skipped", "Collection already running");
+            return result;
+        }
+
+        long started = System.currentTimeMillis();
+        long[] collected = new long[2];
+        long[] swept = new long[2];
+        try {
+            collectReleased(collected);
+            sweepBlobs(swept);
+            sweepTemporaryFiles(fileStorageService.getTempDirectory(), swept);
+        } finally {
+            running.set(false);
+        }
+
+        log.info("File blob collection: {} blobs ({} bytes) collected, {} orphaned files ({} bytes) swept in {} ms",
+                collected[0], collected[1], swept[0], swept[1], System.currentTimeMillis() - started);
+        result.put("blobsCollected", collected[0]);
+        result.put("bytesCollected", collected[1]);
+        result.put("orphansSwept", swept[0]);
+        result.put("bytesSwept", swept[1]);
+        return result;
+    }
+
+    /**
+     * Bytes clients have stored against bytes actually on disk.
+     */
+    public Map<String, Object> getStorageStats() {
+        long logical = referenceRepository.sumSizeBytes();
+        long physical = blobRepository.sumSizeBytes();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("references", referenceRepository.count());
+        stats.put("blobs", blobRepository.count());
+        stats.put("logicalBytes", logical);
+        stats.put("storedBytes", physical);
+        stats.put("savedBytes", Math.max(0, logical - physical));
+        return stats;
+    }
+
+    // Counts go to collected[0] and collected[1] (blobs, bytes)
+    private void collectReleased(long[] collected) {
+        while (true) {
+            LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(graceMs));
+            List<String> candidates = blobRepository.findReleasedBefore(cutoff, PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                return;
+            }
+            long collectedBefore = collected[0];
+            for (String sha256 : candidates) {
+                Long freed = transactionTemplate.execute(status -> blobRepository.findByIdForUpdate(sha256)
+                        .filter(blob -> blob.getRefCount() == 0)
+                        .filter(blob -> deleteBlob(sha256))
+                        .map(blob -> {
+                            blobRepository.delete(blob);
+                            return blob.getSizeBytes();
+                        })
+                        .orElse(null));
+                if (freed != null) {
+                    collected[0]++;
+                    collected[1] += freed;
+                }
+            }
+            if (collected[0] == collectedBefore) {
+                return; // every candidate was referenced again
+            }
+        }
+    }
+
+    // Kept when the store fails, so the row survives and the blob is tried again on the next run
+    private boolean deleteBlob(String sha256) {
+        try {
+            blobStore.delete(sha256);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not delete blob {}", sha256, e);
+            return false;
+        }
+    }
+
+    // Blobs are orphaned when no row names them
+    private void sweepBlobs(long[] swept) {
+        Instant cutoff = Instant.now().minusMillis(graceMs);
+        try {
+            blobStore.list(SWEEP_BATCH_SIZE, page -> {
+                List<StoredBlob> old = page.stream().filter(blob -> blob.getLastModified().isBefore(cutoff)).toList();
+                if (old.isEmpty()) {
+                    return;
+                }
+                Set<String> referenced = new HashSet<>(
+                        blobRepository.findExisting(old.stream().map(StoredBlob::getKey).toList()));
+                List<StoredBlob> orphans = old.stream().filter(blob -> !referenced.contains(blob.getKey())).toList();
+                if (orphans.isEmpty()) {
+                    return;
+                }
+                // Checked again just before deleting, in case an upload has just referenced one of them
+                referenced.addAll(blobRepository.findExisting(orphans.stream().map(StoredBlob::getKey).toList()));
+                for (StoredBlob orphan : orphans) {
+                    if (!referenced.contains(orphan.getKey()) && unchangedSince(orphan.getKey(), cutoff)
+                            && deleteBlob(orphan.getKey())) {
+                        swept[0]++;
+                        swept[1] += orphan.getSize();
+                    }
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not sweep the blob store", e);
+        }
+    }
+
+    // The listing can be minutes old by now and an upload may have written the bytes again since; only a write
+    // landing between this read and the delete is still missed
+    private boolean unchangedSince(String key, Instant cutoff) {
+        try {
+            Instant lastModified = blobStore.lastModified(key);
+            return lastModified != null && lastModified.isBefore(cutoff);
+        } catch (IOException e) {
+            log.warn("Could not read blob {}", key, e);
+            return false;
+        }
+    }
+
+    // Any temporary file older than the grace period belongs to an upload that did not finish
+    private void sweepTemporaryFiles(Path directory, long[] swept) {
+        Instant cutoff = Instant.now().minusMillis(graceMs);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (isOlderThan(file, cutoff)) {
+                    long size = sizeOf(file);
+                    if (deleteQuietly(file)) {
+                        swept[0]++;
+                        swept[1] += size;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep {}", directory, e);
+        }
+    }
+
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+            return false;
+        }
+    }
+}
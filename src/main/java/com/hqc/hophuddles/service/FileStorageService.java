@@ -1,45 +1,120 @@
 package com.hqc.hophuddles.service;
 
+import com.hqc.hophuddles.entity.FileBlob;
+import com.hqc.hophuddles.entity.FileReference;
 import com.hqc.hophuddles.exception.FileStorageException;
+import com.hqc.hophuddles.repository.FileBlobRepository;
+import com.hqc.hophuddles.repository.FileReferenceRepository;
+import com.hqc.hophuddles.service.storage.BlobStore;
+import com.hqc.hophuddles.service.storage.LocalBlobStore;
+import com.hqc.hophuddles.util.BoundedTtlCache;
+import com.hqc.hophuddles.util.ContentSniffer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+/**
+ * Stores uploaded and generated files, content-addressed. Each file is hashed (SHA-256), size-limited and checked
+ * against the signature of its extension while it is written to a temporary file, then kept as a blob under its hash in {@code blobs/ab/cd/<hash>} below {@code app.file.upload-dir}.
+ * Identical uploads share one blob. The names handed out to clients ({@code category/unique name}) are rows in
+ * file_references, and file_blobs counts the references to each blob. Deleting a file only drops its reference;
+ * {@link FileBlobCollector} removes unreferenced blobs later.
+ * <p>
+ * Adding a reference and collecting a blob both take the blob's row lock, so a blob is never deleted once an upload
+ * has referenced it. Uploads write the bytes before taking the lock. The blob hash is each file's strong ETag.
+ * <p>
+ * Files written directly below a category directory before blobs were introduced are still served. Their digest is
+ * taken on first use and kept in a user-defined file attribute where the file system supports them, and is only
+ * trusted while the file's size and modification time still match.
+ */
 @Service
 @Slf4j
 public class FileStorageService {
 
+    private static final String DIGEST_ATTRIBUTE = "hop.sha256";
+    private static final Pattern CATEGORY = Pattern.compile("[A-Za-z0-9_-]{1,100}");
+
     private final Path fileStorageLocation;
+    private final Path blobDirectory;
+    private final Path tempDirectory;
     private final long maxFileSize;
+    private final boolean presignDownloads;
+    private final Duration presignTtl;
+    private final BlobStore blobStore;
+    private final FileBlobRepository blobRepository;
+    private final FileReferenceRepository referenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedTtlCache<String, StoredFile> storedFiles;
 
     private static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList("jpg", "jpeg", "png", "gif", "bmp");
     private static final List<String> ALLOWED_DOCUMENT_TYPES = Arrays.asList("pdf", "doc", "docx", "txt");
     private static final List<String> ALLOWED_AUDIO_TYPES = Arrays.asList("mp3", "wav", "m4a", "aac");
 
     public FileStorageService(@Value("${app.file.upload-dir}") String uploadDir,
-                              @Value("${app.file.max-size}") long maxFileSize) {
+                              @Value("${app.file.max-size}") long maxFileSize,
+                              @Value("${app.file.metadata-cache.max-entries:10000}") int metadataCacheEntries,
+                              @Value("${app.file.metadata-cache.ttl-ms:3600000}") long metadataCacheTtlMs,
+                              @Value("${app.file.storage.presign-downloads:true}") boolean presignDownloads,
+                              @Value("${app.file.storage.presign-ttl-seconds:900}") long presignTtlSeconds,
+                              BlobStore blobStore,
+                              FileBlobRepository blobRepository,
+                              FileReferenceRepository referenceRepository,
+                              PlatformTransactionManager transactionManager) {
         this.maxFileSize = maxFileSize;
+        this.presignDownloads = presignDownloads;
+        this.presignTtl = Duration.ofSeconds(presignTtlSeconds);
+        this.blobStore = blobStore;
+        this.blobRepository = blobRepository;
+        this.referenceRepository = referenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.storedFiles = new BoundedTtlCache<>(metadataCacheEntries, metadataCacheTtlMs, TimeUnit.MILLISECONDS);
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.blobDirectory = this.fileStorageLocation.resolve(LocalBlobStore.DIRECTORY);
+        this.tempDirectory = this.fileStorageLocation.resolve(".tmp");
 
         try {
-            Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempDirectory);
         } catch (Exception ex) {
             throw new FileStorageException("Could not create the directory where the uploaded files will be stored.", ex);
         }
@@ -48,40 +123,50 @@ public class FileStorageService {
     public String storeFile(MultipartFile file, String category) {
         validateFile(file);
 
-        String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = FilenameUtils.getExtension(fileName);
-
-        // Generate unique filename
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String uniqueFileName = String.format("%s_%s_%s.%s",
-                category, timestamp, UUID.randomUUID().toString().substring(0, 8), fileExtension);
+        String fileName = cleanFileName(file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return store(in, category, fileName);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
+        }
+    }
 
+    /**
+     * Stores a file read straight from a request body. The size limit, the content check and the digest are all
+     * applied while the stream is copied once to disk, so nothing is buffered beyond the copy buffer and an
+     * oversized or mislabelled file is rejected as soon as it is detected.
+     */
+    public String storeFile(InputStream content, String originalFilename, String category) {
+        String fileName = cleanFileName(originalFilename);
+        checkExtension(FilenameUtils.getExtension(fileName).toLowerCase());
         try {
-            // Check if the file's name contains invalid characters
-            if (fileName.contains("..")) {
-                throw new FileStorageException("Sorry! Filename contains invalid path sequence " + fileName);
-            }
-
-            // Create category directory if it doesn't exist
-            Path categoryPath = this.fileStorageLocation.resolve(category);
-            Files.createDirectories(categoryPath);
-
-            // Copy file to the target location (Replacing existing file with the same name)
-            Path targetLocation = categoryPath.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
-            log.info("File stored successfully: {}", targetLocation);
-            return category + "/" + uniqueFileName;
+            return store(content, category, fileName);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
+        }
+    }
 
+    /**
+     * Stores content produced in-process, such as a rendered PDF, without buffering it first: {@code content} writes
+     * through the same size limit, content check and digest as an upload.
+     */
+    public String storeFile(ContentWriter content, String originalFilename, String category) {
+        String fileName = cleanFileName(originalFilename);
+        checkExtension(FilenameUtils.getExtension(fileName).toLowerCase());
+        try {
+            return store(content, category, fileName);
         } catch (IOException ex) {
             throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
         }
     }
 
     public Resource loadFileAsResource(String fileName) {
+        Path path = describe(fileName).getPath();
+        if (path == null) {
+            throw new FileStorageException("File is not stored on this node " + fileName);
+        }
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+            Resource resource = new UrlResource(path.toUri());
 
             if (resource.exists()) {
                 return resource;
@@ -93,10 +178,25 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Removes the file name. Its blob stays on disk until the collector finds it unreferenced.
+     */
     public boolean deleteFile(String fileName) {
+        storedFiles.invalidate(fileName);
+        Boolean released = transactionTemplate.execute(status -> referenceRepository.findById(fileName)
+                .map(reference -> {
+                    referenceRepository.delete(reference);
+                    blobRepository.release(reference.getSha256(), LocalDateTime.now());
+                    return true;
+                })
+                .orElse(false));
+        if (Boolean.TRUE.equals(released)) {
+            log.info("File reference removed: {}", fileName);
+            return true;
+        }
+
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            return Files.deleteIfExists(filePath);
+            return Files.deleteIfExists(resolveLegacy(fileName));
         } catch (IOException ex) {
             log.error("Could not delete file " + fileName, ex);
             return false;
@@ -107,6 +207,32 @@ public class FileStorageService {
         return "/files/" + fileName;
     }
 
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * A URL the client can download the file from directly, bypassing this node, or null when it has to be served
+     * here: presigned downloads are off, the store cannot presign, or the file predates blobs.
+     */
+    public URI presignDownload(StoredFile file, Map<String, String> responseHeaders) {
+        if (!presignDownloads || file.getBlob() == null) {
+            return null;
+        }
+        return blobStore.presign(file.getBlob(), presignTtl, responseHeaders);
+    }
+
+    /**
+     * Reads part of a file that has no local path, i.e. a blob held only by a remote store.
+     */
+    public InputStream openRemote(StoredFile file, long offset, long length) {
+        try {
+            return blobStore.open(file.getBlob(), offset, length);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read file " + file.getName(), ex);
+        }
+    }
+
     private void validateFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new FileStorageException("Cannot store empty file");
@@ -117,9 +243,11 @@ public class FileStorageService {
         }
 
         String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = FilenameUtils.getExtension(fileName).toLowerCase();
+        checkExtension(FilenameUtils.getExtension(fileName).toLowerCase());
+    }
 
-        List<String> allAllowedTypes = Arrays.asList();
+    private static void checkExtension(String fileExtension) {
+        List<String> allAllowedTypes = new ArrayList<>();
         allAllowedTypes.addAll(ALLOWED_IMAGE_TYPES);
         allAllowedTypes.addAll(ALLOWED_DOCUMENT_TYPES);
         allAllowedTypes.addAll(ALLOWED_AUDIO_TYPES);
@@ -129,6 +257,37 @@ public class FileStorageService {
         }
     }
 
+    private static String cleanFileName(String originalFilename) {
+        if (!StringUtils.hasText(originalFilename)) {
+            throw new FileStorageException("File name is required");
+        }
+        String fileName = StringUtils.cleanPath(originalFilename);
+
+        // Check if the file's name contains invalid characters
+        if (fileName.contains("..")) {
+            throw new FileStorageException("Sorry! Filename contains invalid path sequence " + fileName);
+        }
+        return fileName;
+    }
+
+    /**
+     * Size, modification time and strong ETag of a stored file, for serving it with conditional and range requests.
+     */
+    public StoredFile describe(String fileName) {
+        StoredFile cached = storedFiles.getIfPresent(fileName);
+        if (cached != null && (cached.getBlob() != null || isUnchanged(cached))) {
+            return cached;
+        }
+
+        StoredFile stored = referenceRepository.findById(fileName)
+                .map(reference -> new StoredFile(blobStore.localFile(reference.getSha256()), fileName,
+                        reference.getCategory(), reference.getSizeBytes(), toEpochMillis(reference.getCreatedAt()),
+                        "\"" + reference.getSha256() + "\"", reference.getSha256()))
+                .orElseGet(() -> describeLegacy(fileName));
+        storedFiles.put(fileName, stored);
+        return stored;
+    }
+
     public boolean isImageFile(String fileName) {
         String extension = FilenameUtils.getExtension(fileName).toLowerCase();
         return ALLOWED_IMAGE_TYPES.contains(extension);
@@ -143,4 +302,292 @@ public class FileStorageService {
         String extension = FilenameUtils.getExtension(fileName).toLowerCase();
         return ALLOWED_AUDIO_TYPES.contains(extension);
     }
-}
\ No newline at end of file
+
+    private String store(InputStream content, String category, String originalName) throws IOException {
+        return store(content::transferTo, category, originalName);
+    }
+
+    // Writes the content to a temporary file while hashing and inspecting it, then links a new name to its blob.
+    // The stored content type is the one sniffed from the content, not the one the client sent.
+    private String store(ContentWriter content, String category, String originalName) throws IOException {
+        if (category == null || !CATEGORY.matcher(category).matches()) {
+            throw new FileStorageException("Invalid category: " + category);
+        }
+        String extension = FilenameUtils.getExtension(originalName);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String uniqueFileName = String.format("%s_%s_%s.%s",
+                category, timestamp, UUID.randomUUID().toString().substring(0, 8), extension);
+        String name = category + "/" + uniqueFileName;
+
+        Path temp = Files.createTempFile(tempDirectory, "upload-", ".part");
+        try {
+            MessageDigest sha256 = newDigest();
+            InspectingOutputStream inspected = new InspectingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), maxFileSize, extension);
+            try (OutputStream out = new DigestOutputStream(inspected, sha256)) {
+                content.writeTo(out);
+            }
+            long size = inspected.getCount();
+            if (size == 0) {
+                throw new FileStorageException("Cannot store empty file");
+            }
+            String hash = encode(sha256.digest());
+
+            FileReference reference = FileReference.builder()
+                    .fileName(name)
+                    .sha256(hash)
+                    .category(category)
+                    .sizeBytes(size)
+                    .originalName(originalName)
+                    .contentType(inspected.getMediaType())
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            boolean deduplicated;
+            try {
+                deduplicated = link(reference, temp);
+            } catch (DataIntegrityViolationException e) {
+                // Another upload of the same content created the blob row first; it is there to reference now
+                deduplicated = link(reference, temp);
+            }
+
+            storedFiles.put(name, new StoredFile(blobStore.localFile(hash), name, category, size,
+                    toEpochMillis(reference.getCreatedAt()), "\"" + hash + "\"", hash));
+            log.info("File stored: {} -> blob {}{}", name, hash, deduplicated ? " (existing)" : "");
+            return name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Returns whether the blob already existed. The bytes are written before the transaction, so a remote upload
+    // never holds the blob's row lock or a pooled connection; writing a key twice stores the same bytes, and bytes
+    // whose row is never committed are swept by the collector as orphans. A blob without a row is always written
+    // again from this upload, so a leftover copy from an earlier failed store is never trusted. If the collector
+    // removes a blob between the existence check and the row lock, the link is retried with the bytes written.
+    private boolean link(FileReference reference, Path temp) {
+        String hash = reference.getSha256();
+        for (boolean forceWrite = false; ; forceWrite = true) {
+            boolean written = forceWrite || !blobRepository.existsById(hash) || !blobExists(hash);
+            if (written) {
+                try {
+                    blobStore.put(hash, temp);
+                } catch (IOException ex) {
+                    throw new FileStorageException("Could not store blob " + hash, ex);
+                }
+            }
+
+            Boolean existing = transactionTemplate.execute(status -> {
+                boolean acquired = blobRepository.acquire(hash) == 1;
+                if (!acquired) {
+                    if (!written) {
+                        return null; // collected since the check
+                    }
+                    blobRepository.saveAndFlush(FileBlob.builder()
+                            .sha256(hash)
+                            .sizeBytes(reference.getSizeBytes())
+                            .refCount(1)
+                            .createdAt(LocalDateTime.now())
+                            .build());
+                }
+                referenceRepository.save(reference);
+                return acquired;
+            });
+            if (existing != null) {
+                return existing;
+            }
+        }
+    }
+
+    private boolean blobExists(String hash) {
+        try {
+            return blobStore.exists(hash);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not check blob " + hash, ex);
+        }
+    }
+
+    private StoredFile describeLegacy(String fileName) {
+        Path filePath = resolveLegacy(fileName);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            throw new FileStorageException("File not found " + fileName, ex);
+        }
+        if (!attributes.isRegularFile()) {
+            throw new FileStorageException("File not found " + fileName);
+        }
+
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String digest = readDigestAttribute(filePath, size, lastModified);
+        if (digest == null) {
+            digest = digestOf(filePath);
+            writeDigestAttribute(filePath, size, lastModified, digest);
+        }
+        return new StoredFile(filePath, fileName, categoryOf(fileName), size, lastModified, "\"" + digest + "\"",
+                null);
+    }
+
+    private static boolean isUnchanged(StoredFile file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.getPath(), BasicFileAttributes.class);
+            return attributes.size() == file.getSize()
+                    && attributes.lastModifiedTime().toMillis() == file.getLastModified();
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Stays inside the storage root and out of the blob store, whatever the file name contains
+    private Path resolveLegacy(String fileName) {
+        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
+        if (!filePath.startsWith(this.fileStorageLocation)
+                || filePath.startsWith(blobDirectory) || filePath.startsWith(tempDirectory)) {
+            throw new FileStorageException("File not found " + fileName);
+        }
+        return filePath;
+    }
+
+    private static String categoryOf(String fileName) {
+        int slash = fileName.indexOf('/');
+        return slash > 0 ? fileName.substring(0, slash) : "";
+    }
+
+    private static String digestOf(Path filePath) {
+        MessageDigest sha256 = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(filePath), sha256)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read file " + filePath.getFileName(), ex);
+        }
+        return encode(sha256.digest());
+    }
+
+    // Stored as size:lastModified:digest, so a file changed in place is not served with its old ETag
+    private static String readDigestAttribute(Path filePath, long size, long lastModified) {
+        try {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(filePath, UserDefinedFileAttributeView.class);
+            if (view == null || !view.list().contains(DIGEST_ATTRIBUTE)) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(view.size(DIGEST_ATTRIBUTE));
+            view.read(DIGEST_ATTRIBUTE, buffer);
+            String[] parts = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).split(":", 3);
+            if (parts.length == 3 && parts[0].equals(Long.toString(size)) && parts[1].equals(Long.toString(lastModified))) {
+                return parts[2];
+            }
+        } catch (IOException | UnsupportedOperationException ex) {
+            log.debug("Could not read digest attribute of {}", filePath, ex);
+        }
+        return null;
+    }
+
+    private static void writeDigestAttribute(Path filePath, long size, long lastModified, String digest) {
+        try {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(filePath, UserDefinedFileAttributeView.class);
+            if (view != null) {
+                String value = size + ":" + lastModified + ":" + digest;
+                view.write(DIGEST_ATTRIBUTE, ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII)));
+            }
+        } catch (IOException | UnsupportedOperationException ex) {
+            log.debug("Could not write digest attribute of {}", filePath, ex);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String encode(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Writes a file's content; the stream is closed by the caller.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // Counts the bytes written against the size limit and checks the leading bytes against the file extension,
+    // failing the write that crosses either check. Content shorter than the head is checked on close.
+    private static class InspectingOutputStream extends FilterOutputStream {
+        private final long maxBytes;
+        private final String extension;
+        private final byte[] head = new byte[ContentSniffer.HEAD_LENGTH];
+        @Getter
+        private long count;
+        @Getter
+        private String mediaType;
+
+        InspectingOutputStream(OutputStream out, long maxBytes, String extension) {
+            super(out);
+            this.maxBytes = maxBytes;
+            this.extension = extension;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (count < head.length) {
+                System.arraycopy(b, off, head, (int) count, (int) Math.min(len, head.length - count));
+            }
+            count += len;
+            if (count > maxBytes) {
+                throw new FileStorageException("File size exceeds maximum allowed size of " + maxBytes + " bytes");
+            }
+            if (count >= head.length) {
+                inspect();
+            }
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                inspect();
+            } finally {
+                super.close();
+            }
+        }
+
+        private void inspect() {
+            if (mediaType != null || count == 0) {
+                return;
+            }
+            mediaType = ContentSniffer.sniff(extension, head, (int) Math.min(count, head.length));
+            if (mediaType == null) {
+                throw new FileStorageException("File content does not match its type: " + extension);
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class StoredFile {
+        // Null when the bytes are only in a remote blob store
+        private final Path path;
+        private final String name;
+        // First path segment, or empty for files stored outside a category
+        private final String category;
+        private final long size;
+        private final long lastModified;
+        private final String etag;
+        // Blob key, or null for files written before blobs
+        private final String blob;
+    }
+}
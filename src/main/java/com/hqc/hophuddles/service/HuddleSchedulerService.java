@@ -5,22 +5,32 @@ import com.hqc.hophuddles.entity.HuddleSequence;
 import com.hqc.hophuddles.entity.User;
 import com.hqc.hophuddles.enums.ScheduleStatus;
 import com.hqc.hophuddles.enums.SequenceStatus;
+import com.hqc.hophuddles.exception.ResourceNotFoundException;
 import com.hqc.hophuddles.repository.DeliveryScheduleRepository;
 import com.hqc.hophuddles.repository.HuddleSequenceRepository;
-import lombok.RequiredArgsConstructor;
+import com.hqc.hophuddles.util.KeyedConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class HuddleSchedulerService {
@@ -30,35 +40,141 @@ public class HuddleSchedulerService {
     private final NotificationService notificationService;
     private final UserService userService;
     private final SequenceTargetService sequenceTargetService;
+    private final ScheduleLeaseService leaseService;
+    private final ScheduleDispatcher dispatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor schedulerTaskExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.scheduler.max-concurrent-per-agency:2}")
+    private int maxConcurrentPerAgency;
+
+    // Keeps one agency's backlog from occupying every scheduler thread
+    private KeyedConcurrencyLimiter<Long> agencyLimiter;
+
+    public HuddleSchedulerService(DeliveryScheduleRepository scheduleRepository,
+                                  HuddleSequenceRepository sequenceRepository,
+                                  NotificationService notificationService,
+                                  UserService userService,
+                                  SequenceTargetService sequenceTargetService,
+                                  ScheduleLeaseService leaseService,
+                                  ScheduleDispatcher dispatcher,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("schedulerTaskExecutor") ThreadPoolTaskExecutor schedulerTaskExecutor,
+                                  MeterRegistry meterRegistry) {
+        this.scheduleRepository = scheduleRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.notificationService = notificationService;
+        this.userService = userService;
+        this.sequenceTargetService = sequenceTargetService;
+        this.leaseService = leaseService;
+        this.dispatcher = dispatcher;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerTaskExecutor = schedulerTaskExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void initExecution() {
+        agencyLimiter = new KeyedConcurrencyLimiter<>(schedulerTaskExecutor, maxConcurrentPerAgency);
+        Gauge.builder("scheduler.executions.running", agencyLimiter, KeyedConcurrencyLimiter::getRunningCount)
+                .register(meterRegistry);
+        Gauge.builder("scheduler.executions.waiting", agencyLimiter, KeyedConcurrencyLimiter::getWaitingCount)
+                .description("Claimed schedules held back by the per-agency concurrency limit")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDispatcher() {
+        dispatcher.start(this::releaseDispatchedSchedules);
+        dispatcher.reload();
+    }
 
     /**
-     * Main scheduler that runs every minute to check for due releases
+     * Reconciliation sweep that runs every minute. Releases are normally fired on time by
+     * {@link ScheduleDispatcher}; the sweep executes anything that is still due (missed while down, failed, or
+     * held by a crashed node) and reloads the dispatcher window to pick up changes made on other instances.
+     * Runs on every instance; each due schedule is claimed through {@link ScheduleLeaseService} and executed by
+     * exactly one of them.
      */
-    @Scheduled(fixedRate = 60000) // Check every minute
-    @Transactional
+    @Scheduled(fixedRateString = "${app.scheduler.poll-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void processScheduledReleases() {
         log.debug("Processing scheduled huddle releases...");
 
         LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
-        List<DeliverySchedule> dueSchedules = scheduleRepository.findSchedulesReadyForExecution(now);
+        List<Long> claimedIds = leaseService.claimDueSchedules(now);
 
-        log.info("Found {} schedules ready for execution", dueSchedules.size());
+        if (!claimedIds.isEmpty()) {
+            log.info("Claimed {} schedules ready for execution", claimedIds.size());
+        }
+        executeClaimedSchedules(claimedIds);
 
-        for (DeliverySchedule schedule : dueSchedules) {
-            try {
-                processScheduleExecution(schedule);
-            } catch (Exception e) {
-                log.error("Error processing schedule {}: {}", schedule.getScheduleId(), e.getMessage(), e);
-                handleScheduleFailure(schedule, e.getMessage());
-            }
+        dispatcher.reload();
+    }
+
+    /**
+     * Called on the dispatcher thread with schedules whose release time has just arrived
+     */
+    private void releaseDispatchedSchedules(List<Long> scheduleIds) {
+        List<Long> claimedIds = leaseService.claimSchedules(scheduleIds, LocalDateTime.now(ZoneId.systemDefault()));
+        log.debug("Dispatcher fired {} schedules, claimed {}", scheduleIds.size(), claimedIds.size());
+        executeClaimedSchedules(claimedIds);
+    }
+
+    /**
+     * Hands claimed schedules to the scheduler executor, at most {@code app.scheduler.max-concurrent-per-agency}
+     * at a time per agency. Each runs in its own transaction. A schedule the executor cannot take gives its lease
+     * back so the next sweep retries it.
+     */
+    private void executeClaimedSchedules(List<Long> claimedIds) {
+        if (claimedIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> agencyBySchedule = new HashMap<>();
+        for (Object[] row : scheduleRepository.findAgencyIdsBySchedule(claimedIds)) {
+            agencyBySchedule.put((Long) row[0], (Long) row[1]);
+        }
+
+        for (Long scheduleId : claimedIds) {
+            agencyLimiter.submit(agencyBySchedule.get(scheduleId),
+                    () -> runClaimed(scheduleId),
+                    () -> {
+                        log.warn("Scheduler executor is full; returning schedule {} for a later sweep", scheduleId);
+                        leaseService.release(scheduleId);
+                    });
+        }
+    }
+
+    private void runClaimed(Long scheduleId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> executeClaimed(scheduleId));
+        } catch (Exception e) {
+            log.error("Error processing schedule {}: {}", scheduleId, e.getMessage(), e);
+            // The execution rolled back; record the failure and give up the lease in a fresh transaction
+            transactionTemplate.executeWithoutResult(status -> {
+                DeliverySchedule schedule = leaseService.lockClaimed(scheduleId);
+                if (schedule != null) {
+                    handleScheduleFailure(schedule, e.getMessage());
+                }
+            });
         }
     }
 
+    private void executeClaimed(Long scheduleId) {
+        DeliverySchedule schedule = leaseService.lockClaimed(scheduleId);
+        if (schedule == null) {
+            return;
+        }
+        processScheduleExecution(schedule);
+        schedule.releaseLease();
+        dispatcher.scheduleChanged(schedule);
+    }
+
     /**
      * Process individual schedule execution
      */
-    @Async("schedulerTaskExecutor")
-    public CompletableFuture<Void> processScheduleExecution(DeliverySchedule schedule) {
+    private void processScheduleExecution(DeliverySchedule schedule) {
         try {
             log.info("Executing schedule {} for sequence {}",
                     schedule.getScheduleId(), schedule.getSequence().getSequenceId());
@@ -88,12 +204,10 @@ public class HuddleSchedulerService {
                     schedule.getScheduleId(), schedule.getSequence().getSequenceId());
 
         } catch (Exception e) {
+            // The caller records the failure once this transaction has rolled back
             log.error("Failed to execute schedule {}: {}", schedule.getScheduleId(), e.getMessage(), e);
-            handleScheduleFailure(schedule, e.getMessage());
             throw e;
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 
     /**
@@ -110,28 +224,16 @@ public class HuddleSchedulerService {
     }
 
     /**
-     * Send notifications to target users
+     * Queue release notifications for the target users. They are written to the outbox in the execution's
+     * transaction, so they are sent if and only if the execution commits; a failure here fails the execution.
      */
-    @Async("notificationTaskExecutor")
-    public CompletableFuture<Void> sendReleaseNotifications(DeliverySchedule schedule) {
-        try {
-            HuddleSequence sequence = schedule.getSequence();
+    private void sendReleaseNotifications(DeliverySchedule schedule) {
+        HuddleSequence sequence = schedule.getSequence();
 
-            // Get target users based on sequence targeting rules
-            List<User> targetUsers = getTargetUsers(sequence);
+        // Get target users based on sequence targeting rules
+        List<User> targetUsers = getTargetUsers(sequence);
 
-            // Send release notifications
-            notificationService.sendHuddleReleaseNotification(targetUsers, sequence);
-
-            log.info("Sent release notifications for sequence {} to {} users",
-                    sequence.getSequenceId(), targetUsers.size());
-
-        } catch (Exception e) {
-            log.error("Failed to send release notifications for sequence {}: {}",
-                    schedule.getSequence().getSequenceId(), e.getMessage(), e);
-        }
-
-        return CompletableFuture.completedFuture(null);
+        notificationService.sendHuddleReleaseNotification(schedule, sequence, targetUsers);
     }
 
     /**
@@ -147,6 +249,7 @@ public class HuddleSchedulerService {
      */
     private void handleScheduleFailure(DeliverySchedule schedule, String errorMessage) {
         schedule.markFailed(errorMessage);
+        schedule.releaseLease();
         scheduleRepository.save(schedule);
 
         // Send alert to administrators
@@ -179,7 +282,9 @@ public class HuddleSchedulerService {
         // Calculate first execution time
         schedule.calculateNextExecution();
 
-        return scheduleRepository.save(schedule);
+        DeliverySchedule saved = scheduleRepository.save(schedule);
+        dispatcher.scheduleChanged(saved);
+        return saved;
     }
 
     /**
@@ -205,7 +310,9 @@ public class HuddleSchedulerService {
         // Recalculate next execution
         existingSchedule.calculateNextExecution();
 
-        return scheduleRepository.save(existingSchedule);
+        DeliverySchedule saved = scheduleRepository.save(existingSchedule);
+        dispatcher.scheduleChanged(saved);
+        return saved;
     }
 
     /**
@@ -217,6 +324,7 @@ public class HuddleSchedulerService {
 
         schedule.setScheduleStatus(ScheduleStatus.PAUSED);
         scheduleRepository.save(schedule);
+        dispatcher.scheduleChanged(schedule);
 
         log.info("Paused schedule: {}", scheduleId);
     }
@@ -231,6 +339,7 @@ public class HuddleSchedulerService {
         schedule.setScheduleStatus(ScheduleStatus.ACTIVE);
         schedule.calculateNextExecution();
         scheduleRepository.save(schedule);
+        dispatcher.scheduleChanged(schedule);
 
         log.info("Resumed schedule: {}", scheduleId);
     }
@@ -245,6 +354,7 @@ public class HuddleSchedulerService {
         schedule.setScheduleStatus(ScheduleStatus.CANCELLED);
         schedule.setIsActive(false);
         scheduleRepository.save(schedule);
+        dispatcher.scheduleChanged(schedule);
 
         log.info("Cancelled schedule: {}", scheduleId);
     }
@@ -267,40 +377,39 @@ public class HuddleSchedulerService {
      * Send reminder notifications (runs hourly)
      */
     @Scheduled(fixedRate = 3600000) // Every hour
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void sendReminderNotifications() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime nextHour = now.plusHours(1);
 
         List<DeliverySchedule> upcomingSchedules = scheduleRepository.findSchedulesReadyForExecution(nextHour);
 
-        for (DeliverySchedule schedule : upcomingSchedules) {
-            if (schedule.getSendNotifications() && schedule.getReminderHoursBefore() != null) {
-                LocalDateTime reminderTime = schedule.getNextExecutionTime()
-                        .minusHours(schedule.getReminderHoursBefore());
+        for (DeliverySchedule upcoming : upcomingSchedules) {
+            if (upcoming.getSendNotifications() && upcoming.getReminderHoursBefore() != null) {
+                LocalDateTime reminderTime = upcoming.getNextExecutionTime()
+                        .minusHours(upcoming.getReminderHoursBefore());
 
                 if (now.isAfter(reminderTime) && now.isBefore(reminderTime.plusMinutes(30))) {
-                    sendReminderNotifications(schedule);
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> queueReminder(upcoming.getScheduleId()));
+                    } catch (Exception e) {
+                        log.error("Failed to queue reminder notifications for schedule {}: {}",
+                                upcoming.getScheduleId(), e.getMessage(), e);
+                    }
                 }
             }
         }
     }
 
-    @Async("notificationTaskExecutor")
-    public CompletableFuture<Void> sendReminderNotifications(DeliverySchedule schedule) {
-        try {
-            List<User> targetUsers = getTargetUsers(schedule.getSequence());
-            notificationService.sendHuddleReminderNotification(targetUsers, schedule.getSequence());
-
-            log.info("Sent reminder notifications for sequence {} to {} users",
-                    schedule.getSequence().getSequenceId(), targetUsers.size());
-
-        } catch (Exception e) {
-            log.error("Failed to send reminder notifications for sequence {}: {}",
-                    schedule.getSequence().getSequenceId(), e.getMessage(), e);
+    // Every instance runs the reminder job; the claim and the queued reminders commit together on one of them
+    private void queueReminder(Long scheduleId) {
+        DeliverySchedule schedule = scheduleRepository.findById(scheduleId).orElse(null);
+        if (schedule == null || !leaseService.claimReminder(schedule)) {
+            return;
         }
-
-        return CompletableFuture.completedFuture(null);
+        HuddleSequence sequence = schedule.getSequence();
+        List<User> targetUsers = getTargetUsers(sequence);
+        notificationService.sendHuddleReminderNotification(schedule, sequence, targetUsers);
     }
 
     /**
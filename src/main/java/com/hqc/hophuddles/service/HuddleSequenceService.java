@@ -1,7 +1,9 @@
 package com.hqc.hophuddles.service;
 
 import com.hqc.hophuddles.dto.request.HuddleSequenceCreateRequest;
+import com.hqc.hophuddles.dto.response.HuddleResponse;
 import com.hqc.hophuddles.dto.response.HuddleSequenceResponse;
+import com.hqc.hophuddles.dto.response.SequenceTargetResponse;
 import com.hqc.hophuddles.entity.Agency;
 import com.hqc.hophuddles.entity.HuddleSequence;
 import com.hqc.hophuddles.entity.User;
@@ -14,11 +16,13 @@ import com.hqc.hophuddles.repository.AgencyRepository;
 import com.hqc.hophuddles.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
@@ -67,7 +71,8 @@ public class HuddleSequenceService {
         if (request.getTargets() != null && !request.getTargets().isEmpty()) {
             for (HuddleSequenceCreateRequest.TargetRequest targetRequest : request.getTargets()) {
                 sequenceTargetService.addTarget(sequence.getSequenceId(),
-                        targetRequest.getTargetType(), targetRequest.getTargetValue());
+                        targetRequest.getTargetType(), targetRequest.getTargetValue(),
+                        targetRequest.getTargetOperation());
             }
         }
 
@@ -84,33 +89,25 @@ public class HuddleSequenceService {
     }
 
     @Transactional(readOnly = true)
-    public List<HuddleSequenceResponse> getSequencesByAgency(Long agencyId) {
-        return sequenceRepository.findByAgencyAgencyIdAndIsActiveTrueOrderByCreatedAtDesc(agencyId)
-                .stream()
-                .map(this::convertToResponse)
-                .toList();
+    public List<HuddleSequenceResponse> getSequencesByAgency(Long agencyId, boolean summary) {
+        return convertToResponses(sequenceRepository.findByAgencyAgencyIdAndIsActiveTrueOrderByCreatedAtDesc(agencyId), summary);
     }
 
     @Transactional(readOnly = true)
-    public List<HuddleSequenceResponse> getSequencesByAgencyAndStatus(Long agencyId, SequenceStatus status) {
-        return sequenceRepository.findByAgencyAgencyIdAndSequenceStatusAndIsActiveTrueOrderByCreatedAtDesc(agencyId, status)
-                .stream()
-                .map(this::convertToResponse)
-                .toList();
+    public List<HuddleSequenceResponse> getSequencesByAgencyAndStatus(Long agencyId, SequenceStatus status, boolean summary) {
+        return convertToResponses(sequenceRepository.findByAgencyAgencyIdAndSequenceStatusAndIsActiveTrueOrderByCreatedAtDesc(agencyId, status), summary);
     }
 
     @Transactional(readOnly = true)
-    public List<HuddleSequenceResponse> getSequencesByCreator(Long userId) {
-        return sequenceRepository.findByCreatedByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId)
-                .stream()
-                .map(this::convertToResponse)
-                .toList();
+    public List<HuddleSequenceResponse> getSequencesByCreator(Long userId, boolean summary) {
+        return convertToResponses(sequenceRepository.findByCreatedByUserUserIdAndIsActiveTrueOrderByCreatedAtDesc(userId), summary);
     }
 
     @Transactional(readOnly = true)
-    public Page<HuddleSequenceResponse> searchSequences(Long agencyId, String title, SequenceStatus status, Pageable pageable) {
-        return sequenceRepository.findSequencesWithFilters(agencyId, title, status, pageable)
-                .map(this::convertToResponse);
+    public Page<HuddleSequenceResponse> searchSequences(Long agencyId, String title, SequenceStatus status,
+                                                        Pageable pageable, boolean summary) {
+        Page<HuddleSequence> page = sequenceRepository.findSequencesWithFilters(agencyId, title, status, pageable);
+        return new PageImpl<>(convertToResponses(page.getContent(), summary), page.getPageable(), page.getTotalElements());
     }
 
     public HuddleSequenceResponse updateSequence(Long sequenceId, HuddleSequenceCreateRequest request) {
@@ -182,8 +179,34 @@ public class HuddleSequenceService {
         return sequenceRepository.existsById(sequenceId);
     }
 
+    /**
+     * Converts a list of sequences with a fixed number of queries: their huddles and targets are each loaded for the
+     * whole list at once. Summaries leave out each huddle's content and voice script.
+     */
+    private List<HuddleSequenceResponse> convertToResponses(List<HuddleSequence> sequences, boolean summary) {
+        if (sequences.isEmpty()) {
+            return List.of();
+        }
+        List<Long> sequenceIds = sequences.stream().map(HuddleSequence::getSequenceId).toList();
+        Map<Long, List<HuddleResponse>> huddles = huddleService.getHuddlesBySequences(sequenceIds, summary);
+        Map<Long, List<SequenceTargetResponse>> targets = sequenceTargetService.getTargetsBySequences(sequenceIds);
+
+        return sequences.stream()
+                .map(sequence -> convertToResponse(sequence,
+                        huddles.getOrDefault(sequence.getSequenceId(), List.of()),
+                        targets.getOrDefault(sequence.getSequenceId(), List.of())))
+                .toList();
+    }
+
     // Helper method to convert entity to response DTO
     private HuddleSequenceResponse convertToResponse(HuddleSequence sequence) {
+        return convertToResponse(sequence,
+                huddleService.getHuddlesBySequence(sequence.getSequenceId(), false),
+                sequenceTargetService.getTargetsBySequence(sequence.getSequenceId()));
+    }
+
+    private HuddleSequenceResponse convertToResponse(HuddleSequence sequence, List<HuddleResponse> huddles,
+                                                     List<SequenceTargetResponse> targets) {
         HuddleSequenceResponse response = new HuddleSequenceResponse();
         response.setSequenceId(sequence.getSequenceId());
         response.setAgencyId(sequence.getAgency().getAgencyId());
@@ -206,10 +229,9 @@ public class HuddleSequenceService {
         response.setPublishedAt(sequence.getPublishedAt());
         response.setCreatedAt(sequence.getCreatedAt());
 
-        // Load huddles and targets
-        response.setHuddles(huddleService.getHuddlesBySequence(sequence.getSequenceId()));
-        response.setTargets(sequenceTargetService.getTargetsBySequence(sequence.getSequenceId()));
+        response.setHuddles(huddles);
+        response.setTargets(targets);
 
         return response;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.hqc.hophuddles.service;
 
 import com.hqc.hophuddles.dto.request.HuddleCreateRequest;
+import com.hqc.hophuddles.dto.response.HuddleContentResponse;
 import com.hqc.hophuddles.dto.response.HuddleResponse;
 import com.hqc.hophuddles.entity.Huddle;
 import com.hqc.hophuddles.entity.HuddleSequence;
@@ -13,12 +14,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
 public class HuddleService {
 
+    // Sequence IDs per IN query
+    private static final int SEQUENCE_BATCH_SIZE = 500;
+
     @Autowired
     private HuddleRepository huddleRepository;
 
@@ -75,22 +82,62 @@ public class HuddleService {
         return convertToResponse(huddle);
     }
 
+    /**
+     * Active huddles of the sequence in order-index order. Summaries leave out the content and voice script; see
+     * {@link #getHuddleContent(Long)}.
+     */
     @Transactional(readOnly = true)
-    public List<HuddleResponse> getHuddlesBySequence(Long sequenceId) {
+    public List<HuddleResponse> getHuddlesBySequence(Long sequenceId, boolean summary) {
+        if (summary) {
+            return huddleRepository.findSummariesBySequenceId(sequenceId);
+        }
         return huddleRepository.findBySequenceSequenceIdAndIsActiveTrueOrderByOrderIndexAsc(sequenceId)
                 .stream()
                 .map(this::convertToResponse)
                 .toList();
     }
 
+    /**
+     * Active huddles of several sequences, keyed by sequence ID and in order-index order. Summaries leave out the
+     * content and voice script, which are not read from the database at all.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<HuddleResponse>> getHuddlesBySequences(List<Long> sequenceIds, boolean summary) {
+        Map<Long, List<HuddleResponse>> bySequence = new HashMap<>();
+        for (int from = 0; from < sequenceIds.size(); from += SEQUENCE_BATCH_SIZE) {
+            List<Long> batch = sequenceIds.subList(from, Math.min(from + SEQUENCE_BATCH_SIZE, sequenceIds.size()));
+            if (summary) {
+                for (HuddleResponse huddle : huddleRepository.findSummariesBySequenceIds(batch)) {
+                    bySequence.computeIfAbsent(huddle.getSequenceId(), id -> new ArrayList<>()).add(huddle);
+                }
+            } else {
+                for (Huddle huddle : huddleRepository
+                        .findBySequenceSequenceIdInAndIsActiveTrueOrderBySequenceSequenceIdAscOrderIndexAsc(batch)) {
+                    bySequence.computeIfAbsent(huddle.getSequence().getSequenceId(), id -> new ArrayList<>())
+                            .add(convertToResponse(huddle));
+                }
+            }
+        }
+        return bySequence;
+    }
+
     @Transactional(readOnly = true)
-    public List<HuddleResponse> getHuddlesBySequenceAndType(Long sequenceId, HuddleType huddleType) {
+    public List<HuddleResponse> getHuddlesBySequenceAndType(Long sequenceId, HuddleType huddleType, boolean summary) {
+        if (summary) {
+            return huddleRepository.findSummariesBySequenceIdAndType(sequenceId, huddleType);
+        }
         return huddleRepository.findBySequenceSequenceIdAndHuddleTypeAndIsActiveTrueOrderByOrderIndexAsc(sequenceId, huddleType)
                 .stream()
                 .map(this::convertToResponse)
                 .toList();
     }
 
+    @Transactional(readOnly = true)
+    public HuddleContentResponse getHuddleContent(Long huddleId) {
+        return huddleRepository.findContentById(huddleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Huddle", huddleId));
+    }
+
     @Transactional(readOnly = true)
     public HuddleResponse getHuddleBySequenceAndOrder(Long sequenceId, Integer orderIndex) {
         Huddle huddle = huddleRepository.findBySequenceSequenceIdAndOrderIndexAndIsActiveTrue(sequenceId, orderIndex)
@@ -0,0 +1,271 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends one message per recipient in bulk. Recipients are split into chunks, and each chunk goes out through a
+ * single {@link JavaMailSender#send(MimeMessage...)} call, i.e. one SMTP connection carrying many messages.
+ * Chunks are sent in parallel on the {@code mailDeliveryExecutor}, so up to that pool's size connections are
+ * open at once.
+ * <p>
+ * Sends are throttled per SMTP provider (host) with a token bucket. Messages the server refused transiently, or
+ * that were never sent because the connection failed, are retried with exponential backoff and jitter; rejected
+ * addresses and authentication failures are not retried.
+ */
+@Service
+@Slf4j
+public class MailFanoutService {
+
+    private final JavaMailSender mailSender;
+    private final Executor mailDeliveryExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, TokenBucket> providerLimits = new ConcurrentHashMap<>();
+
+    @Value("${app.notification.mail.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${app.notification.mail.rate-per-second:50}")
+    private double ratePerSecond;
+
+    @Value("${app.notification.mail.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.notification.mail.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${app.notification.mail.max-backoff-ms:10000}")
+    private long maxBackoffMs;
+
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter retriedCounter;
+    private Timer chunkTimer;
+
+    public MailFanoutService(JavaMailSender mailSender,
+                             @Qualifier("mailDeliveryExecutor") Executor mailDeliveryExecutor,
+                             MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.mailDeliveryExecutor = mailDeliveryExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        sentCounter = Counter.builder("notification.mail.sent").register(meterRegistry);
+        failedCounter = Counter.builder("notification.mail.failed")
+                .description("Messages given up on after permanent errors or the last retry")
+                .register(meterRegistry);
+        retriedCounter = Counter.builder("notification.mail.retried").register(meterRegistry);
+        chunkTimer = Timer.builder("notification.mail.chunk")
+                .description("Time to deliver one chunk, including retries and throttling")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the messages and waits until every chunk has been delivered or given up on.
+     */
+    public FanoutResult send(String category, List<OutboundMail> mails) {
+        if (mails.isEmpty()) {
+            return new FanoutResult(0, List.of(), List.of(), 0);
+        }
+        long started = System.currentTimeMillis();
+
+        List<CompletableFuture<ChunkOutcome>> chunks = new ArrayList<>();
+        for (int from = 0; from < mails.size(); from += chunkSize) {
+            List<OutboundMail> chunk = mails.subList(from, Math.min(from + chunkSize, mails.size()));
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> chunkTimer.record(() -> sendChunk(chunk)), mailDeliveryExecutor));
+        }
+
+        int sent = 0;
+        List<OutboundMail> failed = new ArrayList<>();
+        List<OutboundMail> rejected = new ArrayList<>();
+        for (CompletableFuture<ChunkOutcome> chunk : chunks) {
+            ChunkOutcome outcome = chunk.join();
+            sent += outcome.getSent();
+            failed.addAll(outcome.getFailed());
+            rejected.addAll(outcome.getRejected());
+        }
+
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Sent {} {} emails in {} chunks ({} failed, {} rejected) in {} ms",
+                sent, category, chunks.size(), failed.size(), rejected.size(), elapsed);
+        return new FanoutResult(sent, failed, rejected, elapsed);
+    }
+
+    private ChunkOutcome sendChunk(List<OutboundMail> chunk) {
+        Map<MimeMessage, OutboundMail> pending = new IdentityHashMap<>();
+        List<OutboundMail> failed = new ArrayList<>();
+        List<OutboundMail> rejected = new ArrayList<>();
+        for (OutboundMail mail : chunk) {
+            try {
+                pending.put(toMimeMessage(mail), mail);
+            } catch (MessagingException | MailException e) {
+                log.error("Could not build email to {}: {}", mail.getTo(), e.getMessage());
+                rejected.add(mail);
+            }
+        }
+
+        int sent = 0;
+        TokenBucket limit = providerLimit();
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            MimeMessage[] messages = pending.keySet().toArray(new MimeMessage[0]);
+            try {
+                limit.acquire(messages.length);
+                mailSender.send(messages);
+                sent += messages.length;
+                pending.clear();
+            } catch (MailAuthenticationException e) {
+                log.error("SMTP authentication failed for {} emails: {}", messages.length, e.getMessage());
+                failed.addAll(pending.values());
+                pending.clear();
+            } catch (MailSendException e) {
+                Map<Object, Exception> refused = e.getFailedMessages();
+                Map<MimeMessage, OutboundMail> retry = new IdentityHashMap<>();
+                for (MimeMessage message : messages) {
+                    Exception cause = refused.get(message);
+                    if (cause == null && !refused.isEmpty()) {
+                        sent++;
+                    } else if (isPermanent(cause)) {
+                        log.warn("Email to {} rejected: {}", pending.get(message).getTo(), cause.getMessage());
+                        rejected.add(pending.get(message));
+                    } else {
+                        retry.put(message, pending.get(message));
+                    }
+                }
+                pending = retry;
+                if (!pending.isEmpty()) {
+                    if (attempt >= maxAttempts) {
+                        log.error("Giving up on {} emails after {} attempts: {}", pending.size(), attempt, e.getMessage());
+                        failed.addAll(pending.values());
+                        pending.clear();
+                    } else if (backoff(attempt)) {
+                        retriedCounter.increment(pending.size());
+                    } else {
+                        failed.addAll(pending.values());
+                        pending.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.addAll(pending.values());
+                pending.clear();
+            }
+        }
+
+        sentCounter.increment(sent);
+        failedCounter.increment(failed.size() + rejected.size());
+        return new ChunkOutcome(sent, failed, rejected);
+    }
+
+    private MimeMessage toMimeMessage(OutboundMail mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        boolean multipart = mail.getHtml() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, multipart, StandardCharsets.UTF_8.name());
+        helper.setTo(mail.getTo());
+        helper.setSubject(mail.getSubject());
+        if (multipart) {
+            // multipart/alternative: clients show the HTML part and fall back to the text
+            helper.setText(mail.getText(), mail.getHtml());
+        } else {
+            helper.setText(mail.getText());
+        }
+        if (mail.getIdempotencyKey() != null) {
+            message.setHeader("X-Notification-Key", mail.getIdempotencyKey());
+        }
+        return message;
+    }
+
+    // Addresses the server rejected outright will be rejected again
+    private static boolean isPermanent(Exception cause) {
+        return cause instanceof SendFailedException sendFailed
+                && sendFailed.getInvalidAddresses() != null
+                && sendFailed.getInvalidAddresses().length > 0;
+    }
+
+    // Returns false if interrupted while waiting
+    private boolean backoff(int attempt) {
+        long delay = Math.min(maxBackoffMs, initialBackoffMs << (attempt - 1));
+        try {
+            // Jittered, so parallel chunks that failed together do not retry in lockstep
+            Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private TokenBucket providerLimit() {
+        String provider = mailSender instanceof JavaMailSenderImpl impl && impl.getHost() != null
+                ? impl.getHost()
+                : "default";
+        return providerLimits.computeIfAbsent(provider, k -> new TokenBucket(ratePerSecond));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class OutboundMail {
+        private final String to;
+        private final String subject;
+        private final String text;
+        // Optional HTML alternative to the text body
+        private final String html;
+        // Sent as the X-Notification-Key header so receivers can drop redeliveries; may be null
+        private final String idempotencyKey;
+
+        public OutboundMail(String to, String subject, String text) {
+            this(to, subject, text, null, null);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class FanoutResult {
+        private final int sent;
+        // Still failing after the last retry; worth trying again later
+        private final List<OutboundMail> failed;
+        // Rejected addresses and unbuildable messages; retrying will not help
+        private final List<OutboundMail> rejected;
+        private final long elapsedMillis;
+
+        public int getFailedCount() {
+            return failed.size() + rejected.size();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ChunkOutcome {
+        private final int sent;
+        private final List<OutboundMail> failed;
+        private final List<OutboundMail> rejected;
+    }
+}
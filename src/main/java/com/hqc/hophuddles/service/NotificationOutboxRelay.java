@@ -0,0 +1,234 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.NotificationOutbox;
+import com.hqc.hophuddles.enums.OutboxStatus;
+import com.hqc.hophuddles.repository.NotificationOutboxRepository;
+import com.hqc.hophuddles.service.MailFanoutService.FanoutResult;
+import com.hqc.hophuddles.service.MailFanoutService.OutboundMail;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers queued notifications from the outbox. Each poll claims batches of due rows with a conditional update
+ * (so concurrent nodes never claim the same row) and hands each batch to the {@code notificationTaskExecutor},
+ * which sends it through {@link MailFanoutService} outside any transaction and records the outcome against the
+ * claim token. The scheduler thread only claims, so slow SMTP servers never hold up the other scheduled jobs.
+ * At most {@code app.notification.outbox.max-in-flight-batches} batches are claimed but not yet recorded, which
+ * keeps claimed rows from waiting in the queue until their claim lapses.
+ * <p>
+ * Delivery is at-least-once: if a node dies between sending and recording, its claim lapses after
+ * {@code app.notification.outbox.claim-ms} and the rows are sent again, carrying the same idempotency key.
+ * Rows that keep failing are retried with exponential backoff and dead-lettered after
+ * {@code app.notification.outbox.max-attempts}; rejected addresses are dead-lettered at once.
+ */
+@Service
+@Slf4j
+public class NotificationOutboxRelay {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final MailFanoutService mailFanoutService;
+    private final ScheduleLeaseService leaseService;
+    private final Executor notificationTaskExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.notification.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.notification.outbox.max-batches-per-poll:10}")
+    private int maxBatchesPerPoll;
+
+    @Value("${app.notification.outbox.max-in-flight-batches:4}")
+    private int maxInFlightBatches;
+
+    @Value("${app.notification.outbox.claim-ms:300000}")
+    private long claimMs;
+
+    @Value("${app.notification.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.notification.outbox.initial-backoff-ms:60000}")
+    private long initialBackoffMs;
+
+    @Value("${app.notification.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.notification.outbox.retention-days:30}")
+    private int retentionDays;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter deadCounter;
+
+    public NotificationOutboxRelay(NotificationOutboxRepository outboxRepository,
+                                   MailFanoutService mailFanoutService,
+                                   ScheduleLeaseService leaseService,
+                                   @Qualifier("notificationTaskExecutor") Executor notificationTaskExecutor,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.mailFanoutService = mailFanoutService;
+        this.leaseService = leaseService;
+        this.notificationTaskExecutor = notificationTaskExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        sentCounter = Counter.builder("notification.outbox.sent").register(meterRegistry);
+        retriedCounter = Counter.builder("notification.outbox.retried").register(meterRegistry);
+        deadCounter = Counter.builder("notification.outbox.dead")
+                .description("Notifications dead-lettered after permanent errors or too many attempts")
+                .register(meterRegistry);
+        Gauge.builder("notification.outbox.pending", pending, AtomicLong::get)
+                .description("Undelivered notifications as of the last relay poll")
+                .register(meterRegistry);
+        Gauge.builder("notification.outbox.in_flight", inFlight, AtomicInteger::get)
+                .description("Claimed batches being sent")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.outbox.poll-interval-ms:2000}")
+    public void relay() {
+        try {
+            for (int batch = 0; batch < maxBatchesPerPoll && inFlight.get() < maxInFlightBatches; batch++) {
+                if (relayBatch() < batchSize) {
+                    break;
+                }
+            }
+            pending.set(outboxRepository.countByStatus(OutboxStatus.PENDING));
+        } catch (Exception e) {
+            log.error("Error relaying notification outbox", e);
+        }
+    }
+
+    // Daily at 3 AM
+    @Scheduled(cron = "0 0 3 * * *")
+    public void purgeSent() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository.deleteSentBefore(cutoff));
+        log.info("Purged {} delivered notifications older than {} days", deleted, retentionDays);
+    }
+
+    // Claims a batch and hands it to the executor; returns the number of rows claimed
+    private int relayBatch() {
+        String claimToken = leaseService.getNodeId() + ":" + UUID.randomUUID();
+        List<NotificationOutbox> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = outboxRepository.findDeliverableIds(now, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            outboxRepository.claim(ids, claimToken, now, now.plusNanos(claimMs * 1_000_000));
+            return outboxRepository.findByClaimedBy(claimToken);
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<OutboundMail, NotificationOutbox> rows = new IdentityHashMap<>();
+        List<OutboundMail> mails = new ArrayList<>(claimed.size());
+        for (NotificationOutbox row : claimed) {
+            OutboundMail mail = new OutboundMail(row.getRecipientEmail(), row.getSubject(), row.getBodyText(),
+                    row.getBodyHtml(), row.getIdempotencyKey());
+            rows.put(mail, row);
+            mails.add(mail);
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            notificationTaskExecutor.execute(() -> {
+                try {
+                    FanoutResult result = mailFanoutService.send("outbox", mails);
+                    record(claimToken, rows, result);
+                } catch (Exception e) {
+                    // Unrecorded rows stay claimed and are picked up again once the claim lapses
+                    log.error("Error delivering outbox batch {}", claimToken, e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        return claimed.size();
+    }
+
+    private void record(String claimToken, Map<OutboundMail, NotificationOutbox> rows, FanoutResult result) {
+        List<NotificationOutbox> failed = new ArrayList<>();
+        for (OutboundMail mail : result.getFailed()) {
+            failed.add(rows.remove(mail));
+        }
+        List<NotificationOutbox> rejected = new ArrayList<>();
+        for (OutboundMail mail : result.getRejected()) {
+            rejected.add(rows.remove(mail));
+        }
+        List<Long> sentIds = rows.values().stream().map(NotificationOutbox::getOutboxId).toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!sentIds.isEmpty()) {
+                sentCounter.increment(outboxRepository.markSent(sentIds, claimToken, now));
+            }
+            for (NotificationOutbox row : failed) {
+                int attempt = row.getAttempts() + 1;
+                if (attempt >= maxAttempts) {
+                    deadLetter(row, claimToken, "Undeliverable after " + attempt + " attempts");
+                } else {
+                    outboxRepository.markRetry(row.getOutboxId(), claimToken, now.plusNanos(backoffMs(attempt) * 1_000_000),
+                            "Delivery attempt " + attempt + " failed");
+                    retriedCounter.increment();
+                }
+            }
+            for (NotificationOutbox row : rejected) {
+                deadLetter(row, claimToken, "Rejected by the mail server");
+            }
+        });
+    }
+
+    private void deadLetter(NotificationOutbox row, String claimToken, String error) {
+        if (outboxRepository.markDead(row.getOutboxId(), claimToken, truncate(error)) > 0) {
+            deadCounter.increment();
+            log.warn("Dead-lettered {} notification {} to {}: {}",
+                    row.getNotificationType(), row.getOutboxId(), row.getRecipientEmail(), error);
+        }
+    }
+
+    // Jittered, so rows that failed together do not come due together
+    private long backoffMs(int attempt) {
+        long delay = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,96 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.NotificationOutbox;
+import com.hqc.hophuddles.enums.NotificationType;
+import com.hqc.hophuddles.enums.OutboxStatus;
+import com.hqc.hophuddles.exception.ResourceNotFoundException;
+import com.hqc.hophuddles.repository.NotificationOutboxJdbcRepository;
+import com.hqc.hophuddles.repository.NotificationOutboxJdbcRepository.OutboxRow;
+import com.hqc.hophuddles.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes notifications into the outbox as part of the caller's transaction, so they are committed (or rolled
+ * back) together with the change that caused them. {@link NotificationOutboxRelay} delivers them afterwards.
+ * Rendering and recipient selection live in {@link NotificationService}.
+ */
+@Service
+@Slf4j
+public class NotificationOutboxService {
+
+    private final NotificationOutboxJdbcRepository outboxJdbcRepository;
+    private final NotificationOutboxRepository outboxRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}")
+    private int jdbcBatchSize;
+
+    private Counter enqueuedCounter;
+    private Counter duplicateCounter;
+
+    public NotificationOutboxService(NotificationOutboxJdbcRepository outboxJdbcRepository,
+                                     NotificationOutboxRepository outboxRepository,
+                                     MeterRegistry meterRegistry) {
+        this.outboxJdbcRepository = outboxJdbcRepository;
+        this.outboxRepository = outboxRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        enqueuedCounter = Counter.builder("notification.outbox.enqueued").register(meterRegistry);
+        duplicateCounter = Counter.builder("notification.outbox.duplicates")
+                .description("Notifications skipped because their idempotency key was already queued")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues rendered notifications. Rows whose idempotency key is already queued are skipped.
+     *
+     * @return number of rows queued
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int enqueue(NotificationType type, List<OutboxRow> rows) {
+        int inserted = outboxJdbcRepository.insertIfAbsent(rows, jdbcBatchSize);
+        enqueuedCounter.increment(inserted);
+        duplicateCounter.increment(rows.size() - inserted);
+        log.info("Queued {} {} notifications ({} already queued)", inserted, type, rows.size() - inserted);
+        return inserted;
+    }
+
+    // Dead letters
+    @Transactional(readOnly = true)
+    public List<NotificationOutbox> getDeadLetters(int limit) {
+        return outboxRepository.findByStatusOrderByCreatedAtDesc(OutboxStatus.DEAD, PageRequest.of(0, limit));
+    }
+
+    @Transactional
+    public void requeue(Long outboxId) {
+        if (outboxRepository.requeue(outboxId, LocalDateTime.now()) == 0) {
+            throw new ResourceNotFoundException("Dead-lettered notification", outboxId);
+        }
+        log.info("Requeued dead-lettered notification {}", outboxId);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<OutboxStatus, Long> getStatusCounts() {
+        Map<OutboxStatus, Long> counts = new EnumMap<>(OutboxStatus.class);
+        for (OutboxStatus status : OutboxStatus.values()) {
+            counts.put(status, outboxRepository.countByStatus(status));
+        }
+        return counts;
+    }
+}
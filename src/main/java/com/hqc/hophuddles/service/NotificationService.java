@@ -4,54 +4,173 @@ import com.hqc.hophuddles.entity.AIGenerationJob;
 import com.hqc.hophuddles.entity.DeliverySchedule;
 import com.hqc.hophuddles.entity.HuddleSequence;
 import com.hqc.hophuddles.entity.User;
+import com.hqc.hophuddles.entity.UserAssignment;
+import com.hqc.hophuddles.enums.NotificationType;
+import com.hqc.hophuddles.enums.UserRole;
+import com.hqc.hophuddles.repository.NotificationOutboxJdbcRepository.OutboxRow;
+import com.hqc.hophuddles.repository.UserAssignmentRepository;
+import com.hqc.hophuddles.service.NotificationTemplateService.PreparedNotification;
+import com.hqc.hophuddles.service.NotificationTemplateService.RenderedNotification;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+/**
+ * Renders notifications from the templates in {@code notification-templates/} and queues them in the outbox in
+ * the caller's transaction; {@link NotificationOutboxRelay} sends them. Each notification binds the values its
+ * recipients share once, then renders only the per-recipient fields.
+ * <p>
+ * Idempotency keys identify one event and recipient, so repeating the event's transaction queues nothing new.
+ */
 @Service
-@Async
+@RequiredArgsConstructor
 @Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
 public class NotificationService {
 
-    @Autowired
-    private JavaMailSender mailSender;
+    private static final DateTimeFormatter KEY_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-    public void sendHuddleReleaseNotification(List<User> users, HuddleSequence sequence) {
-        for (User user : users) {
-            try {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setTo(user.getEmail());
-                message.setSubject("New Training Available: " + sequence.getTitle());
-                message.setText(String.format(
-                        "Hi %s,\n\nA new training huddle is now available: %s\n\nDescription: %s\n\nPlease log in to complete your training.",
-                        user.getName(), sequence.getTitle(), sequence.getDescription()
-                ));
-                mailSender.send(message);
-                log.info("Sent release notification to {}", user.getEmail());
-            } catch (Exception e) {
-                log.error("Failed to send notification to {}: {}", user.getEmail(), e.getMessage());
-            }
-        }
+    // Agency roles alerted when a scheduled release fails
+    private static final List<UserRole> SCHEDULE_ALERT_ROLES = List.of(UserRole.ADMIN, UserRole.SCHEDULER);
+
+    private final NotificationTemplateService templateService;
+    private final NotificationOutboxService outboxService;
+    private final UserAssignmentRepository assignmentRepository;
+
+    public int sendHuddleReleaseNotification(DeliverySchedule schedule, HuddleSequence sequence, List<User> users) {
+        Locale locale = templateService.getDefaultLocale();
+        Map<String, String> shared = sequenceValues(sequence);
+        return queue(NotificationType.HUDDLE_RELEASE, "huddle-release", locale, shared,
+                "release:" + executionKey(schedule),
+                sequence.getSequenceId(), schedule.getScheduleId(), users);
     }
 
-    public void sendHuddleReminderNotification(List<User> users, HuddleSequence sequence) {
-        // Similar implementation for reminders
+    public int sendHuddleReminderNotification(DeliverySchedule schedule, HuddleSequence sequence, List<User> users) {
+        Locale locale = templateService.getDefaultLocale();
+        Map<String, String> shared = sequenceValues(sequence);
+        shared.put("releaseTime", formatTime(schedule.getNextExecutionTime(), locale));
+        return queue(NotificationType.HUDDLE_REMINDER, "huddle-reminder", locale, shared,
+                "reminder:" + executionKey(schedule),
+                sequence.getSequenceId(), schedule.getScheduleId(), users);
     }
 
+    /**
+     * Tells the sequence's creator that generated content is ready for review.
+     */
     public void sendGenerationCompleteNotification(AIGenerationJob job) {
-        // Notify content creators when AI generation completes
+        HuddleSequence sequence = job.getSequence();
+        if (sequence.getCreatedByUser() == null) {
+            log.debug("Sequence {} has no creator to notify", sequence.getSequenceId());
+            return;
+        }
+        Map<String, String> shared = sequenceValues(sequence);
+        shared.put("huddleCount", String.valueOf(sequence.getTotalHuddles()));
+        queue(NotificationType.GENERATION_COMPLETE, "generation-complete", templateService.getDefaultLocale(), shared,
+                "generation-complete:" + job.getGenerationJobId(),
+                sequence.getSequenceId(), null, List.of(sequence.getCreatedByUser()));
     }
 
     public void sendGenerationFailureNotification(AIGenerationJob job) {
-        // Notify on AI generation failures
+        HuddleSequence sequence = job.getSequence();
+        if (sequence.getCreatedByUser() == null) {
+            log.debug("Sequence {} has no creator to notify", sequence.getSequenceId());
+            return;
+        }
+        Map<String, String> shared = sequenceValues(sequence);
+        shared.put("errorMessage", job.getErrorMessage());
+        shared.put("errorCode", job.getErrorCode());
+        // A job can fail once per retry
+        queue(NotificationType.GENERATION_FAILED, "generation-failed", templateService.getDefaultLocale(), shared,
+                "generation-failed:" + job.getGenerationJobId() + ":" + job.getRetryCount(),
+                sequence.getSequenceId(), null, List.of(sequence.getCreatedByUser()));
     }
 
+    /**
+     * Alerts the agency's administrators and schedulers about a failed execution.
+     */
     public void sendScheduleFailureAlert(DeliverySchedule schedule, String errorMessage) {
-        // Alert administrators about scheduling failures
+        HuddleSequence sequence = schedule.getSequence();
+        Long agencyId = sequence.getAgency().getAgencyId();
+
+        Map<Long, User> recipients = new LinkedHashMap<>();
+        for (UserRole role : SCHEDULE_ALERT_ROLES) {
+            for (UserAssignment assignment : assignmentRepository.findByAgencyAndRole(agencyId, role)) {
+                recipients.putIfAbsent(assignment.getUser().getUserId(), assignment.getUser());
+            }
+        }
+        if (recipients.isEmpty()) {
+            log.warn("No administrators to alert about failed schedule {} in agency {}",
+                    schedule.getScheduleId(), agencyId);
+            return;
+        }
+
+        Locale locale = templateService.getDefaultLocale();
+        Map<String, String> shared = sequenceValues(sequence);
+        shared.put("releaseTime", schedule.getNextExecutionTime() != null
+                ? formatTime(schedule.getNextExecutionTime(), locale) : "");
+        shared.put("errorMessage", errorMessage);
+        shared.put("consecutiveFailures", String.valueOf(schedule.getConsecutiveFailures()));
+        shared.put("scheduleStatus", schedule.getScheduleStatus().name());
+        queue(NotificationType.SCHEDULE_FAILURE, "schedule-failure", locale, shared,
+                "schedule-failure:" + executionKey(schedule) + ":" + schedule.getConsecutiveFailures(),
+                sequence.getSequenceId(), schedule.getScheduleId(), new ArrayList<>(recipients.values()));
+    }
+
+    private int queue(NotificationType type, String templateName, Locale locale, Map<String, String> shared,
+                      String eventKey, Long sequenceId, Long scheduleId, List<User> users) {
+        PreparedNotification prepared = templateService.prepare(templateName, locale, shared);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<OutboxRow> rows = new ArrayList<>(users.size());
+        Map<String, String> recipientValues = new HashMap<>(2);
+        for (User user : users) {
+            if (user.getEmail() == null || user.getEmail().isBlank()) {
+                continue;
+            }
+            recipientValues.put("userName", user.getName());
+            RenderedNotification rendered = prepared.render(recipientValues);
+            rows.add(OutboxRow.builder()
+                    .idempotencyKey(eventKey + ":" + user.getUserId())
+                    .notificationType(type.name())
+                    .recipientUserId(user.getUserId())
+                    .recipientEmail(user.getEmail())
+                    .subject(rendered.getSubject())
+                    .bodyText(rendered.getText())
+                    .bodyHtml(rendered.getHtml())
+                    .sequenceId(sequenceId)
+                    .scheduleId(scheduleId)
+                    .createdAt(now)
+                    .build());
+        }
+        return rows.isEmpty() ? 0 : outboxService.enqueue(type, rows);
+    }
+
+    // One execution of a schedule, identified by its due time
+    private static String executionKey(DeliverySchedule schedule) {
+        LocalDateTime due = schedule.getNextExecutionTime();
+        return schedule.getScheduleId() + ":" + (due != null ? due.format(KEY_TIME) : "none");
+    }
+
+    private static Map<String, String> sequenceValues(HuddleSequence sequence) {
+        Map<String, String> values = new HashMap<>();
+        values.put("sequenceTitle", sequence.getTitle());
+        values.put("sequenceDescription", sequence.getDescription());
+        return values;
+    }
+
+    private static String formatTime(LocalDateTime time, Locale locale) {
+        return time.format(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.LONG, FormatStyle.SHORT).withLocale(locale));
     }
-}
\ No newline at end of file
+}
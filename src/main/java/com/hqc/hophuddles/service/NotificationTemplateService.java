@@ -0,0 +1,183 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.util.MessageTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Notification templates, compiled once per (template, locale) and cached for the life of the application.
+ * <p>
+ * A template lives in {@code notification-templates/<name>[_<locale>].tmpl} on the classpath. Its sections start
+ * with a {@code ## subject}, {@code ## text} or {@code ## html} line; the html section is optional. Locales fall
+ * back from {@code name_en_US} to {@code name_en} to {@code name}.
+ * <p>
+ * A fan-out calls {@link #prepare} once with the values every recipient shares, then renders each recipient from
+ * the returned {@link PreparedNotification}, which only splices in per-recipient fields.
+ */
+@Service
+@Slf4j
+public class NotificationTemplateService {
+
+    private static final String TEMPLATE_LOCATION = "notification-templates/";
+    private static final String TEMPLATE_SUFFIX = ".tmpl";
+    private static final String SECTION_PREFIX = "## ";
+
+    private final Map<String, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.notification.default-locale:en}")
+    private String defaultLocaleTag;
+
+    private Locale defaultLocale;
+    private Counter compilationCounter;
+
+    public NotificationTemplateService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        defaultLocale = Locale.forLanguageTag(defaultLocaleTag);
+        compilationCounter = Counter.builder("notification.templates.compiled").register(meterRegistry);
+        Gauge.builder("notification.templates.cached", compiled, Map::size).register(meterRegistry);
+    }
+
+    public Locale getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    /**
+     * Binds the values shared by all recipients of one notification.
+     */
+    public PreparedNotification prepare(String templateName, Locale locale, Map<String, String> sharedValues) {
+        CompiledTemplate template = getTemplate(templateName, locale != null ? locale : defaultLocale);
+        return new PreparedNotification(
+                template.getSubject().bind(sharedValues),
+                template.getText().bind(sharedValues),
+                template.getHtml() != null ? template.getHtml().bind(sharedValues) : null);
+    }
+
+    CompiledTemplate getTemplate(String templateName, Locale locale) {
+        return compiled.computeIfAbsent(templateName + "|" + locale.toLanguageTag(),
+                key -> compile(templateName, locale));
+    }
+
+    private CompiledTemplate compile(String templateName, Locale locale) {
+        for (String candidate : candidateNames(templateName, locale)) {
+            ClassPathResource resource = new ClassPathResource(TEMPLATE_LOCATION + candidate + TEMPLATE_SUFFIX);
+            if (!resource.exists()) {
+                continue;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                Map<String, String> sections = parseSections(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                if (!sections.containsKey("subject") || !sections.containsKey("text")) {
+                    throw new IllegalStateException("Notification template " + candidate
+                            + " needs subject and text sections");
+                }
+                compilationCounter.increment();
+                log.debug("Compiled notification template {} for locale {}", candidate, locale);
+                return new CompiledTemplate(
+                        MessageTemplate.compile(sections.get("subject").strip(), false),
+                        MessageTemplate.compile(sections.get("text"), false),
+                        sections.containsKey("html") ? MessageTemplate.compile(sections.get("html"), true) : null);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read notification template " + candidate, e);
+            }
+        }
+        throw new IllegalArgumentException("Notification template not found: " + templateName);
+    }
+
+    private static List<String> candidateNames(String templateName, Locale locale) {
+        List<String> names = new ArrayList<>(3);
+        if (!locale.getCountry().isEmpty()) {
+            names.add(templateName + "_" + locale.getLanguage() + "_" + locale.getCountry());
+        }
+        if (!locale.getLanguage().isEmpty()) {
+            names.add(templateName + "_" + locale.getLanguage());
+        }
+        names.add(templateName);
+        return names;
+    }
+
+    private static Map<String, String> parseSections(String source) {
+        Map<String, String> sections = new HashMap<>();
+        String current = null;
+        StringBuilder body = new StringBuilder();
+        for (String line : source.split("\r?\n", -1)) {
+            if (line.startsWith(SECTION_PREFIX)) {
+                if (current != null) {
+                    sections.put(current, trimTrailingNewlines(body));
+                }
+                current = line.substring(SECTION_PREFIX.length()).trim();
+                body.setLength(0);
+            } else if (current != null) {
+                body.append(line).append('\n');
+            }
+        }
+        if (current != null) {
+            sections.put(current, trimTrailingNewlines(body));
+        }
+        return sections;
+    }
+
+    private static String trimTrailingNewlines(StringBuilder body) {
+        int end = body.length();
+        while (end > 0 && body.charAt(end - 1) == '\n') {
+            end--;
+        }
+        return body.substring(0, end);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class CompiledTemplate {
+        private final MessageTemplate subject;
+        private final MessageTemplate text;
+        // Null for plain-text-only templates
+        private final MessageTemplate html;
+    }
+
+    /**
+     * A template with the fan-out's shared values already bound.
+     */
+    @AllArgsConstructor
+    public static class PreparedNotification {
+        private final MessageTemplate subject;
+        private final MessageTemplate text;
+        private final MessageTemplate html;
+
+        public RenderedNotification render(Map<String, String> recipientValues) {
+            return new RenderedNotification(
+                    subject.render(recipientValues),
+                    text.render(recipientValues),
+                    html != null ? html.render(recipientValues) : null);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RenderedNotification {
+        private final String subject;
+        private final String text;
+        // Null for plain-text-only templates
+        private final String html;
+    }
+}
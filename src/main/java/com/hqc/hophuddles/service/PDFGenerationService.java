@@ -1,52 +1,60 @@
 package com.hqc.hophuddles.service;
 
+import com.itextpdf.html2pdf.ConverterProperties;
 import com.itextpdf.html2pdf.HtmlConverter;
+import com.itextpdf.kernel.events.PdfDocumentEvent;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Renders PDFs straight into {@link FileStorageService}: the writer feeds the storage stream, so a document is
+ * hashed and written to disk once while it is laid out and never held in memory whole. The returned name is the
+ * stored file's, for {@link FileStorageService#getFileUrl}.
+ * <p>
+ * {@code pdf.render} times each document and {@code pdf.pages} counts its pages; the rate of the counter is the
+ * rendering throughput in pages per second.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PDFGenerationService {
 
     private final FileStorageService fileStorageService;
+    private final MeterRegistry meterRegistry;
+
+    private Timer renderTimer;
+    private Counter pageCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        renderTimer = Timer.builder("pdf.render")
+                .description("Time to render and store one PDF")
+                .register(meterRegistry);
+        pageCounter = Counter.builder("pdf.pages")
+                .description("Pages rendered into stored PDFs")
+                .register(meterRegistry);
+    }
 
     public String generatePdfFromHtml(String htmlContent, String title, String category) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            HtmlConverter.convertToPdf(htmlContent, outputStream);
-
-            // Save to file storage
-            String fileName = String.format("%s_%s_%s.pdf",
-                    category,
-                    title.replaceAll("[^a-zA-Z0-9]", "_"),
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
-            );
-
-            // Save the PDF bytes to storage (you'd implement this method)
-            return savePdfToStorage(outputStream.toByteArray(), fileName, category);
-
-        } catch (Exception e) {
-            log.error("Error generating PDF", e);
-            throw new RuntimeException("Failed to generate PDF", e);
-        }
+        return render(title, category,
+                pdf -> HtmlConverter.convertToDocument(htmlContent, pdf, new ConverterProperties()));
     }
 
     public String generateSimplePdf(String content, String title, String category) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            PdfWriter writer = new PdfWriter(outputStream);
-            PdfDocument pdf = new PdfDocument(writer);
+        return render(title, category, pdf -> {
             Document document = new Document(pdf);
 
             // Add title
@@ -55,36 +63,35 @@ public class PDFGenerationService {
 
             // Add content
             document.add(new Paragraph(content));
-
-            document.close();
-
-            String fileName = String.format("%s_%s_%s.pdf",
-                    category,
-                    title.replaceAll("[^a-zA-Z0-9]", "_"),
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
-            );
-
-            return savePdfToStorage(outputStream.toByteArray(), fileName, category);
-
-        } catch (Exception e) {
-            log.error("Error generating simple PDF", e);
-            throw new RuntimeException("Failed to generate PDF", e);
-        }
+            return document;
+        });
     }
 
-    private String savePdfToStorage(byte[] pdfBytes, String fileName, String category) {
-        // This is a simplified implementation
-        // In a real scenario, you'd save the byte array to file storage
+    // Lays the document out into the storage stream; pages are counted as they are started, since a closed
+    // document can no longer be asked
+    private String render(String title, String category, Function<PdfDocument, Document> layout) {
+        String fileName = title.replaceAll("[^a-zA-Z0-9]", "_") + ".pdf";
+        AtomicInteger pages = new AtomicInteger();
+        long started = System.nanoTime();
         try {
-            java.nio.file.Path tempFile = java.nio.file.Files.createTempFile(category + "_", ".pdf");
-            java.nio.file.Files.write(tempFile, pdfBytes);
-
-            String relativePath = category + "/" + fileName;
-            log.info("PDF generated and saved: {}", relativePath);
-            return relativePath;
+            String stored = fileStorageService.storeFile(out -> {
+                PdfWriter writer = new PdfWriter(out);
+                writer.setCloseStream(false);
+                PdfDocument pdf = new PdfDocument(writer);
+                pdf.addEventHandler(PdfDocumentEvent.START_PAGE, event -> pages.incrementAndGet());
+                layout.apply(pdf).close();
+            }, fileName, category);
+
+            long elapsed = System.nanoTime() - started;
+            renderTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            pageCounter.increment(pages.get());
+            log.info("PDF generated and saved: {} ({} pages, {} ms)", stored, pages.get(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return stored;
 
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save PDF to storage", e);
+        } catch (Exception e) {
+            log.error("Error generating PDF {}", fileName, e);
+            throw new RuntimeException("Failed to generate PDF", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,35 +1,80 @@
 package com.hqc.hophuddles.service;
 
-import com.hqc.hophuddles.entity.User;
-import com.hqc.hophuddles.entity.UserAssignment;
 import com.hqc.hophuddles.enums.Permission;
 import com.hqc.hophuddles.enums.UserRole;
+import com.hqc.hophuddles.event.UserAssignmentChangedEvent;
 import com.hqc.hophuddles.repository.UserAssignmentRepository;
-import com.hqc.hophuddles.repository.UserRepository;
+import com.hqc.hophuddles.security.AuthorizationContext;
 import com.hqc.hophuddles.security.UserPrincipal;
-import lombok.RequiredArgsConstructor;
+import com.hqc.hophuddles.util.BoundedTtlCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permission and resource checks against a per-user {@link AccessProfile}. Profiles are cached in a bounded
+ * local cache and dropped when a {@link UserAssignmentChangedEvent} commits.
+ * <p>
+ * Invalidation is local to this instance; {@code app.security.permission-cache.ttl-ms} bounds how stale another
+ * instance's copy can get.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PermissionService {
 
-    private final UserRepository userRepository;
     private final UserAssignmentRepository userAssignmentRepository;
+    private final MeterRegistry meterRegistry;
+    private final BoundedTtlCache<Long, AccessProfile> profiles;
+
+    public PermissionService(UserAssignmentRepository userAssignmentRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.security.permission-cache.max-entries:10000}") int maxEntries,
+                             @Value("${app.security.permission-cache.ttl-ms:300000}") long ttlMs) {
+        this.userAssignmentRepository = userAssignmentRepository;
+        this.meterRegistry = meterRegistry;
+        this.profiles = new BoundedTtlCache<>(maxEntries, ttlMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("security.permission.cache.lookups", profiles, BoundedTtlCache::hitCount)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("security.permission.cache.lookups", profiles, BoundedTtlCache::missCount)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("security.permission.cache.evictions", profiles, BoundedTtlCache::evictionCount)
+                .description("Access profiles evicted to stay within max-entries")
+                .register(meterRegistry);
+        Gauge.builder("security.permission.cache.size", profiles, BoundedTtlCache::size).register(meterRegistry);
+    }
 
     /**
      * Check if current authenticated user has specific permission for a resource
      */
     public boolean hasPermission(Permission permission, Long resourceId, String resourceType) {
+        // Resolved once per request by the JWT filter; the profile is then reused by every check in the request
+        AuthorizationContext context = AuthorizationContext.current();
+        if (context != null) {
+            try {
+                AccessProfile profile = context.getProfile(this::getAccessProfile);
+                return profile.hasPermission(permission) && profile.canAccess(resourceId, resourceType);
+            } catch (Exception e) {
+                log.error("Error checking permission for user {} on resource {}", context.getUserId(), resourceId, e);
+                return false;
+            }
+        }
+
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getPrincipal() == null) {
             return false;
@@ -46,18 +91,10 @@ public class PermissionService {
     /**
      * Check if user has specific permission for a resource
      */
-    @Cacheable(value = "userPermissions", key = "#userId + '_' + #permission + '_' + #resourceId + '_' + #resourceType")
     public boolean hasPermission(Long userId, Permission permission, Long resourceId, String resourceType) {
         try {
-            Set<Permission> userPermissions = getUserPermissions(userId);
-
-            if (!userPermissions.contains(permission)) {
-                return false;
-            }
-
-            // Check resource-specific access based on user's assignments
-            return hasResourceAccess(userId, resourceId, resourceType);
-
+            AccessProfile profile = getAccessProfile(userId);
+            return profile.hasPermission(permission) && profile.canAccess(resourceId, resourceType);
         } catch (Exception e) {
             log.error("Error checking permission for user {} on resource {}", userId, resourceId, e);
             return false;
@@ -88,58 +125,27 @@ public class PermissionService {
     /**
      * Get all permissions for a user across all their assignments
      */
-    @Cacheable(value = "userPermissionSet", key = "#userId")
     public Set<Permission> getUserPermissions(Long userId) {
-        List<UserAssignment> assignments = userAssignmentRepository
-                .findByUserUserIdAndIsActiveTrueOrderByIsPrimaryDescAssignedAtDesc(userId);
-
-        return assignments.stream()
-                .map(UserAssignment::getRole)
-                .flatMap(role -> role.getPermissions().stream())
-                .collect(Collectors.toSet());
+        return getAccessProfile(userId).getPermissions();
     }
 
     /**
-     * Check if user has access to specific resource based on their assignments
+     * The user's compiled access, from the local cache when it is fresh
      */
-    private boolean hasResourceAccess(Long userId, Long resourceId, String resourceType) {
-        List<UserAssignment> assignments = userAssignmentRepository
-                .findByUserUserIdAndIsActiveTrueOrderByIsPrimaryDescAssignedAtDesc(userId);
-
-        switch (resourceType.toUpperCase()) {
-            case "AGENCY":
-                return assignments.stream()
-                        .anyMatch(assignment -> assignment.getAgency().getAgencyId().equals(resourceId));
-
-            case "BRANCH":
-                return assignments.stream()
-                        .anyMatch(assignment ->
-                                assignment.getBranch() != null &&
-                                        assignment.getBranch().getBranchId().equals(resourceId) ||
-                                        // Agency admins have access to all branches
-                                        (assignment.getBranch() == null && assignment.getRole() == UserRole.ADMIN)
-                        );
-
-            case "TEAM":
-                return assignments.stream()
-                        .anyMatch(assignment ->
-                                assignment.getTeam() != null &&
-                                        assignment.getTeam().getTeamId().equals(resourceId) ||
-                                        // Branch managers have access to all teams in their branch
-                                        (assignment.getTeam() == null &&
-                                                assignment.getRole() == UserRole.BRANCH_MANAGER)
-                        );
-
-            case "HUDDLE":
-            case "SEQUENCE":
-                // For huddles/sequences, check if user has access to the agency
-                // This would need to be enhanced to check the actual huddle's agency
-                return assignments.stream()
-                        .anyMatch(assignment -> true); // Simplified for now
-
-            default:
-                return true; // Default allow for unknown resource types
-        }
+    public AccessProfile getAccessProfile(Long userId) {
+        return profiles.get(userId, id -> AccessProfile.of(userAssignmentRepository
+                .findByUserUserIdAndIsActiveTrueOrderByIsPrimaryDescAssignedAtDesc(id)));
+    }
+
+    // Runs after the assignment change commits, so the next check reloads what was committed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentChanged(UserAssignmentChangedEvent event) {
+        profiles.invalidate(event.getUserId());
+        log.debug("Dropped cached access profile for user {}", event.getUserId());
+    }
+
+    public void invalidateAll() {
+        profiles.invalidateAll();
     }
 
     /**
@@ -158,7 +164,7 @@ public class PermissionService {
      */
     public boolean canAccessAgency(Long agencyId) {
         Long userId = getCurrentUserId();
-        return userId != null && userAssignmentRepository.hasUserAccessToAgency(userId, agencyId);
+        return userId != null && getAccessProfile(userId).getAgencyIds().contains(agencyId);
     }
 
     /**
@@ -169,7 +175,7 @@ public class PermissionService {
         if (userId == null) {
             return List.of();
         }
-        return userAssignmentRepository.findAgencyIdsByUserId(userId);
+        return new ArrayList<>(getAccessProfile(userId).getAgencyIds());
     }
 
     /**
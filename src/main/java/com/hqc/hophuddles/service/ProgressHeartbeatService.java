@@ -0,0 +1,236 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.dto.response.UserProgressResponse;
+import com.hqc.hophuddles.enums.ProgressStatus;
+import com.hqc.hophuddles.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Absorbs high-frequency player heartbeats (completion percentage and elapsed minutes) into one in-memory
+ * accumulator per (user, huddle) and writes them through {@link UserProgressService#applyHeartbeat} only when
+ * it matters: the first heartbeat for a key, reaching 100%, an explicit flush before a completion or assessment,
+ * and otherwise once per flush interval.
+ * <p>
+ * Crash safety: accumulated state lives only in this process. A graceful shutdown flushes everything; a hard
+ * crash loses at most one flush interval of percentage and minutes per active key. Status transitions are never
+ * buffered. A failed write puts its minutes back into the accumulator for the next flush instead of dropping them.
+ */
+@Service
+@Slf4j
+public class ProgressHeartbeatService {
+
+    private static final BigDecimal COMPLETE = new BigDecimal("100.00");
+
+    private final UserProgressService userProgressService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<HeartbeatKey, PendingHeartbeat> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.progress.heartbeat.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    @Value("${app.progress.heartbeat.idle-eviction-ms:600000}")
+    private long idleEvictionMs;
+
+    private Counter receivedCounter;
+    private Counter coalescedCounter;
+    private Counter failedCounter;
+
+    public ProgressHeartbeatService(UserProgressService userProgressService, MeterRegistry meterRegistry) {
+        this.userProgressService = userProgressService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("progress.heartbeat.pending", pending, Map::size)
+                .description("(user, huddle) pairs with an in-memory heartbeat accumulator")
+                .register(meterRegistry);
+        receivedCounter = Counter.builder("progress.heartbeat.received").register(meterRegistry);
+        coalescedCounter = Counter.builder("progress.heartbeat.coalesced")
+                .description("Heartbeats absorbed without a database write")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("progress.heartbeat.failed").register(meterRegistry);
+    }
+
+    /**
+     * Records one heartbeat.
+     *
+     * @return true if the heartbeat was written through immediately, false if it was buffered
+     */
+    public boolean record(Long userId, Long huddleId, BigDecimal completionPercentage, BigDecimal elapsedMinutes) {
+        receivedCounter.increment();
+        HeartbeatKey key = new HeartbeatKey(userId, huddleId);
+
+        while (true) {
+            PendingHeartbeat entry = pending.computeIfAbsent(key, k -> new PendingHeartbeat());
+            String writeReason;
+            synchronized (entry) {
+                if (entry.evicted) {
+                    // Lost a race with idle eviction; start over with a fresh accumulator
+                    continue;
+                }
+                entry.accumulate(completionPercentage, elapsedMinutes);
+                writeReason = entry.status == null ? "first" : entry.reachesCompletion() ? "completion" : null;
+            }
+
+            if (writeReason == null) {
+                coalescedCounter.increment();
+                return false;
+            }
+            return write(key, entry, writeReason);
+        }
+    }
+
+    /**
+     * Writes any buffered state for one key, e.g. before a completion or assessment so those see the latest
+     * time and percentage.
+     */
+    public void flush(Long userId, Long huddleId) {
+        HeartbeatKey key = new HeartbeatKey(userId, huddleId);
+        PendingHeartbeat entry = pending.get(key);
+        if (entry != null) {
+            write(key, entry, "transition");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.progress.heartbeat.flush-interval-ms:5000}")
+    public void flushAll() {
+        flushAll("interval");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        int flushed = flushAll("shutdown");
+        if (flushed > 0) {
+            log.info("Flushed {} buffered progress heartbeats on shutdown", flushed);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    private int flushAll(String reason) {
+        int flushed = 0;
+        long evictBefore = System.currentTimeMillis() - idleEvictionMs;
+        for (Map.Entry<HeartbeatKey, PendingHeartbeat> e : pending.entrySet()) {
+            PendingHeartbeat entry = e.getValue();
+            try {
+                if (write(e.getKey(), entry, reason)) {
+                    flushed++;
+                    continue;
+                }
+            } catch (ResourceNotFoundException ex) {
+                log.debug("Dropped heartbeat accumulator for user {} on huddle {}: {}",
+                        e.getKey().getUserId(), e.getKey().getHuddleId(), ex.getMessage());
+                continue;
+            }
+            synchronized (entry) {
+                if (!entry.isDirty() && entry.lastSeenMillis < evictBefore) {
+                    entry.evicted = true;
+                    pending.remove(e.getKey(), entry);
+                }
+            }
+        }
+        return flushed;
+    }
+
+    // Returns true if buffered state was written; on failure the state stays buffered for the next flush
+    private boolean write(HeartbeatKey key, PendingHeartbeat entry, String reason) {
+        BigDecimal percentage;
+        BigDecimal minutes;
+        synchronized (entry) {
+            if (!entry.isDirty() && entry.status != null) {
+                return false;
+            }
+            percentage = entry.percentage;
+            minutes = entry.minutes;
+            entry.percentage = null;
+            entry.minutes = BigDecimal.ZERO;
+        }
+
+        try {
+            UserProgressResponse saved = userProgressService.applyHeartbeat(
+                    key.getUserId(), key.getHuddleId(), percentage, minutes);
+            synchronized (entry) {
+                entry.status = saved.getProgressStatus();
+                entry.persistedPercentage = saved.getCompletionPercentage();
+            }
+            meterRegistry.counter("progress.heartbeat.writes", "reason", reason).increment();
+            return true;
+        } catch (ResourceNotFoundException e) {
+            // Unknown user or huddle: nothing to retry, so drop the accumulator and let the caller see the 404
+            synchronized (entry) {
+                entry.evicted = true;
+                pending.remove(key, entry);
+            }
+            failedCounter.increment();
+            throw e;
+        } catch (RuntimeException e) {
+            synchronized (entry) {
+                entry.accumulate(percentage, minutes);
+            }
+            failedCounter.increment();
+            log.warn("Could not persist heartbeat for user {} on huddle {} ({}); will retry on next flush",
+                    key.getUserId(), key.getHuddleId(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    static class HeartbeatKey {
+        private final Long userId;
+        private final Long huddleId;
+    }
+
+    // All fields are guarded by the entry's monitor
+    private static class PendingHeartbeat {
+        private BigDecimal percentage;
+        private BigDecimal minutes = BigDecimal.ZERO;
+        private ProgressStatus status;
+        private BigDecimal persistedPercentage;
+        private long lastSeenMillis = System.currentTimeMillis();
+        private boolean evicted;
+
+        void accumulate(BigDecimal completionPercentage, BigDecimal elapsedMinutes) {
+            if (completionPercentage != null && (percentage == null || completionPercentage.compareTo(percentage) > 0)) {
+                percentage = completionPercentage;
+            }
+            if (elapsedMinutes != null) {
+                minutes = minutes.add(elapsedMinutes);
+            }
+            lastSeenMillis = System.currentTimeMillis();
+        }
+
+        boolean reachesCompletion() {
+            return status != ProgressStatus.COMPLETED && percentage != null && percentage.compareTo(COMPLETE) >= 0;
+        }
+
+        boolean isDirty() {
+            return minutes.signum() > 0
+                    || (percentage != null && (persistedPercentage == null || percentage.compareTo(persistedPercentage) > 0));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.service.SequenceProgressService.ReconciliationPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically recomputes sequence progress counters from user_progress and corrects drift left behind by
+ * delta maintenance. Each page runs in its own transaction. A page that keeps failing, whether from
+ * concurrent updates or a bad row, is retried a few times and then skipped until the next run; the sweep
+ * carries on after it and {@code progress.reconciliation.pages.skipped} counts it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProgressReconciliationJob {
+
+    private static final int MAX_PAGE_ATTEMPTS = 3;
+
+    private final SequenceProgressService sequenceProgressService;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.progress.reconciliation.page-size:500}")
+    private int pageSize;
+
+    private Counter skippedPages;
+
+    private volatile Map<String, Object> lastResult;
+
+    @PostConstruct
+    void registerMetrics() {
+        skippedPages = Counter.builder("progress.reconciliation.pages.skipped")
+                .description("Reconciliation pages given up on after repeated failures")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.progress.reconciliation.interval-ms:3600000}",
+            initialDelayString = "${app.progress.reconciliation.initial-delay-ms:300000}")
+    public void scheduledReconciliation() {
+        reconcileAll();
+    }
+
+    /**
+     * Walks all active sequence progress rows in id order on the calling thread.
+     */
+    public Map<String, Object> reconcileAll() {
+        if (!running.compareAndSet(false, true)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("skipped", "Reconciliation already running");
+            return result;
+        }
+        try {
+            return sweep();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Starts a sweep on a background thread.
+     *
+     * @return false if a sweep is already running
+     */
+    public boolean startReconciliation() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                sweep();
+            } catch (Exception e) {
+                log.error("Sequence progress reconciliation failed", e);
+            } finally {
+                running.set(false);
+            }
+        }, "progress-reconciliation");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        Map<String, Object> last = lastResult;
+        if (last != null) {
+            status.put("lastRun", last);
+        }
+        return status;
+    }
+
+    private Map<String, Object> sweep() {
+        long started = System.currentTimeMillis();
+        long scanned = 0;
+        long corrected = 0;
+        long conflicts = 0;
+        long skipped = 0;
+        Long afterId = 0L;
+        int attempts = 0;
+        while (afterId != null) {
+            try {
+                ReconciliationPage page = sequenceProgressService.reconcilePage(afterId, pageSize);
+                scanned += page.getScanned();
+                corrected += page.getCorrected();
+                afterId = page.getLastId();
+                attempts = 0;
+            } catch (RuntimeException e) {
+                // Usually a live update winning the race; retry the page a few times, then leave it for the
+                // next run and carry on with the rest
+                if (e instanceof ObjectOptimisticLockingFailureException) {
+                    conflicts++;
+                }
+                if (++attempts >= MAX_PAGE_ATTEMPTS) {
+                    Long pageEnd = sequenceProgressService.findPageEnd(afterId, pageSize);
+                    log.warn("Skipping reconciliation of ids ({}, {}] after {} failed attempts: {}",
+                            afterId, pageEnd, attempts, e.getMessage());
+                    skipped++;
+                    skippedPages.increment();
+                    afterId = pageEnd;
+                    attempts = 0;
+                }
+            }
+        }
+
+        log.info("Sequence progress reconciliation: scanned {}, corrected {}, conflicts {}, skipped pages {} in {} ms",
+                scanned, corrected, conflicts, skipped, System.currentTimeMillis() - started);
+        Map<String, Object> result = new HashMap<>();
+        result.put("scanned", scanned);
+        result.put("corrected", corrected);
+        result.put("conflicts", conflicts);
+        result.put("skippedPages", skipped);
+        result.put("completedAt", LocalDateTime.now());
+        lastResult = result;
+        return result;
+    }
+}
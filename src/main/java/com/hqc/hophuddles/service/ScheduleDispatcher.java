@@ -0,0 +1,268 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.DeliverySchedule;
+import com.hqc.hophuddles.enums.ScheduleStatus;
+import com.hqc.hophuddles.repository.DeliveryScheduleRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory release timer: a priority queue of the schedules due within the look-ahead window, keyed on
+ * {@code nextExecutionTime}. A single dispatcher thread sleeps until the earliest entry is due and hands the due
+ * schedule IDs to the release handler, so releases fire within about a second of their time instead of on the
+ * next poll.
+ * <p>
+ * The database stays the source of truth. Local schedule changes are applied after their transaction commits;
+ * {@link #reload()} rebuilds the window from the database to pick up changes made by other nodes. Firing an entry
+ * that has become stale is harmless, because the handler claims each schedule with a conditional update that
+ * re-checks its status and due time.
+ */
+@Service
+@Slf4j
+public class ScheduleDispatcher {
+
+    private final DeliveryScheduleRepository scheduleRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // All below guarded by lock; an entry is live only while it matches the due time recorded in dueTimes
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong(Entry::getDueAtMillis));
+    private final Map<Long, Entry> dueTimes = new HashMap<>();
+    private long sequence;
+
+    @Value("${app.scheduler.dispatcher.look-ahead-ms:900000}")
+    private long lookAheadMs;
+
+    private volatile Consumer<List<Long>> releaseHandler;
+    private volatile boolean running = true;
+    private Thread dispatcherThread;
+    private Timer lagTimer;
+
+    public ScheduleDispatcher(DeliveryScheduleRepository scheduleRepository, MeterRegistry meterRegistry) {
+        this.scheduleRepository = scheduleRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("scheduler.dispatcher.pending", this, ScheduleDispatcher::getPendingCount)
+                .description("Schedules waiting in the in-memory release queue")
+                .register(meterRegistry);
+        lagTimer = Timer.builder("scheduler.dispatcher.lag")
+                .description("Delay between a schedule's due time and the dispatcher firing it")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts firing due schedules into the handler. Entries registered before this call are kept.
+     */
+    public void start(Consumer<List<Long>> handler) {
+        lock.lock();
+        try {
+            if (dispatcherThread != null) {
+                return;
+            }
+            releaseHandler = handler;
+            dispatcherThread = new Thread(this::dispatchLoop, "schedule-dispatcher");
+            dispatcherThread.setDaemon(true);
+            dispatcherThread.start();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Schedule dispatcher started with a {} ms look-ahead window", lookAheadMs);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-registers a schedule from its current state once the surrounding transaction commits: queued if it is
+     * active and due within the window, removed otherwise.
+     */
+    public void scheduleChanged(DeliverySchedule schedule) {
+        Long scheduleId = schedule.getScheduleId();
+        boolean active = schedule.getScheduleStatus() == ScheduleStatus.ACTIVE
+                && Boolean.TRUE.equals(schedule.getIsActive());
+        LocalDateTime next = active ? schedule.getNextExecutionTime() : null;
+        afterCommit(() -> {
+            if (next != null && toMillis(next) <= System.currentTimeMillis() + lookAheadMs) {
+                register(scheduleId, next);
+            } else {
+                remove(scheduleId);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the window from the database. Entries registered while the query runs are kept, so a
+     * concurrent local change is not overwritten by an older snapshot.
+     */
+    public void reload() {
+        long startedAt;
+        lock.lock();
+        try {
+            startedAt = ++sequence;
+        } finally {
+            lock.unlock();
+        }
+
+        LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
+        List<Object[]> rows = scheduleRepository.findUpcomingSchedules(now, now.plusNanos(lookAheadMs * 1_000_000L));
+
+        lock.lock();
+        try {
+            Set<Long> loaded = new HashSet<>();
+            for (Object[] row : rows) {
+                Long scheduleId = (Long) row[0];
+                loaded.add(scheduleId);
+                Entry current = dueTimes.get(scheduleId);
+                if (current == null || current.getSequence() < startedAt) {
+                    put(scheduleId, toMillis((LocalDateTime) row[1]));
+                }
+            }
+            dueTimes.values().removeIf(entry ->
+                    entry.getSequence() < startedAt && !loaded.contains(entry.getScheduleId()));
+            queue.removeIf(entry -> dueTimes.get(entry.getScheduleId()) != entry);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Reloaded schedule dispatcher: {} schedules due within the window", rows.size());
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return dueTimes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void register(Long scheduleId, LocalDateTime nextExecutionTime) {
+        lock.lock();
+        try {
+            put(scheduleId, toMillis(nextExecutionTime));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Long scheduleId) {
+        lock.lock();
+        try {
+            // The queued entry goes stale and is skipped when it reaches the head
+            dueTimes.remove(scheduleId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock
+    private void put(Long scheduleId, long dueAtMillis) {
+        Entry entry = new Entry(scheduleId, dueAtMillis, ++sequence);
+        dueTimes.put(scheduleId, entry);
+        queue.add(entry);
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            List<Long> due = new ArrayList<>();
+            lock.lock();
+            try {
+                Entry head = queue.peek();
+                long now = System.currentTimeMillis();
+                if (head == null) {
+                    changed.await();
+                    continue;
+                }
+                if (dueTimes.get(head.getScheduleId()) != head) {
+                    queue.poll();
+                    continue;
+                }
+                if (head.getDueAtMillis() > now) {
+                    changed.await(head.getDueAtMillis() - now, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                while ((head = queue.peek()) != null && head.getDueAtMillis() <= now) {
+                    queue.poll();
+                    if (dueTimes.remove(head.getScheduleId(), head)) {
+                        due.add(head.getScheduleId());
+                        lagTimer.record(now - head.getDueAtMillis(), TimeUnit.MILLISECONDS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (!due.isEmpty()) {
+                try {
+                    releaseHandler.accept(due);
+                } catch (RuntimeException e) {
+                    // The reconciliation sweep retries anything left due
+                    log.error("Dispatching schedules {} failed: {}", due, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // Rounds up, so an entry never fires before its stored (microsecond) due time and fails the claim's due check
+    private static long toMillis(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.toEpochMilli() + (instant.getNano() % 1_000_000 == 0 ? 0 : 1);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final Long scheduleId;
+        private final long dueAtMillis;
+        // Registration order, used to tell whether an entry predates a reload
+        private final long sequence;
+    }
+}
@@ -0,0 +1,193 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.DeliverySchedule;
+import com.hqc.hophuddles.repository.DeliveryScheduleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cluster-wide claims on due delivery schedules. A node claims a schedule by writing its ID and a lease expiry
+ * into the row with a conditional update that only succeeds while the row is unclaimed or its lease has lapsed,
+ * so each due execution is run by exactly one node. The lease is released in the same transaction that records
+ * the execution; a lease left behind by a crashed node lapses after {@code app.scheduler.lease.duration-ms}
+ * and the schedule becomes claimable again.
+ * <p>
+ * Each poll claims at most {@code app.scheduler.lease.batch-size} schedules, taken in random order from the
+ * oldest due candidates, so concurrent nodes mostly contend for different rows and the backlog spreads across
+ * the cluster.
+ */
+@Service
+@Slf4j
+public class ScheduleLeaseService {
+
+    private final DeliveryScheduleRepository scheduleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.scheduler.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.scheduler.lease.duration-ms:300000}")
+    private long leaseDurationMs;
+
+    @Value("${app.scheduler.lease.batch-size:20}")
+    private int batchSize;
+
+    private String nodeId;
+
+    private Counter claimedCounter;
+    private Counter contendedCounter;
+    private Counter recoveredCounter;
+
+    public ScheduleLeaseService(DeliveryScheduleRepository scheduleRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.scheduleRepository = scheduleRepository;
+        // Claims must commit on their own even when the caller is inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank() ? configuredNodeId : defaultNodeId();
+        log.info("Schedule leases will be claimed as node {}", nodeId);
+
+        claimedCounter = Counter.builder("scheduler.lease.claims").tag("outcome", "claimed").register(meterRegistry);
+        contendedCounter = Counter.builder("scheduler.lease.claims").tag("outcome", "contended")
+                .description("Claims lost to another node")
+                .register(meterRegistry);
+        recoveredCounter = Counter.builder("scheduler.lease.recovered")
+                .description("Schedules reclaimed after another node's lease lapsed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims up to one batch of due schedules for this node. Each claim commits on its own, so other nodes see
+     * it immediately.
+     *
+     * @return IDs of the schedules this node now holds a lease on
+     */
+    public List<Long> claimDueSchedules(LocalDateTime now) {
+        List<Object[]> candidates = scheduleRepository.findClaimableSchedules(now, PageRequest.of(0, batchSize * 2));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        candidates = new ArrayList<>(candidates);
+        Collections.shuffle(candidates);
+
+        LocalDateTime expiresAt = now.plusNanos(leaseDurationMs * 1_000_000L);
+        List<Long> claimed = new ArrayList<>();
+        for (Object[] candidate : candidates) {
+            if (claimed.size() >= batchSize) {
+                break;
+            }
+            Long scheduleId = (Long) candidate[0];
+            if (tryClaim(scheduleId, now, expiresAt)) {
+                claimed.add(scheduleId);
+                String previousOwner = (String) candidate[1];
+                if (previousOwner != null) {
+                    recoveredCounter.increment();
+                    log.warn("Recovered schedule {} from lapsed lease of node {}", scheduleId, previousOwner);
+                }
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Claims specific schedules that are expected to be due, e.g. when the in-memory dispatcher fires them.
+     * Schedules that are not due, not active or leased by another node are skipped.
+     *
+     * @return IDs of the schedules this node now holds a lease on
+     */
+    public List<Long> claimSchedules(Collection<Long> scheduleIds, LocalDateTime now) {
+        LocalDateTime expiresAt = now.plusNanos(leaseDurationMs * 1_000_000L);
+        List<Long> claimed = new ArrayList<>();
+        for (Long scheduleId : scheduleIds) {
+            if (tryClaim(scheduleId, now, expiresAt)) {
+                claimed.add(scheduleId);
+            }
+        }
+        return claimed;
+    }
+
+    private boolean tryClaim(Long scheduleId, LocalDateTime now, LocalDateTime expiresAt) {
+        Integer updated = transactionTemplate.execute(status ->
+                scheduleRepository.claim(scheduleId, nodeId, now, expiresAt));
+        if (updated != null && updated == 1) {
+            claimedCounter.increment();
+            return true;
+        }
+        contendedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Locks a claimed schedule for execution. Returns null if this node no longer holds its lease, e.g. because
+     * the lease lapsed and another node took it over. Must be called inside a transaction; the row lock is held
+     * until it ends.
+     */
+    public DeliverySchedule lockClaimed(Long scheduleId) {
+        DeliverySchedule schedule = scheduleRepository.findByIdForUpdate(scheduleId).orElse(null);
+        if (schedule == null || !schedule.isLeasedBy(nodeId)) {
+            log.warn("Lost lease on schedule {} before execution; skipping", scheduleId);
+            return null;
+        }
+        return schedule;
+    }
+
+    /**
+     * Gives up this node's lease without executing, so the schedule is claimable again right away.
+     */
+    public void release(Long scheduleId) {
+        transactionTemplate.executeWithoutResult(status -> scheduleRepository.releaseLease(scheduleId, nodeId));
+    }
+
+    /**
+     * Claims the reminder for a schedule's next execution. Returns false if any node already sent it. Runs in
+     * the caller's transaction, so the claim only sticks if the reminders are queued too.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean claimReminder(DeliverySchedule schedule) {
+        return scheduleRepository.claimReminder(schedule.getScheduleId(), schedule.getNextExecutionTime()) == 1;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        if (host.length() > 80) {
+            host = host.substring(0, 80);
+        }
+        // Suffix keeps two instances on one host apart
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
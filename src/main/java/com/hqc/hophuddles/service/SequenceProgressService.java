@@ -5,14 +5,18 @@ import com.hqc.hophuddles.entity.*;
 import com.hqc.hophuddles.enums.ProgressStatus;
 import com.hqc.hophuddles.exception.ResourceNotFoundException;
 import com.hqc.hophuddles.repository.*;
+import com.hqc.hophuddles.repository.projection.ProgressTotals;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Service
 @Transactional
@@ -25,37 +29,103 @@ public class SequenceProgressService {
     private final UserRepository userRepository;
     private final HuddleSequenceRepository sequenceRepository;
 
+    /**
+     * Applies the effect of one huddle transition to the user's sequence totals. Only the deltas between the
+     * snapshot and the updated row are added, so the cost no longer depends on the number of huddles.
+     */
+    public void applyHuddleChange(UserProgressSnapshot before, UserProgress after) {
+        Long userId = after.getUser().getUserId();
+        Long sequenceId = after.getSequence().getSequenceId();
+
+        Optional<SequenceProgress> existing = sequenceProgressRepository
+                .findByUserUserIdAndSequenceSequenceIdAndIsActiveTrue(userId, sequenceId);
+        if (existing.isEmpty()) {
+            // First touch of this sequence: seed the counters from the rows that already exist
+            updateSequenceProgress(userId, sequenceId);
+            return;
+        }
+
+        SequenceProgress sequenceProgress = existing.get();
+        BigDecimal scoreBefore = before.getAssessmentScore();
+        BigDecimal scoreAfter = after.getAssessmentScore();
+
+        int completedDelta = (after.isCompleted() ? 1 : 0) - (before.isCompleted() ? 1 : 0);
+        BigDecimal timeDelta = after.getTimeSpentMinutes().subtract(before.getTimeSpentMinutes());
+        BigDecimal scoreSumDelta = orZero(scoreAfter).subtract(orZero(scoreBefore));
+        int scoreCountDelta = (scoreAfter != null ? 1 : 0) - (scoreBefore != null ? 1 : 0);
+
+        sequenceProgress.applyDelta(completedDelta, timeDelta, scoreSumDelta, scoreCountDelta);
+        sequenceProgressRepository.save(sequenceProgress);
+
+        log.debug("Applied delta to sequence progress for user {} on sequence {}: completed {}, time {}",
+                userId, sequenceId, completedDelta, timeDelta);
+    }
+
+    /**
+     * Full recompute for one user and sequence from a single aggregate query.
+     */
     public void updateSequenceProgress(Long userId, Long sequenceId) {
         User user = findUserById(userId);
         HuddleSequence sequence = findSequenceById(sequenceId);
 
         SequenceProgress sequenceProgress = findOrCreateSequenceProgress(user, sequence);
 
-        // Calculate progress from individual huddle progress
-        List<UserProgress> huddleProgressList = userProgressRepository
-                .findByUserUserIdAndSequenceSequenceIdAndIsActiveTrueOrderByHuddleOrderIndexAsc(userId, sequenceId);
-
-        // Calculate metrics
-        long completedCount = huddleProgressList.stream()
-                .mapToLong(up -> up.isCompleted() ? 1 : 0)
-                .sum();
-
-        BigDecimal totalTimeSpent = huddleProgressList.stream()
-                .map(UserProgress::getTimeSpentMinutes)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<ProgressTotals> totals = userProgressRepository.sumTotalsByUsersAndSequences(
+                List.of(userId), List.of(sequenceId));
+        applyTotals(sequenceProgress, totals.isEmpty() ? null : totals.get(0), sequence.getTotalHuddles());
+        sequenceProgress.setLastAccessed(LocalDateTime.now());
+        sequenceProgressRepository.save(sequenceProgress);
 
-        BigDecimal averageScore = huddleProgressList.stream()
-                .filter(up -> up.getAssessmentScore() != null)
-                .map(UserProgress::getAssessmentScore)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(Math.max(1, huddleProgressList.size())), 2, RoundingMode.HALF_UP);
+        log.debug("Recalculated sequence progress for user {} on sequence {}: {}/{} completed",
+                userId, sequenceId, sequenceProgress.getCompletedHuddles(), sequence.getTotalHuddles());
+    }
 
-        // Update sequence progress
-        sequenceProgress.updateProgress((int) completedCount, totalTimeSpent, averageScore);
-        sequenceProgressRepository.save(sequenceProgress);
+    /**
+     * Recomputes one keyset page of sequence progress rows and corrects any that drifted.
+     *
+     * @return the page summary; lastId is null when there are no more rows
+     */
+    public ReconciliationPage reconcilePage(Long afterId, int pageSize) {
+        List<SequenceProgress> page = sequenceProgressRepository.findPageAfter(afterId, PageRequest.of(0, pageSize));
+        if (page.isEmpty()) {
+            return new ReconciliationPage(null, 0, 0);
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> sequenceIds = new HashSet<>();
+        for (SequenceProgress progress : page) {
+            userIds.add(progress.getUser().getUserId());
+            sequenceIds.add(progress.getSequence().getSequenceId());
+        }
+
+        Map<String, ProgressTotals> totalsByKey = new HashMap<>();
+        for (ProgressTotals totals : userProgressRepository.sumTotalsByUsersAndSequences(userIds, sequenceIds)) {
+            totalsByKey.put(totals.getUserId() + ":" + totals.getSequenceId(), totals);
+        }
+
+        int corrected = 0;
+        for (SequenceProgress progress : page) {
+            ProgressTotals totals = totalsByKey.get(
+                    progress.getUser().getUserId() + ":" + progress.getSequence().getSequenceId());
+            if (applyTotals(progress, totals, progress.getSequence().getTotalHuddles())) {
+                corrected++;
+                log.info("Corrected drift in sequence progress {} (user {}, sequence {})",
+                        progress.getSequenceProgressId(), progress.getUser().getUserId(),
+                        progress.getSequence().getSequenceId());
+            }
+        }
+
+        Long lastId = page.get(page.size() - 1).getSequenceProgressId();
+        return new ReconciliationPage(lastId, page.size(), corrected);
+    }
 
-        log.debug("Updated sequence progress for user {} on sequence {}: {}/{} completed",
-                userId, sequenceId, completedCount, sequence.getTotalHuddles());
+    /**
+     * The last ID of the page {@link #reconcilePage} would process, or null when there are no more rows.
+     */
+    @Transactional(readOnly = true)
+    public Long findPageEnd(Long afterId, int pageSize) {
+        List<Long> ids = sequenceProgressRepository.findPageIdsAfter(afterId, PageRequest.of(0, pageSize));
+        return ids.isEmpty() ? null : ids.get(ids.size() - 1);
     }
 
     @Transactional(readOnly = true)
@@ -99,6 +169,22 @@ public class SequenceProgressService {
                 });
     }
 
+    private boolean applyTotals(SequenceProgress progress, ProgressTotals totals, Integer totalHuddles) {
+        if (totals == null) {
+            return progress.reconcile(0, BigDecimal.ZERO, BigDecimal.ZERO, 0, totalHuddles);
+        }
+        return progress.reconcile(
+                totals.getCompletedCount().intValue(),
+                totals.getTimeSpent(),
+                totals.getScoreSum(),
+                totals.getScoreCount().intValue(),
+                totalHuddles);
+    }
+
+    private BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
     private User findUserById(Long userId) {
         return userRepository.findById(userId)
                 .filter(User::getIsActive)
@@ -131,4 +217,12 @@ public class SequenceProgressService {
                 .lastAccessed(progress.getLastAccessed())
                 .build();
     }
-}
\ No newline at end of file
+
+    @Getter
+    @AllArgsConstructor
+    public static class ReconciliationPage {
+        private final Long lastId;
+        private final int scanned;
+        private final int corrected;
+    }
+}
@@ -4,7 +4,7 @@ import com.hqc.hophuddles.dto.response.SequenceTargetResponse;
 import com.hqc.hophuddles.entity.HuddleSequence;
 import com.hqc.hophuddles.entity.SequenceTarget;
 import com.hqc.hophuddles.entity.User;
-import com.hqc.hophuddles.entity.UserAssignment;
+import com.hqc.hophuddles.enums.TargetOperation;
 import com.hqc.hophuddles.enums.TargetType;
 import com.hqc.hophuddles.enums.UserRole;
 import com.hqc.hophuddles.enums.Discipline;
@@ -12,21 +12,25 @@ import com.hqc.hophuddles.exception.ResourceNotFoundException;
 import com.hqc.hophuddles.exception.ValidationException;
 import com.hqc.hophuddles.repository.SequenceTargetRepository;
 import com.hqc.hophuddles.repository.HuddleSequenceRepository;
-import com.hqc.hophuddles.repository.UserAssignmentRepository;
 import com.hqc.hophuddles.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 @Service
 @Transactional
 public class SequenceTargetService {
 
+    // Stays well below the SQL Server limit of 2100 parameters per statement
+    private static final int USER_LOAD_BATCH_SIZE = 1000;
+    // Sequence IDs per IN query
+    private static final int SEQUENCE_BATCH_SIZE = 500;
+
     @Autowired
     private SequenceTargetRepository targetRepository;
 
@@ -34,12 +38,17 @@ public class SequenceTargetService {
     private HuddleSequenceRepository sequenceRepository;
 
     @Autowired
-    private UserAssignmentRepository userAssignmentRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private AudienceIndexService audienceIndexService;
 
     public SequenceTargetResponse addTarget(Long sequenceId, TargetType targetType, String targetValue) {
+        return addTarget(sequenceId, targetType, targetValue, TargetOperation.INCLUDE);
+    }
+
+    public SequenceTargetResponse addTarget(Long sequenceId, TargetType targetType, String targetValue,
+                                            TargetOperation targetOperation) {
         // Validate sequence exists
         HuddleSequence sequence = sequenceRepository.findById(sequenceId)
                 .filter(s -> s.getIsActive())
@@ -59,66 +68,30 @@ public class SequenceTargetService {
         target.setSequence(sequence);
         target.setTargetType(targetType);
         target.setTargetValue(targetValue);
+        target.setTargetOperation(targetOperation != null ? targetOperation : TargetOperation.INCLUDE);
 
         target = targetRepository.save(target);
+        audienceIndexService.invalidateSequence(sequenceId);
 
         return convertToResponse(target);
     }
 
+    /**
+     * Resolves the users targeted by a sequence from the audience index, loading them in ID batches.
+     */
+    @Transactional(readOnly = true)
     public List<User> getTargetUsers(Long sequenceId) {
-        List<SequenceTargetResponse> targets = getTargetsBySequence(sequenceId);
-        Set<User> targetUsers = new HashSet<>();
-
-        for (SequenceTargetResponse target : targets) {
-            switch (target.getTargetType()) {
-                case DISCIPLINE:
-                    Discipline discipline = Discipline.valueOf(target.getTargetValue());
-                    List<UserAssignment> disciplineAssignments = userAssignmentRepository
-                            .findByDisciplineAndIsActiveTrueOrderByUserNameAsc(discipline);
-                    disciplineAssignments.forEach(assignment ->
-                            targetUsers.add(assignment.getUser()));
-                    break;
-
-                case ROLE:
-                    UserRole role = UserRole.valueOf(target.getTargetValue());
-                    List<UserAssignment> roleAssignments = userAssignmentRepository
-                            .findByRoleAndIsActiveTrueOrderByUserNameAsc(role);
-                    roleAssignments.forEach(assignment ->
-                            targetUsers.add(assignment.getUser()));
-                    break;
-
-                case AGENCY:
-                    Long agencyId = Long.parseLong(target.getTargetValue());
-                    List<User> agencyUsers = userRepository.findActiveUsersByAgency(agencyId);
-                    targetUsers.addAll(agencyUsers);
-                    break;
-
-                case BRANCH:
-                    Long branchId = Long.parseLong(target.getTargetValue());
-                    List<UserAssignment> branchAssignments = userAssignmentRepository
-                            .findByBranchBranchIdAndIsActiveTrueOrderByUserNameAsc(branchId);
-                    branchAssignments.forEach(assignment ->
-                            targetUsers.add(assignment.getUser()));
-                    break;
-
-                case TEAM:
-                    Long teamId = Long.parseLong(target.getTargetValue());
-                    List<UserAssignment> teamAssignments = userAssignmentRepository
-                            .findByTeamTeamIdAndIsActiveTrueOrderByUserNameAsc(teamId);
-                    teamAssignments.forEach(assignment ->
-                            targetUsers.add(assignment.getUser()));
-                    break;
-
-                case USER:
-                    Long userId = Long.parseLong(target.getTargetValue());
-                    userRepository.findById(userId)
-                            .filter(User::getIsActive)
-                            .ifPresent(targetUsers::add);
-                    break;
-            }
+        List<Long> userIds = audienceIndexService.getAudienceUserIds(sequenceId);
+        List<User> targetUsers = new ArrayList<>(userIds.size());
+        for (int from = 0; from < userIds.size(); from += USER_LOAD_BATCH_SIZE) {
+            targetUsers.addAll(userRepository.findAllById(
+                    userIds.subList(from, Math.min(from + USER_LOAD_BATCH_SIZE, userIds.size()))));
         }
+        return targetUsers;
+    }
 
-        return new ArrayList<>(targetUsers);
+    public List<Long> getTargetUserIds(Long sequenceId) {
+        return audienceIndexService.getAudienceUserIds(sequenceId);
     }
 
     @Transactional(readOnly = true)
@@ -129,6 +102,22 @@ public class SequenceTargetService {
                 .toList();
     }
 
+    /**
+     * Active targets of several sequences, keyed by sequence ID.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<SequenceTargetResponse>> getTargetsBySequences(List<Long> sequenceIds) {
+        Map<Long, List<SequenceTargetResponse>> bySequence = new HashMap<>();
+        for (int from = 0; from < sequenceIds.size(); from += SEQUENCE_BATCH_SIZE) {
+            List<Long> batch = sequenceIds.subList(from, Math.min(from + SEQUENCE_BATCH_SIZE, sequenceIds.size()));
+            for (SequenceTarget target : targetRepository.findBySequenceSequenceIdInAndIsActiveTrueOrderByTargetTypeAsc(batch)) {
+                bySequence.computeIfAbsent(target.getSequence().getSequenceId(), id -> new ArrayList<>())
+                        .add(convertToResponse(target));
+            }
+        }
+        return bySequence;
+    }
+
     @Transactional(readOnly = true)
     public List<SequenceTargetResponse> getTargetsBySequenceAndType(Long sequenceId, TargetType targetType) {
         return targetRepository.findBySequenceSequenceIdAndTargetTypeAndIsActiveTrueOrderByTargetValueAsc(sequenceId, targetType)
@@ -150,6 +139,7 @@ public class SequenceTargetService {
         // Soft delete
         target.setIsActive(false);
         targetRepository.save(target);
+        audienceIndexService.invalidateSequence(target.getSequence().getSequenceId());
     }
 
     public void removeTargetByValues(Long sequenceId, TargetType targetType, String targetValue) {
@@ -162,6 +152,7 @@ public class SequenceTargetService {
                     t.setIsActive(false);
                     targetRepository.save(t);
                 });
+        audienceIndexService.invalidateSequence(sequenceId);
     }
 
     private void validateTargetValue(TargetType targetType, String targetValue) {
@@ -200,6 +191,7 @@ public class SequenceTargetService {
         response.setTargetId(target.getTargetId());
         response.setTargetType(target.getTargetType());
         response.setTargetValue(target.getTargetValue());
+        response.setTargetOperation(target.getTargetOperation());
         response.setTargetDisplayName(getTargetDisplayName(target.getTargetType(), target.getTargetValue()));
 
         return response;
@@ -7,12 +7,14 @@ import com.hqc.hophuddles.entity.Agency;
 import com.hqc.hophuddles.entity.UserAssignment;
 import com.hqc.hophuddles.enums.UserRole;
 import com.hqc.hophuddles.enums.Discipline;
+import com.hqc.hophuddles.event.UserAssignmentChangedEvent;
 import com.hqc.hophuddles.exception.ResourceNotFoundException;
 import com.hqc.hophuddles.exception.ValidationException;
 import com.hqc.hophuddles.repository.UserAssignmentRepository;
 import com.hqc.hophuddles.repository.UserRepository;
 import com.hqc.hophuddles.repository.AgencyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,6 +33,12 @@ public class UserAssignmentService {
     @Autowired
     private AgencyRepository agencyRepository;
 
+    @Autowired
+    private AudienceIndexService audienceIndexService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public UserAssignmentResponse createAssignment(UserAssignmentCreateRequest request) {
         // Validate user exists
         User user = userRepository.findById(request.getUserId())
@@ -61,6 +69,8 @@ public class UserAssignmentService {
         // TODO: Set branch and team when those services are implemented
 
         assignment = userAssignmentRepository.save(assignment);
+        audienceIndexService.invalidateAgency(agency.getAgencyId());
+        eventPublisher.publishEvent(new UserAssignmentChangedEvent(user.getUserId(), agency.getAgencyId()));
 
         return convertToResponse(assignment);
     }
@@ -141,6 +151,9 @@ public class UserAssignmentService {
         assignment.setIsPrimary(request.getIsPrimary());
 
         assignment = userAssignmentRepository.save(assignment);
+        audienceIndexService.invalidateAgency(assignment.getAgency().getAgencyId());
+        eventPublisher.publishEvent(new UserAssignmentChangedEvent(
+                assignment.getUser().getUserId(), assignment.getAgency().getAgencyId()));
 
         return convertToResponse(assignment);
     }
@@ -153,6 +166,9 @@ public class UserAssignmentService {
         // Soft delete
         assignment.setIsActive(false);
         userAssignmentRepository.save(assignment);
+        audienceIndexService.invalidateAgency(assignment.getAgency().getAgencyId());
+        eventPublisher.publishEvent(new UserAssignmentChangedEvent(
+                assignment.getUser().getUserId(), assignment.getAgency().getAgencyId()));
     }
 
     // Helper method to convert entity to response DTO
@@ -31,12 +31,13 @@ public class UserProgressService {
         Huddle huddle = findHuddleById(huddleId);
 
         UserProgress progress = findOrCreateProgress(user, huddle);
+        UserProgressSnapshot before = UserProgressSnapshot.of(progress);
         progress.startProgress();
 
         progress = progressRepository.save(progress);
 
         // Update sequence progress
-        sequenceProgressService.updateSequenceProgress(userId, huddle.getSequence().getSequenceId());
+        sequenceProgressService.applyHuddleChange(before, progress);
 
         log.info("User {} started huddle {}", userId, huddleId);
         return convertToResponse(progress);
@@ -44,12 +45,13 @@ public class UserProgressService {
 
     public UserProgressResponse updateProgress(Long userId, Long huddleId, BigDecimal completionPercentage) {
         UserProgress progress = findProgressByUserAndHuddle(userId, huddleId);
+        UserProgressSnapshot before = UserProgressSnapshot.of(progress);
 
         progress.updateProgress(completionPercentage);
         progress = progressRepository.save(progress);
 
         // Update sequence progress
-        sequenceProgressService.updateSequenceProgress(userId, progress.getSequence().getSequenceId());
+        sequenceProgressService.applyHuddleChange(before, progress);
 
         log.info("Updated progress for user {} on huddle {} to {}%", userId, huddleId, completionPercentage);
         return convertToResponse(progress);
@@ -57,12 +59,13 @@ public class UserProgressService {
 
     public UserProgressResponse completeHuddle(Long userId, Long huddleId) {
         UserProgress progress = findProgressByUserAndHuddle(userId, huddleId);
+        UserProgressSnapshot before = UserProgressSnapshot.of(progress);
 
         progress.completeProgress();
         progress = progressRepository.save(progress);
 
         // Update sequence progress
-        sequenceProgressService.updateSequenceProgress(userId, progress.getSequence().getSequenceId());
+        sequenceProgressService.applyHuddleChange(before, progress);
 
         log.info("User {} completed huddle {}", userId, huddleId);
         return convertToResponse(progress);
@@ -70,22 +73,54 @@ public class UserProgressService {
 
     public UserProgressResponse addTimeSpent(Long userId, Long huddleId, BigDecimal additionalMinutes) {
         UserProgress progress = findProgressByUserAndHuddle(userId, huddleId);
+        UserProgressSnapshot before = UserProgressSnapshot.of(progress);
 
         progress.addTimeSpent(additionalMinutes);
         progress = progressRepository.save(progress);
 
+        // Time is a cheap delta now, so sequence totals stay current instead of lagging until the next transition
+        sequenceProgressService.applyHuddleChange(before, progress);
+
         log.debug("Added {} minutes to user {} for huddle {}", additionalMinutes, userId, huddleId);
         return convertToResponse(progress);
     }
 
+    /**
+     * Applies accumulated heartbeat state in one read-modify-write. Percentage only moves forward so a
+     * re-applied or reordered flush cannot roll progress back; minutes are added as given.
+     */
+    public UserProgressResponse applyHeartbeat(Long userId, Long huddleId,
+                                               BigDecimal completionPercentage, BigDecimal additionalMinutes) {
+        UserProgress progress = progressRepository.findByUserUserIdAndHuddleHuddleIdAndIsActiveTrue(userId, huddleId)
+                .orElseGet(() -> findOrCreateProgress(findUserById(userId), findHuddleById(huddleId)));
+        UserProgressSnapshot before = UserProgressSnapshot.of(progress);
+
+        progress.startProgress();
+        if (additionalMinutes != null && additionalMinutes.signum() > 0) {
+            progress.addTimeSpent(additionalMinutes);
+        }
+        if (completionPercentage != null && !progress.isCompleted()
+                && completionPercentage.compareTo(progress.getCompletionPercentage()) > 0) {
+            progress.updateProgress(completionPercentage);
+        }
+        progress = progressRepository.save(progress);
+
+        sequenceProgressService.applyHuddleChange(before, progress);
+
+        log.debug("Applied heartbeat for user {} on huddle {}: {}%, +{} minutes",
+                userId, huddleId, completionPercentage, additionalMinutes);
+        return convertToResponse(progress);
+    }
+
     public UserProgressResponse recordAssessmentAttempt(Long userId, Long huddleId, BigDecimal score) {
         UserProgress progress = findProgressByUserAndHuddle(userId, huddleId);
+        UserProgressSnapshot before = UserProgressSnapshot.of(progress);
 
         progress.recordAssessmentAttempt(score);
         progress = progressRepository.save(progress);
 
         // Update sequence progress
-        sequenceProgressService.updateSequenceProgress(userId, progress.getSequence().getSequenceId());
+        sequenceProgressService.applyHuddleChange(before, progress);
 
         log.info("User {} completed assessment for huddle {} with score {}", userId, huddleId, score);
         return convertToResponse(progress);
@@ -0,0 +1,27 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.entity.UserProgress;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * The parts of a {@link UserProgress} row that feed sequence totals, captured before a mutation so the
+ * resulting change can be applied to {@link com.hqc.hophuddles.entity.SequenceProgress} as a delta.
+ */
+@Getter
+@AllArgsConstructor
+public class UserProgressSnapshot {
+
+    private final boolean completed;
+    private final BigDecimal timeSpentMinutes;
+    private final BigDecimal assessmentScore;
+
+    public static UserProgressSnapshot of(UserProgress progress) {
+        return new UserProgressSnapshot(
+                progress.isCompleted(),
+                progress.getTimeSpentMinutes() != null ? progress.getTimeSpentMinutes() : BigDecimal.ZERO,
+                progress.getAssessmentScore());
+    }
+}
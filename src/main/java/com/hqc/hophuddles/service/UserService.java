@@ -3,11 +3,13 @@ package com.hqc.hophuddles.service;
 import com.hqc.hophuddles.dto.request.UserCreateRequest;
 import com.hqc.hophuddles.dto.response.UserResponse;
 import com.hqc.hophuddles.entity.User;
+import com.hqc.hophuddles.event.UserChangedEvent;
 import com.hqc.hophuddles.exception.ResourceNotFoundException;
 import com.hqc.hophuddles.exception.ValidationException;
 import com.hqc.hophuddles.repository.UserRepository;
 import com.hqc.hophuddles.repository.UserAssignmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -29,6 +31,12 @@ public class UserService {
     @Autowired
     private UserAssignmentService userAssignmentService;
 
+    @Autowired
+    private AudienceIndexService audienceIndexService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public UserResponse createUser(UserCreateRequest request) {
         // Validate unique email and auth0Id
         if (userRepository.existsByEmailAndIsActiveTrue(request.getEmail())) {
@@ -118,6 +126,7 @@ public class UserService {
         user.setProfilePictureUrl(request.getProfilePictureUrl());
 
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
 
         return convertToResponse(user);
     }
@@ -134,6 +143,8 @@ public class UserService {
         // Soft delete
         user.setIsActive(false);
         userRepository.save(user);
+        audienceIndexService.invalidateUser(userId);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
     // Helper method to convert entity to response DTO
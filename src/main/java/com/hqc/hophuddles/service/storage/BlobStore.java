@@ -0,0 +1,76 @@
+package com.hqc.hophuddles.service.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Where blob bytes live. Keys are the lowercase hex SHA-256 of the content, so a blob never changes once written
+ * and writing the same key twice stores the same bytes. Reference counting and collection stay in the database;
+ * a store only moves bytes.
+ * <p>
+ * Selected with {@code app.file.storage.type}; see {@link com.hqc.hophuddles.config.BlobStoreConfig}.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the file at {@code source} under {@code key}. The store may take the file over by moving it; callers
+     * delete whatever is left at {@code source} afterwards.
+     */
+    void put(String key, Path source) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * When the blob's bytes were last written, or null when it is not stored. Writing a key again refreshes it.
+     */
+    Instant lastModified(String key) throws IOException;
+
+    /**
+     * Reads {@code length} bytes starting at {@code offset}.
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /**
+     * Returns false when the store knows there was nothing to delete.
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Passes every stored blob to {@code page}, at most {@code pageSize} at a time, for the orphan sweep.
+     */
+    void list(int pageSize, Consumer<List<StoredBlob>> page) throws IOException;
+
+    /**
+     * A local file holding the blob, which can be sent with sendfile, or null when the bytes are not on this node.
+     */
+    default Path localFile(String key) {
+        return null;
+    }
+
+    /**
+     * A URL clients can download the blob from without going through this application, valid for at least half of
+     * {@code ttl}, or null when the store cannot hand one out. {@code responseHeaders} (content-type,
+     * content-disposition, cache-control) are sent by the store in place of its own.
+     */
+    default URI presign(String key, Duration ttl, Map<String, String> responseHeaders) {
+        return null;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    class StoredBlob {
+        private final String key;
+        private final long size;
+        private final Instant lastModified;
+    }
+}
@@ -0,0 +1,121 @@
+package com.hqc.hophuddles.service.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Blobs as files below {@code app.file.upload-dir}, fanned out as {@code blobs/ab/cd/<hash>}. Sources on the same
+ * file system are moved into place atomically.
+ */
+@Slf4j
+public class LocalBlobStore implements BlobStore {
+
+    public static final String DIRECTORY = "blobs";
+
+    private final Path root;
+
+    public LocalBlobStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path blob = path(key);
+        Files.createDirectories(blob.getParent());
+        Files.move(source, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(path(key));
+    }
+
+    @Override
+    public Instant lastModified(String key) throws IOException {
+        try {
+            return Files.getLastModifiedTime(path(key)).toInstant();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(path(key), StandardOpenOption.READ);
+        channel.position(offset);
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(path(key));
+    }
+
+    @Override
+    public void list(int pageSize, Consumer<List<StoredBlob>> page) throws IOException {
+        List<StoredBlob> batch = new ArrayList<>(pageSize);
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                StoredBlob blob = describe(file);
+                if (blob != null) {
+                    batch.add(blob);
+                }
+                if (batch.size() == pageSize) {
+                    page.accept(List.copyOf(batch));
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            page.accept(batch);
+        }
+    }
+
+    @Override
+    public Path localFile(String key) {
+        Path blob = path(key);
+        return Files.exists(blob) ? blob : null;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // blobs/ab/cd/abcd...
+    private Path path(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static StoredBlob describe(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new StoredBlob(file.getFileName().toString(), attributes.size(),
+                    attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null; // deleted while listing
+        } catch (IOException e) {
+            log.warn("Could not read {}", file, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.hqc.hophuddles.service.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Blobs as objects in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW and the like), under
+ * {@code <prefix>ab/cd/<hash>}. Requests are signed with SigV4 and sent with the JDK HTTP client.
+ * <p>
+ * Small blobs are uploaded with one PUT whose payload hash is the blob key itself, so the service verifies the
+ * content on the way in. Blobs above {@code multipart-threshold} are uploaded as a multipart upload, up to
+ * {@code upload-concurrency} parts at a time, each read straight from the file; a failed upload is aborted so no
+ * parts are left behind.
+ */
+@Slf4j
+public class S3BlobStore implements BlobStore {
+
+    // S3 allows at most 10000 parts, each at least 5 MiB except the last
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+    private static final int PART_ATTEMPTS = 3;
+    private static final long MAX_PRESIGN_SECONDS = 7 * 24 * 3600;
+
+    private final HttpClient client;
+    private final SigV4Signer signer;
+    private final URI endpoint;
+    private final String host;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final String prefix;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final int uploadConcurrency;
+    private final Duration requestTimeout;
+
+    public S3BlobStore(URI endpoint, String region, String bucket, String accessKey, String secretKey,
+                       boolean pathStyle, String prefix, long multipartThreshold, long partSize,
+                       int uploadConcurrency, Duration requestTimeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.signer = new SigV4Signer(accessKey, secretKey, region);
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        // Scheme and authority only; paths are always built from the bucket and key
+        this.endpoint = URI.create(endpoint.getScheme() + "://" + (pathStyle ? "" : bucket + ".")
+                + endpoint.getRawAuthority());
+        this.host = hostHeader(this.endpoint);
+        this.prefix = prefix == null ? "" : prefix;
+        this.multipartThreshold = Math.max(multipartThreshold, MIN_PART_SIZE);
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.uploadConcurrency = Math.max(uploadConcurrency, 1);
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size <= multipartThreshold) {
+            HttpResponse<String> response = send("PUT", objectPath(key), Collections.emptySortedMap(),
+                    key, BodyPublishers.ofFile(source), BodyHandlers.ofString());
+            expectSuccess(response, "PUT " + key);
+        } else {
+            putMultipart(key, source, size);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", objectPath(key), Collections.emptySortedMap(),
+                SigV4Signer.EMPTY_PAYLOAD, BodyPublishers.noBody(), BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("HEAD " + key + " failed with status " + response.statusCode());
+        }
+        return true;
+    }
+
+    @Override
+    public Instant lastModified(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", objectPath(key), Collections.emptySortedMap(),
+                SigV4Signer.EMPTY_PAYLOAD, BodyPublishers.noBody(), BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("HEAD " + key + " failed with status " + response.statusCode());
+        }
+        String lastModified = response.headers().firstValue("Last-Modified")
+                .orElseThrow(() -> new IOException("HEAD " + key + " returned no Last-Modified"));
+        return Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(lastModified));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        HttpRequest request = request("GET", objectPath(key), Collections.emptySortedMap(),
+                SigV4Signer.EMPTY_PAYLOAD, BodyPublishers.noBody())
+                .header("Range", "bytes=" + offset + "-" + (offset + length - 1))
+                .build();
+        HttpResponse<InputStream> response = send(request, BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200 && response.statusCode() != 206) {
+            String body;
+            try (InputStream in = response.body()) {
+                body = new String(in.readNBytes(1024), StandardCharsets.UTF_8);
+            }
+            throw new IOException("GET " + key + " failed with status " + response.statusCode() + ": " + body);
+        }
+        // A 200 means the range was ignored; the stream is cut to the bytes asked for either way
+        InputStream body = response.body();
+        if (response.statusCode() == 200 && offset > 0) {
+            body.skipNBytes(offset);
+        }
+        return new BoundedInputStream(body, length);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", objectPath(key), Collections.emptySortedMap(),
+                SigV4Signer.EMPTY_PAYLOAD, BodyPublishers.noBody(), BodyHandlers.ofString());
+        expectSuccess(response, "DELETE " + key);
+        return true; // S3 answers 204 whether or not the object existed
+    }
+
+    @Override
+    public void list(int pageSize, Consumer<List<StoredBlob>> page) throws IOException {
+        String continuation = null;
+        do {
+            SortedMap<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("max-keys", Integer.toString(Math.min(pageSize, 1000)));
+            query.put("prefix", prefix);
+            if (continuation != null) {
+                query.put("continuation-token", continuation);
+            }
+            HttpResponse<byte[]> response = send("GET", bucketPath(), query, SigV4Signer.EMPTY_PAYLOAD,
+                    BodyPublishers.noBody(), BodyHandlers.ofByteArray());
+            expectSuccess(response, "LIST " + prefix);
+
+            Document listing = parse(response.body());
+            List<StoredBlob> blobs = new ArrayList<>();
+            NodeList contents = listing.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                String objectKey = text(object, "Key");
+                blobs.add(new StoredBlob(objectKey.substring(objectKey.lastIndexOf('/') + 1),
+                        Long.parseLong(text(object, "Size")), Instant.parse(text(object, "LastModified"))));
+            }
+            if (!blobs.isEmpty()) {
+                page.accept(blobs);
+            }
+            continuation = "true".equals(text(listing.getDocumentElement(), "IsTruncated"))
+                    ? text(listing.getDocumentElement(), "NextContinuationToken") : null;
+        } while (continuation != null);
+    }
+
+    /**
+     * Signed for a window starting at the last multiple of half the TTL, so that every download in that window
+     * gets the same URL and browsers and CDNs can cache it.
+     */
+    @Override
+    public URI presign(String key, Duration ttl, Map<String, String> responseHeaders) {
+        long ttlSeconds = Math.min(Math.max(ttl.getSeconds(), 2), MAX_PRESIGN_SECONDS);
+        long window = ttlSeconds / 2;
+        Instant signedAt = Instant.ofEpochSecond(Instant.now().getEpochSecond() / window * window);
+
+        SortedMap<String, String> query = new TreeMap<>();
+        responseHeaders.forEach((name, value) -> query.put("response-" + name.toLowerCase(), value));
+        String path = objectPath(key);
+        return URI.create(endpoint + SigV4Signer.canonicalUri(path) + "?"
+                + signer.presign("GET", host, path, query, signedAt, ttlSeconds));
+    }
+
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        String path = objectPath(key);
+        long effectivePartSize = partSizeFor(size, partSize);
+        int parts = (int) ((size + effectivePartSize - 1) / effectivePartSize);
+
+        HttpResponse<byte[]> created = send("POST", path, query("uploads", ""), SigV4Signer.EMPTY_PAYLOAD,
+                BodyPublishers.noBody(), BodyHandlers.ofByteArray());
+        expectSuccess(created, "CreateMultipartUpload " + key);
+        String uploadId = text(parse(created.body()).getDocumentElement(), "UploadId");
+
+        try {
+            String[] etags = new String[parts];
+            Semaphore inFlight = new Semaphore(uploadConcurrency);
+            List<CompletableFuture<Void>> uploads = new ArrayList<>(parts);
+            for (int i = 0; i < parts; i++) {
+                int partNumber = i + 1;
+                long offset = i * effectivePartSize;
+                long length = Math.min(effectivePartSize, size - offset);
+                inFlight.acquire();
+                uploads.add(uploadPart(path, uploadId, partNumber, source, offset, length, 1)
+                        .thenAccept(etag -> etags[partNumber - 1] = etag)
+                        .whenComplete((ignored, failure) -> inFlight.release()));
+            }
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+
+            StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < parts; i++) {
+                body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags[i].replace("&", "&amp;").replace("\"", "&quot;"))
+                        .append("</ETag></Part>");
+            }
+            byte[] xml = body.append("</CompleteMultipartUpload>").toString().getBytes(StandardCharsets.UTF_8);
+            HttpResponse<byte[]> completed = send("POST", path, query("uploadId", uploadId),
+                    SigV4Signer.sha256Hex(xml), BodyPublishers.ofByteArray(xml), BodyHandlers.ofByteArray());
+            expectSuccess(completed, "CompleteMultipartUpload " + key);
+            // The service can report a failure in the body of a 200
+            if ("Error".equals(parse(completed.body()).getDocumentElement().getTagName())) {
+                throw new IOException("CompleteMultipartUpload " + key + " failed: "
+                        + new String(completed.body(), StandardCharsets.UTF_8));
+            }
+            log.debug("Uploaded {} ({} bytes) in {} parts", key, size, parts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(path, uploadId);
+            throw new InterruptedIOException("Interrupted uploading " + key);
+        } catch (IOException | RuntimeException e) {
+            abort(path, uploadId);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException("Upload of " + key + " failed", cause);
+        }
+    }
+
+    // Resolves to the part's ETag; retried a few times, since one failed part would otherwise fail the whole blob
+    private CompletableFuture<String> uploadPart(String path, String uploadId, int partNumber, Path source,
+                                                 long offset, long length, int attempt) {
+        SortedMap<String, String> query = new TreeMap<>();
+        query.put("partNumber", Integer.toString(partNumber));
+        query.put("uploadId", uploadId);
+        BodyPublisher body = BodyPublishers.fromPublisher(
+                BodyPublishers.ofInputStream(() -> openRegion(source, offset, length)), length);
+        HttpRequest request = request("PUT", path, query, SigV4Signer.UNSIGNED_PAYLOAD, body).build();
+
+        return client.sendAsync(request, BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new CompletionException(new IOException("UploadPart " + partNumber
+                                + " failed with status " + response.statusCode() + ": " + response.body()));
+                    }
+                    return response.headers().firstValue("ETag").orElseThrow(() -> new CompletionException(
+                            new IOException("UploadPart " + partNumber + " returned no ETag")));
+                })
+                .handle((etag, failure) -> {
+                    if (failure == null) {
+                        return CompletableFuture.completedFuture(etag);
+                    }
+                    if (attempt >= PART_ATTEMPTS) {
+                        return CompletableFuture.<String>failedFuture(failure);
+                    }
+                    log.warn("Retrying part {} of {} after: {}", partNumber, path, failure.getMessage());
+                    return uploadPart(path, uploadId, partNumber, source, offset, length, attempt + 1);
+                })
+                .thenCompose(future -> future);
+    }
+
+    private void abort(String path, String uploadId) {
+        try {
+            send("DELETE", path, query("uploadId", uploadId), SigV4Signer.EMPTY_PAYLOAD, BodyPublishers.noBody(),
+                    BodyHandlers.discarding());
+        } catch (IOException e) {
+            log.warn("Could not abort multipart upload {} of {}", uploadId, path, e);
+        }
+    }
+
+    // The configured part size, grown when needed so that the blob fits in MAX_PARTS parts
+    static long partSizeFor(long size, long partSize) {
+        return Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+    }
+
+    private static InputStream openRegion(Path source, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> HttpResponse<T> send(String method, String path, SortedMap<String, String> query,
+                                     String payloadHash, BodyPublisher body, BodyHandler<T> handler)
+            throws IOException {
+        return send(request(method, path, query, payloadHash, body).build(), handler);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during " + request.method() + " " + request.uri());
+        }
+    }
+
+    private HttpRequest.Builder request(String method, String path, SortedMap<String, String> query,
+                                        String payloadHash, BodyPublisher body) {
+        String canonicalQuery = SigV4Signer.canonicalQuery(query);
+        URI uri = URI.create(endpoint + SigV4Signer.canonicalUri(path)
+                + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method(method, body);
+        signer.sign(method, host, path, query, Map.of(), payloadHash, Instant.now()).forEach(builder::header);
+        return builder;
+    }
+
+    private String bucketPath() {
+        return pathStyle ? "/" + bucket : "/";
+    }
+
+    // <prefix>ab/cd/abcd...
+    private String objectPath(String key) {
+        String objectKey = prefix + key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key;
+        return pathStyle ? "/" + bucket + "/" + objectKey : "/" + objectKey;
+    }
+
+    private static SortedMap<String, String> query(String name, String value) {
+        SortedMap<String, String> query = new TreeMap<>();
+        query.put(name, value);
+        return query;
+    }
+
+    private static void expectSuccess(HttpResponse<?> response, String operation) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            Object body = response.body();
+            String detail = body instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8)
+                    : String.valueOf(body);
+            throw new IOException(operation + " failed with status " + response.statusCode() + ": " + detail);
+        }
+    }
+
+    // The Host header the JDK client sends: the port only when it is not the scheme's default
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || ("https".equals(uri.getScheme()) && port == 443)
+                || ("http".equals(uri.getScheme()) && port == 80);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static Document parse(byte[] xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        } catch (Exception e) {
+            throw new IOException("Unreadable response from the object store", e);
+        }
+    }
+
+    private static String text(Element parent, String tag) {
+        NodeList nodes = parent.getElementsByTagName(tag);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+}
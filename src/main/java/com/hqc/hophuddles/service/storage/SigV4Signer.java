@@ -0,0 +1,173 @@
+package com.hqc.hophuddles.service.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Signature Version 4 for S3 requests, both as an Authorization header and as presigned query parameters.
+ * Paths and query parameters are passed unencoded; {@link #canonicalUri} and {@link #canonicalQuery} produce the
+ * exact strings that must also be sent, so what is signed is always what goes on the wire.
+ */
+class SigV4Signer {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String EMPTY_PAYLOAD = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    // Signing keys only change with the date; the last one is reused
+    private volatile SigningKey signingKey;
+
+    SigV4Signer(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    /**
+     * Headers to add to a request: x-amz-date, x-amz-content-sha256 and Authorization. {@code headers} are the
+     * other headers to sign, such as x-amz-* headers; host is always signed.
+     */
+    Map<String, String> sign(String method, String host, String path, SortedMap<String, String> query,
+                             Map<String, String> headers, String payloadHash, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        SortedMap<String, String> signed = new TreeMap<>();
+        headers.forEach((name, value) -> signed.put(name.toLowerCase(), value.trim()));
+        signed.put("host", host);
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", amzDate);
+
+        String signedHeaders = String.join(";", signed.keySet());
+        String canonicalHeaders = signed.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue() + "\n")
+                .collect(Collectors.joining());
+        String canonicalRequest = method + "\n" + canonicalUri(path) + "\n" + canonicalQuery(query) + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+
+        String scope = scope(amzDate);
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("x-amz-date", amzDate);
+        result.put("x-amz-content-sha256", payloadHash);
+        result.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature(amzDate, scope, canonicalRequest));
+        return result;
+    }
+
+    /**
+     * The canonical query string of a presigned request: {@code query} plus the X-Amz-* parameters and the
+     * signature. Only the host header is signed, so the URL works from any client.
+     */
+    String presign(String method, String host, String path, SortedMap<String, String> query, Instant date,
+                   long expiresSeconds) {
+        String amzDate = AMZ_DATE.format(date);
+        String scope = scope(amzDate);
+        SortedMap<String, String> params = new TreeMap<>(query);
+        params.put("X-Amz-Algorithm", ALGORITHM);
+        params.put("X-Amz-Credential", accessKey + "/" + scope);
+        params.put("X-Amz-Date", amzDate);
+        params.put("X-Amz-Expires", Long.toString(expiresSeconds));
+        params.put("X-Amz-SignedHeaders", "host");
+
+        String canonicalQuery = canonicalQuery(params);
+        String canonicalRequest = method + "\n" + canonicalUri(path) + "\n" + canonicalQuery + "\n"
+                + "host:" + host + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        return canonicalQuery + "&X-Amz-Signature=" + signature(amzDate, scope, canonicalRequest);
+    }
+
+    static String canonicalUri(String path) {
+        return encode(path, false);
+    }
+
+    static String canonicalQuery(SortedMap<String, String> query) {
+        // Sorted by encoded name; the names used here are all unreserved characters, so the order is the same
+        return query.entrySet().stream()
+                .map(param -> encode(param.getKey(), true) + "=" + encode(param.getValue(), true))
+                .collect(Collectors.joining("&"));
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // RFC 3986 percent-encoding of everything but unreserved characters; '/' is kept in paths
+    static String encode(String value, boolean encodeSlash) {
+        StringBuilder encoded = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private String scope(String amzDate) {
+        return amzDate.substring(0, 8) + "/" + region + "/" + SERVICE + "/aws4_request";
+    }
+
+    private String signature(String amzDate, String scope, String canonicalRequest) {
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+                + sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hmac(signingKey(amzDate.substring(0, 8)), stringToSign));
+    }
+
+    private byte[] signingKey(String date) {
+        SigningKey current = signingKey;
+        if (current != null && current.date.equals(date)) {
+            return current.key;
+        }
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, region);
+        key = hmac(key, SERVICE);
+        key = hmac(key, "aws4_request");
+        signingKey = new SigningKey(date, key);
+        return key;
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static class SigningKey {
+        private final String date;
+        private final byte[] key;
+
+        SigningKey(String date, byte[] key) {
+            this.date = date;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.hqc.hophuddles.service.storage;
+
+import com.hqc.hophuddles.util.BoundedTtlCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Writes blobs to local disk and copies them to the remote store in the background, after the transaction that
+ * referenced them commits. Uploads finish at local disk speed; once a blob is remote, downloads are sent there with
+ * a presigned URL so this node no longer streams it, and nodes without a local copy read it from the remote store.
+ * <p>
+ * A copy that fails, or never ran because the node stopped, is made by {@link #replicateMissing}, which runs on
+ * {@code app.file.storage.tiered.catch-up-cron}.
+ */
+@Slf4j
+public class TieredBlobStore implements BlobStore {
+
+    private static final int CATCH_UP_PAGE_SIZE = 500;
+
+    private final LocalBlobStore local;
+    private final BlobStore remote;
+    private final Executor replicationExecutor;
+    // Blobs known to be in the remote store; a blob never changes, so this only goes stale when one is deleted
+    private final BoundedTtlCache<String, Boolean> replicated;
+    private final AtomicBoolean catchingUp = new AtomicBoolean();
+
+    public TieredBlobStore(LocalBlobStore local, BlobStore remote, Executor replicationExecutor,
+                           int replicatedCacheEntries) {
+        this.local = local;
+        this.remote = remote;
+        this.replicationExecutor = replicationExecutor;
+        this.replicated = new BoundedTtlCache<>(replicatedCacheEntries, 1, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        local.put(key, source);
+        replicated.invalidate(key);
+        afterCommit(() -> {
+            try {
+                replicationExecutor.execute(() -> replicate(key));
+            } catch (TaskRejectedException e) {
+                log.warn("Replication queue full; {} will be copied by the catch-up run", key);
+            }
+        });
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return local.exists(key) || isReplicated(key);
+    }
+
+    // The newer of the two copies, since a delete removes both
+    @Override
+    public Instant lastModified(String key) throws IOException {
+        Instant localModified = local.lastModified(key);
+        Instant remoteModified = remote.lastModified(key);
+        if (localModified == null || remoteModified == null) {
+            return localModified != null ? localModified : remoteModified;
+        }
+        return localModified.isAfter(remoteModified) ? localModified : remoteModified;
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        return local.exists(key) ? local.open(key, offset, length) : remote.open(key, offset, length);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        replicated.invalidate(key);
+        boolean deletedLocally = local.delete(key);
+        return remote.delete(key) || deletedLocally;
+    }
+
+    // Both tiers, so that copies left remote by a blob deleted mid-replication are swept too
+    @Override
+    public void list(int pageSize, Consumer<List<StoredBlob>> page) throws IOException {
+        local.list(pageSize, page);
+        remote.list(pageSize, page);
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return local.localFile(key);
+    }
+
+    // Only once the remote copy exists; until then the blob is served from this node's disk
+    @Override
+    public URI presign(String key, Duration ttl, Map<String, String> responseHeaders) {
+        try {
+            return isReplicated(key) ? remote.presign(key, ttl, responseHeaders) : null;
+        } catch (IOException e) {
+            log.debug("Could not check remote copy of {}", key, e);
+            return null;
+        }
+    }
+
+    @Scheduled(cron = "${app.file.storage.tiered.catch-up-cron:0 0 4 * * *}")
+    public void scheduledCatchUp() {
+        replicateMissing();
+    }
+
+    /**
+     * Copies every local blob that is not yet in the remote store.
+     */
+    public Map<String, Object> replicateMissing() {
+        Map<String, Object> result = new HashMap<>();
+        if (!catchingUp.compareAndSet(false, true)) {
+            result.put("skipped", "Catch-up already running");
+            return result;
+        }
+        long started = System.currentTimeMillis();
+        AtomicLong copied = new AtomicLong();
+        try {
+            local.list(CATCH_UP_PAGE_SIZE, page -> page.forEach(blob -> {
+                if (replicate(blob.getKey())) {
+                    copied.incrementAndGet();
+                }
+            }));
+        } catch (IOException e) {
+            log.warn("Replication catch-up stopped early", e);
+        } finally {
+            catchingUp.set(false);
+        }
+        log.info("Replication catch-up: {} blobs copied in {} ms", copied.get(), System.currentTimeMillis() - started);
+        result.put("blobsCopied", copied.get());
+        return result;
+    }
+
+    // Returns whether a copy was made
+    private boolean replicate(String key) {
+        try {
+            if (isReplicated(key)) {
+                return false;
+            }
+            Path file = local.localFile(key);
+            if (file == null) {
+                return false; // collected meanwhile
+            }
+            remote.put(key, file);
+            replicated.put(key, Boolean.TRUE);
+            log.debug("Replicated blob {}", key);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not replicate blob {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isReplicated(String key) throws IOException {
+        if (replicated.getIfPresent(key) != null) {
+            return true;
+        }
+        boolean exists = remote.exists(key);
+        if (exists) {
+            replicated.put(key, Boolean.TRUE);
+        }
+        return exists;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.hqc.hophuddles.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A small in-process cache with a size bound and a time-to-live. Entries are evicted least recently used first
+ * once {@code maxEntries} is reached, and are reloaded on the first lookup after they expire.
+ * <p>
+ * Loads run outside the lock, so two threads missing on the same key may both load it. A load that overlaps an
+ * invalidation is returned to its caller but not cached, so an invalidation is never undone by a stale load.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Guarded by this; access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedTtlCache(int maxEntries, long ttl, TimeUnit unit) {
+        if (maxEntries <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException("maxEntries and ttl must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, loading and caching it if it is absent or expired. The loader must not return null.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long observed;
+        synchronized (this) {
+            V cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            observed = generation;
+        }
+        misses.increment();
+
+        V value = loader.apply(key);
+        long loadedAt = System.nanoTime();
+        synchronized (this) {
+            if (generation == observed) {
+                entries.put(key, new Entry<>(value, loadedAt));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value, or null if it is absent or expired.
+     */
+    public V getIfPresent(K key) {
+        synchronized (this) {
+            V cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    // Caller holds the lock; drops the entry if it has expired
+    private V lookup(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.loadedAt >= ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hqc.hophuddles.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Checks the leading bytes of an upload against the signature expected for its file extension, so that a file is
+ * stored under a content type that matches what it actually contains rather than what the client claimed.
+ */
+public final class ContentSniffer {
+
+    /** Bytes of the start of a file needed by {@link #sniff}; text files are checked for NUL bytes over all of them. */
+    public static final int HEAD_LENGTH = 512;
+
+    private static final Map<String, String> MEDIA_TYPES = Map.ofEntries(
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("png", "image/png"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("bmp", "image/bmp"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("doc", "application/msword"),
+            Map.entry("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+            Map.entry("txt", "text/plain"),
+            Map.entry("mp3", "audio/mpeg"),
+            Map.entry("wav", "audio/wav"),
+            Map.entry("m4a", "audio/mp4"),
+            Map.entry("aac", "audio/aac"));
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] OLE2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A,
+            (byte) 0xE1};
+    private static final byte[] ZIP = {'P', 'K', 0x03, 0x04};
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * Media type for a file with this extension whose content starts with {@code head[0..length)}, or null when the
+     * content does not look like that kind of file.
+     */
+    public static String sniff(String extension, byte[] head, int length) {
+        String ext = extension.toLowerCase();
+        String mediaType = MEDIA_TYPES.get(ext);
+        if (mediaType == null) {
+            return null;
+        }
+        boolean matches = switch (ext) {
+            case "jpg", "jpeg" -> startsWith(head, length, 0, (byte) 0xFF, (byte) 0xD8, (byte) 0xFF);
+            case "png" -> startsWith(head, length, 0, PNG);
+            case "gif" -> startsWith(head, length, 0, ascii("GIF87a")) || startsWith(head, length, 0, ascii("GIF89a"));
+            case "bmp" -> startsWith(head, length, 0, ascii("BM"));
+            case "pdf" -> startsWith(head, length, 0, ascii("%PDF-"));
+            case "doc" -> startsWith(head, length, 0, OLE2);
+            case "docx" -> startsWith(head, length, 0, ZIP);
+            case "txt" -> isText(head, length);
+            // ID3 tag, or an MPEG audio frame sync
+            case "mp3" -> startsWith(head, length, 0, ascii("ID3"))
+                    || (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xE0) == 0xE0);
+            case "wav" -> startsWith(head, length, 0, ascii("RIFF")) && startsWith(head, length, 8, ascii("WAVE"));
+            // ISO base media file: the first box is ftyp
+            case "m4a" -> startsWith(head, length, 4, ascii("ftyp"));
+            // ADTS frame, ADIF header, or an ID3 tag in front of either
+            case "aac" -> (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xF6) == 0xF0)
+                    || startsWith(head, length, 0, ascii("ADIF"))
+                    || startsWith(head, length, 0, ascii("ID3"));
+            default -> false;
+        };
+        return matches ? mediaType : null;
+    }
+
+    private static boolean isText(byte[] head, int length) {
+        for (int i = 0; i < length; i++) {
+            if (head[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, byte... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
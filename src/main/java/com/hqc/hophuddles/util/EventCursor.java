@@ -0,0 +1,50 @@
+package com.hqc.hophuddles.util;
+
+import com.hqc.hophuddles.exception.ValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over {@code (created_at, event_id)}, newest first. Encodes the position of the last row
+ * returned; the next page starts strictly after it.
+ */
+@Getter
+@AllArgsConstructor
+public class EventCursor {
+
+    // Sorts after every real event, so the first page uses the same query as the rest
+    public static final EventCursor START = new EventCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    private final LocalDateTime createdAt;
+    private final Long eventId;
+
+    public String encode() {
+        String raw = createdAt + "|" + eventId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor from a previous page, or returns {@link #START} for a blank one.
+     */
+    public static EventCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new ValidationException("Invalid cursor");
+            }
+            return new EventCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+}
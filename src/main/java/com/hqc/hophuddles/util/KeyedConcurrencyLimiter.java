@@ -0,0 +1,115 @@
+package com.hqc.hophuddles.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Caps how many tasks with the same key (e.g. the same agency) run at once on a shared executor. Tasks over the
+ * cap wait in a per-key FIFO and are handed to the executor as earlier tasks for that key finish, so one busy key
+ * cannot occupy every worker thread. Waiting tasks hold no thread.
+ *
+ * @param <K> the key type
+ */
+public class KeyedConcurrencyLimiter<K> {
+
+    private final Executor executor;
+    private final int maxPerKey;
+
+    // Guarded by this
+    private final Map<K, Integer> running = new HashMap<>();
+    private final Map<K, Queue<Submission>> waiting = new HashMap<>();
+    private int waitingCount;
+
+    public KeyedConcurrencyLimiter(Executor executor, int maxPerKey) {
+        if (maxPerKey < 1) {
+            throw new IllegalArgumentException("maxPerKey must be at least 1");
+        }
+        this.executor = executor;
+        this.maxPerKey = maxPerKey;
+    }
+
+    /**
+     * Runs the task now if its key is under the cap, otherwise queues it behind the key's earlier tasks.
+     *
+     * @param onRejected called instead of the task if the executor refuses it, possibly later on another
+     *                   thread when a queued task is handed over
+     * @return true if the task was handed to the executor, false if it was queued for its key
+     */
+    public boolean submit(K key, Runnable task, Runnable onRejected) {
+        Submission submission = new Submission(task, onRejected);
+        synchronized (this) {
+            int active = running.getOrDefault(key, 0);
+            if (active >= maxPerKey) {
+                waiting.computeIfAbsent(key, k -> new ArrayDeque<>()).add(submission);
+                waitingCount++;
+                return false;
+            }
+            running.put(key, active + 1);
+        }
+        dispatch(key, submission);
+        return true;
+    }
+
+    public synchronized int getWaitingCount() {
+        return waitingCount;
+    }
+
+    public synchronized int getRunningCount() {
+        return running.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void dispatch(K key, Submission submission) {
+        while (submission != null) {
+            Submission current = submission;
+            try {
+                executor.execute(() -> {
+                    try {
+                        current.task.run();
+                    } finally {
+                        dispatch(key, release(key));
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                current.onRejected.run();
+                submission = release(key);
+            }
+        }
+    }
+
+    // Frees the slot of a finished or rejected task; returns the key's next waiting task, which takes the slot over
+    private Submission release(K key) {
+        synchronized (this) {
+            Queue<Submission> queue = waiting.get(key);
+            Submission following = queue != null ? queue.poll() : null;
+            if (following != null) {
+                waitingCount--;
+                if (queue.isEmpty()) {
+                    waiting.remove(key);
+                }
+                return following;
+            }
+            int active = running.getOrDefault(key, 1) - 1;
+            if (active > 0) {
+                running.put(key, active);
+            } else {
+                running.remove(key);
+            }
+            return null;
+        }
+    }
+
+    private static class Submission {
+        private final Runnable task;
+        private final Runnable onRejected;
+
+        Submission(Runnable task, Runnable onRejected) {
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+    }
+}
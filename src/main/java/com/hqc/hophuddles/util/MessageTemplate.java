@@ -0,0 +1,161 @@
+package com.hqc.hophuddles.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A template compiled once into literal text and {@code {{name}}} placeholders. {@link #bind} substitutes the
+ * values shared by every recipient of a fan-out and returns a smaller template in which those parts are already
+ * literal text, so rendering per recipient only splices in the remaining fields.
+ * <p>
+ * Values are HTML-escaped in HTML templates. Missing values render as empty text. Instances are immutable and
+ * safe to share between threads.
+ */
+public final class MessageTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // Either String (literal text) or Placeholder; adjacent literals are always merged
+    private final List<Object> segments;
+    private final boolean html;
+    private final int literalLength;
+
+    private MessageTemplate(List<Object> segments, boolean html) {
+        this.segments = segments;
+        this.html = html;
+        int length = 0;
+        for (Object segment : segments) {
+            if (segment instanceof String literal) {
+                length += literal.length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    public static MessageTemplate compile(String source, boolean html) {
+        List<Object> segments = new ArrayList<>();
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf(OPEN, position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty placeholder at offset " + open);
+            }
+            appendLiteral(segments, source.substring(position, open));
+            segments.add(new Placeholder(name));
+            position = close + CLOSE.length();
+        }
+        appendLiteral(segments, source.substring(position));
+        return new MessageTemplate(Collections.unmodifiableList(segments), html);
+    }
+
+    /**
+     * Returns a template with the given placeholders replaced by their values. Placeholders without a value
+     * are kept for {@link #render}.
+     */
+    public MessageTemplate bind(Map<String, String> values) {
+        List<Object> bound = new ArrayList<>(segments.size());
+        for (Object segment : segments) {
+            if (segment instanceof Placeholder placeholder && values.containsKey(placeholder.name)) {
+                appendLiteral(bound, escape(values.get(placeholder.name)));
+            } else if (segment instanceof String literal) {
+                appendLiteral(bound, literal);
+            } else {
+                bound.add(segment);
+            }
+        }
+        return new MessageTemplate(Collections.unmodifiableList(bound), html);
+    }
+
+    public String render(Map<String, String> values) {
+        if (segments.size() == 1 && segments.get(0) instanceof String literal) {
+            return literal;
+        }
+        StringBuilder out = new StringBuilder(literalLength + 16 * segments.size());
+        for (Object segment : segments) {
+            if (segment instanceof String literal) {
+                out.append(literal);
+            } else {
+                out.append(escape(values.get(((Placeholder) segment).name)));
+            }
+        }
+        return out.toString();
+    }
+
+    public Set<String> getPlaceholders() {
+        Set<String> names = new LinkedHashSet<>();
+        for (Object segment : segments) {
+            if (segment instanceof Placeholder placeholder) {
+                names.add(placeholder.name);
+            }
+        }
+        return names;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    private String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return html ? escapeHtml(value) : value;
+    }
+
+    private static String escapeHtml(String value) {
+        StringBuilder out = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                if (out == null) {
+                    out = new StringBuilder(value.length() + 16).append(value, 0, i);
+                }
+                out.append(replacement);
+            } else if (out != null) {
+                out.append(c);
+            }
+        }
+        return out != null ? out.toString() : value;
+    }
+
+    private static void appendLiteral(List<Object> segments, String literal) {
+        if (literal.isEmpty()) {
+            return;
+        }
+        int last = segments.size() - 1;
+        if (last >= 0 && segments.get(last) instanceof String previous) {
+            segments.set(last, previous + literal);
+        } else {
+            segments.add(literal);
+        }
+    }
+
+    private static final class Placeholder {
+        private final String name;
+
+        private Placeholder(String name) {
+            this.name = name;
+        }
+    }
+}
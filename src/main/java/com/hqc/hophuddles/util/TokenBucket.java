@@ -0,0 +1,52 @@
+package com.hqc.hophuddles.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking token-bucket rate limiter. Refills continuously at {@code permitsPerSecond} and holds at most one
+ * second's worth of permits, so short bursts pass immediately and sustained load is smoothed to the rate.
+ */
+public class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double capacity;
+
+    // Guarded by this
+    private double available;
+    private long refilledAtNanos = System.nanoTime();
+
+    public TokenBucket(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = Math.max(1, permitsPerSecond);
+        this.available = capacity;
+    }
+
+    /**
+     * Blocks until the permits are available. Requests larger than the bucket are let through once it is full,
+     * then pay off the excess before anyone else proceeds.
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            double needed = Math.min(permits, capacity);
+            if (available >= needed) {
+                available -= permits;
+                return;
+            }
+            waitNanos = (long) ((needed - available) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+            // Reserve now so concurrent callers queue behind this one instead of racing for the same refill
+            available -= permits;
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - refilledAtNanos) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        refilledAtNanos = now;
+    }
+}
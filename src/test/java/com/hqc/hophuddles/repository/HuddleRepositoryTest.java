@@ -0,0 +1,99 @@
+package com.hqc.hophuddles.repository;
+
+import com.hqc.hophuddles.dto.response.HuddleResponse;
+import com.hqc.hophuddles.entity.Agency;
+import com.hqc.hophuddles.entity.Huddle;
+import com.hqc.hophuddles.entity.HuddleSequence;
+import com.hqc.hophuddles.entity.User;
+import com.hqc.hophuddles.enums.AgencyType;
+import com.hqc.hophuddles.enums.HuddleType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The embedded test database hands out auto-commit connections, so Hibernate must not assume otherwise or each
+// test's data would be committed instead of rolled back
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.connection.provider_disables_autocommit=false")
+class HuddleRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private HuddleRepository huddleRepository;
+
+    private HuddleSequence sequence;
+    private HuddleSequence otherSequence;
+
+    @BeforeEach
+    void setUp() {
+        Agency agency = entityManager.persist(new Agency("HOP Test Agency", "111111", AgencyType.HOME_HEALTH));
+        User educator = entityManager.persist(new User("auth0|educator", "educator@hoptest.com", "Educator"));
+        sequence = entityManager.persist(new HuddleSequence(agency, "Fall Prevention Training", educator));
+        otherSequence = entityManager.persist(new HuddleSequence(agency, "Wound Care", educator));
+
+        persist(sequence, "Complete", 1, HuddleType.INTRO, "{\"sections\":[]}", "Welcome to the training.");
+        persist(sequence, "No script", 2, HuddleType.STANDARD, "{\"sections\":[]}", null);
+        persist(sequence, "Blank script", 3, HuddleType.STANDARD, "{\"sections\":[]}", "   ");
+        Huddle inactive = persist(sequence, "Inactive", 4, HuddleType.STANDARD, "{}", "Script");
+        inactive.setIsActive(false);
+        persist(otherSequence, "Other", 1, HuddleType.STANDARD, "{}", "Script");
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void summariesReportCompletenessWithoutTheTextColumns() {
+        List<HuddleResponse> summaries = huddleRepository.findSummariesBySequenceId(sequence.getSequenceId());
+
+        assertThat(summaries).extracting(HuddleResponse::getTitle)
+                .containsExactly("Complete", "No script", "Blank script");
+        assertThat(summaries).extracting(HuddleResponse::isComplete).containsExactly(true, false, false);
+        assertThat(summaries).allSatisfy(summary -> {
+            assertThat(summary.getContentJson()).isNull();
+            assertThat(summary.getVoiceScript()).isNull();
+            assertThat(summary.getSequenceTitle()).isEqualTo("Fall Prevention Training");
+        });
+    }
+
+    @Test
+    void completenessAgreesWithTheEntityAndTheCount() {
+        List<HuddleResponse> summaries = huddleRepository.findSummariesBySequenceId(sequence.getSequenceId());
+
+        for (HuddleResponse summary : summaries) {
+            Huddle huddle = huddleRepository.findById(summary.getHuddleId()).orElseThrow();
+            assertThat(summary.isComplete()).as(summary.getTitle()).isEqualTo(huddle.isComplete());
+        }
+        assertThat(huddleRepository.countCompleteHuddles(sequence.getSequenceId()))
+                .isEqualTo(summaries.stream().filter(HuddleResponse::isComplete).count());
+    }
+
+    @Test
+    void summariesAcrossSequencesAndByType() {
+        List<HuddleResponse> summaries = huddleRepository.findSummariesBySequenceIds(
+                List.of(sequence.getSequenceId(), otherSequence.getSequenceId()));
+        List<HuddleResponse> standard = huddleRepository.findSummariesBySequenceIdAndType(
+                sequence.getSequenceId(), HuddleType.STANDARD);
+
+        assertThat(summaries).hasSize(4);
+        assertThat(summaries.get(3).getTitle()).isEqualTo("Other");
+        assertThat(summaries.get(3).isComplete()).isTrue();
+        assertThat(standard).extracting(HuddleResponse::getTitle).containsExactly("No script", "Blank script");
+    }
+
+    private Huddle persist(HuddleSequence sequence, String title, int orderIndex, HuddleType type,
+                           String contentJson, String voiceScript) {
+        Huddle huddle = new Huddle(sequence, title, orderIndex);
+        huddle.setHuddleType(type);
+        huddle.setContentJson(contentJson);
+        huddle.setVoiceScript(voiceScript);
+        return entityManager.persist(huddle);
+    }
+}
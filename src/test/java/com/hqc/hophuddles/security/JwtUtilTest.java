@@ -0,0 +1,98 @@
+package com.hqc.hophuddles.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "testSecretKey1234567890123456789012345678901234567890123456789012";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(meterRegistry);
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationInMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxEntries", 100);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheTtlMs", 300_000L);
+        jwtUtil.init();
+    }
+
+    @Test
+    void validTokenIsVerifiedOnceAndThenServedFromTheCache() {
+        String token = token(SECRET, "42", new Date(System.currentTimeMillis() + 3_600_000));
+
+        Claims first = jwtUtil.validateAndGetClaims(token);
+        Claims second = jwtUtil.validateAndGetClaims(token);
+
+        assertThat(first.getSubject()).isEqualTo("42");
+        assertThat(second).isSameAs(first);
+        assertThat(jwtUtil.getUserIdFromJWT(token)).isEqualTo(42L);
+        assertThat(lookups("miss")).isEqualTo(1);
+        assertThat(lookups("hit")).isEqualTo(2);
+        assertThat(cacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTokenIsEvictedOnceItExpires() throws InterruptedException {
+        // JWT expiry has second precision, so the token expires within the next two seconds
+        String token = token(SECRET, "7", new Date(System.currentTimeMillis() + 1_000));
+        Claims claims = jwtUtil.validateAndGetClaims(token);
+        assertThat(claims).isNotNull();
+        assertThat(cacheSize()).isEqualTo(1);
+
+        Thread.sleep(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()) + 20);
+
+        assertThat(jwtUtil.validateAndGetClaims(token)).isNull();
+        assertThat(cacheSize()).isZero();
+        // Parsed again and rejected as expired rather than cached
+        assertThat(jwtUtil.validateAndGetClaims(token)).isNull();
+        assertThat(cacheSize()).isZero();
+    }
+
+    @Test
+    void invalidSignatureReturnsNullAndIsNotCached() {
+        String forged = token("otherSecretKey12345678901234567890123456789012345678901234567890",
+                "42", new Date(System.currentTimeMillis() + 3_600_000));
+
+        assertThat(jwtUtil.validateAndGetClaims(forged)).isNull();
+        assertThat(jwtUtil.validateToken(forged)).isFalse();
+        assertThat(cacheSize()).isZero();
+    }
+
+    @Test
+    void malformedAndEmptyTokensReturnNull() {
+        assertThat(jwtUtil.validateAndGetClaims("not.a.token")).isNull();
+        assertThat(jwtUtil.validateAndGetClaims("")).isNull();
+        assertThat(jwtUtil.validateAndGetClaims(null)).isNull();
+        assertThat(cacheSize()).isZero();
+    }
+
+    private static String token(String secret, String subject, Date expiration) {
+        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return Jwts.builder().setSubject(subject).setIssuedAt(new Date()).setExpiration(expiration)
+                .signWith(key).compact();
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("security.jwt.verified.cache.lookups").tag("result", result).functionCounter().count();
+    }
+
+    private double cacheSize() {
+        return meterRegistry.get("security.jwt.verified.cache.size").gauge().value();
+    }
+}
@@ -0,0 +1,168 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.enums.Discipline;
+import com.hqc.hophuddles.enums.TargetOperation;
+import com.hqc.hophuddles.enums.TargetType;
+import com.hqc.hophuddles.enums.UserRole;
+import com.hqc.hophuddles.repository.projection.AssignmentMembership;
+import com.hqc.hophuddles.util.CompressedIntSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks bitmap evaluation against per-target scans merged through HashSets, the shape of the resolution that
+ * preceded the audience index, on a synthetic tenant.
+ */
+class AudienceBitmapsTest {
+
+    private static final long AGENCY = 1L;
+
+    @Test
+    void matchesHashSetScansOnASyntheticTenant() {
+        List<AssignmentMembership> memberships = syntheticTenant(20_000);
+        AudienceBitmaps bitmaps = AudienceBitmaps.build(AGENCY, memberships);
+
+        // DISCIPLINE=RN or ROLE=PRECEPTOR, in BRANCH 12, not TEAM 124
+        Set<Long> expected = scan(memberships, m -> m.getDiscipline() == Discipline.RN);
+        expected.addAll(scan(memberships, m -> m.getRole() == UserRole.PRECEPTOR));
+        expected.retainAll(scan(memberships, m -> m.getBranchId() == 12L));
+        expected.removeAll(scan(memberships, m -> m.getTeamId() == 124L));
+
+        CompressedIntSet audience = bitmaps.evaluate(List.of(
+                target(TargetType.DISCIPLINE, "RN", TargetOperation.INCLUDE),
+                target(TargetType.ROLE, "PRECEPTOR", TargetOperation.INCLUDE),
+                target(TargetType.BRANCH, "12", TargetOperation.INTERSECT),
+                target(TargetType.TEAM, "124", TargetOperation.EXCLUDE)));
+
+        assertThat(expected).isNotEmpty();
+        assertThat(userIds(audience)).isEqualTo(expected);
+        assertThat(bitmaps.getUserCount()).isEqualTo(20_000);
+    }
+
+    @Test
+    void intersectionsOfOneTypeAreUnitedAndDifferentTypesIntersected() {
+        List<AssignmentMembership> memberships = syntheticTenant(5_000);
+        AudienceBitmaps bitmaps = AudienceBitmaps.build(AGENCY, memberships);
+
+        // Without INCLUDE targets the intersections start from the whole agency
+        Set<Long> expected = scan(memberships, m -> m.getBranchId() == 3L || m.getBranchId() == 4L);
+        expected.retainAll(scan(memberships, m -> m.getRole() == UserRole.LEARNER));
+
+        CompressedIntSet audience = bitmaps.evaluate(List.of(
+                target(TargetType.BRANCH, "3", TargetOperation.INTERSECT),
+                target(TargetType.BRANCH, "4", TargetOperation.INTERSECT),
+                target(TargetType.ROLE, "LEARNER", TargetOperation.INTERSECT)));
+
+        assertThat(userIds(audience)).isEqualTo(expected);
+    }
+
+    @Test
+    void userWithSeveralAssignmentsIsCountedOnce() {
+        AudienceBitmaps bitmaps = AudienceBitmaps.build(AGENCY, List.of(
+                new Membership(7L, UserRole.FIELD_CLINICIAN, Discipline.RN, 1L, 10L),
+                new Membership(7L, UserRole.PRECEPTOR, Discipline.RN, 2L, 20L)));
+
+        CompressedIntSet audience = bitmaps.evaluate(List.of(
+                target(TargetType.BRANCH, "1", TargetOperation.INCLUDE),
+                target(TargetType.BRANCH, "2", TargetOperation.INCLUDE)));
+
+        assertThat(bitmaps.getUserCount()).isEqualTo(1);
+        assertThat(audience.toLongArray()).containsExactly(7L);
+    }
+
+    @Test
+    void agencyAndUserTargets() {
+        AudienceBitmaps bitmaps = AudienceBitmaps.build(AGENCY, List.of(
+                new Membership(1L, UserRole.LEARNER, null, null, null),
+                new Membership(2L, UserRole.EDUCATOR, Discipline.PT, 5L, null)));
+
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.AGENCY, "1", TargetOperation.INCLUDE)))
+                .toLongArray()).containsExactly(1L, 2L);
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.AGENCY, "2", TargetOperation.INCLUDE)))
+                .isEmpty()).isTrue();
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.USER, "2", TargetOperation.INCLUDE)))
+                .toLongArray()).containsExactly(2L);
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.USER, "3", TargetOperation.INCLUDE)))
+                .isEmpty()).isTrue();
+    }
+
+    @Test
+    void excludesAloneAndInvalidValuesSelectNobody() {
+        AudienceBitmaps bitmaps = AudienceBitmaps.build(AGENCY, syntheticTenant(1_000));
+
+        assertThat(bitmaps.evaluate(List.of()).isEmpty()).isTrue();
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.ROLE, "LEARNER", TargetOperation.EXCLUDE)))
+                .isEmpty()).isTrue();
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.ROLE, "NO_SUCH_ROLE", TargetOperation.INCLUDE)))
+                .isEmpty()).isTrue();
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.BRANCH, "twelve", TargetOperation.INCLUDE)))
+                .isEmpty()).isTrue();
+        assertThat(bitmaps.evaluate(List.of(target(TargetType.USER, "99999999999", TargetOperation.INCLUDE)))
+                .isEmpty()).isTrue();
+    }
+
+    private static List<AssignmentMembership> syntheticTenant(int users) {
+        Random random = new Random(42);
+        UserRole[] roles = UserRole.values();
+        Discipline[] disciplines = Discipline.values();
+        List<AssignmentMembership> memberships = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            long branchId = random.nextInt(50) + 1;
+            memberships.add(new Membership((long) i, roles[random.nextInt(roles.length)],
+                    disciplines[random.nextInt(disciplines.length)], branchId, branchId * 10 + random.nextInt(10)));
+        }
+        return memberships;
+    }
+
+    private static Set<Long> scan(List<AssignmentMembership> memberships, Predicate<AssignmentMembership> filter) {
+        Set<Long> userIds = new HashSet<>();
+        for (AssignmentMembership membership : memberships) {
+            if (filter.test(membership)) {
+                userIds.add(membership.getUserId());
+            }
+        }
+        return userIds;
+    }
+
+    private static Set<Long> userIds(CompressedIntSet set) {
+        Set<Long> userIds = new HashSet<>();
+        for (long userId : set.toLongArray()) {
+            userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    private static AudienceBitmaps.Target target(TargetType type, String value, TargetOperation operation) {
+        return new AudienceBitmaps.Target(type, value, operation);
+    }
+
+    private static class Membership implements AssignmentMembership {
+        private final Long userId;
+        private final UserRole role;
+        private final Discipline discipline;
+        private final Long branchId;
+        private final Long teamId;
+
+        Membership(Long userId, UserRole role, Discipline discipline, Long branchId, Long teamId) {
+            this.userId = userId;
+            this.role = role;
+            this.discipline = discipline;
+            this.branchId = branchId;
+            this.teamId = teamId;
+        }
+
+        @Override public Long getUserId() { return userId; }
+        @Override public UserRole getRole() { return role; }
+        @Override public Discipline getDiscipline() { return discipline; }
+        @Override public Long getBranchId() { return branchId; }
+        @Override public Long getTeamId() { return teamId; }
+    }
+}
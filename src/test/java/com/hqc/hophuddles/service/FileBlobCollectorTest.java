@@ -0,0 +1,125 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.repository.FileBlobRepository;
+import com.hqc.hophuddles.repository.FileReferenceRepository;
+import com.hqc.hophuddles.service.storage.BlobStore;
+import com.hqc.hophuddles.service.storage.BlobStore.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Orphan sweep against a stubbed blob store and repositories; released-blob collection finds nothing to do.
+ */
+class FileBlobCollectorTest {
+
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(3));
+
+    @TempDir
+    Path tempDirectory;
+
+    private BlobStore blobStore;
+    private FileBlobRepository blobRepository;
+    private FileBlobCollector collector;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FileStorageService fileStorageService = mock(FileStorageService.class);
+        when(fileStorageService.getTempDirectory()).thenReturn(tempDirectory);
+        blobStore = mock(BlobStore.class);
+        when(blobStore.delete(anyString())).thenReturn(true);
+        blobRepository = mock(FileBlobRepository.class);
+        when(blobRepository.findReleasedBefore(any(), any())).thenReturn(List.of());
+
+        collector = new FileBlobCollector(fileStorageService, blobStore, blobRepository,
+                mock(FileReferenceRepository.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(collector, "graceMs", Duration.ofDays(1).toMillis());
+        ReflectionTestUtils.setField(collector, "batchSize", 500);
+    }
+
+    @Test
+    void oldOrphansAreSwept() throws Exception {
+        listing(new StoredBlob("orphan", 10, OLD));
+        when(blobRepository.findExisting(any())).thenReturn(List.of());
+        when(blobStore.lastModified("orphan")).thenReturn(OLD);
+
+        Map<String, Object> result = collector.collect();
+
+        verify(blobStore).delete("orphan");
+        assertThat(result).containsEntry("orphansSwept", 1L).containsEntry("bytesSwept", 10L);
+    }
+
+    @Test
+    void recentBlobsAreNotConsidered() throws Exception {
+        listing(new StoredBlob("recent", 10, Instant.now()));
+
+        collector.collect();
+
+        verify(blobRepository, never()).findExisting(any());
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void orphanRewrittenByAnUploadSinceTheListingIsKept() throws Exception {
+        // The listing still shows the old time, but an upload has just put the same content again and has not
+        // inserted its blob row yet
+        listing(new StoredBlob("rewritten", 10, OLD));
+        when(blobRepository.findExisting(any())).thenReturn(List.of());
+        when(blobStore.lastModified("rewritten")).thenReturn(Instant.now());
+
+        Map<String, Object> result = collector.collect();
+
+        verify(blobStore, never()).delete(anyString());
+        assertThat(result).containsEntry("orphansSwept", 0L);
+    }
+
+    @Test
+    void orphanReferencedBeforeTheDeleteIsKept() throws Exception {
+        listing(new StoredBlob("linked", 10, OLD), new StoredBlob("orphan", 20, OLD));
+        when(blobRepository.findExisting(any())).thenReturn(List.of()).thenReturn(List.of("linked"));
+        when(blobStore.lastModified(anyString())).thenReturn(OLD);
+
+        Map<String, Object> result = collector.collect();
+
+        verify(blobStore, never()).delete("linked");
+        verify(blobStore).delete("orphan");
+        assertThat(result).containsEntry("orphansSwept", 1L).containsEntry("bytesSwept", 20L);
+    }
+
+    @Test
+    void orphansAlreadyGoneOrUnreadableAreSkipped() throws Exception {
+        listing(new StoredBlob("gone", 10, OLD), new StoredBlob("unreadable", 10, OLD));
+        when(blobRepository.findExisting(any())).thenReturn(List.of());
+        when(blobStore.lastModified("gone")).thenReturn(null);
+        when(blobStore.lastModified("unreadable")).thenThrow(new IOException("timeout"));
+
+        Map<String, Object> result = collector.collect();
+
+        verify(blobStore, never()).delete(anyString());
+        assertThat(result).containsEntry("orphansSwept", 0L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void listing(StoredBlob... blobs) throws Exception {
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<StoredBlob>>>getArgument(1).accept(List.of(blobs));
+            return null;
+        }).when(blobStore).list(anyInt(), any(Consumer.class));
+    }
+}
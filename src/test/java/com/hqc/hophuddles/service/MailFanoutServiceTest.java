@@ -0,0 +1,149 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.service.MailFanoutService.FanoutResult;
+import com.hqc.hophuddles.service.MailFanoutService.OutboundMail;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the fan-out on the calling thread against a stubbed {@link JavaMailSender}; no mail is sent.
+ */
+class MailFanoutServiceTest {
+
+    private JavaMailSender mailSender;
+    private MailFanoutService fanoutService;
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mailSender = mock(JavaMailSender.class);
+        Session session = Session.getInstance(new Properties());
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(session));
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.getArguments().length);
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        fanoutService = new MailFanoutService(mailSender, Runnable::run, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(fanoutService, "chunkSize", 3);
+        ReflectionTestUtils.setField(fanoutService, "ratePerSecond", 1_000_000.0);
+        ReflectionTestUtils.setField(fanoutService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(fanoutService, "initialBackoffMs", 2L);
+        ReflectionTestUtils.setField(fanoutService, "maxBackoffMs", 4L);
+        fanoutService.registerMetrics();
+    }
+
+    @Test
+    void noRecipientsSendsNothing() {
+        FanoutResult result = fanoutService.send("release", List.of());
+
+        assertThat(result.getSent()).isZero();
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void recipientsAreSentInChunksOverOneConnectionEach() {
+        FanoutResult result = fanoutService.send("release", mails(7));
+
+        assertThat(result.getSent()).isEqualTo(7);
+        assertThat(result.getFailedCount()).isZero();
+        assertThat(batchSizes).containsExactly(3, 3, 1);
+    }
+
+    @Test
+    void transientlyRefusedMessagesAreRetried() {
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.getArguments().length);
+            throw new MailSendException(Map.of(invocation.getArgument(1), new MessagingException("451 try later")));
+        }).doAnswer(invocation -> {
+            batchSizes.add(invocation.getArguments().length);
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        FanoutResult result = fanoutService.send("release", mails(3));
+
+        assertThat(result.getSent()).isEqualTo(3);
+        assertThat(result.getFailedCount()).isZero();
+        assertThat(batchSizes).containsExactly(3, 1);
+    }
+
+    @Test
+    void rejectedAddressesAreNotRetried() throws Exception {
+        Address[] invalid = {new InternetAddress("learner2@example.test")};
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.getArguments().length);
+            throw new MailSendException(Map.of(addressedTo(invocation.getArguments(), "learner2@example.test"),
+                    new SendFailedException("550 no such user", null, new Address[0], new Address[0], invalid)));
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        FanoutResult result = fanoutService.send("release", mails(3));
+
+        assertThat(result.getSent()).isEqualTo(2);
+        assertThat(result.getRejected()).extracting(OutboundMail::getTo).containsExactly("learner2@example.test");
+        assertThat(result.getFailed()).isEmpty();
+        assertThat(batchSizes).containsExactly(3);
+    }
+
+    @Test
+    void connectionFailuresAreGivenUpOnAfterTheLastAttempt() {
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.getArguments().length);
+            throw new MailSendException("Connection refused");
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        FanoutResult result = fanoutService.send("release", mails(2));
+
+        assertThat(result.getSent()).isZero();
+        assertThat(result.getFailed()).hasSize(2);
+        assertThat(batchSizes).containsExactly(2, 2, 2);
+    }
+
+    @Test
+    void authenticationFailuresAreNotRetried() {
+        doThrow(new MailAuthenticationException("535 bad credentials"))
+                .when(mailSender).send(any(MimeMessage[].class));
+
+        FanoutResult result = fanoutService.send("release", mails(2));
+
+        assertThat(result.getFailed()).hasSize(2);
+        verify(mailSender, times(1)).send(any(MimeMessage[].class));
+    }
+
+    private static Object addressedTo(Object[] messages, String recipient) throws MessagingException {
+        for (Object message : messages) {
+            if (((MimeMessage) message).getAllRecipients()[0].toString().equals(recipient)) {
+                return message;
+            }
+        }
+        throw new IllegalArgumentException("No message to " + recipient);
+    }
+
+    private static List<OutboundMail> mails(int count) {
+        List<OutboundMail> mails = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            mails.add(new OutboundMail("learner" + i + "@example.test", "New Training Available",
+                    "Hi Learner " + i + ",\n\nA new training huddle is now available."));
+        }
+        return mails;
+    }
+}
@@ -0,0 +1,107 @@
+package com.hqc.hophuddles.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Renders into memory through a stubbed {@link FileStorageService}, so nothing is stored or linked.
+ */
+class PDFGenerationServiceTest {
+
+    private static final String PARAGRAPH =
+            "Review the patient's fall history, medications and home environment before each visit. ";
+
+    private final List<ByteArrayOutputStream> outputs = new ArrayList<>();
+    private FileStorageService fileStorageService;
+    private SimpleMeterRegistry meterRegistry;
+    private PDFGenerationService pdfGenerationService;
+
+    @BeforeEach
+    void setUp() {
+        fileStorageService = mock(FileStorageService.class);
+        when(fileStorageService.storeFile(any(FileStorageService.ContentWriter.class), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    invocation.<FileStorageService.ContentWriter>getArgument(0).writeTo(out);
+                    synchronized (outputs) {
+                        outputs.add(out);
+                    }
+                    return "stored-" + invocation.getArgument(1);
+                });
+
+        meterRegistry = new SimpleMeterRegistry();
+        pdfGenerationService = new PDFGenerationService(fileStorageService, meterRegistry);
+        pdfGenerationService.registerMetrics();
+    }
+
+    @Test
+    void simplePdfIsWrittenThroughStorageAndItsPagesCounted() {
+        String stored = pdfGenerationService.generateSimplePdf((PARAGRAPH.repeat(8) + "\n\n").repeat(30),
+                "Fall Risk: Week 1", "ai_generated");
+
+        assertThat(stored).isEqualTo("stored-Fall_Risk__Week_1.pdf");
+        assertThat(outputs).hasSize(1);
+        assertThat(new String(outputs.get(0).toByteArray(), 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        assertThat(meterRegistry.get("pdf.pages").counter().count()).isGreaterThan(1);
+        assertThat(meterRegistry.get("pdf.render").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void htmlPdfIsRendered() {
+        pdfGenerationService.generatePdfFromHtml("<h1>Hand hygiene</h1><p>" + PARAGRAPH + "</p>",
+                "Hand hygiene", "general");
+
+        assertThat(outputs).hasSize(1);
+        assertThat(outputs.get(0).size()).isPositive();
+        assertThat(meterRegistry.get("pdf.pages").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void documentsRenderIndependentlyInParallel() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<?>[] renders = new CompletableFuture<?>[8];
+            for (int i = 0; i < renders.length; i++) {
+                String title = "Huddle " + i;
+                renders[i] = CompletableFuture.runAsync(() -> pdfGenerationService.generateSimplePdf(
+                        PARAGRAPH.repeat(40), title, "ai_generated"), pool);
+            }
+            CompletableFuture.allOf(renders).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(outputs).hasSize(8);
+        assertThat(meterRegistry.get("pdf.render").timer().count()).isEqualTo(8);
+        assertThat(meterRegistry.get("pdf.pages").counter().count()).isGreaterThanOrEqualTo(8);
+    }
+
+    @Test
+    void storageFailuresAreReported() {
+        when(fileStorageService.storeFile(any(FileStorageService.ContentWriter.class), anyString(), eq("full")))
+                .thenThrow(new IllegalStateException("disk full"));
+
+        assertThatThrownBy(() -> pdfGenerationService.generateSimplePdf("text", "Title", "full"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to generate PDF")
+                .hasRootCauseMessage("disk full");
+        assertThat(meterRegistry.get("pdf.render").timer().count()).isZero();
+    }
+}
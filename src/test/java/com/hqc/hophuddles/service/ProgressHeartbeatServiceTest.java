@@ -0,0 +1,184 @@
+package com.hqc.hophuddles.service;
+
+import com.hqc.hophuddles.dto.response.UserProgressResponse;
+import com.hqc.hophuddles.enums.ProgressStatus;
+import com.hqc.hophuddles.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProgressHeartbeatServiceTest {
+
+    private static final Long USER = 1L;
+    private static final Long HUDDLE = 2L;
+
+    private UserProgressService userProgressService;
+    private ProgressHeartbeatService heartbeatService;
+
+    @BeforeEach
+    void setUp() {
+        userProgressService = mock(UserProgressService.class);
+        when(userProgressService.applyHeartbeat(eq(USER), eq(HUDDLE), any(), any()))
+                .thenAnswer(invocation -> saved(invocation.getArgument(2)));
+
+        heartbeatService = new ProgressHeartbeatService(userProgressService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(heartbeatService, "flushIntervalMs", 5000L);
+        ReflectionTestUtils.setField(heartbeatService, "idleEvictionMs", 600_000L);
+        heartbeatService.registerMetrics();
+    }
+
+    @Test
+    void firstHeartbeatIsWrittenThrough() {
+        assertThat(heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"))).isTrue();
+
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("10"), min("0.5"));
+    }
+
+    @Test
+    void laterHeartbeatsAreCoalescedUntilTheIntervalFlush() {
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+
+        assertThat(heartbeatService.record(USER, HUDDLE, pct("30"), min("0.5"))).isFalse();
+        assertThat(heartbeatService.record(USER, HUDDLE, pct("20"), min("0.25"))).isFalse();
+        verify(userProgressService, times(1)).applyHeartbeat(any(), any(), any(), any());
+
+        heartbeatService.flushAll();
+
+        // Highest percentage seen, minutes summed
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("30"), min("0.75"));
+    }
+
+    @Test
+    void playerSessionIsWrittenTwiceInsteadOfOncePerPing() {
+        int pings = 60;
+        for (int i = 0; i < pings; i++) {
+            heartbeatService.record(USER, HUDDLE, null, min("0.25"));
+        }
+        heartbeatService.flush(USER, HUDDLE);
+
+        // Writing each ping through addTimeSpent costs one write per ping; the heartbeat path costs the first
+        // ping plus one flush carrying the rest
+        verify(userProgressService, never()).addTimeSpent(any(), any(), any());
+        verify(userProgressService, times(2)).applyHeartbeat(any(), any(), any(), any());
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, null, min("0.25"));
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, null, min("14.75"));
+    }
+
+    @Test
+    void intervalFlushSkipsKeysWithNothingNew() {
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+
+        heartbeatService.flushAll();
+
+        verify(userProgressService, times(1)).applyHeartbeat(any(), any(), any(), any());
+    }
+
+    @Test
+    void reachingCompletionIsWrittenImmediately() {
+        heartbeatService.record(USER, HUDDLE, pct("90"), min("1"));
+
+        assertThat(heartbeatService.record(USER, HUDDLE, pct("100"), min("0.5"))).isTrue();
+
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("100"), min("0.5"));
+    }
+
+    @Test
+    void explicitFlushWritesBufferedStateBeforeATransition() {
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+        heartbeatService.record(USER, HUDDLE, pct("40"), min("2"));
+
+        heartbeatService.flush(USER, HUDDLE);
+
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("40"), min("2"));
+    }
+
+    @Test
+    void explicitFlushWithoutBufferedStateDoesNotWrite() {
+        heartbeatService.flush(USER, HUDDLE);
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+        heartbeatService.flush(USER, HUDDLE);
+
+        verify(userProgressService, times(1)).applyHeartbeat(any(), any(), any(), any());
+    }
+
+    @Test
+    void failedWriteKeepsItsMinutesForTheNextFlush() {
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+        heartbeatService.record(USER, HUDDLE, pct("20"), min("1"));
+        doThrow(new QueryTimeoutException("timeout"))
+                .doAnswer(invocation -> saved(invocation.getArgument(2)))
+                .when(userProgressService).applyHeartbeat(eq(USER), eq(HUDDLE), any(), any());
+
+        heartbeatService.flushAll();
+        heartbeatService.record(USER, HUDDLE, pct("25"), min("0.5"));
+        heartbeatService.flushAll();
+
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("20"), min("1"));
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("25"), min("1.5"));
+    }
+
+    @Test
+    void unknownReferencesAreReportedAndNotKept() {
+        when(userProgressService.applyHeartbeat(eq(USER), eq(99L), any(), any()))
+                .thenThrow(new ResourceNotFoundException("Huddle", 99L));
+
+        assertThatThrownBy(() -> heartbeatService.record(USER, 99L, pct("10"), min("1")))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(heartbeatService.getPendingCount()).isZero();
+    }
+
+    @Test
+    void idleAccumulatorsAreEvictedOnceFlushed() throws InterruptedException {
+        ReflectionTestUtils.setField(heartbeatService, "idleEvictionMs", 0L);
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+        heartbeatService.record(USER, HUDDLE, pct("20"), min("0.5"));
+
+        // The first pass writes the buffered state; the key is only evicted once it has nothing left to write
+        heartbeatService.flushAll();
+        assertThat(heartbeatService.getPendingCount()).isEqualTo(1);
+        Thread.sleep(5);
+        heartbeatService.flushAll();
+        assertThat(heartbeatService.getPendingCount()).isZero();
+
+        // A heartbeat after eviction starts a fresh accumulator and is written through again
+        assertThat(heartbeatService.record(USER, HUDDLE, pct("30"), min("0.5"))).isTrue();
+    }
+
+    @Test
+    void shutdownFlushesEverythingBuffered() {
+        heartbeatService.record(USER, HUDDLE, pct("10"), min("0.5"));
+        heartbeatService.record(USER, HUDDLE, pct("50"), min("3"));
+
+        heartbeatService.shutdown();
+
+        verify(userProgressService).applyHeartbeat(USER, HUDDLE, pct("50"), min("3"));
+    }
+
+    private static UserProgressResponse saved(BigDecimal percentage) {
+        return UserProgressResponse.builder()
+                .userId(USER)
+                .huddleId(HUDDLE)
+                .progressStatus(percentage != null && percentage.compareTo(new BigDecimal("100")) >= 0
+                        ? ProgressStatus.COMPLETED : ProgressStatus.IN_PROGRESS)
+                .completionPercentage(percentage)
+                .build();
+    }
+
+    private static BigDecimal pct(String value) {
+        return new BigDecimal(value);
+    }
+
+    private static BigDecimal min(String value) {
+        return new BigDecimal(value);
+    }
+}
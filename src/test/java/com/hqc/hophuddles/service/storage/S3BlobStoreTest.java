@@ -0,0 +1,396 @@
+package com.hqc.hophuddles.service.storage;
+
+import com.hqc.hophuddles.service.storage.BlobStore.StoredBlob;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the store against an in-process HTTP server standing in for the bucket; requests are recorded and answered
+ * by each test.
+ */
+class S3BlobStoreTest {
+
+    private static final String KEY = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+    private static final String OBJECT_PATH = "/hop-huddles/blobs/ab/cd/" + KEY;
+    private static final long MIB = 1024 * 1024;
+
+    @TempDir
+    Path tempDirectory;
+
+    private HttpServer server;
+    private final List<Recorded> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile Function<Recorded, Response> responder = request -> new Response(200, Map.of(), new byte[0]);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void smallBlobIsPutInOneSignedRequestAtThePathStyleObjectPath() throws Exception {
+        Path source = file(1000);
+
+        store(16 * MIB).put(KEY, source);
+
+        assertThat(requests).hasSize(1);
+        Recorded put = requests.get(0);
+        assertThat(put.method).isEqualTo("PUT");
+        assertThat(put.path).isEqualTo(OBJECT_PATH);
+        assertThat(put.body).isEqualTo(Files.readAllBytes(source));
+        // The blob key is the content hash, so the service verifies the upload against it
+        assertThat(put.header("x-amz-content-sha256")).isEqualTo(KEY);
+        assertSignedAsSent(put);
+    }
+
+    @Test
+    void largeBlobIsUploadedInPartsAndCompleted() throws Exception {
+        Path source = file(11 * MIB + 1);
+        responder = request -> {
+            if (request.method.equals("POST") && "uploads=".equals(request.query)) {
+                return xml(200, "<InitiateMultipartUploadResult><UploadId>upload-1</UploadId>"
+                        + "</InitiateMultipartUploadResult>");
+            }
+            if (request.method.equals("PUT")) {
+                String partNumber = request.queryParam("partNumber");
+                return new Response(200, Map.of("ETag", "\"etag-" + partNumber + "\""), new byte[0]);
+            }
+            return xml(200, "<CompleteMultipartUploadResult><Key>k</Key></CompleteMultipartUploadResult>");
+        };
+
+        store(5 * MIB).put(KEY, source);
+
+        List<Recorded> parts = requests.stream().filter(request -> request.method.equals("PUT"))
+                .sorted((a, b) -> Integer.compare(Integer.parseInt(a.queryParam("partNumber")),
+                        Integer.parseInt(b.queryParam("partNumber"))))
+                .toList();
+        assertThat(parts).extracting(part -> part.body.length).containsExactly((int) (5 * MIB), (int) (5 * MIB),
+                (int) (MIB + 1));
+        assertThat(parts).allSatisfy(part -> {
+            assertThat(part.path).isEqualTo(OBJECT_PATH);
+            assertThat(part.queryParam("uploadId")).isEqualTo("upload-1");
+            assertThat(part.header("x-amz-content-sha256")).isEqualTo(SigV4Signer.UNSIGNED_PAYLOAD);
+            assertSignedAsSent(part);
+        });
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (Recorded part : parts) {
+            uploaded.write(part.body);
+        }
+        assertThat(uploaded.toByteArray()).isEqualTo(Files.readAllBytes(source));
+
+        Recorded complete = requests.get(requests.size() - 1);
+        assertThat(complete.method).isEqualTo("POST");
+        assertThat(complete.query).isEqualTo("uploadId=upload-1");
+        assertThat(new String(complete.body, StandardCharsets.UTF_8)).isEqualTo("<CompleteMultipartUpload>"
+                + "<Part><PartNumber>1</PartNumber><ETag>&quot;etag-1&quot;</ETag></Part>"
+                + "<Part><PartNumber>2</PartNumber><ETag>&quot;etag-2&quot;</ETag></Part>"
+                + "<Part><PartNumber>3</PartNumber><ETag>&quot;etag-3&quot;</ETag></Part>"
+                + "</CompleteMultipartUpload>");
+        assertThat(complete.header("x-amz-content-sha256")).isEqualTo(SigV4Signer.sha256Hex(complete.body));
+    }
+
+    @Test
+    void failingPartIsRetriedAndThenTheUploadAborted() throws Exception {
+        Path source = file(6 * MIB);
+        responder = request -> {
+            if (request.method.equals("POST")) {
+                return xml(200, "<InitiateMultipartUploadResult><UploadId>upload-2</UploadId>"
+                        + "</InitiateMultipartUploadResult>");
+            }
+            if (request.method.equals("PUT") && "2".equals(request.queryParam("partNumber"))) {
+                return xml(500, "<Error><Code>InternalError</Code></Error>");
+            }
+            return new Response(request.method.equals("DELETE") ? 204 : 200, Map.of("ETag", "\"e\""), new byte[0]);
+        };
+
+        assertThatThrownBy(() -> store(5 * MIB).put(KEY, source))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("UploadPart 2");
+
+        assertThat(requests).filteredOn(request -> "2".equals(request.queryParam("partNumber"))).hasSize(3);
+        assertThat(requests).filteredOn(request -> request.method.equals("DELETE"))
+                .singleElement()
+                .satisfies(abort -> assertThat(abort.query).isEqualTo("uploadId=upload-2"));
+        assertThat(requests).noneMatch(request -> request.method.equals("POST")
+                && "uploadId=upload-2".equals(request.query));
+    }
+
+    @Test
+    void listingFollowsContinuationTokens() throws Exception {
+        responder = request -> request.queryParam("continuation-token") == null
+                ? xml(200, "<ListBucketResult><IsTruncated>true</IsTruncated>"
+                        + "<NextContinuationToken>next/page=</NextContinuationToken>"
+                        + contents("blobs/ab/cd/" + KEY, 42, "2024-05-01T10:15:30.000Z")
+                        + "</ListBucketResult>")
+                : xml(200, "<ListBucketResult><IsTruncated>false</IsTruncated>"
+                        + contents("blobs/12/34/1234", 7, "2024-05-02T00:00:00.000Z")
+                        + "</ListBucketResult>");
+        List<StoredBlob> listed = new ArrayList<>();
+
+        store(16 * MIB).list(1, listed::addAll);
+
+        assertThat(listed).extracting(StoredBlob::getKey).containsExactly(KEY, "1234");
+        assertThat(listed).extracting(StoredBlob::getSize).containsExactly(42L, 7L);
+        assertThat(listed.get(0).getLastModified()).isEqualTo(Instant.parse("2024-05-01T10:15:30Z"));
+        assertThat(requests).extracting(request -> request.path).containsOnly("/hop-huddles");
+        assertThat(requests.get(0).query).isEqualTo("list-type=2&max-keys=1&prefix=blobs%2F");
+        assertThat(requests.get(1).queryParam("continuation-token")).isEqualTo("next/page=");
+        requests.forEach(this::assertSignedAsSent);
+    }
+
+    @Test
+    void rangeIsRequestedAndHonouredWhenTheServiceIgnoresIt() throws Exception {
+        byte[] content = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        S3BlobStore store = store(16 * MIB);
+
+        responder = request -> new Response(206, Map.of(), "2345".getBytes(StandardCharsets.US_ASCII));
+        try (InputStream in = store.open(KEY, 2, 4)) {
+            assertThat(in.readAllBytes()).asString(StandardCharsets.US_ASCII).isEqualTo("2345");
+        }
+        assertThat(requests.get(0).header("Range")).isEqualTo("bytes=2-5");
+
+        responder = request -> new Response(200, Map.of(), content);
+        try (InputStream in = store.open(KEY, 2, 4)) {
+            assertThat(in.readAllBytes()).asString(StandardCharsets.US_ASCII).isEqualTo("2345");
+        }
+
+        try (InputStream in = store.open(KEY, 0, 0)) {
+            assertThat(in.readAllBytes()).isEmpty();
+        }
+        assertThat(requests).hasSize(2);
+    }
+
+    @Test
+    void headReportsExistenceAndModificationTime() throws Exception {
+        S3BlobStore store = store(16 * MIB);
+
+        responder = request -> new Response(200, Map.of("Last-Modified", "Wed, 01 May 2024 10:15:30 GMT"), null);
+        assertThat(store.exists(KEY)).isTrue();
+        assertThat(store.lastModified(KEY)).isEqualTo(Instant.parse("2024-05-01T10:15:30Z"));
+
+        responder = request -> new Response(404, Map.of(), null);
+        assertThat(store.exists(KEY)).isFalse();
+        assertThat(store.lastModified(KEY)).isNull();
+
+        responder = request -> new Response(403, Map.of(), null);
+        assertThatThrownBy(() -> store.exists(KEY)).isInstanceOf(IOException.class).hasMessageContaining("403");
+    }
+
+    @Test
+    void presignedUrlForPathStyleEndpoint() {
+        S3BlobStore store = new S3BlobStore(URI.create("http://localhost:9000"), "us-east-1", "hop-huddles",
+                "access", "secret", true, "blobs/", 16 * MIB, 8 * MIB, 4, Duration.ofSeconds(5));
+
+        URI url = store.presign(KEY, Duration.ofMinutes(15),
+                Map.of("Content-Disposition", "attachment; filename=\"Week 1.pdf\""));
+
+        assertThat(url.getScheme()).isEqualTo("http");
+        assertThat(url.getRawAuthority()).isEqualTo("localhost:9000");
+        assertThat(url.getRawPath()).isEqualTo(OBJECT_PATH);
+        assertPresignedQuery(url, "localhost:9000", OBJECT_PATH, "900");
+        assertThat(url.getRawQuery())
+                .contains("response-content-disposition=attachment%3B%20filename%3D%22Week%201.pdf%22");
+        // Every download in the same half-TTL window gets the same URL
+        assertThat(store.presign(KEY, Duration.ofMinutes(15),
+                Map.of("Content-Disposition", "attachment; filename=\"Week 1.pdf\""))).isEqualTo(url);
+    }
+
+    @Test
+    void presignedUrlForVirtualHostedEndpoint() {
+        S3BlobStore store = new S3BlobStore(URI.create("https://s3.eu-west-1.amazonaws.com/ignored/path"),
+                "eu-west-1", "hop-huddles", "access", "secret", false, "", 16 * MIB, 8 * MIB, 4,
+                Duration.ofSeconds(5));
+
+        URI url = store.presign(KEY, Duration.ofDays(30), Map.of());
+
+        assertThat(url.getScheme()).isEqualTo("https");
+        assertThat(url.getRawAuthority()).isEqualTo("hop-huddles.s3.eu-west-1.amazonaws.com");
+        assertThat(url.getRawPath()).isEqualTo("/ab/cd/" + KEY);
+        // Capped at the seven days S3 allows
+        assertPresignedQuery(url, "hop-huddles.s3.eu-west-1.amazonaws.com", "/ab/cd/" + KEY, "604800");
+    }
+
+    @Test
+    void partSizeGrowsToStayWithinTenThousandParts() {
+        long partSize = 8 * MIB;
+
+        assertThat(S3BlobStore.partSizeFor(10 * MIB, partSize)).isEqualTo(partSize);
+        assertThat(S3BlobStore.partSizeFor(10_000 * partSize, partSize)).isEqualTo(partSize);
+        assertThat(S3BlobStore.partSizeFor(10_000 * partSize + 1, partSize)).isEqualTo(partSize + 1);
+
+        long fiveTiB = 5L * 1024 * 1024 * MIB;
+        for (long size : new long[]{10_000 * partSize + 1, 100L * 1024 * MIB, fiveTiB - 1, fiveTiB}) {
+            long effective = S3BlobStore.partSizeFor(size, partSize);
+            long parts = (size + effective - 1) / effective;
+            assertThat(parts).as("parts for %d bytes", size).isLessThanOrEqualTo(10_000);
+            assertThat(effective).isGreaterThanOrEqualTo(partSize);
+        }
+    }
+
+    private S3BlobStore store(long multipartThreshold) {
+        return new S3BlobStore(URI.create("http://127.0.0.1:" + server.getAddress().getPort()), "us-east-1",
+                "hop-huddles", "access", "secret", true, "blobs/", multipartThreshold, 5 * MIB, 2,
+                Duration.ofSeconds(10));
+    }
+
+    // Recomputes the signature from what arrived, so the signed path, query and host are the ones sent
+    private void assertSignedAsSent(Recorded request) {
+        SortedMap<String, String> query = new TreeMap<>();
+        if (request.query != null) {
+            for (String param : request.query.split("&")) {
+                String[] pair = param.split("=", 2);
+                query.put(decode(pair[0]), pair.length > 1 ? decode(pair[1]) : "");
+            }
+        }
+        Instant date = Instant.from(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC)
+                .parse(request.header("x-amz-date")));
+        Map<String, String> expected = new SigV4Signer("access", "secret", "us-east-1").sign(request.method,
+                request.header("Host"), request.path, query, Map.of(), request.header("x-amz-content-sha256"), date);
+        assertThat(request.header("Authorization")).isEqualTo(expected.get("Authorization"));
+    }
+
+    private static void assertPresignedQuery(URI url, String host, String path, String expires) {
+        String query = url.getRawQuery();
+        assertThat(query).contains("X-Amz-Algorithm=AWS4-HMAC-SHA256", "X-Amz-Expires=" + expires,
+                "X-Amz-SignedHeaders=host").containsPattern("&X-Amz-Signature=[0-9a-f]{64}$");
+
+        SortedMap<String, String> params = new TreeMap<>();
+        String date = null;
+        for (String param : query.substring(0, query.indexOf("&X-Amz-Signature=")).split("&")) {
+            String[] pair = param.split("=", 2);
+            String name = decode(pair[0]);
+            if (name.equals("X-Amz-Date")) {
+                date = pair[1];
+            }
+            if (!name.startsWith("X-Amz-")) {
+                params.put(name, decode(pair[1]));
+            }
+        }
+        String region = url.getHost().contains("eu-west-1") ? "eu-west-1" : "us-east-1";
+        Instant signedAt = Instant.from(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+                .withZone(ZoneOffset.UTC).parse(date));
+        assertThat(query).isEqualTo(new SigV4Signer("access", "secret", region)
+                .presign("GET", host, path, params, signedAt, Long.parseLong(expires)));
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private Path file(long size) throws IOException {
+        byte[] bytes = new byte[(int) size];
+        new Random(size).nextBytes(bytes);
+        return Files.write(tempDirectory.resolve("blob-" + size), bytes);
+    }
+
+    private static String contents(String key, long size, String lastModified) {
+        return "<Contents><Key>" + key + "</Key><LastModified>" + lastModified + "</LastModified><Size>" + size
+                + "</Size></Contents>";
+    }
+
+    private static Response xml(int status, String body) {
+        return new Response(status, Map.of("Content-Type", "application/xml"), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Recorded request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = new Recorded(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath(),
+                    exchange.getRequestURI().getRawQuery(), exchange.getRequestHeaders(), in.readAllBytes());
+        }
+        requests.add(request);
+        Response response = responder.apply(request);
+        response.headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+        if (response.body == null || response.body.length == 0 || request.method.equals("HEAD")) {
+            exchange.sendResponseHeaders(response.status, -1);
+        } else {
+            exchange.sendResponseHeaders(response.status, response.body.length);
+            exchange.getResponseBody().write(response.body);
+        }
+        exchange.close();
+    }
+
+    private static class Recorded {
+        private final String method;
+        private final String path;
+        private final String query;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        Recorded(String method, String path, String query, Map<String, List<String>> headers, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String header(String name) {
+            return headers.entrySet().stream()
+                    .filter(header -> header.getKey().equalsIgnoreCase(name))
+                    .map(header -> header.getValue().get(0))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        String queryParam(String name) {
+            if (query == null) {
+                return null;
+            }
+            for (String param : query.split("&")) {
+                String[] pair = param.split("=", 2);
+                if (decode(pair[0]).equals(name)) {
+                    return pair.length > 1 ? decode(pair[1]) : "";
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        Response(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
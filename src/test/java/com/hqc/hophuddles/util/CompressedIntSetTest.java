@@ -0,0 +1,212 @@
+package com.hqc.hophuddles.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedIntSetTest {
+
+    @Test
+    void emptySet() {
+        CompressedIntSet set = new CompressedIntSet();
+
+        assertThat(set.isEmpty()).isTrue();
+        assertThat(set.cardinality()).isZero();
+        assertThat(set.contains(0)).isFalse();
+        assertThat(set.toLongArray()).isEmpty();
+        assertThat(CompressedIntSet.and(set, CompressedIntSet.of(1)).isEmpty()).isTrue();
+        assertThat(CompressedIntSet.or(set, set).isEmpty()).isTrue();
+        assertThat(CompressedIntSet.andNot(set, CompressedIntSet.of(1)).isEmpty()).isTrue();
+    }
+
+    @Test
+    void singleValue() {
+        CompressedIntSet set = CompressedIntSet.of(42);
+
+        assertThat(set.isEmpty()).isFalse();
+        assertThat(set.cardinality()).isEqualTo(1);
+        assertThat(set.contains(42)).isTrue();
+        assertThat(set.contains(41)).isFalse();
+        assertThat(set.contains(42 + 65536)).isFalse();
+        assertThat(set.toLongArray()).containsExactly(42L);
+    }
+
+    @Test
+    void duplicatesAreIgnored() {
+        CompressedIntSet set = CompressedIntSet.of(7, 7, 7);
+
+        assertThat(set.cardinality()).isEqualTo(1);
+    }
+
+    @Test
+    void boundaryValues() {
+        CompressedIntSet set = CompressedIntSet.of(Integer.MAX_VALUE, 0, 65535, 65536);
+
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.contains(65535)).isTrue();
+        assertThat(set.contains(65536)).isTrue();
+        assertThat(set.contains(Integer.MAX_VALUE)).isTrue();
+        assertThat(set.contains(Integer.MAX_VALUE - 1)).isFalse();
+        assertThat(set.contains(-1)).isFalse();
+        assertThat(set.contains(Integer.MIN_VALUE)).isFalse();
+        assertThat(set.toLongArray()).containsExactly(0L, 65535L, 65536L, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        CompressedIntSet set = new CompressedIntSet();
+
+        assertThatThrownBy(() -> set.add(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(set.isEmpty()).isTrue();
+    }
+
+    @Test
+    void denseRunBecomesABitmapAndStaysCorrect() {
+        CompressedIntSet set = new CompressedIntSet();
+        long sparseBytes = 0;
+        for (int value = 0; value < 65536; value++) {
+            set.add(value);
+            if (value == 4095) {
+                sparseBytes = set.estimatedBytes();
+            }
+        }
+
+        assertThat(set.cardinality()).isEqualTo(65536);
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.contains(65535)).isTrue();
+        assertThat(set.contains(65536)).isFalse();
+        // A full partition costs one 8 KiB bitmap, the same as the array at its 4096-value limit
+        assertThat(set.estimatedBytes()).isLessThanOrEqualTo(sparseBytes + 64);
+    }
+
+    @Test
+    void bitmapShrinksBackToAnArrayWhenOperationsThinItOut() {
+        CompressedIntSet dense = new CompressedIntSet();
+        for (int value = 0; value < 10_000; value++) {
+            dense.add(value);
+        }
+        CompressedIntSet few = CompressedIntSet.of(3, 5_000, 9_999, 20_000);
+
+        CompressedIntSet common = CompressedIntSet.and(dense, few);
+        CompressedIntSet remainder = CompressedIntSet.andNot(dense, dense);
+
+        assertThat(common.toLongArray()).containsExactly(3L, 5_000L, 9_999L);
+        assertThat(common.estimatedBytes()).isLessThan(100);
+        assertThat(remainder.isEmpty()).isTrue();
+    }
+
+    @Test
+    void sparseValuesAcrossManyPartitions() {
+        CompressedIntSet set = new CompressedIntSet();
+        Set<Integer> expected = new HashSet<>();
+        // Added in descending order so every partition is inserted ahead of the existing ones
+        for (int value = Integer.MAX_VALUE; value > 0 && expected.size() < 1000; value -= 2_000_003) {
+            set.add(value);
+            expected.add(value);
+        }
+
+        assertRoundTrip(set, expected);
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        CompressedIntSet original = CompressedIntSet.of(1, 2, 3);
+        CompressedIntSet copy = original.copy();
+
+        copy.add(4);
+
+        assertThat(original.contains(4)).isFalse();
+        assertThat(copy.toLongArray()).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void operationsDoNotModifyTheirOperands() {
+        CompressedIntSet a = CompressedIntSet.of(1, 2, 3, 70_000);
+        CompressedIntSet b = CompressedIntSet.of(2, 3, 4, 140_000);
+
+        CompressedIntSet.and(a, b);
+        CompressedIntSet.or(a, b);
+        CompressedIntSet.andNot(a, b);
+
+        assertThat(a.toLongArray()).containsExactly(1L, 2L, 3L, 70_000L);
+        assertThat(b.toLongArray()).containsExactly(2L, 3L, 4L, 140_000L);
+    }
+
+    @Test
+    void roundTripsAgainstHashSet() {
+        Random random = new Random(20240601L);
+        for (int round = 0; round < 20; round++) {
+            // Mix dense runs that cross the array/bitmap threshold with sparse values in other partitions
+            int[] first = randomValues(random);
+            int[] second = randomValues(random);
+            CompressedIntSet a = CompressedIntSet.of(first);
+            CompressedIntSet b = CompressedIntSet.of(second);
+            Set<Integer> expectedA = toSet(first);
+            Set<Integer> expectedB = toSet(second);
+
+            assertRoundTrip(a, expectedA);
+            assertRoundTrip(b, expectedB);
+
+            Set<Integer> intersection = new HashSet<>(expectedA);
+            intersection.retainAll(expectedB);
+            assertRoundTrip(CompressedIntSet.and(a, b), intersection);
+
+            Set<Integer> union = new HashSet<>(expectedA);
+            union.addAll(expectedB);
+            assertRoundTrip(CompressedIntSet.or(a, b), union);
+
+            Set<Integer> difference = new HashSet<>(expectedA);
+            difference.removeAll(expectedB);
+            assertRoundTrip(CompressedIntSet.andNot(a, b), difference);
+        }
+    }
+
+    private static void assertRoundTrip(CompressedIntSet set, Set<Integer> expected) {
+        assertThat(set.cardinality()).isEqualTo(expected.size());
+        assertThat(set.isEmpty()).isEqualTo(expected.isEmpty());
+
+        List<Integer> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        assertThat(visited).isSorted();
+        assertThat(new HashSet<>(visited)).isEqualTo(expected);
+        assertThat(set.toLongArray()).hasSize(expected.size());
+
+        for (int value : expected) {
+            assertThat(set.contains(value)).isTrue();
+            assertThat(set.contains(value + 1)).isEqualTo(expected.contains(value + 1));
+        }
+    }
+
+    private static int[] randomValues(Random random) {
+        List<Integer> values = new ArrayList<>();
+        int partitions = random.nextInt(4);
+        for (int p = 0; p < partitions; p++) {
+            int base = random.nextInt(8) << 16;
+            int runLength = random.nextInt(12_000);
+            int start = random.nextInt(65536 - runLength);
+            for (int v = start; v < start + runLength; v++) {
+                values.add(base + v);
+            }
+        }
+        int sparse = random.nextInt(500);
+        for (int i = 0; i < sparse; i++) {
+            values.add(random.nextInt(Integer.MAX_VALUE));
+        }
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        Set<Integer> set = new HashSet<>();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}